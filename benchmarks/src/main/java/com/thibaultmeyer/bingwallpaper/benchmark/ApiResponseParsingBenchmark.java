@@ -0,0 +1,97 @@
+package com.thibaultmeyer.bingwallpaper.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.thibaultmeyer.bingwallpaper.api.BingArchiveParser;
+import com.thibaultmeyer.bingwallpaper.api.BingImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the Bing API response, as done when retrieving the wallpaper of the
+ * day (n=1) and when fetching the archive (n=8): the JSON tree (DOM) versus the
+ * streaming parser extracting only the needed fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ApiResponseParsingBenchmark {
+
+    @Param({"1", "8"})
+    public int imageCount;
+
+    private byte[] content;
+
+    /**
+     * Load the recorded response.
+     *
+     * @throws IOException If the fixture can't be loaded
+     */
+    @Setup
+    public void setup() throws IOException {
+
+        content = FixtureUtils.load("hpimagearchive-n" + imageCount + ".json");
+    }
+
+    /**
+     * Parse the response by building the JSON tree.
+     *
+     * @return The images
+     */
+    @Benchmark
+    public List<BingImage> dom() {
+
+        final JsonObject jsonObject = JsonParser.parseReader(
+            new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)).getAsJsonObject();
+        final JsonArray imageArray = jsonObject.getAsJsonArray("images");
+
+        final List<BingImage> imageList = new ArrayList<>();
+        for (final JsonElement jsonElement : imageArray) {
+            final JsonObject imageObject = jsonElement.getAsJsonObject();
+            imageList.add(new BingImage(
+                imageObject.get("url").getAsString(),
+                imageObject.get("urlbase").getAsString(),
+                imageObject.get("startdate").getAsString(),
+                imageObject.get("fullstartdate").getAsString(),
+                imageObject.get("enddate").getAsString(),
+                imageObject.get("hsh").getAsString(),
+                imageObject.get("copyright").getAsString()));
+        }
+
+        return imageList;
+    }
+
+    /**
+     * Parse the response with the streaming parser.
+     *
+     * @return The images
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public List<BingImage> streaming() throws IOException {
+
+        return BingArchiveParser.parse(content);
+    }
+}
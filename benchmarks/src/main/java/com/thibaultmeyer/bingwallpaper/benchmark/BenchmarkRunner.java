@@ -0,0 +1,45 @@
+package com.thibaultmeyer.bingwallpaper.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of the benchmarks. Accepts the regular JMH command line options,
+ * the GC profiler is always enabled: reports include the allocation rate and
+ * the number of bytes allocated per operation.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param argList JMH command line options (ie: ApiResponseParsing -f 1)
+     * @throws CommandLineOptionException If the command line options are invalid
+     * @throws IOException                If the help can't be displayed
+     * @throws RunnerException            If a benchmark fails
+     */
+    public static void main(final String[] argList) throws CommandLineOptionException, IOException, RunnerException {
+
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(argList);
+        if (commandLineOptions.shouldHelp()) {
+            commandLineOptions.showHelp();
+            return;
+        } else if (commandLineOptions.shouldList()) {
+            new Runner(commandLineOptions).list();
+            return;
+        }
+
+        final Options options = new OptionsBuilder()
+            .parent(commandLineOptions)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,212 @@
+package com.thibaultmeyer.bingwallpaper.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy of a cached image to the target file, as done when saving the wallpaper
+ * to local disk, with different buffer and channel strategies. The source is
+ * filled with pseudo-random bytes: like a JPEG, it can't be compressed by the
+ * file system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class FileCopyBenchmark {
+
+    private static final long RANDOM_SEED = 0x42494E47L;
+
+    /**
+     * Size of the copied file (MB). Bing UHD images are usually between 5 and 20 MB.
+     */
+    @Param({"5", "20"})
+    public int sizeMegabytes;
+
+    /**
+     * Copy strategy.
+     */
+    @Param({"files_copy", "stream_8k", "stream_64k", "stream_1m", "channel_transfer", "channel_direct_64k"})
+    public String strategy;
+
+    private Path workingDirectory;
+    private Path sourceFile;
+    private Path targetFile;
+
+    /**
+     * Create the source file.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    @Setup
+    public void setup() throws IOException {
+
+        workingDirectory = Files.createTempDirectory("bingwallpaper-benchmark");
+        sourceFile = workingDirectory.resolve("source.jpg");
+        targetFile = workingDirectory.resolve("target.jpg");
+
+        final Random random = new Random(RANDOM_SEED);
+        final byte[] buffer = new byte[1024 * 1024];
+        final OutputStream outputStream = Files.newOutputStream(sourceFile);
+        for (int idx = 0; idx < sizeMegabytes; idx += 1) {
+            random.nextBytes(buffer);
+            outputStream.write(buffer);
+        }
+        outputStream.close();
+    }
+
+    /**
+     * Delete the source and target files.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+
+        Files.deleteIfExists(targetFile);
+        Files.deleteIfExists(sourceFile);
+        Files.deleteIfExists(workingDirectory);
+    }
+
+    /**
+     * Copy the source file to the target file.
+     *
+     * @return Number of copied bytes
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public long copy() throws IOException {
+
+        switch (strategy) {
+            case "files_copy":
+                Files.copy(sourceFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+                return Files.size(targetFile);
+            case "stream_8k":
+                return copyWithStream(8 * 1024);
+            case "stream_64k":
+                return copyWithStream(64 * 1024);
+            case "stream_1m":
+                return copyWithStream(1024 * 1024);
+            case "channel_transfer":
+                return copyWithChannelTransfer();
+            case "channel_direct_64k":
+                return copyWithDirectBuffer(64 * 1024);
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+    }
+
+    /**
+     * Copy with streams and a heap buffer.
+     *
+     * @param bufferSize Size of the buffer (Bytes)
+     * @return Number of copied bytes
+     * @throws IOException If something goes wrong during the process
+     */
+    private long copyWithStream(final int bufferSize) throws IOException {
+
+        final byte[] buffer = new byte[bufferSize];
+        long copied = 0;
+
+        final InputStream inputStream = Files.newInputStream(sourceFile);
+        final OutputStream outputStream = Files.newOutputStream(targetFile);
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, read);
+                copied += read;
+            }
+        } finally {
+            outputStream.close();
+            inputStream.close();
+        }
+
+        return copied;
+    }
+
+    /**
+     * Copy with {@code FileChannel.transferTo}, letting the kernel move the bytes.
+     *
+     * @return Number of copied bytes
+     * @throws IOException If something goes wrong during the process
+     */
+    private long copyWithChannelTransfer() throws IOException {
+
+        final FileChannel sourceChannel = FileChannel.open(sourceFile, StandardOpenOption.READ);
+        final FileChannel targetChannel = FileChannel.open(
+            targetFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            final long size = sourceChannel.size();
+            long copied = 0;
+            while (copied < size) {
+                copied += sourceChannel.transferTo(copied, size - copied, targetChannel);
+            }
+
+            return copied;
+        } finally {
+            targetChannel.close();
+            sourceChannel.close();
+        }
+    }
+
+    /**
+     * Copy with channels and a direct buffer.
+     *
+     * @param bufferSize Size of the buffer (Bytes)
+     * @return Number of copied bytes
+     * @throws IOException If something goes wrong during the process
+     */
+    private long copyWithDirectBuffer(final int bufferSize) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        long copied = 0;
+
+        final FileChannel sourceChannel = FileChannel.open(sourceFile, StandardOpenOption.READ);
+        final FileChannel targetChannel = FileChannel.open(
+            targetFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (sourceChannel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    copied += targetChannel.write(buffer);
+                }
+                buffer.clear();
+            }
+        } finally {
+            targetChannel.close();
+            sourceChannel.close();
+        }
+
+        return copied;
+    }
+}
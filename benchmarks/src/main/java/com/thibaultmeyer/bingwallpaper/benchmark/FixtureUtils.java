@@ -0,0 +1,69 @@
+package com.thibaultmeyer.bingwallpaper.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Utility to load the recorded fixture payloads shipped with the benchmarks,
+ * and to generate the images (too large to be shipped).
+ */
+public final class FixtureUtils {
+
+    private static final long RANDOM_SEED = 0x42494E47L;
+
+    /**
+     * Load a fixture.
+     *
+     * @param name Name of the fixture (ie: hpimagearchive-n1.json)
+     * @return The fixture content
+     * @throws IOException If the fixture does not exist or can't be read
+     */
+    public static byte[] load(final String name) throws IOException {
+
+        final InputStream inputStream = FixtureUtils.class.getResourceAsStream("/fixtures/" + name);
+        if (inputStream == null) {
+            throw new IOException("Fixture not found: " + name);
+        }
+
+        try {
+            return inputStream.readAllBytes();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Generate a JPEG image. Gradients with some noise give a JPEG having a
+     * size close to a real photograph. The result is always the same for a
+     * given dimension.
+     *
+     * @param width  Width of the image (Pixel)
+     * @param height Height of the image (Pixel)
+     * @return The JPEG image
+     * @throws IOException If something goes wrong during the process
+     */
+    public static byte[] generateJpeg(final int width, final int height) throws IOException {
+
+        final Random random = new Random(RANDOM_SEED);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y += 1) {
+            for (int x = 0; x < width; x += 1) {
+                final int noise = random.nextInt(32);
+                final int red = (x * 255 / width + noise) & 0xFF;
+                final int green = (y * 255 / height + noise) & 0xFF;
+                final int blue = ((x + y) * 127 / (width + height) + noise) & 0xFF;
+                image.setRGB(x, y, (red << 16) | (green << 8) | blue);
+            }
+        }
+
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", byteArrayOutputStream);
+        image.flush();
+
+        return byteArrayOutputStream.toByteArray();
+    }
+}
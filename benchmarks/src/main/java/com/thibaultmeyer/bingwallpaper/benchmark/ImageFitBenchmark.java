@@ -0,0 +1,130 @@
+package com.thibaultmeyer.bingwallpaper.benchmark;
+
+import com.thibaultmeyer.bingwallpaper.image.ImageFitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding and resizing of a UHD wallpaper to the display dimension: the
+ * subsampled, region-limited decoding of the image fitter versus a full
+ * resolution decoding followed by a scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ImageFitBenchmark {
+
+    private static final int SOURCE_WIDTH = 3840;
+    private static final int SOURCE_HEIGHT = 2160;
+
+    /**
+     * Target dimension (ie: 1920x1080).
+     */
+    @Param({"1920x1080", "2560x1600"})
+    public String dimension;
+
+    /**
+     * Fit mode.
+     */
+    @Param({"CROP", "SCALE"})
+    public String fitMode;
+
+    private Path workingDirectory;
+    private Path sourceFile;
+    private Path targetFile;
+    private int targetWidth;
+    private int targetHeight;
+
+    /**
+     * Create the UHD source image.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    @Setup
+    public void setup() throws IOException {
+
+        final String[] dimensionPartArray = dimension.split("x");
+        targetWidth = Integer.parseInt(dimensionPartArray[0]);
+        targetHeight = Integer.parseInt(dimensionPartArray[1]);
+
+        workingDirectory = Files.createTempDirectory("bingwallpaper-benchmark");
+        sourceFile = workingDirectory.resolve("source.jpg");
+        targetFile = workingDirectory.resolve("target.jpg");
+
+        Files.write(sourceFile, FixtureUtils.generateJpeg(SOURCE_WIDTH, SOURCE_HEIGHT));
+    }
+
+    /**
+     * Delete the source and target images.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+
+        Files.deleteIfExists(targetFile);
+        Files.deleteIfExists(sourceFile);
+        Files.deleteIfExists(workingDirectory);
+    }
+
+    /**
+     * Fit the image with the image fitter.
+     *
+     * @return {@code true} if a fitted image has been written
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public boolean imageFitter() throws IOException {
+
+        return ImageFitter.fit(sourceFile, targetFile, targetWidth, targetHeight, ImageFitter.FitMode.fromName(fitMode));
+    }
+
+    /**
+     * Decode the full resolution image, scale it, then write it. The fit mode is ignored.
+     *
+     * @return {@code true} if the image has been written
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public boolean fullDecode() throws IOException {
+
+        final BufferedImage decodedImage = ImageIO.read(sourceFile.toFile());
+        final BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaledImage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(decodedImage, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        decodedImage.flush();
+
+        final boolean isWritten = ImageIO.write(scaledImage, "jpeg", targetFile.toFile());
+        scaledImage.flush();
+
+        return isWritten;
+    }
+}
@@ -0,0 +1,89 @@
+package com.thibaultmeyer.bingwallpaper.benchmark;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaper;
+import com.thibaultmeyer.bingwallpaper.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of the settings: parsing of the properties file, then conversion and
+ * validation of each value. The recorded settings use explicit dimensions, this
+ * way, the displays are never probed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SettingsLoadBenchmark {
+
+    private byte[] content;
+    private Properties properties;
+
+    /**
+     * Load the recorded settings.
+     *
+     * @throws IOException If the fixture can't be loaded
+     */
+    @Setup
+    public void setup() throws IOException {
+
+        content = FixtureUtils.load("settings.properties");
+        properties = parseProperties();
+    }
+
+    /**
+     * Parse the properties file.
+     *
+     * @return The properties
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public Properties parseProperties() throws IOException {
+
+        final Properties parsedProperties = new Properties();
+        parsedProperties.load(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+
+        return parsedProperties;
+    }
+
+    /**
+     * Convert and validate already parsed properties.
+     *
+     * @return The settings
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public Settings convertProperties() throws IOException {
+
+        return BingWallpaper.loadSettings(properties, true);
+    }
+
+    /**
+     * Parse the properties file, then convert and validate each value.
+     *
+     * @return The settings
+     * @throws IOException If something goes wrong during the process
+     */
+    @Benchmark
+    public Settings loadSettings() throws IOException {
+
+        return BingWallpaper.loadSettings(parseProperties(), true);
+    }
+}
@@ -0,0 +1,284 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in of the Bing website. The API ({@code /HPImageArchive.aspx})
+ * answers with canned JSON and every image ({@code /th}) with the same canned
+ * JPEG, Range requests included. Faults described by a {@link FaultProfile}
+ * are injected in responses.
+ */
+public final class FakeBingServer {
+
+    private static final int SOCKET_BACKLOG = 256;
+    private static final int[] ERROR_STATUS_ARRAY = {500, 502, 503};
+    private static final int THROTTLE_CHUNK_COUNT_PER_SECOND = 20;
+    private static final int WRITE_CHUNK_SIZE = 16 * 1024;
+
+    private final FaultProfile faultProfile;
+    private final byte[] singleImageResponse;
+    private final byte[] multipleImageResponse;
+    private final byte[] imageContent;
+    private final Map<String, LongAdder> counterMap;
+    private final AtomicLong firstApiRequestTime;
+
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+
+    /**
+     * Build a new instance.
+     *
+     * @param faultProfile          Faults to inject
+     * @param singleImageResponse   API response to a request for one image (n=1)
+     * @param multipleImageResponse API response to a request for many images (n&gt;1)
+     * @param imageContent          Content of every image
+     */
+    public FakeBingServer(final FaultProfile faultProfile,
+                          final byte[] singleImageResponse,
+                          final byte[] multipleImageResponse,
+                          final byte[] imageContent) {
+
+        this.faultProfile = faultProfile;
+        this.singleImageResponse = singleImageResponse;
+        this.multipleImageResponse = multipleImageResponse;
+        this.imageContent = imageContent;
+        this.counterMap = new ConcurrentHashMap<>();
+        this.firstApiRequestTime = new AtomicLong();
+    }
+
+    /**
+     * Start the server on the loopback interface.
+     *
+     * @param port Port to listen, {@code 0} to use any free port
+     * @return The listened port
+     * @throws IOException If something goes wrong during the process
+     */
+    public int start(final int port) throws IOException {
+
+        executorService = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "fake-bing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), SOCKET_BACKLOG);
+        httpServer.createContext("/HPImageArchive.aspx", this::handleArchive);
+        httpServer.createContext("/th", this::handleImage);
+        httpServer.setExecutor(executorService);
+        httpServer.start();
+
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Retrieve the number of requests and the number of injected faults, by kind.
+     *
+     * @return The counters, sorted by name
+     */
+    public Map<String, Long> getCounters() {
+
+        final Map<String, Long> valueMap = new TreeMap<>();
+        for (final Map.Entry<String, LongAdder> entry : counterMap.entrySet()) {
+            valueMap.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return valueMap;
+    }
+
+    /**
+     * Retrieve when the first request to the API has been received since the last reset.
+     *
+     * @return The reception time ({@link System#nanoTime()}), {@code 0} if none has been received
+     */
+    public long getFirstApiRequestTime() {
+
+        return firstApiRequestTime.get();
+    }
+
+    /**
+     * Forget the first request to the API: the next one will be the first.
+     */
+    public void resetFirstApiRequestTime() {
+
+        firstApiRequestTime.set(0);
+    }
+
+    /**
+     * Handle a request to the Bing API.
+     *
+     * @param httpExchange The HTTP exchange
+     * @throws IOException If something goes wrong during the process
+     */
+    private void handleArchive(final HttpExchange httpExchange) throws IOException {
+
+        firstApiRequestTime.compareAndSet(0, System.nanoTime());
+        increment("requests_api");
+
+        final String query = httpExchange.getRequestURI().getRawQuery();
+        final boolean isSingleImage = query == null || !query.matches("(.*&)?n=([2-9]|\\d{2,})(&.*)?");
+        httpExchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+
+        respond(httpExchange, isSingleImage ? singleImageResponse : multipleImageResponse, 0);
+    }
+
+    /**
+     * Handle a request to an image.
+     *
+     * @param httpExchange The HTTP exchange
+     * @throws IOException If something goes wrong during the process
+     */
+    private void handleImage(final HttpExchange httpExchange) throws IOException {
+
+        increment("requests_image");
+
+        int offset = 0;
+        final String range = httpExchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.matches("bytes=\\d+-")) {
+            offset = Integer.parseInt(range.substring(6, range.length() - 1));
+            if (offset >= imageContent.length) {
+                httpExchange.getResponseHeaders().set("Content-Range", "bytes */" + imageContent.length);
+                httpExchange.sendResponseHeaders(416, -1);
+                httpExchange.close();
+                return;
+            }
+            increment("requests_image_resumed");
+            httpExchange.getResponseHeaders().set(
+                "Content-Range",
+                "bytes " + offset + "-" + (imageContent.length - 1) + "/" + imageContent.length);
+        }
+        httpExchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+        httpExchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+
+        respond(httpExchange, imageContent, offset);
+    }
+
+    /**
+     * Send the response, injecting faults.
+     *
+     * @param httpExchange The HTTP exchange
+     * @param content      The response body
+     * @param offset       Offset of the first byte to send (ie: Range request)
+     * @throws IOException If something goes wrong during the process
+     */
+    private void respond(final HttpExchange httpExchange, final byte[] content, final int offset) throws IOException {
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            final long latency = faultProfile.latency
+                + (faultProfile.latencyJitter > 0 ? random.nextLong(faultProfile.latencyJitter + 1) : 0);
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+
+            if (random.nextDouble() < faultProfile.resetRate) {
+                // Throwing from the handler makes the server close the connection without response
+                increment("faults_reset");
+                throw new IOException("Injected connection reset");
+            }
+
+            if (random.nextDouble() < faultProfile.errorRate) {
+                increment("faults_error");
+                final byte[] body = "Injected server error".getBytes(StandardCharsets.UTF_8);
+                httpExchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                httpExchange.sendResponseHeaders(ERROR_STATUS_ARRAY[random.nextInt(ERROR_STATUS_ARRAY.length)], body.length);
+                httpExchange.getResponseBody().write(body);
+                httpExchange.close();
+                return;
+            }
+
+            final int length = content.length - offset;
+            httpExchange.sendResponseHeaders(offset > 0 ? 206 : 200, length);
+            final OutputStream outputStream = httpExchange.getResponseBody();
+
+            if (random.nextDouble() < faultProfile.truncateRate) {
+                // Declared length is never reached: the client sees a premature end of stream
+                increment("faults_truncate");
+                write(outputStream, content, offset, length / 2);
+                outputStream.flush();
+                throw new IOException("Injected truncated body");
+            }
+
+            write(outputStream, content, offset, length);
+            httpExchange.close();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+    }
+
+    /**
+     * Write the body, throttled to the bandwidth of the fault profile.
+     *
+     * @param outputStream Where to write
+     * @param content      The body
+     * @param offset       Offset of the first byte to write
+     * @param length       Number of bytes to write
+     * @throws IOException          If something goes wrong during the process
+     * @throws InterruptedException If interrupted while throttled
+     */
+    private void write(final OutputStream outputStream,
+                       final byte[] content,
+                       final int offset,
+                       final int length) throws IOException, InterruptedException {
+
+        if (faultProfile.bandwidth <= 0) {
+            // The server keeps a buffer as large as the largest write for each kept-alive connection
+            for (int written = 0; written < length; written += WRITE_CHUNK_SIZE) {
+                outputStream.write(content, offset + written, Math.min(WRITE_CHUNK_SIZE, length - written));
+            }
+            return;
+        }
+
+        final int chunkSize = (int) Math.max(1, faultProfile.bandwidth / THROTTLE_CHUNK_COUNT_PER_SECOND);
+        final long startTime = System.nanoTime();
+        for (int written = 0; written < length; ) {
+            final int count = Math.min(chunkSize, length - written);
+            outputStream.write(content, offset + written, count);
+            outputStream.flush();
+            written += count;
+
+            final long expectedElapsed = TimeUnit.SECONDS.toNanos(written) / faultProfile.bandwidth;
+            final long sleepTime = expectedElapsed - (System.nanoTime() - startTime);
+            if (sleepTime > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleepTime);
+            }
+        }
+    }
+
+    /**
+     * Increment a counter.
+     *
+     * @param name Name of the counter
+     */
+    private void increment(final String name) {
+
+        counterMap.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+}
@@ -0,0 +1,82 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+/**
+ * Faults injected by the fake Bing server. Rates are probabilities, between
+ * {@code 0} (never) and {@code 1} (each request), drawn independently for
+ * each request.
+ */
+public final class FaultProfile {
+
+    /**
+     * No fault: responses are sent immediately, at full speed.
+     */
+    public static final FaultProfile NONE = new FaultProfile(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Latency added before the response headers (Milliseconds)
+     */
+    public final long latency;
+
+    /**
+     * Maximum random latency added to {@link #latency} (Milliseconds)
+     */
+    public final long latencyJitter;
+
+    /**
+     * Bandwidth of each response body (Bytes per second), {@code 0} for unlimited
+     */
+    public final long bandwidth;
+
+    /**
+     * Rate of 5xx responses
+     */
+    public final double errorRate;
+
+    /**
+     * Rate of connections closed without response
+     */
+    public final double resetRate;
+
+    /**
+     * Rate of response bodies closed halfway
+     */
+    public final double truncateRate;
+
+    /**
+     * Build a new instance.
+     *
+     * @param latency       Latency added before the response headers (Milliseconds)
+     * @param latencyJitter Maximum random latency added to the latency (Milliseconds)
+     * @param bandwidth     Bandwidth of each response body (Bytes per second), {@code 0} for unlimited
+     * @param errorRate     Rate of 5xx responses
+     * @param resetRate     Rate of connections closed without response
+     * @param truncateRate  Rate of response bodies closed halfway
+     */
+    public FaultProfile(final long latency,
+                        final long latencyJitter,
+                        final long bandwidth,
+                        final double errorRate,
+                        final double resetRate,
+                        final double truncateRate) {
+
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.bandwidth = bandwidth;
+        this.errorRate = errorRate;
+        this.resetRate = resetRate;
+        this.truncateRate = truncateRate;
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format(
+            "latency=%d+%dms, bandwidth=%s, errors=%.1f%%, resets=%.1f%%, truncations=%.1f%%",
+            latency,
+            latencyJitter,
+            bandwidth > 0 ? (bandwidth / 1024) + "KB/s" : "unlimited",
+            errorRate * 100,
+            resetRate * 100,
+            truncateRate * 100);
+    }
+}
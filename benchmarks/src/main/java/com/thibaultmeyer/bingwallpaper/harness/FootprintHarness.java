@@ -0,0 +1,208 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaper;
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.benchmark.FixtureUtils;
+import com.thibaultmeyer.bingwallpaper.utils.MemoryUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Footprint harness. A single service runs wallpaper cycles one after the other, as
+ * the daemon would do, against a local stand-in of Bing. Every cycle is cold: the
+ * service is given a new cache directory and a new target file, this way, the API
+ * request is unconditional, then the image is downloaded, decoded and fitted again.
+ * The wallpaper is "applied" by a stand-in Wallpaper Changer. After each cycle, idle
+ * resources are released, then the heap and the RSS are measured. The exit code is
+ * {@code 1} if the steady-state footprint (second half of the cycles) exceeds the
+ * idle ceiling, or if a cycle has failed.
+ */
+public final class FootprintHarness {
+
+    private static final int IMAGE_WIDTH = 3840;
+    private static final int IMAGE_HEIGHT = 2160;
+
+    /**
+     * Main entry.
+     *
+     * @param argList Program arguments (ie: --cycles=20 --dimension=2560x1440 --idle-max-rss=192)
+     * @throws IOException If something goes wrong during the process
+     */
+    public static void main(final String[] argList) throws IOException {
+
+        final int cycleCount = Integer.parseInt(retrieveOption(argList, "cycles", "20"));
+        final String dimension = retrieveOption(argList, "dimension", "1920x1080");
+        final String idleMaxHeap = retrieveOption(argList, "idle-max-heap", "32");
+        final String idleMaxRss = retrieveOption(argList, "idle-max-rss", "192");
+
+        // Everything written by the service stays in the working directory
+        final Path workingDirectory = Files.createTempDirectory("bingwallpaper-footprint");
+        System.setProperty("user.home", workingDirectory.toString());
+
+        System.out.println("Generating fixtures...");
+        final byte[] imageContent = FixtureUtils.generateJpeg(IMAGE_WIDTH, IMAGE_HEIGHT);
+        final FakeBingServer fakeBingServer = new FakeBingServer(
+            new FaultProfile(0, 0, 0, 0, 0, 0),
+            FixtureUtils.load("hpimagearchive-n1.json"),
+            FixtureUtils.load("hpimagearchive-n8.json"),
+            imageContent);
+        final String bingBaseUrl = "http://127.0.0.1:" + fakeBingServer.start(0);
+
+        final Properties properties = new Properties();
+        final String[] dimensionPartArray = dimension.split("x");
+        properties.setProperty("dimensionWidth", dimensionPartArray[0]);
+        properties.setProperty("dimensionHeight", dimensionPartArray[1]);
+        properties.setProperty("archiveDirectory", workingDirectory.resolve("archive").toString());
+        properties.setProperty("bingBaseUrl", bingBaseUrl);
+        properties.setProperty("sources", "bing");
+        properties.setProperty("idleMode", "true");
+        properties.setProperty("idleMaxHeap", idleMaxHeap);
+        properties.setProperty("idleMaxRss", idleMaxRss);
+
+        // The stand-in of Bing runs in this JVM: its own heap is measured first
+        System.gc();
+        System.out.printf(
+            "Baseline: heap %s, RSS %s%n",
+            MemoryUtils.format(MemoryUtils.getUsedHeap()),
+            MemoryUtils.format(MemoryUtils.getResidentMemory()));
+
+        System.out.printf(
+            "Running %d cold cycle(s), dimension=%s, image=%d KB%n",
+            cycleCount,
+            dimension,
+            imageContent.length / 1024);
+
+        long maxUsedHeap = 0;
+        long maxResidentMemory = 0;
+        int failureCount = 0;
+        boolean isWithinCeiling = true;
+        BingWallpaperService service = null;
+        Settings settings = null;
+
+        // The service is verbose: its output is discarded while running
+        final PrintStream standardOutput = System.out;
+        final PrintStream errorOutput = System.err;
+        final PrintStream discardStream = new PrintStream(OutputStream.nullOutputStream());
+
+        for (int cycle = 0; cycle < cycleCount; cycle += 1) {
+            final Path cycleDirectory = workingDirectory.resolve("cycle-" + cycle);
+            properties.setProperty("targetFileName", cycleDirectory.resolve("wallpaper.jpg").toString());
+            properties.setProperty("cacheDirectory", cycleDirectory.resolve("cache").toString());
+            settings = BingWallpaper.loadSettings(properties, true);
+
+            boolean isSuccess = false;
+            System.setOut(discardStream);
+            System.setErr(discardStream);
+            try {
+                // A new cache and a new target file drop the cached image, the validators and the latest URL
+                if (service == null) {
+                    service = new BingWallpaperService(settings, new StandInWallpaperChanger());
+                } else {
+                    service.updateSettings(settings);
+                }
+                service.run();
+                isSuccess = service.isLatestRunSuccessful();
+            } catch (final IOException ex) {
+                // The service can't be created or updated, counted below
+            } finally {
+                if (service != null) {
+                    service.releaseIdleResources();
+                }
+                System.setOut(standardOutput);
+                System.setErr(errorOutput);
+            }
+
+            final long usedHeap = MemoryUtils.getUsedHeap();
+            final long residentMemory = MemoryUtils.getResidentMemory();
+            System.out.printf(
+                "Cycle %2d: %s, heap %s, RSS %s%n",
+                cycle + 1,
+                isSuccess ? "applied" : "FAILED",
+                MemoryUtils.format(usedHeap),
+                MemoryUtils.format(residentMemory));
+
+            if (!isSuccess) {
+                failureCount += 1;
+            }
+            if (cycle >= cycleCount / 2) {
+                maxUsedHeap = Math.max(maxUsedHeap, usedHeap);
+                maxResidentMemory = Math.max(maxResidentMemory, residentMemory);
+                isWithinCeiling &= service != null && service.isWithinIdleFootprint();
+            }
+
+            // Only the files of the current cycle are kept
+            deleteRecursively(workingDirectory.resolve("cycle-" + (cycle - 1)));
+        }
+
+        discardStream.close();
+        fakeBingServer.stop();
+        deleteRecursively(workingDirectory);
+
+        // Report
+        System.out.printf(
+            "Footprint: steady-state heap %s (ceiling %d MB), RSS %s (ceiling %d MB): %s%n",
+            MemoryUtils.format(maxUsedHeap),
+            settings.idleMaxHeap,
+            MemoryUtils.format(maxResidentMemory),
+            settings.idleMaxRss,
+            isWithinCeiling ? "OK" : "EXCEEDED");
+
+        boolean isSuccess = isWithinCeiling;
+        if (failureCount > 0) {
+            System.err.printf("%d cycle(s) have failed%n", failureCount);
+            isSuccess = false;
+        }
+
+        System.exit(isSuccess ? 0 : 1);
+    }
+
+    /**
+     * Retrieve the value of an option (ie: --cycles=20).
+     *
+     * @param argList      Program arguments
+     * @param name         Name of the option
+     * @param defaultValue Value to use if the option is absent
+     * @return The value of the option
+     */
+    private static String retrieveOption(final String[] argList, final String name, final String defaultValue) {
+
+        final String prefix = "--" + name + "=";
+        for (final String arg : argList) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Delete a directory and its content.
+     *
+     * @param directory Directory to delete
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void deleteRecursively(final Path directory) throws IOException {
+
+        if (!Files.exists(directory)) {
+            return;
+        }
+
+        final Stream<Path> pathStream = Files.walk(directory);
+        try {
+            for (final Path path : (Iterable<Path>) pathStream.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        } finally {
+            pathStream.close();
+        }
+    }
+}
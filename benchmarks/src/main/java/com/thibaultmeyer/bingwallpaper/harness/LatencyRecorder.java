@@ -0,0 +1,66 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+import java.util.Arrays;
+
+/**
+ * Records cycle latencies, then computes exact percentiles.
+ */
+public final class LatencyRecorder {
+
+    private long[] latencyArray;
+    private int count;
+
+    /**
+     * Build a new instance.
+     *
+     * @param expectedCount Expected number of recorded latencies
+     */
+    public LatencyRecorder(final int expectedCount) {
+
+        this.latencyArray = new long[Math.max(16, expectedCount)];
+        this.count = 0;
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param latencyNanos The latency (Nanoseconds)
+     */
+    public synchronized void record(final long latencyNanos) {
+
+        if (count == latencyArray.length) {
+            latencyArray = Arrays.copyOf(latencyArray, count * 2);
+        }
+        latencyArray[count] = latencyNanos;
+        count += 1;
+    }
+
+    /**
+     * Retrieve the number of recorded latencies.
+     *
+     * @return The number of recorded latencies
+     */
+    public synchronized int getCount() {
+
+        return count;
+    }
+
+    /**
+     * Compute a percentile (nearest-rank method).
+     *
+     * @param percentile The percentile (ie: 99.0)
+     * @return The latency (Nanoseconds), {@code 0} if nothing has been recorded
+     */
+    public synchronized long getPercentile(final double percentile) {
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long[] sortedLatencyArray = Arrays.copyOf(latencyArray, count);
+        Arrays.sort(sortedLatencyArray);
+
+        final int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sortedLatencyArray[Math.min(count, Math.max(1, rank)) - 1];
+    }
+}
@@ -0,0 +1,327 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaper;
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.benchmark.FixtureUtils;
+import com.thibaultmeyer.bingwallpaper.relay.RelayServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load harness. Many simulated clients run wallpaper cycles
+ * concurrently against a local stand-in of Bing injecting faults, either
+ * directly or through the relay. Each cycle is a cold run (empty cache):
+ * API request, image download and generation of the wallpaper, which is
+ * "applied" by a stand-in Wallpaper Changer. The p50/p99 cycle latency and
+ * the error rate are reported, the exit code is {@code 1} if a threshold
+ * is exceeded.
+ */
+public final class LoadHarness {
+
+    private static final String MODE_DIRECT = "direct";
+    private static final String MODE_RELAY = "relay";
+    private static final int IMAGE_WIDTH = 3840;
+    private static final int IMAGE_HEIGHT = 2160;
+
+    /**
+     * Main entry.
+     *
+     * @param argList Program arguments (ie: --clients=64 --cycles=5 --mode=relay --error-rate=0.05)
+     * @throws IOException          If something goes wrong during the process
+     * @throws InterruptedException If interrupted while waiting for the clients
+     */
+    public static void main(final String[] argList) throws IOException, InterruptedException {
+
+        final String mode = retrieveOption(argList, "mode", MODE_DIRECT);
+        final int clientCount = Integer.parseInt(retrieveOption(argList, "clients", "16"));
+        final int cycleCount = Integer.parseInt(retrieveOption(argList, "cycles", "5"));
+        final String dimension = retrieveOption(argList, "dimension", "1920x1080");
+        final double maxP99 = Double.parseDouble(retrieveOption(argList, "max-p99", "0"));
+        final double maxErrorRate = Double.parseDouble(retrieveOption(argList, "max-error-rate", "1"));
+        final FaultProfile faultProfile = new FaultProfile(
+            Long.parseLong(retrieveOption(argList, "latency", "0")),
+            Long.parseLong(retrieveOption(argList, "latency-jitter", "0")),
+            Long.parseLong(retrieveOption(argList, "bandwidth", "0")) * 1024,
+            Double.parseDouble(retrieveOption(argList, "error-rate", "0")),
+            Double.parseDouble(retrieveOption(argList, "reset-rate", "0")),
+            Double.parseDouble(retrieveOption(argList, "truncate-rate", "0")));
+        if (!mode.equals(MODE_DIRECT) && !mode.equals(MODE_RELAY)) {
+            throw new IllegalArgumentException("mode must be " + MODE_DIRECT + " or " + MODE_RELAY);
+        }
+
+        // Everything written by the services stays in the working directory
+        final Path workingDirectory = Files.createTempDirectory("bingwallpaper-harness");
+        System.setProperty("user.home", workingDirectory.toString());
+
+        System.out.println("Generating fixtures...");
+        final byte[] imageContent = FixtureUtils.generateJpeg(IMAGE_WIDTH, IMAGE_HEIGHT);
+        final FakeBingServer fakeBingServer = new FakeBingServer(
+            faultProfile,
+            FixtureUtils.load("hpimagearchive-n1.json"),
+            FixtureUtils.load("hpimagearchive-n8.json"),
+            imageContent);
+        String bingBaseUrl = "http://127.0.0.1:" + fakeBingServer.start(0);
+
+        RelayServer relayServer = null;
+        if (mode.equals(MODE_RELAY)) {
+            final Settings relaySettings = createSettings(
+                bingBaseUrl,
+                workingDirectory.resolve("relay"),
+                dimension,
+                retrieveFreePort());
+            relayServer = new RelayServer(relaySettings, new BingWallpaperService(relaySettings, new StandInWallpaperChanger()));
+            relayServer.start();
+            bingBaseUrl = "http://127.0.0.1:" + relaySettings.relayPort;
+        }
+
+        System.out.printf(
+            "Running %d client(s) x %d cycle(s), mode=%s, image=%d KB, faults: %s%n",
+            clientCount,
+            cycleCount,
+            mode,
+            imageContent.length / 1024,
+            faultProfile);
+
+        final LatencyRecorder latencyRecorder = new LatencyRecorder(clientCount * cycleCount);
+        final Map<String, LongAdder> failureCountMap = new ConcurrentHashMap<>();
+        final LongAdder errorCount = new LongAdder();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newFixedThreadPool(clientCount);
+
+        // Services are verbose: their output is discarded while running
+        final PrintStream standardOutput = System.out;
+        final PrintStream errorOutput = System.err;
+        final PrintStream discardStream = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(discardStream);
+        System.setErr(discardStream);
+
+        final long startTime = System.nanoTime();
+        try {
+            for (int idx = 0; idx < clientCount; idx += 1) {
+                final Settings settings = createSettings(bingBaseUrl, workingDirectory.resolve("client-" + idx), dimension, 0);
+                executorService.execute(() -> runClient(
+                    settings,
+                    cycleCount,
+                    startLatch,
+                    latencyRecorder,
+                    failureCountMap,
+                    errorCount));
+            }
+            startLatch.countDown();
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.DAYS);
+        } finally {
+            System.setOut(standardOutput);
+            System.setErr(errorOutput);
+            discardStream.close();
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        if (relayServer != null) {
+            relayServer.stop();
+        }
+        fakeBingServer.stop();
+        deleteRecursively(workingDirectory);
+
+        // Report
+        final int cycleTotal = latencyRecorder.getCount();
+        final double errorRate = cycleTotal == 0 ? 0 : errorCount.doubleValue() / cycleTotal;
+        final double p99 = latencyRecorder.getPercentile(99) / 1_000_000.0;
+
+        System.out.printf("Cycles        : %d in %.1f s (%.2f cycles/s)%n",
+            cycleTotal,
+            elapsedNanos / 1_000_000_000.0,
+            cycleTotal / (elapsedNanos / 1_000_000_000.0));
+        System.out.printf("Latency       : p50=%.1f ms, p90=%.1f ms, p99=%.1f ms, max=%.1f ms%n",
+            latencyRecorder.getPercentile(50) / 1_000_000.0,
+            latencyRecorder.getPercentile(90) / 1_000_000.0,
+            p99,
+            latencyRecorder.getPercentile(100) / 1_000_000.0);
+        System.out.printf("Error rate    : %.2f%% (%d cycle(s))%n", errorRate * 100, errorCount.sum());
+        for (final Map.Entry<String, LongAdder> entry : new TreeMap<>(failureCountMap).entrySet()) {
+            System.out.printf("Failures      : %s=%d%n", entry.getKey(), entry.getValue().sum());
+        }
+        for (final Map.Entry<String, Long> entry : fakeBingServer.getCounters().entrySet()) {
+            System.out.printf("Fake Bing     : %s=%d%n", entry.getKey(), entry.getValue());
+        }
+
+        boolean isSuccess = true;
+        if (maxP99 > 0 && p99 > maxP99) {
+            System.err.printf("Regression: p99 latency %.1f ms exceeds %.1f ms%n", p99, maxP99);
+            isSuccess = false;
+        }
+        if (errorRate > maxErrorRate) {
+            System.err.printf("Regression: error rate %.2f%% exceeds %.2f%%%n", errorRate * 100, maxErrorRate * 100);
+            isSuccess = false;
+        }
+
+        System.exit(isSuccess ? 0 : 1);
+    }
+
+    /**
+     * Run the cycles of a simulated client.
+     *
+     * @param settings        Settings of the client
+     * @param cycleCount      Number of cycles to run
+     * @param startLatch      Released when all clients can start
+     * @param latencyRecorder Where cycle latencies are recorded
+     * @param failureCountMap Where failures are counted, by cause
+     * @param errorCount      Where failed cycles are counted
+     */
+    private static void runClient(final Settings settings,
+                                  final int cycleCount,
+                                  final CountDownLatch startLatch,
+                                  final LatencyRecorder latencyRecorder,
+                                  final Map<String, LongAdder> failureCountMap,
+                                  final LongAdder errorCount) {
+
+        try {
+            startLatch.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        final Path clientDirectory = Path.of(settings.cacheDirectory).getParent();
+        for (int cycle = 0; cycle < cycleCount; cycle += 1) {
+            boolean isSuccess = false;
+            BingWallpaperService service = null;
+
+            final long startTime = System.nanoTime();
+            try {
+                service = new BingWallpaperService(settings, new StandInWallpaperChanger());
+                service.run();
+                isSuccess = service.getLatestWallpaperUrl() != null;
+            } catch (final IOException ex) {
+                // The service can't be created, failures of a run are read from its metrics below
+                failureCountMap.computeIfAbsent(ex.getClass().getSimpleName(), key -> new LongAdder()).increment();
+            }
+            latencyRecorder.record(System.nanoTime() - startTime);
+
+            if (!isSuccess) {
+                errorCount.increment();
+            }
+            if (service != null) {
+                for (final Map.Entry<String, Double> entry : service.getMetricsRegistry().getValues().entrySet()) {
+                    if (entry.getKey().startsWith("bingwallpaper_failures_total") && entry.getValue() > 0) {
+                        failureCountMap.computeIfAbsent(entry.getKey(), key -> new LongAdder()).add(entry.getValue().longValue());
+                    }
+                }
+            }
+
+            // Next cycle starts cold
+            try {
+                deleteRecursively(clientDirectory);
+            } catch (final IOException ignore) {
+                // Will be deleted with the working directory
+            }
+        }
+    }
+
+    /**
+     * Create the settings of a simulated client or of the relay.
+     *
+     * @param bingBaseUrl     Base URL of the Bing website or of the relay
+     * @param clientDirectory Directory of the client
+     * @param dimension       Wallpaper dimension (ie: 1920x1080)
+     * @param relayPort       Relay port, {@code 0} if unused
+     * @return The settings
+     * @throws IOException If something goes wrong during the process
+     */
+    private static Settings createSettings(final String bingBaseUrl,
+                                           final Path clientDirectory,
+                                           final String dimension,
+                                           final int relayPort) throws IOException {
+
+        final String[] dimensionPartArray = dimension.split("x");
+
+        final Properties properties = new Properties();
+        properties.setProperty("dimensionWidth", dimensionPartArray[0]);
+        properties.setProperty("dimensionHeight", dimensionPartArray[1]);
+        properties.setProperty("targetFileName", clientDirectory.resolve("wallpaper.jpg").toString());
+        properties.setProperty("cacheDirectory", clientDirectory.resolve("cache").toString());
+        properties.setProperty("archiveDirectory", clientDirectory.resolve("archive").toString());
+        properties.setProperty("bingBaseUrl", bingBaseUrl);
+        properties.setProperty("idleMode", "false");
+        if (relayPort > 0) {
+            properties.setProperty("relayPort", String.valueOf(relayPort));
+        }
+
+        return BingWallpaper.loadSettings(properties, true);
+    }
+
+    /**
+     * Retrieve the value of an option (ie: --clients=64).
+     *
+     * @param argList      Program arguments
+     * @param name         Name of the option
+     * @param defaultValue Value to use if the option is absent
+     * @return The value of the option
+     */
+    private static String retrieveOption(final String[] argList, final String name, final String defaultValue) {
+
+        final String prefix = "--" + name + "=";
+        for (final String arg : argList) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Retrieve a free port on the loopback interface.
+     *
+     * @return A free port
+     * @throws IOException If something goes wrong during the process
+     */
+    private static int retrieveFreePort() throws IOException {
+
+        final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        final int port = serverSocket.getLocalPort();
+        serverSocket.close();
+
+        return port;
+    }
+
+    /**
+     * Delete a directory and its content.
+     *
+     * @param directory Directory to delete
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void deleteRecursively(final Path directory) throws IOException {
+
+        if (!Files.exists(directory)) {
+            return;
+        }
+
+        final Stream<Path> pathStream = Files.walk(directory);
+        try {
+            for (final Path path : (Iterable<Path>) pathStream.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        } finally {
+            pathStream.close();
+        }
+    }
+}
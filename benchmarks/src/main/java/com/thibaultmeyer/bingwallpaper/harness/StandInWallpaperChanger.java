@@ -0,0 +1,25 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+import com.thibaultmeyer.bingwallpaper.wallpaperchanger.WallpaperChanger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stand-in Wallpaper Changer: the generated wallpaper is kept as is, the
+ * wallpaper of the desktop running the harness is never changed.
+ */
+public final class StandInWallpaperChanger implements WallpaperChanger {
+
+    @Override
+    public boolean canRunOnThisSystem() {
+
+        return true;
+    }
+
+    @Override
+    public boolean changeWallpaper(final String fileName) {
+
+        return Files.exists(Path.of(fileName));
+    }
+}
@@ -0,0 +1,239 @@
+package com.thibaultmeyer.bingwallpaper.harness;
+
+import com.thibaultmeyer.bingwallpaper.benchmark.FixtureUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup harness. The application is launched in a new JVM with {@code --single}, as
+ * login scripts do, against a local stand-in of Bing. The time elapsed between the
+ * launch and the first request received by the stand-in (JVM boot, settings, display
+ * probe, wallpaper changer resolution) is reported: the first launch, with nothing
+ * cached, apart from the following ones. The stand-in answers every API request with
+ * a server error: nothing is downloaded and the wallpaper of the desktop running the
+ * harness is never changed. The exit code is {@code 1} if a threshold is exceeded.
+ */
+public final class StartupHarness {
+
+    private static final String MAIN_CLASS = "com.thibaultmeyer.bingwallpaper.BingWallpaper";
+    private static final long PROCESS_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Main entry.
+     *
+     * @param argList Program arguments (ie: --runs=20 --dimension=auto --jvm-options="-XX:TieredStopAtLevel=1")
+     * @throws IOException          If something goes wrong during the process
+     * @throws InterruptedException If interrupted while waiting for a launch
+     */
+    public static void main(final String[] argList) throws IOException, InterruptedException {
+
+        final int runCount = Integer.parseInt(retrieveOption(argList, "runs", "10"));
+        final String dimension = retrieveOption(argList, "dimension", "1920x1080");
+        final String classPath = retrieveOption(argList, "jar", System.getProperty("java.class.path"));
+        final String jvmOptions = retrieveOption(argList, "jvm-options", "");
+        final double maxP50 = Double.parseDouble(retrieveOption(argList, "max-p50", "0"));
+
+        // Everything written by the launched application stays in the working directory
+        final Path workingDirectory = Files.createTempDirectory("bingwallpaper-startup");
+        final FakeBingServer fakeBingServer = new FakeBingServer(
+            new FaultProfile(0, 0, 0, 1, 0, 0),
+            FixtureUtils.load("hpimagearchive-n1.json"),
+            FixtureUtils.load("hpimagearchive-n8.json"),
+            new byte[0]);
+        final String bingBaseUrl = "http://127.0.0.1:" + fakeBingServer.start(0);
+        writeSettings(workingDirectory, bingBaseUrl, dimension);
+
+        final List<String> commandList = new ArrayList<>();
+        commandList.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmOptions.isBlank()) {
+            commandList.addAll(Arrays.asList(jvmOptions.trim().split("\\s+")));
+        }
+        commandList.addAll(List.of(
+            "-Duser.home=" + workingDirectory,
+            "-cp",
+            toAbsoluteClassPath(classPath),
+            MAIN_CLASS,
+            "--single"));
+
+        System.out.printf(
+            "Launching %d run(s), dimension=%s, JVM options: %s%n",
+            runCount,
+            dimension,
+            jvmOptions.isBlank() ? "none" : jvmOptions);
+
+        long coldLatency = -1;
+        final LatencyRecorder latencyRecorder = new LatencyRecorder(runCount);
+        int failureCount = 0;
+        for (int run = 0; run < runCount; run += 1) {
+            final long latency = launch(commandList, workingDirectory, fakeBingServer);
+            if (latency < 0) {
+                failureCount += 1;
+            } else if (run == 0) {
+                coldLatency = latency;
+            } else {
+                latencyRecorder.record(latency);
+            }
+        }
+
+        fakeBingServer.stop();
+        deleteRecursively(workingDirectory);
+
+        // Report
+        final double p50 = latencyRecorder.getPercentile(50) / 1_000_000.0;
+        System.out.printf("First launch  : %.1f ms%n", coldLatency / 1_000_000.0);
+        System.out.printf("Next launches : p50=%.1f ms, p90=%.1f ms, min=%.1f ms, max=%.1f ms (%d run(s))%n",
+            p50,
+            latencyRecorder.getPercentile(90) / 1_000_000.0,
+            latencyRecorder.getPercentile(0) / 1_000_000.0,
+            latencyRecorder.getPercentile(100) / 1_000_000.0,
+            latencyRecorder.getCount());
+
+        boolean isSuccess = true;
+        if (failureCount > 0) {
+            System.err.printf("%d launch(es) have not sent any request%n", failureCount);
+            isSuccess = false;
+        }
+        if (maxP50 > 0 && p50 > maxP50) {
+            System.err.printf("Regression: p50 time to first request %.1f ms exceeds %.1f ms%n", p50, maxP50);
+            isSuccess = false;
+        }
+
+        System.exit(isSuccess ? 0 : 1);
+    }
+
+    /**
+     * Launch the application once, then wait for it to exit.
+     *
+     * @param commandList      Command launching the application
+     * @param workingDirectory Home directory of the application
+     * @param fakeBingServer   Stand-in of Bing the application sends requests to
+     * @return Time elapsed until the first request (Nanoseconds), {@code -1} if none has been sent
+     * @throws IOException          If the application can't be launched
+     * @throws InterruptedException If interrupted while waiting for the application
+     */
+    private static long launch(final List<String> commandList,
+                               final Path workingDirectory,
+                               final FakeBingServer fakeBingServer) throws IOException, InterruptedException {
+
+        final ProcessBuilder processBuilder = new ProcessBuilder(commandList)
+            .directory(workingDirectory.toFile())
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD);
+        if (System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("linux")) {
+            // The application only sends requests from a desktop it can change the wallpaper of
+            processBuilder.environment().putIfAbsent("XDG_CURRENT_DESKTOP", "GNOME");
+        }
+
+        fakeBingServer.resetFirstApiRequestTime();
+        final long startTime = System.nanoTime();
+        final Process process = processBuilder.start();
+        if (!process.waitFor(PROCESS_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+
+        final long firstApiRequestTime = fakeBingServer.getFirstApiRequestTime();
+        return firstApiRequestTime == 0 ? -1 : firstApiRequestTime - startTime;
+    }
+
+    /**
+     * Write the settings of the launched application. A single attempt is made: the
+     * stand-in always answers with a server error.
+     *
+     * @param workingDirectory Home directory of the application
+     * @param bingBaseUrl      Base URL of the stand-in of Bing
+     * @param dimension        Wallpaper dimension (ie: 1920x1080, auto)
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void writeSettings(final Path workingDirectory,
+                                      final String bingBaseUrl,
+                                      final String dimension) throws IOException {
+
+        final Properties properties = new Properties();
+        if (!dimension.equals("auto")) {
+            final String[] dimensionPartArray = dimension.split("x");
+            properties.setProperty("dimensionWidth", dimensionPartArray[0]);
+            properties.setProperty("dimensionHeight", dimensionPartArray[1]);
+        }
+        properties.setProperty("targetFileName", workingDirectory.resolve("wallpaper.jpg").toString());
+        properties.setProperty("bingBaseUrl", bingBaseUrl);
+        properties.setProperty("retryMaxAttempts", "1");
+        properties.setProperty("sources", "bing");
+
+        final Path settingsFile = workingDirectory.resolve(".bingwallpaper").resolve("settings.properties");
+        Files.createDirectories(settingsFile.getParent());
+        final OutputStream outputStream = Files.newOutputStream(settingsFile);
+        try {
+            properties.store(outputStream, null);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Resolve each entry of a class path against the current directory: the application
+     * is launched from its own working directory.
+     *
+     * @param classPath Class path (ie: target/benchmarks.jar)
+     * @return The class path with absolute entries
+     */
+    private static String toAbsoluteClassPath(final String classPath) {
+
+        final List<String> entryList = new ArrayList<>();
+        for (final String entry : classPath.split(File.pathSeparator)) {
+            entryList.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+
+        return String.join(File.pathSeparator, entryList);
+    }
+
+    /**
+     * Retrieve the value of an option (ie: --runs=20).
+     *
+     * @param argList      Program arguments
+     * @param name         Name of the option
+     * @param defaultValue Value to use if the option is absent
+     * @return The value of the option
+     */
+    private static String retrieveOption(final String[] argList, final String name, final String defaultValue) {
+
+        final String prefix = "--" + name + "=";
+        for (final String arg : argList) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Delete a directory and its content.
+     *
+     * @param directory Directory to delete
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void deleteRecursively(final Path directory) throws IOException {
+
+        final Stream<Path> pathStream = Files.walk(directory);
+        try {
+            for (final Path path : (Iterable<Path>) pathStream.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        } finally {
+            pathStream.close();
+        }
+    }
+}
@@ -1,30 +1,64 @@
 package com.thibaultmeyer.bingwallpaper;
 
-import com.thibaultmeyer.bingwallpaper.utils.OperatingSystemUtils;
+import com.thibaultmeyer.bingwallpaper.archive.ArchiveFetcher;
+import com.thibaultmeyer.bingwallpaper.archive.ArchiveIndex;
+import com.thibaultmeyer.bingwallpaper.archive.ArchiveRecord;
+import com.thibaultmeyer.bingwallpaper.control.ControlClient;
+import com.thibaultmeyer.bingwallpaper.control.ControlServer;
+import com.thibaultmeyer.bingwallpaper.control.SettingsWatcher;
+import com.thibaultmeyer.bingwallpaper.display.DisplayProbe;
+import com.thibaultmeyer.bingwallpaper.events.SettingsLoadEvent;
+import com.thibaultmeyer.bingwallpaper.http.Upstream;
+import com.thibaultmeyer.bingwallpaper.image.ImageFitter;
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsEndpoint;
+import com.thibaultmeyer.bingwallpaper.profile.ProfileDaemon;
+import com.thibaultmeyer.bingwallpaper.relay.RelayServer;
+import com.thibaultmeyer.bingwallpaper.scheduler.PublishAwareScheduler;
+import com.thibaultmeyer.bingwallpaper.scheduler.RotationScheduler;
+import com.thibaultmeyer.bingwallpaper.utils.ApplicationDirectoryUtils;
+import com.thibaultmeyer.bingwallpaper.utils.FlightRecorderUtils;
+import com.thibaultmeyer.bingwallpaper.utils.MemoryUtils;
 import com.thibaultmeyer.bingwallpaper.utils.SingleInstanceUtils;
 
 import java.awt.Dimension;
-import java.awt.Toolkit;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.net.Proxy;
-import java.nio.charset.StandardCharsets;
+import java.net.SocketTimeoutException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Get and use the wallpaper of the day from Bing.
  */
 public final class BingWallpaper {
 
+    private static final String SETTINGS_FILE_NAME = "settings.properties";
+    private static final String JFR_FILE_NAME = "bingwallpaper.jfr";
+    private static final String ARCHIVE_LOCK_FILE_NAME = "archive.lock";
+    private static final String RELAY_LOCK_FILE_NAME = "relay.lock";
+    private static final String CONTROL_COMMAND_REFRESH = "refresh";
+    private static final String CONTROL_COMMAND_STATUS = "status";
+    private static final String CONTROL_COMMAND_RELOAD_SETTINGS = "reload-settings";
+    private static final String CONTROL_COMMAND_JFR_DUMP = "jfr-dump";
+    private static final long CONTROL_COMMAND_TIMEOUT = 10;
+    private static final long CONTROL_CLIENT_TIMEOUT = TimeUnit.SECONDS.toMillis(2);
+
     private static final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
 
     /**
@@ -37,42 +71,341 @@ public final class BingWallpaper {
 
         System.out.println("Booting...");
 
-        // Check if another instance already running
-        if (SingleInstanceUtils.hasExistingInstance()) {
-            System.err.println("Another instance already running");
-            System.exit(1);
+        // Standalone modes never forward their command: each one runs under its own lock
+        final boolean isServeMode = isServeMode(argList);
+        final boolean isArchiveMode = isArchiveMode(argList);
+        final boolean isProfilesMode = isProfilesMode(argList);
+        if (isServeMode || isArchiveMode) {
+            if (SingleInstanceUtils.hasExistingInstance(isServeMode ? RELAY_LOCK_FILE_NAME : ARCHIVE_LOCK_FILE_NAME)) {
+                System.err.printf("Another instance already running (%s)%n", isServeMode ? "--serve" : "--archive");
+                System.exit(1);
+            }
+        } else {
+            // Check if another instance already running: forward the command to it
+            final String controlCommand = retrieveControlCommand(argList);
+            final boolean hasExistingInstance = isProfilesMode
+                ? SingleInstanceUtils.hasExistingInstance(ProfileDaemon.LOCK_FILE_NAME)
+                : SingleInstanceUtils.hasExistingInstance();
+            if (hasExistingInstance) {
+                if (controlCommand == null) {
+                    System.err.println("Another instance already running (--rotate)");
+                    System.exit(1);
+                }
+                try {
+                    final Path controlSocketFile = isProfilesMode
+                        ? SingleInstanceUtils.getControlSocketFile(ProfileDaemon.CONTROL_SOCKET_FILE_NAME)
+                        : SingleInstanceUtils.getControlSocketFile();
+                    // Reloading the settings may wait for the current run
+                    final long timeout = controlCommand.equals(CONTROL_COMMAND_RELOAD_SETTINGS)
+                        ? TimeUnit.SECONDS.toMillis(CONTROL_COMMAND_TIMEOUT) + CONTROL_CLIENT_TIMEOUT
+                        : CONTROL_CLIENT_TIMEOUT;
+                    System.out.println(ControlClient.send(controlSocketFile, controlCommand, timeout));
+                    System.exit(0);
+                } catch (final SocketTimeoutException ex) {
+                    System.err.println("Another instance already running, but not responding");
+                    System.exit(1);
+                } catch (final IOException ex) {
+                    System.err.println("Another instance already running");
+                    System.exit(1);
+                }
+            } else if (controlCommand != null && !controlCommand.equals(CONTROL_COMMAND_REFRESH)) {
+                System.err.println("No running instance");
+                System.exit(1);
+            }
+        }
+
+        // Multi-profile daemon: each profile resolves its own Wallpaper Changer
+        if (isProfilesMode) {
+            final int profileCount = new ProfileDaemon(scheduledExecutorService).start();
+            if (profileCount == 0) {
+                System.err.printf("No valid profile found in %s%n", ApplicationDirectoryUtils.resolve("profiles"));
+                System.exit(1);
+            }
+            System.out.printf("Ready! Serving %d profile(s)%n", profileCount);
+            return;
         }
 
         // Check if operating system is handled
-        if (!BingWallpaperService.canRunOnThisSystem()) {
+        if (!isServeMode && !isArchiveMode && !BingWallpaperService.canRunOnThisSystem()) {
             System.err.println("Can't run on this operating system");
             System.exit(1);
         }
 
+        // Flight Recorder
+        if (hasArgument(argList, "--jfr")) {
+            FlightRecorderUtils.startContinuousRecording(ApplicationDirectoryUtils.resolve(JFR_FILE_NAME));
+            System.out.printf("Flight Recorder: recording into %s%n", ApplicationDirectoryUtils.resolve(JFR_FILE_NAME));
+        }
+
         // Load settings
-        final Properties properties = loadOrCreateProperties();
-        final Settings settings = loadSettings(properties);
+        final Settings settings = loadSettings(isSingleRun(argList));
 
-        System.out.printf("  > Dimension      : %d x %d%n", settings.dimensionWidth, settings.dimensionHeight);
-        System.out.printf("  > Target filename: %s%n", settings.targetFileName);
-        if (settings.proxyType == null) {
-            System.out.println("  > Proxy          : NO");
-        } else {
-            System.out.printf("  > Proxy          : %s %s:%d%n", settings.proxyType, settings.proxyHost, settings.proxyPort);
-        }
+        printSettings(settings);
 
         // Run service
         final BingWallpaperService service = new BingWallpaperService(settings);
 
+        if (isArchiveMode) {
+            System.out.printf(
+                "Fetching %d day(s) of archive for market(s) %s%n",
+                Math.min(settings.archiveDays, ArchiveFetcher.MAX_DAYS),
+                settings.archiveMarkets);
+            final int downloadedCount = new ArchiveFetcher(settings, service).fetch();
+            System.out.printf("Archive: %d image(s) downloaded into %s%n", downloadedCount, settings.archiveDirectory);
+            return;
+        }
+
+        if (isServeMode) {
+            // The relay configures the JDK HTTP server: it starts before the metrics endpoint
+            final RelayServer relayServer = new RelayServer(settings, service);
+            relayServer.start();
+            startMetrics(service, settings);
+            System.out.printf("Ready! Relay is listening on %s:%d%n", settings.relayAddress, settings.relayPort);
+            return;
+        }
+
+        if (!isSingleRun(argList)) {
+            startMetrics(service, settings);
+        }
+
+        if (isRotateMode(argList)) {
+            final ArchiveIndex archiveIndex = new ArchiveIndex(Paths.get(settings.archiveDirectory));
+            final int indexedCount = archiveIndex.synchronize();
+            System.out.printf("Rotation: %d archived image(s), %d newly indexed%n", archiveIndex.size(), indexedCount);
+            if (archiveIndex.size() == 0) {
+                System.err.println("No archived image, please fetch the archive first (--archive)");
+                System.exit(1);
+            }
+
+            final RotationScheduler rotationScheduler = new RotationScheduler(
+                scheduledExecutorService,
+                service,
+                archiveIndex,
+                TimeUnit.MINUTES.toMillis(settings.rotationInterval),
+                settings.rotationShuffle,
+                settings.rotationStartDate,
+                settings.rotationEndDate);
+            rotationScheduler.start();
+
+            final ControlServer controlServer = new ControlServer(
+                SingleInstanceUtils.getControlSocketFile(),
+                command -> handleRotationControlCommand(command, rotationScheduler));
+            controlServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(controlServer::stop));
+
+            System.out.printf("Ready! Rotating archived wallpapers every %d minute(s)%n", settings.rotationInterval);
+            return;
+        }
+
         System.out.println("Ready!");
         if (isSingleRun(argList)) {
             service.run();
+            if (!service.isLatestRunSuccessful()) {
+                System.exit(1);
+            }
         } else {
-            scheduledExecutorService.scheduleWithFixedDelay(
+            final PublishAwareScheduler scheduler = new PublishAwareScheduler(
+                scheduledExecutorService,
                 service,
-                0,
-                1,
-                TimeUnit.HOURS);
+                TimeUnit.MINUTES.toMillis(settings.scheduleJitter),
+                ApplicationDirectoryUtils.resolve("schedule.properties"));
+            scheduler.start();
+
+            final ControlServer controlServer = new ControlServer(
+                SingleInstanceUtils.getControlSocketFile(),
+                command -> handleControlCommand(command, service, scheduler));
+            controlServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(controlServer::stop));
+
+            // Settings are swapped on the scheduler thread, never during a run
+            final SettingsWatcher settingsWatcher = new SettingsWatcher(
+                ApplicationDirectoryUtils.resolve(SETTINGS_FILE_NAME),
+                () -> scheduledExecutorService.execute(() -> reloadSettings(service, scheduler)));
+            settingsWatcher.start();
+        }
+    }
+
+    /**
+     * Expose the metrics of the service over JMX and, if enabled, over HTTP.
+     *
+     * @param service  The service
+     * @param settings Current settings
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void startMetrics(final BingWallpaperService service, final Settings settings) throws IOException {
+
+        service.getMetricsRegistry().registerMBean();
+        if (settings.metricsPort > 0) {
+            final MetricsEndpoint metricsEndpoint = new MetricsEndpoint(service.getMetricsRegistry(), settings.metricsPort);
+            metricsEndpoint.start();
+            System.out.printf("Metrics are available on http://127.0.0.1:%d/metrics%n", settings.metricsPort);
+        }
+    }
+
+    /**
+     * Print settings.
+     *
+     * @param settings Settings to print
+     */
+    private static void printSettings(final Settings settings) {
+
+        System.out.printf("  > Dimension      : %d x %d%n", settings.dimensionWidth, settings.dimensionHeight);
+        if (settings.displayDimensionList.size() > 1) {
+            for (int idx = 0; idx < settings.displayDimensionList.size(); idx += 1) {
+                System.out.printf(
+                    "  > Display #%d     : %d x %d%n",
+                    idx,
+                    settings.displayDimensionList.get(idx).width,
+                    settings.displayDimensionList.get(idx).height);
+            }
+        }
+        System.out.printf("  > Target filename: %s%n", settings.targetFileName);
+        System.out.printf("  > Fit mode       : %s%n", settings.fitMode);
+        if (settings.proxyType == null) {
+            System.out.println("  > Proxy          : NO");
+        } else {
+            System.out.printf("  > Proxy          : %s %s:%d%n", settings.proxyType, settings.proxyHost, settings.proxyPort);
+            for (final String proxyAlternate : settings.proxyAlternateList) {
+                System.out.printf("  > Proxy (alt.)   : %s %s%n", settings.proxyType, proxyAlternate);
+            }
+        }
+        System.out.printf(
+            "  > Cache          : %s (%d MB, %d days)%n",
+            settings.cacheDirectory,
+            settings.cacheMaxSize,
+            settings.cacheMaxAge);
+        System.out.printf("  > Market         : %s%n", settings.market == null ? "auto" : settings.market);
+        System.out.printf("  > Bing base URL  : %s%n", settings.bingBaseUrl);
+        for (final String bingAlternateUrl : settings.bingAlternateUrlList) {
+            System.out.printf("  > Bing URL (alt.): %s%n", bingAlternateUrl);
+        }
+    }
+
+    /**
+     * Retrieve the command to forward to the running instance, if any. A plain
+     * invocation (ie: {@code --single}) requests a refresh.
+     *
+     * @param argList Program arguments
+     * @return The command, otherwise, {@code null} if a mode which can't be forwarded is requested
+     */
+    private static String retrieveControlCommand(final String[] argList) {
+
+        if (hasArgument(argList, "--status")) {
+            return CONTROL_COMMAND_STATUS;
+        } else if (hasArgument(argList, "--reload-settings")) {
+            return CONTROL_COMMAND_RELOAD_SETTINGS;
+        } else if (hasArgument(argList, "--jfr-dump")) {
+            return CONTROL_COMMAND_JFR_DUMP;
+        } else if (isRotateMode(argList)) {
+            return null;
+        }
+
+        return CONTROL_COMMAND_REFRESH;
+    }
+
+    /**
+     * Handle a command received on the control socket.
+     *
+     * @param command   The command (ie: refresh)
+     * @param service   The running service
+     * @param scheduler The running scheduler
+     * @return The response
+     */
+    private static String handleControlCommand(final String command,
+                                               final BingWallpaperService service,
+                                               final PublishAwareScheduler scheduler) {
+
+        switch (command) {
+            case CONTROL_COMMAND_REFRESH:
+                scheduler.triggerNow();
+                return "Refresh scheduled";
+            case CONTROL_COMMAND_STATUS:
+                final long publishTime = service.getLatestPublishTime();
+                final Upstream fastestUpstream = service.getUpstreamPool().getFastest();
+                return String.format(
+                    "Latest wallpaper: %s%nPublished at    : %s%nNext check      : %s%nUpstream        : %s (fastest: %s, %d ms)%nLink            : %s%nHeap / RSS      : %s / %s",
+                    service.getLatestWallpaperUrl() == null ? "none" : service.getLatestWallpaperUrl(),
+                    publishTime > 0 ? new Date(publishTime) : "unknown",
+                    new Date(scheduler.getNextCheckTime()),
+                    service.getCircuitBreaker().getState(),
+                    fastestUpstream,
+                    fastestUpstream.getAverageLatency(),
+                    service.getLinkEstimator(),
+                    MemoryUtils.format(MemoryUtils.getUsedHeap()),
+                    MemoryUtils.format(MemoryUtils.getResidentMemory()));
+            case CONTROL_COMMAND_RELOAD_SETTINGS:
+                // Settings are swapped on the scheduler thread, never during a run
+                final Future<String> future = scheduledExecutorService.submit(() -> reloadSettings(service, scheduler));
+                try {
+                    return future.get(CONTROL_COMMAND_TIMEOUT, TimeUnit.SECONDS);
+                } catch (final TimeoutException ex) {
+                    return "Settings will be reloaded once the current run is over";
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return "Interrupted";
+                } catch (final ExecutionException ex) {
+                    return "Unable to reload settings: " + ex.getCause().getMessage();
+                }
+            case CONTROL_COMMAND_JFR_DUMP:
+                final Path jfrFile = ApplicationDirectoryUtils.resolve(JFR_FILE_NAME);
+                try {
+                    return FlightRecorderUtils.dump(jfrFile)
+                        ? "Flight Recorder: recording dumped into " + jfrFile
+                        : "Flight Recorder: no recording, please start with --jfr";
+                } catch (final IOException ex) {
+                    return "Flight Recorder: unable to dump recording: " + ex.getMessage();
+                }
+            default:
+                return "Unknown command: " + command;
+        }
+    }
+
+    /**
+     * Handle a command received from another invocation, in rotation mode.
+     *
+     * @param command           The command (ie: refresh)
+     * @param rotationScheduler The running rotation scheduler
+     * @return The response
+     */
+    private static String handleRotationControlCommand(final String command, final RotationScheduler rotationScheduler) {
+
+        switch (command) {
+            case CONTROL_COMMAND_REFRESH:
+                rotationScheduler.triggerNow();
+                return "Rotation scheduled";
+            case CONTROL_COMMAND_STATUS:
+                final ArchiveRecord currentRecord = rotationScheduler.getCurrentRecord();
+                return String.format(
+                    "Current wallpaper: %s%nNext rotation    : %s%nHeap / RSS       : %s / %s",
+                    currentRecord == null ? "none" : currentRecord,
+                    new Date(rotationScheduler.getNextRotationTime()),
+                    MemoryUtils.format(MemoryUtils.getUsedHeap()),
+                    MemoryUtils.format(MemoryUtils.getResidentMemory()));
+            default:
+                return "Unsupported command in rotation mode: " + command;
+        }
+    }
+
+    /**
+     * Reload settings from local disk, then use them from the next run.
+     *
+     * @param service   The running service
+     * @param scheduler The running scheduler
+     * @return The response
+     */
+    private static String reloadSettings(final BingWallpaperService service, final PublishAwareScheduler scheduler) {
+
+        try {
+            final Settings settings = loadSettings(false);
+            service.updateSettings(settings);
+            scheduler.setJitter(TimeUnit.MINUTES.toMillis(settings.scheduleJitter));
+
+            System.out.println("Settings reloaded");
+            printSettings(settings);
+            return "Settings reloaded";
+        } catch (final IOException | RuntimeException ex) {
+            System.err.println("Unable to reload settings, current settings are kept: " + ex.getMessage());
+            return "Unable to reload settings: " + ex.getMessage();
         }
     }
 
@@ -84,9 +417,67 @@ public final class BingWallpaper {
      */
     private static boolean isSingleRun(final String[] argList) {
 
+        return hasArgument(argList, "--single", "-s");
+    }
+
+    /**
+     * Detect if program is run on "relay server" mode.
+     *
+     * @param argList Program arguments
+     * @return {@code true} if "relay server" mode is enabled, otherwise, {@code false}
+     */
+    private static boolean isServeMode(final String[] argList) {
+
+        return hasArgument(argList, "--serve");
+    }
+
+    /**
+     * Detect if program is run on "archive" mode.
+     *
+     * @param argList Program arguments
+     * @return {@code true} if "archive" mode is enabled, otherwise, {@code false}
+     */
+    private static boolean isArchiveMode(final String[] argList) {
+
+        return hasArgument(argList, "--archive");
+    }
+
+    /**
+     * Detect if program is run on "multi-profile daemon" mode.
+     *
+     * @param argList Program arguments
+     * @return {@code true} if "multi-profile daemon" mode is enabled, otherwise, {@code false}
+     */
+    private static boolean isProfilesMode(final String[] argList) {
+
+        return hasArgument(argList, "--profiles");
+    }
+
+    /**
+     * Detect if program is run on "rotate" mode.
+     *
+     * @param argList Program arguments
+     * @return {@code true} if "rotate" mode is enabled, otherwise, {@code false}
+     */
+    private static boolean isRotateMode(final String[] argList) {
+
+        return hasArgument(argList, "--rotate");
+    }
+
+    /**
+     * Check if one of the given arguments is present.
+     *
+     * @param argList  Program arguments
+     * @param nameList Accepted names of the argument
+     * @return {@code true} if argument is present, otherwise, {@code false}
+     */
+    private static boolean hasArgument(final String[] argList, final String... nameList) {
+
         for (final String arg : argList) {
-            if (arg.trim().equalsIgnoreCase("--single") || arg.trim().equalsIgnoreCase("-s")) {
-                return true;
+            for (final String name : nameList) {
+                if (arg.trim().equalsIgnoreCase(name)) {
+                    return true;
+                }
             }
         }
 
@@ -101,7 +492,7 @@ public final class BingWallpaper {
      */
     private static Properties loadOrCreateProperties() throws IOException {
 
-        final Path path = Paths.get(System.getProperty("user.home"), ".bingwallpaper", "settings.properties");
+        final Path path = ApplicationDirectoryUtils.resolve(SETTINGS_FILE_NAME);
         final Properties properties = new Properties();
 
         if (!Files.exists(path)) {
@@ -109,10 +500,48 @@ public final class BingWallpaper {
 
             properties.setProperty("dimensionWidth", "auto");
             properties.setProperty("dimensionHeight", "auto");
+            properties.setProperty("multiDisplay", "true");
             properties.setProperty("targetFileName", "auto");
+            properties.setProperty("fitMode", "crop");
             properties.setProperty("proxyType", "none");
             properties.setProperty("proxyHost", "none");
             properties.setProperty("proxyPort", "none");
+            properties.setProperty("proxyAlternates", "none");
+            properties.setProperty("cacheDirectory", "auto");
+            properties.setProperty("cacheMaxSize", "200");
+            properties.setProperty("cacheMaxAge", "30");
+            properties.setProperty("bingBaseUrl", "https://www.bing.com");
+            properties.setProperty("bingAlternateUrls", "none");
+            properties.setProperty("market", "auto");
+            properties.setProperty("relayPort", "8085");
+            properties.setProperty("relayThreads", "64");
+            properties.setProperty("relayAddress", "127.0.0.1");
+            properties.setProperty("scheduleJitter", "10");
+            properties.setProperty("archiveDirectory", "auto");
+            properties.setProperty("archiveMarkets", "en-US");
+            properties.setProperty("archiveDays", "8");
+            properties.setProperty("archiveConcurrency", "8");
+            properties.setProperty("rotationInterval", "30");
+            properties.setProperty("rotationShuffle", "true");
+            properties.setProperty("rotationStartDate", "none");
+            properties.setProperty("rotationEndDate", "none");
+            properties.setProperty("idleMode", "true");
+            properties.setProperty("idleMaxHeap", "32");
+            properties.setProperty("idleMaxRss", "192");
+            properties.setProperty("metricsPort", "0");
+            properties.setProperty("retryMaxAttempts", "3");
+            properties.setProperty("circuitBreakerThreshold", "5");
+            properties.setProperty("circuitBreakerDelay", "5");
+            properties.setProperty("hedgePercentile", "95");
+            properties.setProperty("applyTimeout", "10");
+            properties.setProperty("downloadTimeBudget", "20");
+            properties.setProperty("downloadSizeBudget", "0");
+            properties.setProperty("uhdUpgrade", "true");
+            properties.setProperty("sources", "bing");
+            properties.setProperty("sourceTimeout", "10");
+            properties.setProperty("sourceLateTimeout", "120");
+            properties.setProperty("sourceDirectory", "auto");
+            properties.setProperty("mirrorUrl", "none");
 
             final BufferedWriter bufferedWriter = Files.newBufferedWriter(path);
             properties.store(bufferedWriter, "BingWallpaper Settings");
@@ -127,32 +556,103 @@ public final class BingWallpaper {
     }
 
     /**
-     * Load settings from Properties.
+     * Load settings from local disk.
      *
-     * @param properties The properties
+     * @param isFastStartup {@code true} to favor startup time over display detection accuracy
      * @return Loaded settings
-     * @throws IOException If something goes wrong during the process
+     * @throws IOException              If something goes wrong during the process
+     * @throws IllegalArgumentException If a setting is invalid
+     */
+    private static Settings loadSettings(final boolean isFastStartup) throws IOException {
+
+        final SettingsLoadEvent event = new SettingsLoadEvent();
+        event.begin();
+        event.file = ApplicationDirectoryUtils.resolve(SETTINGS_FILE_NAME).toString();
+        try {
+            final Settings settings = loadSettings(loadOrCreateProperties(), isFastStartup);
+            event.outcome = "success";
+            return settings;
+        } catch (final IOException | RuntimeException ex) {
+            event.outcome = "failure: " + ex.getMessage();
+            throw ex;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Load settings from Properties (ie: a profile of the multi-profile daemon).
+     *
+     * @param properties    The properties
+     * @param isFastStartup {@code true} to favor startup time over display detection accuracy
+     * @return Loaded settings
+     * @throws IOException              If something goes wrong during the process
+     * @throws IllegalArgumentException If a setting is invalid
      */
-    private static Settings loadSettings(final Properties properties) throws IOException {
+    public static Settings loadSettings(final Properties properties, final boolean isFastStartup) throws IOException {
         // Use Properties to prepare Settings
         final int wallpaperDimensionWidth;
         final int wallpaperDimensionHeight;
+        final List<Dimension> displayDimensionList;
         final String targetFileName;
+        final ImageFitter.FitMode fitMode;
         final Proxy.Type proxyType;
         final String proxyHost;
         final int proxyPort;
+        final List<String> proxyAlternateList;
+        final String cacheDirectory;
+        final int cacheMaxSize;
+        final int cacheMaxAge;
+        final String bingBaseUrl;
+        final List<String> bingAlternateUrlList;
+        final String market;
+        final int relayPort;
+        final int relayThreads;
+        final String relayAddress;
+        final int scheduleJitter;
+        final String archiveDirectory;
+        final List<String> archiveMarkets;
+        final int archiveDays;
+        final int archiveConcurrency;
+        final int rotationInterval;
+        final boolean rotationShuffle;
+        final int rotationStartDate;
+        final int rotationEndDate;
+        final boolean idleMode;
+        final int idleMaxHeap;
+        final int idleMaxRss;
+        final int metricsPort;
+        final int retryMaxAttempts;
+        final int circuitBreakerThreshold;
+        final int circuitBreakerDelay;
+        final int hedgePercentile;
+        final int applyTimeout;
+        final int downloadTimeBudget;
+        final int downloadSizeBudget;
+        final boolean uhdUpgrade;
+        final List<String> sourceList;
+        final int sourceTimeout;
+        final int sourceLateTimeout;
+        final String sourceDirectory;
+        final String mirrorUrl;
 
         // Wallpaper dimension
         if (properties.getProperty("dimensionWidth", "auto").toUpperCase(Locale.ENGLISH).equals("AUTO")
             || properties.getProperty("dimensionHeight", "auto").toUpperCase(Locale.ENGLISH).equals("AUTO")) {
-            // Automatically detect wallpaper needed dimension
-            final Dimension screenDimension = retrieveScreenDimension();
+            // Automatically detect wallpaper needed dimension: the largest screen
+            // is requested, then the image is fitted to each screen
+            final List<Dimension> screenDimensionList = DisplayProbe.retrieveDimensionList(isFastStartup);
+            final Dimension screenDimension = DisplayProbe.retrieveLargestDimension(screenDimensionList);
             wallpaperDimensionWidth = screenDimension.width;
             wallpaperDimensionHeight = screenDimension.height;
+            displayDimensionList = Boolean.parseBoolean(properties.getProperty("multiDisplay", "true"))
+                ? Collections.unmodifiableList(screenDimensionList)
+                : Collections.singletonList(screenDimensionList.get(0));
         } else {
             // Use value from Properties
             wallpaperDimensionWidth = Integer.parseInt(properties.getProperty("dimensionWidth"));
             wallpaperDimensionHeight = Integer.parseInt(properties.getProperty("dimensionHeight"));
+            displayDimensionList = Collections.singletonList(new Dimension(wallpaperDimensionWidth, wallpaperDimensionHeight));
         }
 
         // Target filename
@@ -168,56 +668,193 @@ public final class BingWallpaper {
                 .replace("~", System.getProperty("user.home"));
         }
 
+        // Fit mode
+        fitMode = ImageFitter.FitMode.fromName(properties.getProperty("fitMode", "crop"));
+
         if (properties.getProperty("proxyType", "none").toUpperCase(Locale.ENGLISH).equals("NONE")) {
             // No proxy
             proxyType = null;
             proxyHost = null;
             proxyPort = -1;
+            proxyAlternateList = Collections.emptyList();
         } else {
             // Use value from Properties
             proxyType = Proxy.Type.valueOf(properties.getProperty("proxyType").toUpperCase(Locale.ENGLISH));
             proxyHost = properties.getProperty("proxyHost");
             proxyPort = Integer.parseInt(properties.getProperty("proxyPort"));
+            proxyAlternateList = parseList(properties.getProperty("proxyAlternates", "none"));
+        }
+
+        // Cache
+        if (properties.getProperty("cacheDirectory", "auto").toUpperCase(Locale.ENGLISH).equals("AUTO")) {
+            // Use the application directory
+            cacheDirectory = ApplicationDirectoryUtils.resolve("cache").toString();
+        } else {
+            // Use value from Properties
+            cacheDirectory = properties.getProperty("cacheDirectory")
+                .replace("~", System.getProperty("user.home"));
         }
+        cacheMaxSize = Integer.parseInt(properties.getProperty("cacheMaxSize", "200"));
+        cacheMaxAge = Integer.parseInt(properties.getProperty("cacheMaxAge", "30"));
+
+        // Bing website or relay
+        bingBaseUrl = properties.getProperty("bingBaseUrl", "https://www.bing.com").replaceAll("/+$", "");
+        bingAlternateUrlList = parseList(properties.getProperty("bingAlternateUrls", "none").replaceAll("/+(\\s*,|\\s*$)", "$1"));
+        market = properties.getProperty("market", "auto").toUpperCase(Locale.ENGLISH).equals("AUTO")
+            ? null
+            : properties.getProperty("market").trim();
+        relayPort = Integer.parseInt(properties.getProperty("relayPort", "8085"));
+        relayThreads = Integer.parseInt(properties.getProperty("relayThreads", "64"));
+        relayAddress = properties.getProperty("relayAddress", "127.0.0.1").trim();
 
-        return new Settings(
+        // Scheduler
+        scheduleJitter = Integer.parseInt(properties.getProperty("scheduleJitter", "10"));
+
+        // Archive
+        if (properties.getProperty("archiveDirectory", "auto").toUpperCase(Locale.ENGLISH).equals("AUTO")) {
+            // Use the application directory
+            archiveDirectory = ApplicationDirectoryUtils.resolve("archive").toString();
+        } else {
+            // Use value from Properties
+            archiveDirectory = properties.getProperty("archiveDirectory")
+                .replace("~", System.getProperty("user.home"));
+        }
+        archiveMarkets = Collections.unmodifiableList(Arrays.asList(
+            properties.getProperty("archiveMarkets", "en-US").trim().split("\\s*,\\s*")));
+        archiveDays = Integer.parseInt(properties.getProperty("archiveDays", "8"));
+        archiveConcurrency = Integer.parseInt(properties.getProperty("archiveConcurrency", "8"));
+
+        // Rotation
+        rotationInterval = Integer.parseInt(properties.getProperty("rotationInterval", "30"));
+        rotationShuffle = Boolean.parseBoolean(properties.getProperty("rotationShuffle", "true"));
+        rotationStartDate = parseDate(properties.getProperty("rotationStartDate", "none"));
+        rotationEndDate = parseDate(properties.getProperty("rotationEndDate", "none"));
+
+        // Idle mode
+        idleMode = Boolean.parseBoolean(properties.getProperty("idleMode", "true"));
+        idleMaxHeap = Integer.parseInt(properties.getProperty("idleMaxHeap", "32"));
+        idleMaxRss = Integer.parseInt(properties.getProperty("idleMaxRss", "192"));
+
+        // Metrics
+        metricsPort = Integer.parseInt(properties.getProperty("metricsPort", "0"));
+
+        // Resilience
+        retryMaxAttempts = Integer.parseInt(properties.getProperty("retryMaxAttempts", "3"));
+        circuitBreakerThreshold = Integer.parseInt(properties.getProperty("circuitBreakerThreshold", "5"));
+        circuitBreakerDelay = Integer.parseInt(properties.getProperty("circuitBreakerDelay", "5"));
+        hedgePercentile = Integer.parseInt(properties.getProperty("hedgePercentile", "95"));
+        applyTimeout = Integer.parseInt(properties.getProperty("applyTimeout", "10"));
+
+        // Download
+        downloadTimeBudget = Integer.parseInt(properties.getProperty("downloadTimeBudget", "20"));
+        downloadSizeBudget = Integer.parseInt(properties.getProperty("downloadSizeBudget", "0"));
+        uhdUpgrade = Boolean.parseBoolean(properties.getProperty("uhdUpgrade", "true"));
+
+        // Sources
+        sourceList = parseList(properties.getProperty("sources", "bing").toLowerCase(Locale.ENGLISH));
+        sourceTimeout = Integer.parseInt(properties.getProperty("sourceTimeout", "10"));
+        sourceLateTimeout = Integer.parseInt(properties.getProperty("sourceLateTimeout", "120"));
+        if (properties.getProperty("sourceDirectory", "auto").toUpperCase(Locale.ENGLISH).equals("AUTO")) {
+            // Use the archive directory
+            sourceDirectory = archiveDirectory;
+        } else {
+            // Use value from Properties
+            sourceDirectory = properties.getProperty("sourceDirectory")
+                .replace("~", System.getProperty("user.home"));
+        }
+        mirrorUrl = properties.getProperty("mirrorUrl", "none").toUpperCase(Locale.ENGLISH).equals("NONE")
+            ? null
+            : properties.getProperty("mirrorUrl").trim().replaceAll("/+$", "");
+
+        final Settings settings = new Settings(
             wallpaperDimensionWidth,
             wallpaperDimensionHeight,
+            displayDimensionList,
             targetFileName,
+            fitMode,
             proxyType,
             proxyHost,
-            proxyPort);
+            proxyPort,
+            proxyAlternateList,
+            cacheDirectory,
+            cacheMaxSize,
+            cacheMaxAge,
+            bingBaseUrl,
+            bingAlternateUrlList,
+            market,
+            relayPort,
+            relayThreads,
+            relayAddress,
+            scheduleJitter,
+            archiveDirectory,
+            archiveMarkets,
+            archiveDays,
+            archiveConcurrency,
+            rotationInterval,
+            rotationShuffle,
+            rotationStartDate,
+            rotationEndDate,
+            idleMode,
+            idleMaxHeap,
+            idleMaxRss,
+            metricsPort,
+            retryMaxAttempts,
+            circuitBreakerThreshold,
+            circuitBreakerDelay,
+            hedgePercentile,
+            applyTimeout,
+            downloadTimeBudget,
+            downloadSizeBudget,
+            uhdUpgrade,
+            sourceList,
+            sourceTimeout,
+            sourceLateTimeout,
+            sourceDirectory,
+            mirrorUrl);
+        settings.validate();
+
+        return settings;
+    }
+
+    /**
+     * Parse a date setting.
+     *
+     * @param value The value (ie: 20230101)
+     * @return The date, {@code 0} if the value is "none" or blank
+     */
+    private static int parseDate(final String value) {
+
+        final String trimmedValue = value.trim();
+        if (trimmedValue.isEmpty() || trimmedValue.equalsIgnoreCase("none")) {
+            return 0;
+        }
+
+        return Integer.parseInt(trimmedValue);
     }
 
     /**
-     * Retrieve the screen dimension.
+     * Parse a comma separated list.
+     *
+     * @param value The value to parse (ie: a, b), "none" or blank for an empty list
+     * @return The list
+     */
+    private static List<String> parseList(final String value) {
+
+        if (value.isBlank() || value.trim().toUpperCase(Locale.ENGLISH).equals("NONE")) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(value.trim().split("\\s*,\\s*")));
+    }
+
+    /**
+     * Retrieve the screen dimension. With multiple displays, the largest one is returned.
      *
      * @return The screen dimension
      * @throws IOException If something goes wrong during the process
      */
     public static Dimension retrieveScreenDimension() throws IOException {
-        if (OperatingSystemUtils.IS_MAC) {
-            final Runtime runtime = Runtime.getRuntime();
-            final Process process = runtime.exec("system_profiler SPDisplaysDataType");
-
-            final byte[] buffer = new byte[512];
-            if (process.getInputStream().read(buffer) > 0) {
-                final String output = new String(buffer, StandardCharsets.UTF_8);
-                final String[] outputExploded = output.split("\n");
-
-                for (final String line : outputExploded) {
-                    if (line.contains("Resolution")) {
-                        final String dimensionAsString = line.split(":")[1].trim();
-                        final String[] dimensionExploded = dimensionAsString.split(" ");
-
-                        return new Dimension(
-                            Integer.parseInt(dimensionExploded[0]),
-                            Integer.parseInt(dimensionExploded[2]));
-                    }
-                }
-            }
-        }
 
-        return Toolkit.getDefaultToolkit().getScreenSize();
+        return DisplayProbe.retrieveLargestDimension(DisplayProbe.probe());
     }
 }
@@ -1,54 +1,389 @@
 package com.thibaultmeyer.bingwallpaper;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.events.ImageProcessingEvent;
+import com.thibaultmeyer.bingwallpaper.events.SaveToLocalEvent;
+import com.thibaultmeyer.bingwallpaper.events.WallpaperChangeEvent;
+import com.thibaultmeyer.bingwallpaper.http.HttpEngine;
+import com.thibaultmeyer.bingwallpaper.http.LinkEstimator;
+import com.thibaultmeyer.bingwallpaper.http.Upstream;
+import com.thibaultmeyer.bingwallpaper.http.UpstreamPool;
+import com.thibaultmeyer.bingwallpaper.http.ResponseValidators;
+import com.thibaultmeyer.bingwallpaper.http.ResumableDownloader;
+import com.thibaultmeyer.bingwallpaper.image.ImageFitter;
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+import com.thibaultmeyer.bingwallpaper.resilience.CircuitBreaker;
+import com.thibaultmeyer.bingwallpaper.resilience.FailureKind;
+import com.thibaultmeyer.bingwallpaper.resilience.RetryPolicy;
+import com.thibaultmeyer.bingwallpaper.source.BingWallpaperSource;
+import com.thibaultmeyer.bingwallpaper.source.SourceContext;
+import com.thibaultmeyer.bingwallpaper.source.SourceImage;
+import com.thibaultmeyer.bingwallpaper.source.WallpaperSource;
+import com.thibaultmeyer.bingwallpaper.utils.ApplicationDirectoryUtils;
+import com.thibaultmeyer.bingwallpaper.utils.FileUtils;
+import com.thibaultmeyer.bingwallpaper.utils.MemoryUtils;
+import com.thibaultmeyer.bingwallpaper.utils.OperatingSystemUtils;
+import com.thibaultmeyer.bingwallpaper.wallpaperchanger.ApplyResult;
 import com.thibaultmeyer.bingwallpaper.wallpaperchanger.LinuxGnomeWallpaperChanger;
 import com.thibaultmeyer.bingwallpaper.wallpaperchanger.MacOsWallpaperChanger;
 import com.thibaultmeyer.bingwallpaper.wallpaperchanger.WallpaperChanger;
 import com.thibaultmeyer.bingwallpaper.wallpaperchanger.WindowsWallpaperChanger;
 
-import java.io.File;
+import java.awt.Dimension;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.InetSocketAddress;
-import java.net.Proxy;
-import java.net.URL;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * This service takes care of getting the wallpaper of the day and using it.
+ * This service takes care of getting the wallpaper of the day and using it. The
+ * wallpaper is resolved by the configured sources, queried concurrently.
  */
-public final class BingWallpaperService implements Runnable {
+public final class BingWallpaperService implements Runnable, SourceContext {
 
-    private static final String BING_URL = "https://www.bing.com";
-    private static final String BING_API_URL = BING_URL + "/HPImageArchive.aspx?format=js&idx=0&n=1&nc=%d&uhd=1&uhdwidth=%d&uhdheight=%d";
+    private static final String RESPONSE_VALIDATORS_FILE_NAME = "api-validators.properties";
+    private static final String LINK_ESTIMATOR_FILE_NAME = "link.properties";
+    private static final ExecutorService SOURCE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        // Idle threads are discarded after 60 seconds
+        final Thread thread = new Thread(runnable, "wallpaper-source");
+        thread.setDaemon(true);
+        return thread;
+    });
     private static final String USER_AGENT_EDGE = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/98.0.4758.80 Safari/537.36 Edg/97.0.1072.69";
 
-    private static final List<WallpaperChanger> WALLPAPER_CHANGER_LIST = Arrays.asList(
-        new LinuxGnomeWallpaperChanger(),
-        new MacOsWallpaperChanger(),
-        new WindowsWallpaperChanger());
+    private final Path responseValidatorsFile;
+    private final MetricsRegistry metricsRegistry;
+    private final Supplier<WallpaperChanger> wallpaperChangerSupplier;
+    private final List<AttachedProfile> attachedProfileList;
+    private final LinkEstimator linkEstimator;
+    private final Map<String, WallpaperSource> availableSourceMap;
+    private final Map<WallpaperSource, CompletableFuture<SourceImage>> inFlightFutureMap;
 
-    private final Settings settings;
-
-    private URL latestWallpaperUrl;
+    private volatile Settings settings;
+    private WallpaperCache wallpaperCache;
+    private UpstreamPool upstreamPool;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private ResumableDownloader resumableDownloader;
+    private List<WallpaperSource> sourceList;
+    private volatile URI latestWallpaperUrl;
+    private volatile URI latestImageUrl;
+    private Path latestImageFile;
+    private URI pendingUpgradeUrl;
+    private volatile boolean isLatestRunSuccessful;
+    private volatile ResponseValidators responseValidators;
+    private volatile long latestPublishTime;
 
     /**
      * Build a new instance.
      *
      * @param settings Current settings
+     * @throws IOException If cache can't be initialized
+     */
+    public BingWallpaperService(final Settings settings) throws IOException {
+
+        this(settings, () -> WallpaperChangerHolder.INSTANCE, ApplicationDirectoryUtils.resolve(RESPONSE_VALIDATORS_FILE_NAME));
+    }
+
+    /**
+     * Build a new instance using the given Wallpaper Changer rather than the one
+     * of the current operating system (ie: a stand-in when driven by a harness).
+     *
+     * @param settings         Current settings
+     * @param wallpaperChanger The Wallpaper Changer to use
+     * @throws IOException If cache can't be initialized
+     */
+    public BingWallpaperService(final Settings settings, final WallpaperChanger wallpaperChanger) throws IOException {
+
+        this(settings, () -> wallpaperChanger, ApplicationDirectoryUtils.resolve(RESPONSE_VALIDATORS_FILE_NAME));
+    }
+
+    /**
+     * Build a new instance using the given Wallpaper Changer and keeping the validators
+     * of the API response in the given file (ie: one service per group of profiles).
+     *
+     * @param settings               Current settings
+     * @param wallpaperChanger       The Wallpaper Changer to use
+     * @param responseValidatorsFile Location where the validators of the API response are persisted
+     * @throws IOException If cache can't be initialized
+     */
+    public BingWallpaperService(final Settings settings,
+                                final WallpaperChanger wallpaperChanger,
+                                final Path responseValidatorsFile) throws IOException {
+
+        this(settings, () -> wallpaperChanger, responseValidatorsFile);
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param settings                 Current settings
+     * @param wallpaperChangerSupplier Supplies the Wallpaper Changer to use, may supply {@code null}
+     * @param responseValidatorsFile   Location where the validators of the API response are persisted
+     * @throws IOException If cache can't be initialized
      */
-    public BingWallpaperService(final Settings settings) {
+    private BingWallpaperService(final Settings settings,
+                                 final Supplier<WallpaperChanger> wallpaperChangerSupplier,
+                                 final Path responseValidatorsFile) throws IOException {
 
         this.settings = settings;
+        this.wallpaperChangerSupplier = wallpaperChangerSupplier;
+        this.wallpaperCache = createWallpaperCache(settings);
+        this.metricsRegistry = new MetricsRegistry();
+        this.linkEstimator = LinkEstimator.load(ApplicationDirectoryUtils.resolve(LINK_ESTIMATOR_FILE_NAME));
+        this.upstreamPool = createUpstreamPool(settings, this.metricsRegistry);
+        this.retryPolicy = new RetryPolicy(settings.retryMaxAttempts);
+        this.circuitBreaker = createCircuitBreaker(settings, this.metricsRegistry);
+        this.resumableDownloader = new ResumableDownloader(
+            this.upstreamPool,
+            this.metricsRegistry,
+            this.retryPolicy,
+            this.circuitBreaker,
+            this.linkEstimator);
+        this.responseValidatorsFile = responseValidatorsFile;
+        this.availableSourceMap = loadWallpaperSources();
+        this.inFlightFutureMap = new HashMap<>();
+        this.sourceList = selectWallpaperSources(settings, this.availableSourceMap);
         this.latestWallpaperUrl = null;
+        this.latestImageUrl = null;
+        this.latestImageFile = null;
+        this.pendingUpgradeUrl = null;
+        this.isLatestRunSuccessful = false;
+        this.responseValidators = ResponseValidators.load(this.responseValidatorsFile);
+        this.latestPublishTime = -1;
+        this.attachedProfileList = new ArrayList<>();
+    }
+
+    /**
+     * Load the available wallpaper sources. Each service gets its own instances.
+     *
+     * @return The wallpaper sources, by name
+     */
+    private static Map<String, WallpaperSource> loadWallpaperSources() {
+
+        final Map<String, WallpaperSource> wallpaperSourceMap = new HashMap<>();
+        for (final WallpaperSource wallpaperSource : ServiceLoader.load(WallpaperSource.class)) {
+            wallpaperSourceMap.put(wallpaperSource.getName(), wallpaperSource);
+        }
+
+        return wallpaperSourceMap;
+    }
+
+    /**
+     * Select the wallpaper sources to query, highest priority first. Unknown sources are ignored.
+     *
+     * @param settings           Current settings
+     * @param availableSourceMap The available wallpaper sources, by name
+     * @return The wallpaper sources to query
+     */
+    private static List<WallpaperSource> selectWallpaperSources(final Settings settings,
+                                                                final Map<String, WallpaperSource> availableSourceMap) {
+
+        final List<WallpaperSource> wallpaperSourceList = new ArrayList<>();
+        for (final String source : settings.sourceList) {
+            final WallpaperSource wallpaperSource = availableSourceMap.get(source.split(":")[0]);
+            if (wallpaperSource == null) {
+                System.err.println("Unknown wallpaper source: " + source.split(":")[0]);
+            } else {
+                wallpaperSourceList.add(wallpaperSource);
+            }
+        }
+
+        return wallpaperSourceList;
+    }
+
+    /**
+     * Retrieve the deadline of a source.
+     *
+     * @param settings        Current settings
+     * @param wallpaperSource The wallpaper source
+     * @return The deadline (Seconds)
+     */
+    private static int getSourceTimeout(final Settings settings, final WallpaperSource wallpaperSource) {
+
+        for (final String source : settings.sourceList) {
+            final String[] partList = source.split(":");
+            if (partList[0].equals(wallpaperSource.getName()) && partList.length > 1) {
+                return Integer.parseInt(partList[1]);
+            }
+        }
+
+        return settings.sourceTimeout;
+    }
+
+    /**
+     * Create the wallpaper cache.
+     *
+     * @param settings Current settings
+     * @return The wallpaper cache
+     * @throws IOException If cache can't be initialized
+     */
+    private static WallpaperCache createWallpaperCache(final Settings settings) throws IOException {
+
+        return new WallpaperCache(
+            Paths.get(settings.cacheDirectory),
+            settings.cacheMaxSize * 1024L * 1024L,
+            TimeUnit.DAYS.toMillis(settings.cacheMaxAge));
+    }
+
+    /**
+     * Create the pool of upstreams: the Bing website (or relay) and its alternates,
+     * through the proxy and its alternates.
+     *
+     * @param settings        Current settings
+     * @param metricsRegistry Where hedged requests are recorded
+     * @return The pool of upstreams
+     */
+    private static UpstreamPool createUpstreamPool(final Settings settings, final MetricsRegistry metricsRegistry) {
+
+        final List<String> baseUrlList = new ArrayList<>();
+        baseUrlList.add(settings.bingBaseUrl);
+        baseUrlList.addAll(settings.bingAlternateUrlList);
+
+        final List<String> proxyList = new ArrayList<>();
+        if (settings.proxyType != null) {
+            proxyList.add(settings.proxyHost + ":" + settings.proxyPort);
+            proxyList.addAll(settings.proxyAlternateList);
+        }
+
+        return new UpstreamPool(
+            baseUrlList,
+            settings.proxyType,
+            proxyList,
+            USER_AGENT_EDGE,
+            settings.hedgePercentile,
+            metricsRegistry);
+    }
+
+    /**
+     * Create the circuit breaker protecting the upstream.
+     *
+     * @param settings        Current settings
+     * @param metricsRegistry Where the state of the circuit is recorded
+     * @return The circuit breaker
+     */
+    private static CircuitBreaker createCircuitBreaker(final Settings settings, final MetricsRegistry metricsRegistry) {
+
+        return new CircuitBreaker(
+            settings.circuitBreakerThreshold,
+            TimeUnit.MINUTES.toMillis(settings.circuitBreakerDelay),
+            metricsRegistry);
+    }
+
+    /**
+     * Use new settings from the next run. Must not be called while the service is
+     * running. Components depending on changed settings are recreated and, if the
+     * generated wallpaper is affected, it will be generated again on next run
+     * (from the cache, without downloading it again).
+     *
+     * @param newSettings The new settings
+     * @throws IOException If cache can't be initialized
+     */
+    public void updateSettings(final Settings newSettings) throws IOException {
+
+        final Settings oldSettings = settings;
+
+        // Everything is created first, this way, an error leaves the current state untouched
+        WallpaperCache newWallpaperCache = wallpaperCache;
+        if (!Objects.equals(oldSettings.cacheDirectory, newSettings.cacheDirectory)
+            || oldSettings.cacheMaxSize != newSettings.cacheMaxSize
+            || oldSettings.cacheMaxAge != newSettings.cacheMaxAge) {
+            newWallpaperCache = createWallpaperCache(newSettings);
+        }
+
+        UpstreamPool newUpstreamPool = upstreamPool;
+        if (oldSettings.proxyType != newSettings.proxyType
+            || !Objects.equals(oldSettings.proxyHost, newSettings.proxyHost)
+            || oldSettings.proxyPort != newSettings.proxyPort
+            || !Objects.equals(oldSettings.proxyAlternateList, newSettings.proxyAlternateList)
+            || !Objects.equals(oldSettings.bingBaseUrl, newSettings.bingBaseUrl)
+            || !Objects.equals(oldSettings.bingAlternateUrlList, newSettings.bingAlternateUrlList)
+            || oldSettings.hedgePercentile != newSettings.hedgePercentile) {
+            newUpstreamPool = createUpstreamPool(newSettings, metricsRegistry);
+        }
+
+        // A new upstream starts with a closed circuit
+        CircuitBreaker newCircuitBreaker = circuitBreaker;
+        if (newUpstreamPool != upstreamPool
+            || oldSettings.circuitBreakerThreshold != newSettings.circuitBreakerThreshold
+            || oldSettings.circuitBreakerDelay != newSettings.circuitBreakerDelay) {
+            newCircuitBreaker = createCircuitBreaker(newSettings, metricsRegistry);
+            metricsRegistry.recordCircuitState(false);
+        }
+
+        RetryPolicy newRetryPolicy = retryPolicy;
+        if (oldSettings.retryMaxAttempts != newSettings.retryMaxAttempts) {
+            newRetryPolicy = new RetryPolicy(newSettings.retryMaxAttempts);
+        }
+
+        if (!Objects.equals(oldSettings.targetFileName, newSettings.targetFileName)
+            || oldSettings.fitMode != newSettings.fitMode
+            || !Objects.equals(oldSettings.displayDimensionList, newSettings.displayDimensionList)) {
+            // Force an unconditional request, then the wallpaper to be generated and applied again
+            latestWallpaperUrl = null;
+            pendingUpgradeUrl = null;
+            responseValidators = ResponseValidators.EMPTY;
+        }
+
+        if (!Objects.equals(oldSettings.sourceList, newSettings.sourceList)) {
+            sourceList = selectWallpaperSources(newSettings, availableSourceMap);
+        }
+
+        if (newUpstreamPool != upstreamPool || newCircuitBreaker != circuitBreaker || newRetryPolicy != retryPolicy) {
+            upstreamPool = newUpstreamPool;
+            circuitBreaker = newCircuitBreaker;
+            retryPolicy = newRetryPolicy;
+            resumableDownloader = new ResumableDownloader(
+                newUpstreamPool,
+                metricsRegistry,
+                newRetryPolicy,
+                newCircuitBreaker,
+                linkEstimator);
+        }
+        wallpaperCache = newWallpaperCache;
+        settings = newSettings;
+    }
+
+    /**
+     * Retrieve the URL of the latest applied wallpaper, in the resolution it has been downloaded.
+     *
+     * @return The URL, otherwise, {@code null} if no wallpaper has been applied yet
+     */
+    public URI getLatestWallpaperUrl() {
+
+        return latestImageUrl;
+    }
+
+    /**
+     * Retrieve the estimated quality of the link, as measured by the recent downloads.
+     *
+     * @return The link estimator
+     */
+    @Override
+    public LinkEstimator getLinkEstimator() {
+
+        return linkEstimator;
     }
 
     /**
@@ -58,133 +393,888 @@ public final class BingWallpaperService implements Runnable {
      */
     public static boolean canRunOnThisSystem() {
 
-        return WALLPAPER_CHANGER_LIST
-            .stream()
-            .anyMatch(WallpaperChanger::canRunOnThisSystem);
+        return WallpaperChangerHolder.INSTANCE != null;
+    }
+
+    /**
+     * Retrieve the Wallpaper Changer of the current operating system.
+     *
+     * @return The Wallpaper Changer, otherwise, {@code null} if this operating system is not handled
+     */
+    public static WallpaperChanger getDefaultWallpaperChanger() {
+
+        return WallpaperChangerHolder.INSTANCE;
+    }
+
+    /**
+     * Also apply the wallpaper of the day to another profile sharing the same image
+     * (same market, dimension and upstreams). The image is downloaded once, then
+     * fitted to the displays of each profile. Must not be called while the service
+     * is running.
+     *
+     * @param name             Name of the profile
+     * @param profileSettings  Settings of the profile
+     * @param wallpaperChanger The Wallpaper Changer of the profile session
+     */
+    public void attachProfile(final String name, final Settings profileSettings, final WallpaperChanger wallpaperChanger) {
+
+        attachedProfileList.add(new AttachedProfile(name, profileSettings, wallpaperChanger));
+        if (!Files.exists(Paths.get(profileSettings.targetFileName))) {
+            // Force an unconditional request, this way, the URL of the wallpaper of the day is known
+            responseValidators = ResponseValidators.EMPTY;
+        }
+    }
+
+    /**
+     * Apply a local image (ie: from the archive), fitted to each display. Nothing
+     * is requested from Bing.
+     *
+     * @param imageFile The image
+     * @return {@code true} in case of success, otherwise, {@code false}
+     * @throws IOException If something goes wrong during the process
+     */
+    public boolean applyLocalImage(final Path imageFile) throws IOException {
+
+        final WallpaperChanger wallpaperChanger = wallpaperChangerSupplier.get();
+        if (wallpaperChanger == null) {
+            return false;
+        }
+
+        final int displayCount = wallpaperChanger.supportsMultipleDisplays()
+            ? settings.displayDimensionList.size()
+            : 1;
+        saveToLocal(imageFile, settings, displayCount);
+
+        if (applyWallpaper(settings, wallpaperChanger, displayCount)) {
+            return true;
+        }
+
+        metricsRegistry.recordFailure(MetricsRegistry.CAUSE_APPLY);
+        return false;
     }
 
     @Override
     public void run() {
 
+        isLatestRunSuccessful = false;
+        try {
+            final SourceImage sourceImage = resolveWallpaper();
+            if (sourceImage == null) {
+                System.err.println("No wallpaper source has provided an image");
+            } else if (sourceImage.isUnchanged()) {
+                isLatestRunSuccessful = true;
+            } else if (Objects.equals(sourceImage.url, latestWallpaperUrl)) {
+                commitSourceImage(sourceImage);
+                isLatestRunSuccessful = true;
+            } else {
+                final WallpaperChanger wallpaperChanger = wallpaperChangerSupplier.get();
+                final int displayCount = wallpaperChanger != null && wallpaperChanger.supportsMultipleDisplays()
+                    ? settings.displayDimensionList.size()
+                    : 1;
+
+                saveToLocal(sourceImage, displayCount);
+                if (wallpaperChanger != null && applyWallpaper(settings, wallpaperChanger, displayCount)) {
+                    // Only an applied wallpaper is skipped by the next run
+                    latestWallpaperUrl = sourceImage.url;
+                    latestImageUrl = sourceImage.imageUrl;
+                    latestImageFile = sourceImage.file;
+                    pendingUpgradeUrl = sourceImage.upgradeUrl;
+                    commitSourceImage(sourceImage);
+                    isLatestRunSuccessful = true;
+                    System.out.printf("New wallpaper applied with success (source %s)%n", sourceImage.sourceName);
+                } else {
+                    metricsRegistry.recordFailure(MetricsRegistry.CAUSE_APPLY);
+                    System.err.println("Can't apply new wallpaper");
+                }
+            }
+
+            if (isLatestRunSuccessful && !attachedProfileList.isEmpty()) {
+                isLatestRunSuccessful = applyToAttachedProfiles();
+            }
+        } catch (final IOException | RuntimeException ex) {
+            // Never rethrown, even for a corrupt image: the failure backoff of the scheduler applies
+            metricsRegistry.recordFailure(MetricsRegistry.CAUSE_RUN);
+            isLatestRunSuccessful = false;
+            System.err.println("Unable to update wallpaper: " + ex);
+        } finally {
+            linkEstimator.store();
+        }
+    }
+
+    /**
+     * Query the configured sources concurrently, then take the result of the source with
+     * the highest priority among the ones having answered within their deadline. A source
+     * with no result (ie: nothing newer in its directory) or failing gives way to the next
+     * one. If no source has answered within its deadline, the late ones are awaited, still
+     * by priority, until the late timeout: a slow source is better than no wallpaper. A
+     * source still running since a previous run is not queried again, its pending result
+     * is awaited instead.
+     *
+     * @return The image, otherwise, {@code null} if no source has provided one
+     * @throws IOException If every source has failed
+     */
+    private SourceImage resolveWallpaper() throws IOException {
+
+        final long startTime = System.nanoTime();
+        final List<CompletableFuture<SourceImage>> futureList = new ArrayList<>();
+        for (final WallpaperSource wallpaperSource : sourceList) {
+            CompletableFuture<SourceImage> future = inFlightFutureMap.get(wallpaperSource);
+            if (future == null || future.isDone()) {
+                future = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return wallpaperSource.resolve(this);
+                    } catch (final IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, SOURCE_EXECUTOR);
+                inFlightFutureMap.put(wallpaperSource, future);
+            }
+            futureList.add(future);
+        }
+
+        IOException firstException = null;
+        boolean isFailed = true;
+        final List<Integer> lateSourceIndexList = new ArrayList<>();
         try {
-            final URL url = retrieveDailyWallpaperUrl();
-            if (url != null && !Objects.equals(url, latestWallpaperUrl)) {
-                if (saveToLocal(url)) {
-                    latestWallpaperUrl = url;
-
-                    final boolean result = WALLPAPER_CHANGER_LIST
-                        .stream()
-                        .filter(WallpaperChanger::canRunOnThisSystem)
-                        .findFirst()
-                        .map(wp -> wp.changeWallpaper(settings.targetFileName))
-                        .orElse(false);
-                    if (result) {
-                        System.out.println("New wallpaper applied with success");
-                    } else {
-                        System.err.println("Can't apply new wallpaper");
+            for (int idx = 0; idx < futureList.size(); idx += 1) {
+                final WallpaperSource wallpaperSource = sourceList.get(idx);
+                final long deadline = startTime + TimeUnit.SECONDS.toNanos(getSourceTimeout(settings, wallpaperSource));
+                try {
+                    final SourceImage sourceImage = futureList.get(idx).get(
+                        Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                    isFailed = false;
+                    if (sourceImage != null) {
+                        return sourceImage;
+                    }
+                } catch (final TimeoutException ex) {
+                    System.err.printf(
+                        "Wallpaper source %s has not answered within %d seconds%n",
+                        wallpaperSource.getName(),
+                        getSourceTimeout(settings, wallpaperSource));
+                    lateSourceIndexList.add(idx);
+                } catch (final ExecutionException ex) {
+                    final IOException cause = unwrapSourceException(wallpaperSource, ex);
+                    if (firstException == null) {
+                        firstException = cause;
                     }
                 }
             }
-        } catch (final IOException ex) {
-            throw new RuntimeException(ex);
+
+            final long lateDeadline = startTime + TimeUnit.SECONDS.toNanos(settings.sourceLateTimeout);
+            for (final int idx : lateSourceIndexList) {
+                final WallpaperSource wallpaperSource = sourceList.get(idx);
+                try {
+                    final SourceImage sourceImage = futureList.get(idx).get(
+                        Math.max(0, lateDeadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                    isFailed = false;
+                    if (sourceImage != null) {
+                        System.out.printf("Wallpaper source %s has answered late%n", wallpaperSource.getName());
+                        return sourceImage;
+                    }
+                } catch (final TimeoutException ex) {
+                    // Still running: its result will be awaited by the next run
+                    System.err.printf(
+                        "Wallpaper source %s has not answered within %d seconds, giving up%n",
+                        wallpaperSource.getName(),
+                        settings.sourceLateTimeout);
+                    if (firstException == null) {
+                        firstException = new IOException(
+                            "No wallpaper source has answered within " + settings.sourceLateTimeout + " seconds");
+                    }
+                } catch (final ExecutionException ex) {
+                    final IOException cause = unwrapSourceException(wallpaperSource, ex);
+                    if (firstException == null) {
+                        firstException = cause;
+                    }
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
         }
 
-        System.gc();
+        if (isFailed && firstException != null) {
+            throw firstException;
+        }
+
+        return null;
+    }
+
+    /**
+     * Log the failure of a source, then retrieve its cause.
+     *
+     * @param wallpaperSource The failed wallpaper source
+     * @param ex              The failure
+     * @return The cause of the failure
+     */
+    private static IOException unwrapSourceException(final WallpaperSource wallpaperSource, final ExecutionException ex) {
+
+        final Throwable cause = ex.getCause() instanceof UncheckedIOException ? ex.getCause().getCause() : ex.getCause();
+        System.err.printf("Wallpaper source %s has failed: %s%n", wallpaperSource.getName(), cause.getMessage());
+
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause);
     }
 
     /**
-     * Retrieve daily wallpaper URL from Bing API.
+     * Determine if the applied wallpaper has been downloaded in a smaller resolution
+     * to stay within the download budget, and can now be upgraded to the UHD one.
+     *
+     * @return {@code true} if an upgrade is pending, otherwise, {@code false}
+     */
+    public boolean hasPendingUpgrade() {
+
+        return pendingUpgradeUrl != null;
+    }
+
+    /**
+     * Replace the applied wallpaper, downloaded in a smaller resolution, by the UHD one.
+     * Nothing is done if no upgrade is pending. Meant to be called once the link is idle
+     * (ie: between two runs), the UHD image is downloaded whatever the download budget.
+     * Must not be called while the service is running.
      *
-     * @return The wallpaper image URL
      * @throws IOException If something goes wrong during the process
      */
-    private URL retrieveDailyWallpaperUrl() throws IOException {
+    public void upgradeWallpaper() throws IOException {
 
-        final URL bingApiUrl = new URL(String.format(
-            BING_API_URL,
-            System.currentTimeMillis() / 1000,
-            settings.dimensionWidth,
-            settings.dimensionHeight));
+        final URI url = pendingUpgradeUrl;
+        final WallpaperChanger wallpaperChanger = wallpaperChangerSupplier.get();
+        if (url == null || wallpaperChanger == null) {
+            return;
+        }
 
-        final HttpURLConnection httpConnection = openHttpConnection(bingApiUrl);
+        // Attempted once, a failed upgrade is not worth another download on a poor link
+        pendingUpgradeUrl = null;
+        try {
+            final int displayCount = wallpaperChanger.supportsMultipleDisplays()
+                ? settings.displayDimensionList.size()
+                : 1;
+            final Path cachedFile = retrieveImage(url);
+            if (cachedFile != null) {
+                linkEstimator.recordImageSize((long) settings.dimensionWidth * settings.dimensionHeight, Files.size(cachedFile));
+                saveToLocal(new SourceImage(BingWallpaperSource.NAME, url, url, cachedFile, -1, null, null), displayCount);
+            }
+            if (cachedFile != null && applyWallpaper(settings, wallpaperChanger, displayCount)) {
+                latestImageUrl = url;
+                latestImageFile = cachedFile;
+                System.out.printf("Wallpaper upgraded to %dx%d%n", settings.dimensionWidth, settings.dimensionHeight);
+                if (!attachedProfileList.isEmpty()) {
+                    applyToAttachedProfiles();
+                }
+            } else {
+                metricsRegistry.recordFailure(MetricsRegistry.CAUSE_APPLY);
+                System.err.println("Can't upgrade wallpaper");
+            }
+        } finally {
+            linkEstimator.store();
+        }
+    }
 
-        if (httpConnection.getResponseCode() == 200) {
-            final InputStreamReader inputStreamReader = new InputStreamReader(httpConnection.getInputStream());
+    /**
+     * Determine if the latest run has succeeded: the wallpaper of the day is either
+     * unchanged or has just been applied.
+     *
+     * @return {@code true} if the latest run has succeeded, otherwise, {@code false}
+     */
+    public boolean isLatestRunSuccessful() {
 
-            final JsonObject jsonObject = JsonParser.parseReader(inputStreamReader).getAsJsonObject();
-            inputStreamReader.close();
-            httpConnection.disconnect();
+        return isLatestRunSuccessful;
+    }
 
-            final JsonArray jsonArrayImages = jsonObject.get("images").getAsJsonArray();
-            if (jsonArrayImages.size() > 0) {
-                return new URL(BING_URL + jsonArrayImages.get(0).getAsJsonObject().get("url").getAsString());
+    /**
+     * Retrieve the circuit breaker protecting the upstream.
+     *
+     * @return The circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+
+        return circuitBreaker;
+    }
+
+    /**
+     * Retrieve the upstreams serving the Bing content.
+     *
+     * @return The pool of upstreams
+     */
+    public UpstreamPool getUpstreamPool() {
+
+        return upstreamPool;
+    }
+
+    /**
+     * Apply the latest applied wallpaper to the attached profiles, unless already done.
+     *
+     * @return {@code true} if the wallpaper is applied to all attached profiles, otherwise, {@code false}
+     * @throws IOException If something goes wrong during the process
+     */
+    private boolean applyToAttachedProfiles() throws IOException {
+
+        final URI url = latestImageUrl;
+        if (url == null) {
+            // Unchanged since a previous process has applied it
+            return true;
+        }
+        if (!Files.exists(latestImageFile)) {
+            // Evicted from the cache (ie: cache size exceeded)
+            return false;
+        }
+
+        boolean isSuccess = true;
+        for (final AttachedProfile attachedProfile : attachedProfileList) {
+            if (url.equals(attachedProfile.appliedWallpaperUrl)) {
+                continue;
+            }
+
+            final int displayCount = attachedProfile.wallpaperChanger.supportsMultipleDisplays()
+                ? attachedProfile.settings.displayDimensionList.size()
+                : 1;
+            saveToLocal(latestImageFile, attachedProfile.settings, displayCount);
+
+            if (applyWallpaper(attachedProfile.settings, attachedProfile.wallpaperChanger, displayCount)) {
+                attachedProfile.appliedWallpaperUrl = url;
+                System.out.printf("New wallpaper applied with success (profile %s)%n", attachedProfile.name);
+            } else {
+                metricsRegistry.recordFailure(MetricsRegistry.CAUSE_APPLY);
+                System.err.printf("Can't apply new wallpaper (profile %s)%n", attachedProfile.name);
+                isSuccess = false;
             }
-        } else {
-            httpConnection.disconnect();
         }
 
-        return null;
+        return isSuccess;
     }
 
     /**
-     * Save content from a URL into a local file.
+     * Change the wallpaper of each display, concurrently. Displays whose change has
+     * failed or timed out are retried.
      *
-     * @param urlToSave URL of the content to retrieve
+     * @param targetSettings   Settings of the profile to apply the wallpaper to
+     * @param wallpaperChanger The Wallpaper Changer to use
+     * @param displayCount     Number of displays
      * @return {@code true} in case of success, otherwise, {@code false}
+     * @throws IOException If interrupted while waiting for the next attempt
+     */
+    private boolean applyWallpaper(final Settings targetSettings,
+                                   final WallpaperChanger wallpaperChanger,
+                                   final int displayCount) throws IOException {
+
+        List<Integer> pendingDisplayIndexList = new ArrayList<>();
+        for (int idx = 0; idx < displayCount; idx += 1) {
+            pendingDisplayIndexList.add(idx);
+        }
+
+        for (int attempt = 1; ; attempt += 1) {
+            final List<CompletableFuture<ApplyResult>> futureList = new ArrayList<>();
+            for (final int displayIndex : pendingDisplayIndexList) {
+                futureList.add(changeWallpaperAsync(targetSettings, wallpaperChanger, displayIndex));
+            }
+
+            final List<Integer> failedDisplayIndexList = new ArrayList<>();
+            for (int idx = 0; idx < futureList.size(); idx += 1) {
+                if (!futureList.get(idx).join().isSuccess()) {
+                    failedDisplayIndexList.add(pendingDisplayIndexList.get(idx));
+                }
+            }
+            if (failedDisplayIndexList.isEmpty()) {
+                return true;
+            }
+
+            final long delay = retryPolicy.computeDelay(attempt, -1);
+            if (delay < 0) {
+                return false;
+            }
+            System.err.printf(
+                "Unable to apply wallpaper (attempt %d/%d), retrying in %d ms%n",
+                attempt,
+                retryPolicy.getMaxAttempts(),
+                delay);
+            metricsRegistry.recordRetry("apply");
+            RetryPolicy.pause(delay);
+            pendingDisplayIndexList = failedDisplayIndexList;
+        }
+    }
+
+    /**
+     * Change the wallpaper of a display, without waiting for the change.
+     *
+     * @param targetSettings   Settings of the profile to apply the wallpaper to
+     * @param wallpaperChanger The Wallpaper Changer to use
+     * @param displayIndex     Index of the display (0 = main display)
+     * @return A future completed with the result of the change
+     */
+    private CompletableFuture<ApplyResult> changeWallpaperAsync(final Settings targetSettings,
+                                                                final WallpaperChanger wallpaperChanger,
+                                                                final int displayIndex) {
+
+        final WallpaperChangeEvent event = new WallpaperChangeEvent();
+        event.begin();
+        event.changer = wallpaperChanger.getClass().getSimpleName();
+        event.displayIndex = displayIndex;
+        event.file = targetSettings.getTargetFileName(displayIndex);
+
+        final long startTime = System.nanoTime();
+        return wallpaperChanger
+            .changeWallpaperAsync(displayIndex, event.file, TimeUnit.SECONDS.toMillis(targetSettings.applyTimeout))
+            .exceptionally(ex -> {
+                ex.printStackTrace();
+                return ApplyResult.FAILED;
+            })
+            .thenApply(result -> {
+                metricsRegistry.recordChangerApply(event.changer, System.nanoTime() - startTime);
+                if (result == ApplyResult.TIMED_OUT) {
+                    System.err.printf(
+                        "Wallpaper of display %d not applied after %d seconds%n",
+                        displayIndex,
+                        targetSettings.applyTimeout);
+                }
+
+                switch (result) {
+                    case APPLIED:
+                        event.outcome = "success";
+                        break;
+                    case UNCHANGED:
+                        event.outcome = "success: unchanged";
+                        break;
+                    case TIMED_OUT:
+                        event.outcome = "failure: timeout";
+                        break;
+                    default:
+                        event.outcome = "failure";
+                        break;
+                }
+                event.commit();
+
+                return result;
+            });
+    }
+
+    /**
+     * Release the resources kept between two runs, then give the free heap back to
+     * the operating system. Does nothing if the idle mode is disabled.
+     */
+    public void releaseIdleResources() {
+
+        if (!settings.idleMode) {
+            return;
+        }
+
+        final long usedHeapBefore = MemoryUtils.getUsedHeap();
+        final long residentMemoryBefore = MemoryUtils.getResidentMemory();
+
+        // Pooled connections (and their buffers) are not worth keeping until the next run
+        upstreamPool.release();
+        for (final WallpaperSource wallpaperSource : availableSourceMap.values()) {
+            wallpaperSource.release();
+        }
+
+        // A full collection lets the collector shrink the heap according to the
+        // -XX:MinHeapFreeRatio / -XX:MaxHeapFreeRatio JVM options, then uncommit it
+        System.gc();
+
+        final long usedHeapAfter = MemoryUtils.getUsedHeap();
+        final long residentMemoryAfter = MemoryUtils.getResidentMemory();
+        System.out.printf(
+            "Idle: heap %s -> %s (%s committed), RSS %s -> %s%n",
+            MemoryUtils.format(usedHeapBefore),
+            MemoryUtils.format(usedHeapAfter),
+            MemoryUtils.format(MemoryUtils.getCommittedHeap()),
+            MemoryUtils.format(residentMemoryBefore),
+            MemoryUtils.format(residentMemoryAfter));
+
+        if (!isWithinIdleFootprint()) {
+            System.err.printf(
+                "Idle footprint exceeds the ceiling (heap %d MB, RSS %d MB)%n",
+                settings.idleMaxHeap,
+                settings.idleMaxRss);
+        }
+    }
+
+    /**
+     * Determine if the current footprint is within the configured idle ceiling.
+     *
+     * @return {@code true} if footprint is within the ceiling, otherwise, {@code false}
+     */
+    public boolean isWithinIdleFootprint() {
+
+        final long residentMemory = MemoryUtils.getResidentMemory();
+        return MemoryUtils.getUsedHeap() <= settings.idleMaxHeap * 1024L * 1024L
+            && residentMemory <= settings.idleMaxRss * 1024L * 1024L;
+    }
+
+    /**
+     * Retrieve the raw response of the Bing API.
+     *
+     * @param query Query string to send to the API (ie: format=js&amp;idx=0&amp;n=1)
+     * @return The response body, otherwise, {@code null} if API does not answer with success
+     * @throws IOException If something goes wrong during the process
+     */
+    public byte[] retrieveArchive(final String query) throws IOException {
+
+        final URI bingApiUrl = URI.create(settings.bingBaseUrl + BingWallpaperSource.BING_API_PATH + "?" + query);
+        final HttpResponse<byte[]> response = sendApiRequest(upstream -> upstream.newCompressedRequest(bingApiUrl).GET().build());
+
+        return response.statusCode() == 200 ? response.body() : null;
+    }
+
+    /**
+     * Send a request to the Bing API and record its metrics. Transient failures (ie: network
+     * error, 503) are retried with backoff, as long as the circuit breaker allows it. Each
+     * attempt is sent to the fastest upstream and hedged to the next fastest one if slow.
+     *
+     * @param requestFactory Creates the request to send to a given upstream
+     * @return The response, which can still be unsuccessful once all attempts are exhausted
+     * @throws IOException If something goes wrong during the process
+     */
+    @Override
+    public HttpResponse<byte[]> sendApiRequest(final Function<Upstream, HttpRequest> requestFactory) throws IOException {
+
+        for (int attempt = 1; ; attempt += 1) {
+            circuitBreaker.checkAllowed();
+
+            final long startTime = System.nanoTime();
+            final HttpResponse<byte[]> response;
+            try {
+                response = upstreamPool.send(requestFactory, HttpEngine.ofDecompressedByteArray());
+            } catch (final IOException ex) {
+                metricsRegistry.recordFailure(ex instanceof HttpTimeoutException
+                    ? MetricsRegistry.CAUSE_TIMEOUT
+                    : MetricsRegistry.CAUSE_NETWORK);
+                if (FailureKind.fromException(ex) == FailureKind.PERMANENT) {
+                    throw ex;
+                }
+
+                circuitBreaker.recordFailure();
+                final long delay = retryPolicy.computeDelay(attempt, -1);
+                if (delay < 0 || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                    throw ex;
+                }
+                pauseBeforeRetry(attempt, delay, ex.getMessage());
+                continue;
+            }
+
+            metricsRegistry.recordApiRequest(System.nanoTime() - startTime, response.body() == null ? 0 : response.body().length);
+            if (response.statusCode() == 200 || response.statusCode() == 304) {
+                circuitBreaker.recordSuccess();
+                return response;
+            }
+
+            metricsRegistry.recordFailure(MetricsRegistry.CAUSE_HTTP_STATUS);
+            if (FailureKind.fromStatusCode(response.statusCode()) == FailureKind.PERMANENT) {
+                // Upstream is available, the request is wrong
+                circuitBreaker.recordSuccess();
+                return response;
+            }
+
+            circuitBreaker.recordFailure();
+            final long delay = retryPolicy.computeDelay(
+                attempt,
+                RetryPolicy.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)));
+            if (delay < 0 || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                return response;
+            }
+            pauseBeforeRetry(attempt, delay, "HTTP " + response.statusCode());
+        }
+    }
+
+    /**
+     * Log and record a retry of a Bing API request, then wait before the next attempt.
+     *
+     * @param attempt Number of the failed attempt (1 = first attempt)
+     * @param delay   Delay before the next attempt (Milliseconds)
+     * @param reason  Why the attempt has failed
+     * @throws IOException If interrupted while waiting
+     */
+    private void pauseBeforeRetry(final int attempt, final long delay, final String reason) throws IOException {
+
+        System.err.printf(
+            "Bing API request failed (attempt %d/%d): %s, retrying in %d ms%n",
+            attempt,
+            retryPolicy.getMaxAttempts(),
+            reason,
+            delay);
+        metricsRegistry.recordRetry("api");
+        RetryPolicy.pause(delay);
+    }
+
+    @Override
+    public MetricsRegistry getMetricsRegistry() {
+
+        return metricsRegistry;
+    }
+
+    /**
+     * Retrieve an image into the cache. If the image is already cached,
+     * no request will be sent.
+     *
+     * @param pathAndQuery Path and query of the image on Bing (ie: /th?id=OHR.Example_UHD.jpg)
+     * @return The cached image location, otherwise, {@code null} if image can't be retrieved
      * @throws IOException If something goes wrong during the process
      */
-    private boolean saveToLocal(final URL urlToSave) throws IOException {
+    public Path retrieveImage(final String pathAndQuery) throws IOException {
 
-        final HttpURLConnection httpConnection = openHttpConnection(urlToSave);
-        if (httpConnection.getResponseCode() == 200) {
-            final InputStream inputStream = httpConnection.getInputStream();
+        return retrieveImage(URI.create(settings.bingBaseUrl + pathAndQuery));
+    }
 
-            Files.copy(
-                inputStream,
-                new File(settings.targetFileName).toPath(),
-                StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Download an image into the given file. If the image is already
+     * cached, no request will be sent.
+     *
+     * @param url        URL of the image
+     * @param targetFile Location where the image will be saved
+     * @return {@code true} in case of success, otherwise, {@code false}
+     * @throws IOException If something goes wrong during the process
+     */
+    public boolean downloadImage(final URI url, final Path targetFile) throws IOException {
 
-            inputStream.close();
-            httpConnection.disconnect();
+        final Path cachedFile = wallpaperCache.lookup(url.toString());
+        metricsRegistry.recordCacheLookup(cachedFile != null);
+        if (cachedFile != null) {
+            FileUtils.copyAtomically(cachedFile, targetFile);
             return true;
-        } else {
-            httpConnection.disconnect();
         }
 
-        return false;
+        final Path partialFile = targetFile.resolveSibling(targetFile.getFileName() + ".part");
+        if (!resumableDownloader.download(url, partialFile)) {
+            return false;
+        }
+
+        FileUtils.moveAtomically(partialFile, targetFile);
+        return true;
+    }
+
+    /**
+     * Keep the validators and publish time of the image which has just been applied
+     * successfully. Next Bing API requests will be conditional.
+     *
+     * @param sourceImage The applied image
+     * @throws IOException If something goes wrong during the process
+     */
+    private void commitSourceImage(final SourceImage sourceImage) throws IOException {
+
+        if (sourceImage.responseValidators != null) {
+            responseValidators = sourceImage.responseValidators;
+            responseValidators.store(responseValidatorsFile);
+        }
+        if (sourceImage.publishTime > 0) {
+            latestPublishTime = sourceImage.publishTime;
+        }
+    }
+
+    @Override
+    public Settings getSettings() {
+
+        return settings;
+    }
+
+    @Override
+    public WallpaperCache getWallpaperCache() {
+
+        return wallpaperCache;
+    }
+
+    @Override
+    public ResponseValidators getResponseValidators() {
+
+        return responseValidators;
+    }
+
+    @Override
+    public long getLatestPublishTime() {
+
+        return latestPublishTime;
+    }
+
+    /**
+     * Save an image provided by a source into local files, one per display. The image
+     * is fitted to the dimension of each display in parallel. Each fitted image is
+     * atomically written to its target file.
+     *
+     * @param sourceImage  The image
+     * @param displayCount Number of displays to generate a wallpaper for
+     * @throws IOException If something goes wrong during the process
+     */
+    private void saveToLocal(final SourceImage sourceImage, final int displayCount) throws IOException {
+
+        final SaveToLocalEvent event = new SaveToLocalEvent();
+        event.begin();
+        event.url = sourceImage.imageUrl.toString();
+        event.displayCount = displayCount;
+        try {
+            event.bytes = Files.size(sourceImage.file);
+            saveToLocal(sourceImage.file, settings, displayCount);
+            event.outcome = "success";
+        } catch (final IOException | RuntimeException ex) {
+            event.outcome = "failure: " + ex.getMessage();
+            throw ex;
+        } finally {
+            event.commit();
+        }
     }
 
     /**
-     * Open an HTTP connection.
+     * Save a cached image into local files, one per display of the given profile.
      *
-     * @param url URL to use
-     * @return Opened HTTP connection
+     * @param cachedFile     The cached image
+     * @param targetSettings Settings of the profile (target file, fit mode and displays)
+     * @param displayCount   Number of displays to generate a wallpaper for
      * @throws IOException If something goes wrong during the process
      */
-    private HttpURLConnection openHttpConnection(final URL url) throws IOException {
+    private void saveToLocal(final Path cachedFile, final Settings targetSettings, final int displayCount) throws IOException {
 
-        final Proxy proxy = configureProxy();
-        final HttpURLConnection httpConnection = (HttpURLConnection) url.openConnection(proxy);
+        if (displayCount == 1) {
+            final Dimension dimension = targetSettings.displayDimensionList.get(0);
+            saveToLocal(
+                cachedFile,
+                Paths.get(targetSettings.targetFileName),
+                dimension.width,
+                dimension.height,
+                targetSettings.fitMode);
+            return;
+        }
 
-        httpConnection.setRequestProperty("User-Agent", USER_AGENT_EDGE);
-        httpConnection.setConnectTimeout(15000);
-        httpConnection.setReadTimeout(15000);
-        httpConnection.connect();
+        // Each display is generated from the same cached image, in parallel
+        final List<CompletableFuture<Void>> futureList = new ArrayList<>();
+        for (int idx = 0; idx < displayCount; idx += 1) {
+            final Path targetFile = Paths.get(targetSettings.getTargetFileName(idx));
+            final Dimension dimension = targetSettings.displayDimensionList.get(idx);
+            futureList.add(CompletableFuture.runAsync(() -> {
+                try {
+                    saveToLocal(cachedFile, targetFile, dimension.width, dimension.height, targetSettings.fitMode);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        }
 
-        return httpConnection;
+        try {
+            CompletableFuture.allOf(futureList.toArray(CompletableFuture<?>[]::new)).join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            throw ex;
+        }
     }
 
     /**
-     * Configure Proxy.
+     * Save a cached image into a local file, fitted to the given dimension.
      *
-     * @return Configured Proxy
+     * @param cachedFile   The cached image
+     * @param targetFile   Location where the image will be saved
+     * @param targetWidth  Target width (Pixel)
+     * @param targetHeight Target height (Pixel)
+     * @param fitMode      Fit mode
+     * @throws IOException If something goes wrong during the process
      */
-    private Proxy configureProxy() {
+    private void saveToLocal(final Path cachedFile,
+                             final Path targetFile,
+                             final int targetWidth,
+                             final int targetHeight,
+                             final ImageFitter.FitMode fitMode) throws IOException {
 
-        if (settings.proxyType == null) {
-            return Proxy.NO_PROXY;
+        final ImageProcessingEvent event = new ImageProcessingEvent();
+        event.begin();
+        event.targetFile = targetFile.toString();
+        event.width = targetWidth;
+        event.height = targetHeight;
+
+        boolean isFitted;
+        try {
+            isFitted = ImageFitter.fit(cachedFile, targetFile, targetWidth, targetHeight, fitMode);
+            event.outcome = isFitted ? "fitted" : "copied (already fits)";
+        } catch (final IOException ex) {
+            System.err.println("Unable to fit wallpaper, original image will be used: " + ex.getMessage());
+            metricsRegistry.recordFailure(MetricsRegistry.CAUSE_IMAGE);
+            event.outcome = "copied (failure: " + ex.getMessage() + ")";
+            isFitted = false;
         }
+        if (!isFitted) {
+            FileUtils.copyAtomically(cachedFile, targetFile);
+        }
+
+        event.bytes = Files.size(targetFile);
+        event.commit();
+    }
+
+    /**
+     * Retrieve an image into the cache. If the image is already cached,
+     * no request will be sent.
+     *
+     * @param url URL of the image
+     * @return The cached image location, otherwise, {@code null} if image can't be retrieved
+     * @throws IOException If something goes wrong during the process
+     */
+    @Override
+    public Path retrieveImage(final URI url) throws IOException {
 
-        return new Proxy(settings.proxyType, new InetSocketAddress(settings.proxyHost, settings.proxyPort));
+        final Path cachedFile = wallpaperCache.lookup(url.toString());
+        metricsRegistry.recordCacheLookup(cachedFile != null);
+        if (cachedFile != null) {
+            System.out.println("Wallpaper retrieved from cache");
+            return cachedFile;
+        }
+
+        final Path partialFile = wallpaperCache.getPartialFile(url.toString());
+        if (!resumableDownloader.download(url, partialFile)) {
+            return null;
+        }
+
+        return wallpaperCache.store(url.toString(), partialFile);
+    }
+
+    /**
+     * Profile to which the wallpaper of the day is also applied.
+     */
+    private static final class AttachedProfile {
+
+        private final String name;
+        private final Settings settings;
+        private final WallpaperChanger wallpaperChanger;
+
+        private URI appliedWallpaperUrl;
+
+        /**
+         * Build a new instance.
+         *
+         * @param name             Name of the profile
+         * @param settings         Settings of the profile
+         * @param wallpaperChanger The Wallpaper Changer of the profile session
+         */
+        private AttachedProfile(final String name, final Settings settings, final WallpaperChanger wallpaperChanger) {
+
+            this.name = name;
+            this.settings = settings;
+            this.wallpaperChanger = wallpaperChanger;
+            this.appliedWallpaperUrl = null;
+        }
+    }
+
+    /**
+     * Lazily resolved Wallpaper Changer. Only the implementation matching the current
+     * operating system is loaded (ie: JNA is never loaded outside Windows), and only
+     * when a wallpaper has to be applied.
+     */
+    private static final class WallpaperChangerHolder {
+
+        private static final WallpaperChanger INSTANCE = resolveWallpaperChanger();
+
+        /**
+         * Resolve the Wallpaper Changer able to work on this current operating system.
+         *
+         * @return The Wallpaper Changer, otherwise, {@code null}
+         */
+        private static WallpaperChanger resolveWallpaperChanger() {
+
+            final WallpaperChanger wallpaperChanger;
+            if (OperatingSystemUtils.IS_WINDOWS) {
+                wallpaperChanger = new WindowsWallpaperChanger();
+            } else if (OperatingSystemUtils.IS_MAC) {
+                wallpaperChanger = new MacOsWallpaperChanger();
+            } else {
+                wallpaperChanger = new LinuxGnomeWallpaperChanger();
+            }
+
+            return wallpaperChanger.canRunOnThisSystem() ? wallpaperChanger : null;
+        }
     }
 }
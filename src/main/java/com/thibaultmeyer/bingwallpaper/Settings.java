@@ -1,6 +1,14 @@
 package com.thibaultmeyer.bingwallpaper;
 
+import com.thibaultmeyer.bingwallpaper.image.ImageFitter;
+
+import java.awt.Dimension;
+import java.io.File;
 import java.net.Proxy;
+import java.net.URI;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Settings.
@@ -17,11 +25,21 @@ public final class Settings {
      */
     public final int dimensionHeight;
 
+    /**
+     * Dimension of each display, main display first
+     */
+    public final List<Dimension> displayDimensionList;
+
     /**
      * Location where the wallpaper will be saved on local disk.
      */
     public final String targetFileName;
 
+    /**
+     * How the wallpaper is fitted to its dimension (ie: CROP)
+     */
+    public final ImageFitter.FitMode fitMode;
+
     /**
      * Type of the Proxy to use (ie: HTTP)
      */
@@ -37,28 +55,455 @@ public final class Settings {
      */
     public final int proxyPort;
 
+    /**
+     * Other proxies of the same type, used according to their latency (ie: 10.0.0.2:3128)
+     */
+    public final List<String> proxyAlternateList;
+
+    /**
+     * Location where downloaded wallpapers are cached on local disk.
+     */
+    public final String cacheDirectory;
+
+    /**
+     * Maximum size of the cache (Megabytes), 0 to disable
+     */
+    public final int cacheMaxSize;
+
+    /**
+     * Maximum age of a cached wallpaper (Days), 0 to disable
+     */
+    public final int cacheMaxAge;
+
+    /**
+     * Base URL of the Bing website or of a relay (ie: https://www.bing.com)
+     */
+    public final String bingBaseUrl;
+
+    /**
+     * Other base URLs serving the same content, used according to their latency (ie: https://cn.bing.com)
+     */
+    public final List<String> bingAlternateUrlList;
+
+    /**
+     * Market of the wallpaper (ie: en-US), {@code null} to let Bing choose it from the location
+     */
+    public final String market;
+
+    /**
+     * Listen port of the relay server (ie: 8085)
+     */
+    public final int relayPort;
+
+    /**
+     * Number of threads serving the relay clients
+     */
+    public final int relayThreads;
+
+    /**
+     * Address the relay server listens on (ie: 127.0.0.1, 0.0.0.0 for all interfaces)
+     */
+    public final String relayAddress;
+
+    /**
+     * Maximum random delay added after the expected publish time (Minutes)
+     */
+    public final int scheduleJitter;
+
+    /**
+     * Location where archived wallpapers are saved on local disk.
+     */
+    public final String archiveDirectory;
+
+    /**
+     * Markets to archive (ie: en-US, fr-FR)
+     */
+    public final List<String> archiveMarkets;
+
+    /**
+     * Number of days to archive
+     */
+    public final int archiveDays;
+
+    /**
+     * Maximum number of concurrent archive downloads
+     */
+    public final int archiveConcurrency;
+
+    /**
+     * Rotation - Interval between two archived wallpapers (Minutes)
+     */
+    public final int rotationInterval;
+
+    /**
+     * Rotation - Archived wallpapers are applied in random order rather than newest first
+     */
+    public final boolean rotationShuffle;
+
+    /**
+     * Rotation - First publish date of the archived wallpapers (ie: 20230101), 0 for no lower bound
+     */
+    public final int rotationStartDate;
+
+    /**
+     * Rotation - Last publish date of the archived wallpapers (ie: 20231231), 0 for no upper bound
+     */
+    public final int rotationEndDate;
+
+    /**
+     * Idle mode - Release resources and give heap back to the operating system between runs
+     */
+    public final boolean idleMode;
+
+    /**
+     * Idle mode - Maximum expected heap usage while idle (MB)
+     */
+    public final int idleMaxHeap;
+
+    /**
+     * Idle mode - Maximum expected resident memory while idle (MB)
+     */
+    public final int idleMaxRss;
+
+    /**
+     * Metrics - Listen port of the Prometheus text endpoint (localhost only), 0 to disable
+     */
+    public final int metricsPort;
+
+    /**
+     * Retry - Maximum number of attempts of each stage of a cycle
+     */
+    public final int retryMaxAttempts;
+
+    /**
+     * Circuit breaker - Number of consecutive upstream failures opening the circuit
+     */
+    public final int circuitBreakerThreshold;
+
+    /**
+     * Circuit breaker - Delay before a new upstream request is allowed once the circuit is open (Minutes)
+     */
+    public final int circuitBreakerDelay;
+
+    /**
+     * Latency percentile after which a request is also sent to the next fastest upstream, 0 to disable
+     */
+    public final int hedgePercentile;
+
+    /**
+     * Maximum duration of a wallpaper change (Seconds)
+     */
+    public final int applyTimeout;
+
+    /**
+     * Download - Maximum estimated duration of the image download (Seconds), 0 for no limit
+     */
+    public final int downloadTimeBudget;
+
+    /**
+     * Download - Maximum estimated size of the image (Kilobytes), 0 for no limit
+     */
+    public final int downloadSizeBudget;
+
+    /**
+     * Download - A wallpaper downloaded in a smaller resolution is replaced by the UHD one once the link is idle
+     */
+    public final boolean uhdUpgrade;
+
+    /**
+     * Sources - Wallpaper sources, highest priority first, each with an optional deadline (ie: bing:10)
+     */
+    public final List<String> sourceList;
+
+    /**
+     * Sources - Default deadline of a source (Seconds)
+     */
+    public final int sourceTimeout;
+
+    /**
+     * Sources - Maximum duration of a run waiting for late sources (Seconds)
+     */
+    public final int sourceLateTimeout;
+
+    /**
+     * Sources - Directory containing archived images, used by the directory source
+     */
+    public final String sourceDirectory;
+
+    /**
+     * Sources - Base URL of the relay or mirror used by the mirror source, null if none
+     */
+    public final String mirrorUrl;
+
     /**
      * Build a new instance.
      *
-     * @param dimensionWidth  Wallpaper dimension - Width (Pixel)
-     * @param dimensionHeight Wallpaper dimension - Height (Pixel)
-     * @param targetFileName  Location where the wallpaper will be saved on local disk
-     * @param proxyType       Proxy Type (ie: HTTP)
-     * @param proxyHost       Proxy Host (ie: 127.0.0.1)
-     * @param proxyPort       Proxy Port (ie: 8080)
+     * @param dimensionWidth          Wallpaper dimension - Width (Pixel)
+     * @param dimensionHeight         Wallpaper dimension - Height (Pixel)
+     * @param displayDimensionList    Dimension of each display, main display first
+     * @param targetFileName          Location where the wallpaper will be saved on local disk
+     * @param fitMode                 How the wallpaper is fitted to its dimension
+     * @param proxyType               Proxy Type (ie: HTTP)
+     * @param proxyHost               Proxy Host (ie: 127.0.0.1)
+     * @param proxyPort               Proxy Port (ie: 8080)
+     * @param proxyAlternateList      Other proxies (ie: 10.0.0.2:3128)
+     * @param cacheDirectory          Location where downloaded wallpapers are cached on local disk
+     * @param cacheMaxSize            Maximum size of the cache (Megabytes)
+     * @param cacheMaxAge             Maximum age of a cached wallpaper (Days)
+     * @param bingBaseUrl             Base URL of the Bing website or of a relay
+     * @param bingAlternateUrlList    Other base URLs serving the same content (ie: https://cn.bing.com)
+     * @param market                  Market of the wallpaper (ie: en-US), {@code null} for automatic
+     * @param relayPort               Listen port of the relay server
+     * @param relayThreads            Number of threads serving the relay clients
+     * @param relayAddress            Address the relay server listens on (ie: 127.0.0.1, 0.0.0.0 for all interfaces)
+     * @param scheduleJitter          Maximum random delay added after the expected publish time (Minutes)
+     * @param archiveDirectory        Location where archived wallpapers are saved on local disk
+     * @param archiveMarkets          Markets to archive
+     * @param archiveDays             Number of days to archive
+     * @param archiveConcurrency      Maximum number of concurrent archive downloads
+     * @param rotationInterval        Interval between two archived wallpapers (Minutes)
+     * @param rotationShuffle         Archived wallpapers are applied in random order rather than newest first
+     * @param rotationStartDate       First publish date of the archived wallpapers (ie: 20230101), 0 for no lower bound
+     * @param rotationEndDate         Last publish date of the archived wallpapers (ie: 20231231), 0 for no upper bound
+     * @param idleMode                Release resources and give heap back to the operating system between runs
+     * @param idleMaxHeap             Maximum expected heap usage while idle (MB)
+     * @param idleMaxRss              Maximum expected resident memory while idle (MB)
+     * @param metricsPort             Listen port of the Prometheus text endpoint (localhost only), 0 to disable
+     * @param retryMaxAttempts        Maximum number of attempts of each stage of a cycle
+     * @param circuitBreakerThreshold Number of consecutive upstream failures opening the circuit
+     * @param circuitBreakerDelay     Delay before a new upstream request is allowed once the circuit is open (Minutes)
+     * @param hedgePercentile         Latency percentile after which a request is hedged, 0 to disable
+     * @param applyTimeout            Maximum duration of a wallpaper change (Seconds)
+     * @param downloadTimeBudget      Maximum estimated duration of the image download (Seconds), 0 for no limit
+     * @param downloadSizeBudget      Maximum estimated size of the image (Kilobytes), 0 for no limit
+     * @param uhdUpgrade              A smaller resolution is replaced by the UHD one once the link is idle
+     * @param sourceList              Wallpaper sources, highest priority first, each with an optional deadline (ie: bing:10)
+     * @param sourceTimeout           Default deadline of a source (Seconds)
+     * @param sourceLateTimeout       Maximum duration of a run waiting for late sources (Seconds)
+     * @param sourceDirectory         Directory containing archived images, used by the directory source
+     * @param mirrorUrl               Base URL of the relay or mirror used by the mirror source, null if none
      */
     public Settings(final int dimensionWidth,
                     final int dimensionHeight,
+                    final List<Dimension> displayDimensionList,
                     final String targetFileName,
+                    final ImageFitter.FitMode fitMode,
                     final Proxy.Type proxyType,
                     final String proxyHost,
-                    final int proxyPort) {
+                    final int proxyPort,
+                    final List<String> proxyAlternateList,
+                    final String cacheDirectory,
+                    final int cacheMaxSize,
+                    final int cacheMaxAge,
+                    final String bingBaseUrl,
+                    final List<String> bingAlternateUrlList,
+                    final String market,
+                    final int relayPort,
+                    final int relayThreads,
+                    final String relayAddress,
+                    final int scheduleJitter,
+                    final String archiveDirectory,
+                    final List<String> archiveMarkets,
+                    final int archiveDays,
+                    final int archiveConcurrency,
+                    final int rotationInterval,
+                    final boolean rotationShuffle,
+                    final int rotationStartDate,
+                    final int rotationEndDate,
+                    final boolean idleMode,
+                    final int idleMaxHeap,
+                    final int idleMaxRss,
+                    final int metricsPort,
+                    final int retryMaxAttempts,
+                    final int circuitBreakerThreshold,
+                    final int circuitBreakerDelay,
+                    final int hedgePercentile,
+                    final int applyTimeout,
+                    final int downloadTimeBudget,
+                    final int downloadSizeBudget,
+                    final boolean uhdUpgrade,
+                    final List<String> sourceList,
+                    final int sourceTimeout,
+                    final int sourceLateTimeout,
+                    final String sourceDirectory,
+                    final String mirrorUrl) {
 
         this.dimensionWidth = dimensionWidth;
         this.dimensionHeight = dimensionHeight;
+        this.displayDimensionList = displayDimensionList;
         this.targetFileName = targetFileName;
+        this.fitMode = fitMode;
         this.proxyType = proxyType;
         this.proxyHost = proxyHost;
         this.proxyPort = proxyPort;
+        this.proxyAlternateList = proxyAlternateList;
+        this.cacheDirectory = cacheDirectory;
+        this.cacheMaxSize = cacheMaxSize;
+        this.cacheMaxAge = cacheMaxAge;
+        this.bingBaseUrl = bingBaseUrl;
+        this.bingAlternateUrlList = bingAlternateUrlList;
+        this.market = market;
+        this.relayPort = relayPort;
+        this.relayThreads = relayThreads;
+        this.relayAddress = relayAddress;
+        this.scheduleJitter = scheduleJitter;
+        this.archiveDirectory = archiveDirectory;
+        this.archiveMarkets = archiveMarkets;
+        this.archiveDays = archiveDays;
+        this.archiveConcurrency = archiveConcurrency;
+        this.rotationInterval = rotationInterval;
+        this.rotationShuffle = rotationShuffle;
+        this.rotationStartDate = rotationStartDate;
+        this.rotationEndDate = rotationEndDate;
+        this.idleMode = idleMode;
+        this.idleMaxHeap = idleMaxHeap;
+        this.idleMaxRss = idleMaxRss;
+        this.metricsPort = metricsPort;
+        this.retryMaxAttempts = retryMaxAttempts;
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+        this.circuitBreakerDelay = circuitBreakerDelay;
+        this.hedgePercentile = hedgePercentile;
+        this.applyTimeout = applyTimeout;
+        this.downloadTimeBudget = downloadTimeBudget;
+        this.downloadSizeBudget = downloadSizeBudget;
+        this.uhdUpgrade = uhdUpgrade;
+        this.sourceList = sourceList;
+        this.sourceTimeout = sourceTimeout;
+        this.sourceLateTimeout = sourceLateTimeout;
+        this.sourceDirectory = sourceDirectory;
+        this.mirrorUrl = mirrorUrl;
+    }
+
+    /**
+     * Check that settings are consistent.
+     *
+     * @throws IllegalArgumentException If a setting is invalid
+     */
+    public void validate() {
+
+        checkArgument(dimensionWidth > 0 && dimensionHeight > 0, "dimension must be positive");
+        checkArgument(!displayDimensionList.isEmpty(), "at least one display is required");
+        checkArgument(targetFileName != null && !targetFileName.isBlank(), "targetFileName is required");
+        checkArgument(fitMode != null, "fitMode is required");
+        checkArgument(
+            proxyType == null || (proxyHost != null && !proxyHost.isBlank() && proxyPort > 0 && proxyPort <= 65535),
+            "proxyHost and proxyPort are required");
+        checkArgument(
+            proxyAlternateList.isEmpty() || proxyType != null,
+            "proxyAlternates requires proxyType");
+        for (final String proxyAlternate : proxyAlternateList) {
+            checkArgument(
+                proxyAlternate.matches("[^:\\s]+:\\d{1,5}") && Integer.parseInt(proxyAlternate.split(":")[1]) <= 65535,
+                "proxyAlternates must contain host:port entries");
+        }
+        checkArgument(cacheDirectory != null && !cacheDirectory.isBlank(), "cacheDirectory is required");
+        checkArgument(cacheMaxSize >= 0 && cacheMaxAge >= 0, "cacheMaxSize and cacheMaxAge can't be negative");
+        checkArgument(
+            bingBaseUrl.startsWith("http://") || bingBaseUrl.startsWith("https://"),
+            "bingBaseUrl must be an HTTP(S) URL");
+        try {
+            checkArgument(URI.create(bingBaseUrl).getHost() != null, "bingBaseUrl must contain a host");
+        } catch (final IllegalArgumentException ex) {
+            throw new IllegalArgumentException("bingBaseUrl is invalid: " + ex.getMessage(), ex);
+        }
+        for (final String bingAlternateUrl : bingAlternateUrlList) {
+            checkArgument(
+                bingAlternateUrl.startsWith("http://") || bingAlternateUrl.startsWith("https://"),
+                "bingAlternateUrls must contain HTTP(S) URLs");
+        }
+        checkArgument(market == null || market.matches("[A-Za-z]{2}-[A-Za-z]{2}"), "market must look like en-US");
+        checkArgument(relayPort > 0 && relayPort <= 65535, "relayPort must be between 1 and 65535");
+        checkArgument(relayThreads > 0, "relayThreads must be positive");
+        checkArgument(!relayAddress.isBlank(), "relayAddress must not be blank");
+        checkArgument(scheduleJitter >= 0, "scheduleJitter can't be negative");
+        checkArgument(!archiveMarkets.isEmpty(), "at least one archive market is required");
+        checkArgument(
+            archiveDays > 0 && archiveConcurrency > 0,
+            "archiveDays and archiveConcurrency must be positive");
+        checkArgument(rotationInterval > 0, "rotationInterval must be positive");
+        checkArgument(
+            isValidDate(rotationStartDate) && isValidDate(rotationEndDate),
+            "rotationStartDate and rotationEndDate must be dates (ie: 20230101) or none");
+        checkArgument(
+            rotationStartDate == 0 || rotationEndDate == 0 || rotationStartDate <= rotationEndDate,
+            "rotationStartDate must not be after rotationEndDate");
+        checkArgument(idleMaxHeap > 0 && idleMaxRss > 0, "idleMaxHeap and idleMaxRss must be positive");
+        checkArgument(metricsPort >= 0 && metricsPort <= 65535, "metricsPort must be between 0 and 65535");
+        checkArgument(retryMaxAttempts > 0, "retryMaxAttempts must be positive");
+        checkArgument(
+            circuitBreakerThreshold > 0 && circuitBreakerDelay > 0,
+            "circuitBreakerThreshold and circuitBreakerDelay must be positive");
+        checkArgument(hedgePercentile >= 0 && hedgePercentile < 100, "hedgePercentile must be between 0 and 99");
+        checkArgument(applyTimeout > 0, "applyTimeout must be positive");
+        checkArgument(downloadTimeBudget >= 0, "downloadTimeBudget can't be negative");
+        checkArgument(downloadSizeBudget >= 0, "downloadSizeBudget can't be negative");
+        checkArgument(!sourceList.isEmpty(), "at least one source is required");
+        for (final String source : sourceList) {
+            checkArgument(source.matches("[a-z0-9-]+(:[1-9][0-9]*)?"), "sources must contain name or name:timeout entries");
+        }
+        checkArgument(sourceTimeout > 0, "sourceTimeout must be positive");
+        checkArgument(sourceLateTimeout > 0, "sourceLateTimeout must be positive");
+        checkArgument(
+            sourceDirectory != null && !sourceDirectory.isBlank(),
+            "sourceDirectory is required");
+        checkArgument(
+            mirrorUrl == null || mirrorUrl.startsWith("http://") || mirrorUrl.startsWith("https://"),
+            "mirrorUrl must be an HTTP(S) URL");
+        checkArgument(
+            mirrorUrl != null || sourceList.stream().noneMatch(source -> source.split(":")[0].equals("mirror")),
+            "mirror source requires mirrorUrl");
+    }
+
+    /**
+     * Throw an exception if the condition is not met.
+     *
+     * @param condition The condition
+     * @param message   Message of the exception
+     * @throws IllegalArgumentException If condition is not met
+     */
+    private static void checkArgument(final boolean condition, final String message) {
+
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Determine if a date setting is valid.
+     *
+     * @param date The date (ie: 20230101), {@code 0} if not set
+     * @return {@code true} if the date is valid or not set, otherwise, {@code false}
+     */
+    private static boolean isValidDate(final int date) {
+
+        if (date == 0) {
+            return true;
+        }
+
+        try {
+            LocalDate.of(date / 10000, date / 100 % 100, date % 100);
+            return date >= 10000000 && date <= 99991231;
+        } catch (final DateTimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieve the location where the wallpaper of a given display will be saved on local disk.
+     * The main display uses {@link #targetFileName}, others use a suffixed file name (ie: file-1.jpg).
+     *
+     * @param displayIndex Index of the display
+     * @return The location of the wallpaper
+     */
+    public String getTargetFileName(final int displayIndex) {
+
+        if (displayIndex == 0) {
+            return targetFileName;
+        }
+
+        final int extensionIndex = targetFileName.lastIndexOf('.');
+        return extensionIndex > targetFileName.lastIndexOf(File.separatorChar)
+            ? targetFileName.substring(0, extensionIndex) + "-" + displayIndex + targetFileName.substring(extensionIndex)
+            : targetFileName + "-" + displayIndex;
     }
 }
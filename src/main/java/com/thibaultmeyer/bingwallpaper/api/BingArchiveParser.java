@@ -0,0 +1,150 @@
+package com.thibaultmeyer.bingwallpaper.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming parser of the Bing API response. Only the needed fields are
+ * extracted in a single pass, without building the JSON tree.
+ */
+public final class BingArchiveParser {
+
+    /**
+     * Parse the Bing API response.
+     *
+     * @param content The response body, encoded in UTF-8
+     * @return The images, in the order of the response
+     * @throws IOException If something goes wrong during the process
+     */
+    public static List<BingImage> parse(final byte[] content) throws IOException {
+
+        return parse(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Parse the Bing API response.
+     *
+     * @param inputStream The response body, encoded in UTF-8
+     * @return The images, in the order of the response
+     * @throws IOException If something goes wrong during the process
+     */
+    public static List<BingImage> parse(final InputStream inputStream) throws IOException {
+
+        final JsonReader jsonReader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        try {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                return Collections.emptyList();
+            }
+
+            List<BingImage> imageList = Collections.emptyList();
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName().equals("images") && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    imageList = parseImageArray(jsonReader);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+
+            return imageList;
+        } catch (final IllegalStateException ex) {
+            throw new IOException("Malformed Bing API response", ex);
+        } finally {
+            jsonReader.close();
+        }
+    }
+
+    /**
+     * Parse the "images" array.
+     *
+     * @param jsonReader The JSON reader, positioned on the array
+     * @return The images
+     * @throws IOException If something goes wrong during the process
+     */
+    private static List<BingImage> parseImageArray(final JsonReader jsonReader) throws IOException {
+
+        final List<BingImage> imageList = new ArrayList<>();
+
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            if (jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                final BingImage bingImage = parseImage(jsonReader);
+                if (bingImage.url != null) {
+                    imageList.add(bingImage);
+                }
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endArray();
+
+        return imageList;
+    }
+
+    /**
+     * Parse an image object.
+     *
+     * @param jsonReader The JSON reader, positioned on the object
+     * @return The image
+     * @throws IOException If something goes wrong during the process
+     */
+    private static BingImage parseImage(final JsonReader jsonReader) throws IOException {
+
+        String url = null;
+        String urlBase = null;
+        String startDate = null;
+        String fullStartDate = null;
+        String endDate = null;
+        String hash = null;
+        String copyright = null;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            final String name = jsonReader.nextName();
+            if (jsonReader.peek() != JsonToken.STRING) {
+                jsonReader.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case "url":
+                    url = jsonReader.nextString();
+                    break;
+                case "urlbase":
+                    urlBase = jsonReader.nextString();
+                    break;
+                case "startdate":
+                    startDate = jsonReader.nextString();
+                    break;
+                case "fullstartdate":
+                    fullStartDate = jsonReader.nextString();
+                    break;
+                case "enddate":
+                    endDate = jsonReader.nextString();
+                    break;
+                case "hsh":
+                    hash = jsonReader.nextString();
+                    break;
+                case "copyright":
+                    copyright = jsonReader.nextString();
+                    break;
+                default:
+                    jsonReader.skipValue();
+                    break;
+            }
+        }
+        jsonReader.endObject();
+
+        return new BingImage(url, urlBase, startDate, fullStartDate, endDate, hash, copyright);
+    }
+}
@@ -0,0 +1,97 @@
+package com.thibaultmeyer.bingwallpaper.api;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Image entry of the Bing API response.
+ */
+public final class BingImage {
+
+    private static final DateTimeFormatter FULL_START_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmm");
+
+    /**
+     * Path and query of the image (ie: /th?id=OHR.Example_UHD.jpg&amp;w=3840&amp;h=2160)
+     */
+    public final String url;
+
+    /**
+     * Path and query of the image without resolution suffix (ie: /th?id=OHR.Example)
+     */
+    public final String urlBase;
+
+    /**
+     * Publish date (ie: 20231016)
+     */
+    public final String startDate;
+
+    /**
+     * Publish date and time, expressed in UTC (ie: 202310160700)
+     */
+    public final String fullStartDate;
+
+    /**
+     * End of publication date (ie: 20231017)
+     */
+    public final String endDate;
+
+    /**
+     * Hash of the image, as provided by Bing
+     */
+    public final String hash;
+
+    /**
+     * Copyright of the image
+     */
+    public final String copyright;
+
+    /**
+     * Build a new instance.
+     *
+     * @param url           Path and query of the image
+     * @param urlBase       Path and query of the image without resolution suffix
+     * @param startDate     Publish date
+     * @param fullStartDate Publish date and time, expressed in UTC
+     * @param endDate       End of publication date
+     * @param hash          Hash of the image, as provided by Bing
+     * @param copyright     Copyright of the image
+     */
+    public BingImage(final String url,
+                     final String urlBase,
+                     final String startDate,
+                     final String fullStartDate,
+                     final String endDate,
+                     final String hash,
+                     final String copyright) {
+
+        this.url = url;
+        this.urlBase = urlBase;
+        this.startDate = startDate;
+        this.fullStartDate = fullStartDate;
+        this.endDate = endDate;
+        this.hash = hash;
+        this.copyright = copyright;
+    }
+
+    /**
+     * Retrieve the publish time.
+     *
+     * @return The publish time (Milliseconds), {@code -1} if unknown
+     */
+    public long getPublishTime() {
+
+        if (fullStartDate == null) {
+            return -1;
+        }
+
+        try {
+            return LocalDateTime.parse(fullStartDate, FULL_START_DATE_FORMATTER)
+                .toInstant(ZoneOffset.UTC)
+                .toEpochMilli();
+        } catch (final DateTimeParseException ignore) {
+            return -1;
+        }
+    }
+}
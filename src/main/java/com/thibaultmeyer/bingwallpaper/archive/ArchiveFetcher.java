@@ -0,0 +1,305 @@
+package com.thibaultmeyer.bingwallpaper.archive;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.api.BingArchiveParser;
+import com.thibaultmeyer.bingwallpaper.api.BingImage;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the wallpapers of the last days for a list of markets. Entries are
+ * deduplicated by hash, then the missing images are downloaded in parallel
+ * with a bounded concurrency.
+ */
+public final class ArchiveFetcher {
+
+    /**
+     * Bing API does not allow to retrieve more than 8 images per request,
+     * and the index of the first image can't exceed 7: only the last 15 days
+     * can be retrieved.
+     */
+    public static final int MAX_DAYS = 15;
+
+    private static final int API_MAX_IMAGES_PER_REQUEST = 8;
+    private static final int API_MAX_INDEX = 7;
+    private static final String API_QUERY = "format=js&idx=%d&n=%d&mkt=%s&uhd=1&uhdwidth=%d&uhdheight=%d";
+    private static final String IMAGE_FILE_EXTENSION = ArchiveRecord.FILE_EXTENSION;
+
+    private final Settings settings;
+    private final BingWallpaperService service;
+    private final Path archiveDirectory;
+
+    /**
+     * Build a new instance.
+     *
+     * @param settings Current settings
+     * @param service  Service used to fetch content from Bing
+     */
+    public ArchiveFetcher(final Settings settings, final BingWallpaperService service) {
+
+        this.settings = settings;
+        this.service = service;
+        this.archiveDirectory = Paths.get(settings.archiveDirectory);
+    }
+
+    /**
+     * Build the name of an archived image: {@code <startdate>_<market>_<hash>.jpg}.
+     *
+     * @param market    The market (ie: en-US)
+     * @param bingImage The image
+     * @return The file name
+     */
+    public static String buildFileName(final String market, final BingImage bingImage) {
+
+        return ArchiveRecord.buildFileName(bingImage.startDate, market, retrieveImageKey(bingImage));
+    }
+
+    /**
+     * Retrieve the key used to deduplicate images: the hash provided by Bing,
+     * otherwise, the hash of the URL base.
+     *
+     * @param bingImage The image
+     * @return The key
+     */
+    private static String retrieveImageKey(final BingImage bingImage) {
+
+        if (bingImage.hash != null && bingImage.hash.matches("[0-9A-Za-z]+")) {
+            return bingImage.hash;
+        }
+
+        final String urlBase = bingImage.urlBase != null ? bingImage.urlBase : bingImage.url;
+        return WallpaperCache.computeHash(urlBase.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Fetch the archive. Each downloaded image is appended to the archive index.
+     *
+     * @return Number of downloaded images
+     * @throws IOException If something goes wrong during the process
+     */
+    public int fetch() throws IOException {
+
+        final ArchiveIndex archiveIndex = new ArchiveIndex(archiveDirectory);
+        try {
+            final int indexedCount = archiveIndex.synchronize();
+            if (indexedCount > 0) {
+                System.out.printf("Archive: %d image(s) missing from the index have been indexed%n", indexedCount);
+            }
+
+            return fetch(archiveIndex);
+        } finally {
+            archiveIndex.close();
+        }
+    }
+
+    /**
+     * Fetch the archive.
+     *
+     * @param archiveIndex Index of the archive
+     * @return Number of downloaded images
+     * @throws IOException If something goes wrong during the process
+     */
+    private int fetch(final ArchiveIndex archiveIndex) throws IOException {
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(settings.archiveConcurrency);
+
+        try {
+            // Retrieve entries of all markets
+            final List<CompletableFuture<List<ArchiveEntry>>> futureList = new ArrayList<>();
+            final int dayCount = Math.min(settings.archiveDays, MAX_DAYS);
+            for (final String market : settings.archiveMarkets) {
+                for (int idx = 0; idx < dayCount; idx += API_MAX_IMAGES_PER_REQUEST) {
+                    final int index = Math.min(idx, API_MAX_INDEX);
+                    final int count = Math.min(API_MAX_IMAGES_PER_REQUEST, dayCount - index);
+                    futureList.add(CompletableFuture.supplyAsync(() -> retrieveEntries(market, index, count), executorService));
+                }
+            }
+
+            // Deduplicate entries and ignore already archived images
+            final Set<String> archivedKeySet = retrieveArchivedKeys();
+            final Map<String, ArchiveEntry> entryMap = new LinkedHashMap<>();
+            for (final CompletableFuture<List<ArchiveEntry>> future : futureList) {
+                for (final ArchiveEntry archiveEntry : future.join()) {
+                    final String key = retrieveImageKey(archiveEntry.bingImage);
+                    if (!archivedKeySet.contains(key)) {
+                        entryMap.putIfAbsent(key, archiveEntry);
+                    }
+                }
+            }
+
+            System.out.printf("Archive: %d image(s) to download%n", entryMap.size());
+            return downloadAll(executorService, archiveIndex, new ArrayList<>(entryMap.values()));
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            throw ex;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Retrieve entries of a market.
+     *
+     * @param market The market (ie: en-US)
+     * @param index  Index of the first image (0 = today)
+     * @param count  Number of images
+     * @return The entries
+     */
+    private List<ArchiveEntry> retrieveEntries(final String market, final int index, final int count) {
+
+        try {
+            final byte[] content = service.retrieveArchive(String.format(
+                API_QUERY,
+                index,
+                count,
+                market,
+                settings.dimensionWidth,
+                settings.dimensionHeight));
+            if (content == null) {
+                System.err.printf("Archive: unable to retrieve market %s (idx=%d)%n", market, index);
+                return Collections.emptyList();
+            }
+
+            final List<ArchiveEntry> entryList = new ArrayList<>();
+            for (final BingImage bingImage : BingArchiveParser.parse(content)) {
+                entryList.add(new ArchiveEntry(market, bingImage));
+            }
+
+            return entryList;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Retrieve keys of the already archived images.
+     *
+     * @return The keys
+     * @throws IOException If something goes wrong during the process
+     */
+    private Set<String> retrieveArchivedKeys() throws IOException {
+
+        final Set<String> keySet = new HashSet<>();
+
+        final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(archiveDirectory, "*" + IMAGE_FILE_EXTENSION);
+        for (final Path file : directoryStream) {
+            final String fileName = file.getFileName().toString();
+            keySet.add(fileName.substring(fileName.lastIndexOf('_') + 1, fileName.length() - IMAGE_FILE_EXTENSION.length()));
+        }
+        directoryStream.close();
+
+        return keySet;
+    }
+
+    /**
+     * Download all entries in parallel, without exceeding the archive concurrency (the
+     * size of the executor). Each download goes to the fastest upstream.
+     *
+     * @param executorService Executor used to run downloads
+     * @param archiveIndex    Index of the archive
+     * @param entryList       Entries to download
+     * @return Number of downloaded images
+     */
+    private int downloadAll(final ExecutorService executorService,
+                            final ArchiveIndex archiveIndex,
+                            final List<ArchiveEntry> entryList) {
+
+        final AtomicInteger downloadedCount = new AtomicInteger();
+        final List<CompletableFuture<Void>> futureList = new ArrayList<>();
+        for (final ArchiveEntry archiveEntry : entryList) {
+            futureList.add(CompletableFuture.runAsync(() -> {
+                if (download(archiveIndex, archiveEntry)) {
+                    downloadedCount.incrementAndGet();
+                }
+            }, executorService));
+        }
+
+        CompletableFuture.allOf(futureList.toArray(CompletableFuture<?>[]::new)).join();
+        return downloadedCount.get();
+    }
+
+    /**
+     * Download an entry into the archive, then index it.
+     *
+     * @param archiveIndex Index of the archive
+     * @param archiveEntry The entry to download
+     * @return {@code true} in case of success, otherwise, {@code false}
+     */
+    private boolean download(final ArchiveIndex archiveIndex, final ArchiveEntry archiveEntry) {
+
+        final Path targetFile = archiveDirectory.resolve(buildFileName(archiveEntry.market, archiveEntry.bingImage));
+
+        try {
+            if (service.downloadImage(archiveEntry.getUri(settings.bingBaseUrl), targetFile)) {
+                // A record which can't be appended (ie: crash) is added by the next synchronization
+                final ArchiveRecord record = ArchiveRecord.parseFileName(targetFile.getFileName().toString());
+                if (record != null) {
+                    archiveIndex.append(record);
+                }
+                System.out.printf("Archive: %s downloaded%n", targetFile.getFileName());
+                return true;
+            }
+
+            System.err.printf("Archive: unable to download %s%n", archiveEntry.bingImage.url);
+        } catch (final IOException ex) {
+            System.err.printf("Archive: unable to download %s: %s%n", archiveEntry.bingImage.url, ex.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * Image of a given market.
+     */
+    private static final class ArchiveEntry {
+
+        private final String market;
+        private final BingImage bingImage;
+
+        /**
+         * Build a new instance.
+         *
+         * @param market    The market (ie: en-US)
+         * @param bingImage The image
+         */
+        private ArchiveEntry(final String market, final BingImage bingImage) {
+
+            this.market = market;
+            this.bingImage = bingImage;
+        }
+
+        /**
+         * Retrieve the image URI.
+         *
+         * @param bingBaseUrl Base URL of the Bing website
+         * @return The image URI
+         */
+        private URI getUri(final String bingBaseUrl) {
+
+            return URI.create(bingBaseUrl + bingImage.url);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package com.thibaultmeyer.bingwallpaper.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Index of the archive: one fixed-size record per archived image (publish date, market
+ * and key, which locate the image file). Records are only ever appended and each one
+ * carries a CRC32: a record torn by a crash is ignored, then the images missing from
+ * the index are indexed again. The file is memory-mapped, and the records of each day
+ * are chained in memory: looking up a date does not depend on the number of records.
+ * The index can be shared by several processes (ie: --archive and --rotate): records
+ * are appended under an exclusive file lock, and the records appended by the other
+ * processes are chained before each lookup.
+ */
+public final class ArchiveIndex {
+
+    /**
+     * Name of the index file, stored in the archive directory
+     */
+    public static final String INDEX_FILE_NAME = "index.bin";
+
+    private static final int MAGIC = 0x42574149;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 96;
+    private static final int OFFSET_DATE = 0;
+    private static final int OFFSET_MARKET = 4;
+    private static final int OFFSET_KEY = 21;
+    private static final int OFFSET_CRC = RECORD_SIZE - 4;
+    private static final int MAX_MARKET_LENGTH = OFFSET_KEY - OFFSET_MARKET - 1;
+    private static final int MAX_KEY_LENGTH = OFFSET_CRC - OFFSET_KEY - 1;
+    private static final int INVALID_DAY = Integer.MIN_VALUE;
+    private static final int NO_RECORD = -1;
+
+    private final Path archiveDirectory;
+    private final FileChannel fileChannel;
+
+    private MappedByteBuffer mappedBuffer;
+    private int mappedRecordCount;
+    private int recordCount;
+    private int validRecordCount;
+    private int[] epochDayList;
+    private int[] nextRecordList;
+    private int[] firstRecordByDayList;
+    private int firstEpochDay;
+
+    /**
+     * Build a new instance. The index file is created if needed, rebuilt if invalid.
+     *
+     * @param archiveDirectory Location of the archive
+     * @throws IOException If something goes wrong during the process
+     */
+    public ArchiveIndex(final Path archiveDirectory) throws IOException {
+
+        Files.createDirectories(archiveDirectory);
+
+        this.archiveDirectory = archiveDirectory;
+        this.fileChannel = FileChannel.open(
+            archiveDirectory.resolve(INDEX_FILE_NAME),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        this.recordCount = 0;
+        this.validRecordCount = 0;
+        this.epochDayList = new int[64];
+        this.nextRecordList = new int[64];
+        this.firstRecordByDayList = new int[0];
+        this.firstEpochDay = 0;
+
+        final FileLock fileLock = fileChannel.lock();
+        try {
+            if (!hasValidHeader()) {
+                if (fileChannel.size() > 0) {
+                    System.err.printf("Archive index %s is invalid, it will be rebuilt%n", INDEX_FILE_NAME);
+                }
+                fileChannel.truncate(0);
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                writeFully(header, 0);
+            } else {
+                truncateTornRecord();
+            }
+
+            registerAppendedRecords();
+        } finally {
+            fileLock.release();
+        }
+    }
+
+    /**
+     * Append a record.
+     *
+     * @param record The record to append
+     * @return {@code true} if appended, {@code false} if the record can't be indexed (ie: invalid date)
+     * or has already been appended (ie: by another process)
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized boolean append(final ArchiveRecord record) throws IOException {
+
+        final int epochDay = toEpochDay(record.date);
+        final byte[] market = record.market.getBytes(StandardCharsets.US_ASCII);
+        final byte[] key = record.key.getBytes(StandardCharsets.US_ASCII);
+        if (epochDay == INVALID_DAY || market.length > MAX_MARKET_LENGTH || key.length > MAX_KEY_LENGTH) {
+            return false;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putInt(OFFSET_DATE, record.date);
+        buffer.put(OFFSET_MARKET, (byte) market.length);
+        buffer.put(OFFSET_MARKET + 1, market);
+        buffer.put(OFFSET_KEY, (byte) key.length);
+        buffer.put(OFFSET_KEY + 1, key);
+        buffer.putInt(OFFSET_CRC, computeCrc(buffer.array()));
+
+        // Other processes append to the same file: the record goes after theirs
+        final FileLock fileLock = fileChannel.lock();
+        try {
+            truncateTornRecord();
+            registerAppendedRecords();
+            for (final ArchiveRecord appendedRecord : findByEpochDay(epochDay)) {
+                if (appendedRecord != null && appendedRecord.getFileName().equals(record.getFileName())) {
+                    return false;
+                }
+            }
+
+            final long position = fileChannel.size();
+            writeFully(buffer, position);
+            register((int) ((position - HEADER_SIZE) / RECORD_SIZE), epochDay);
+        } finally {
+            fileLock.release();
+        }
+
+        return true;
+    }
+
+    /**
+     * Index the archived images missing from the index (ie: archived by a previous
+     * version, or not indexed because of a crash).
+     *
+     * @return Number of indexed images
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized int synchronize() throws IOException {
+
+        refresh();
+        final Set<String> indexedFileNameSet = new HashSet<>();
+        for (int idx = 0; idx < recordCount; idx += 1) {
+            if (epochDayList[idx] != INVALID_DAY) {
+                indexedFileNameSet.add(get(idx).getFileName());
+            }
+        }
+
+        int indexedCount = 0;
+        final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(
+            archiveDirectory,
+            "*" + ArchiveRecord.FILE_EXTENSION);
+        try {
+            for (final Path file : directoryStream) {
+                final ArchiveRecord record = ArchiveRecord.parseFileName(file.getFileName().toString());
+                if (record != null && !indexedFileNameSet.contains(record.getFileName()) && append(record)) {
+                    indexedCount += 1;
+                }
+            }
+        } finally {
+            directoryStream.close();
+        }
+
+        return indexedCount;
+    }
+
+    /**
+     * Retrieve a record.
+     *
+     * @param recordIndex Index of the record
+     * @return The record, otherwise, {@code null} if the record is invalid (ie: torn)
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized ArchiveRecord get(final int recordIndex) throws IOException {
+
+        if (recordIndex >= mappedRecordCount) {
+            remap();
+        }
+
+        final byte[] data = new byte[RECORD_SIZE];
+        mappedBuffer.get(HEADER_SIZE + recordIndex * RECORD_SIZE, data);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        final int marketLength = buffer.get(OFFSET_MARKET);
+        final int keyLength = buffer.get(OFFSET_KEY);
+        if (buffer.getInt(OFFSET_CRC) != computeCrc(data)
+            || marketLength <= 0 || marketLength > MAX_MARKET_LENGTH
+            || keyLength <= 0 || keyLength > MAX_KEY_LENGTH) {
+            return null;
+        }
+
+        return new ArchiveRecord(
+            buffer.getInt(OFFSET_DATE),
+            new String(data, OFFSET_MARKET + 1, marketLength, StandardCharsets.US_ASCII),
+            new String(data, OFFSET_KEY + 1, keyLength, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Retrieve the records of a given publish date.
+     *
+     * @param date The publish date (ie: 20231016)
+     * @return The records, can be empty
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized List<ArchiveRecord> findByDate(final int date) throws IOException {
+
+        refresh();
+        return findByEpochDay(toEpochDay(date));
+    }
+
+    /**
+     * Select the records published within a date range, newest first.
+     *
+     * @param startDate First publish date (ie: 20230101), 0 for no lower bound
+     * @param endDate   Last publish date (ie: 20231231), 0 for no upper bound
+     * @return Indexes of the selected records, to be used with {@link #get(int)}
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized int[] select(final int startDate, final int endDate) throws IOException {
+
+        refresh();
+        final int lastEpochDay = firstEpochDay + firstRecordByDayList.length - 1;
+        final int selectedFirstEpochDay = startDate == 0 ? firstEpochDay : Math.max(firstEpochDay, toEpochDay(startDate));
+        final int selectedLastEpochDay = endDate == 0 ? lastEpochDay : Math.min(lastEpochDay, toEpochDay(endDate));
+
+        final int[] recordIndexList = new int[validRecordCount];
+        int count = 0;
+        for (int epochDay = selectedLastEpochDay; epochDay >= selectedFirstEpochDay; epochDay -= 1) {
+            for (int idx = firstRecordByDayList[epochDay - firstEpochDay]; idx != NO_RECORD; idx = nextRecordList[idx]) {
+                recordIndexList[count] = idx;
+                count += 1;
+            }
+        }
+
+        return Arrays.copyOf(recordIndexList, count);
+    }
+
+    /**
+     * Retrieve the number of indexed images.
+     *
+     * @return The number of valid records
+     */
+    public synchronized int size() {
+
+        return validRecordCount;
+    }
+
+    /**
+     * Retrieve the location of an archived image.
+     *
+     * @param record The record
+     * @return The image location
+     */
+    public Path resolve(final ArchiveRecord record) {
+
+        return archiveDirectory.resolve(record.getFileName());
+    }
+
+    /**
+     * Close the index, appended records are flushed to the storage.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized void close() throws IOException {
+
+        fileChannel.force(false);
+        fileChannel.close();
+        mappedBuffer = null;
+    }
+
+    /**
+     * Determine if the index file starts with a valid header.
+     *
+     * @return {@code true} if the header is valid, otherwise, {@code false}
+     * @throws IOException If something goes wrong during the process
+     */
+    private boolean hasValidHeader() throws IOException {
+
+        if (fileChannel.size() < HEADER_SIZE) {
+            return false;
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && fileChannel.read(header, header.position()) >= 0) {
+            // Read until the header is complete
+        }
+        header.flip();
+
+        return header.getInt() == MAGIC && header.getInt() == VERSION;
+    }
+
+    /**
+     * Chain the records appended by the other processes since the latest lookup.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    private void refresh() throws IOException {
+
+        if (fileChannel.size() < HEADER_SIZE + (long) (recordCount + 1) * RECORD_SIZE) {
+            return;
+        }
+
+        // A shared lock: no record is half-written meanwhile
+        final FileLock fileLock = fileChannel.lock(0, Long.MAX_VALUE, true);
+        try {
+            registerAppendedRecords();
+        } finally {
+            fileLock.release();
+        }
+    }
+
+    /**
+     * Chain the records of the index file which are not chained yet. The caller holds a file lock.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    private void registerAppendedRecords() throws IOException {
+
+        // Records past the current mapping are mapped by get()
+        final int fileRecordCount = (int) ((fileChannel.size() - HEADER_SIZE) / RECORD_SIZE);
+        for (int idx = recordCount; idx < fileRecordCount; idx += 1) {
+            final ArchiveRecord record = get(idx);
+            register(idx, record == null ? INVALID_DAY : toEpochDay(record.date));
+        }
+    }
+
+    /**
+     * Drop the last record if it has been torn by a crash. The caller holds an exclusive file lock.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    private void truncateTornRecord() throws IOException {
+
+        final long size = fileChannel.size();
+        if ((size - HEADER_SIZE) % RECORD_SIZE != 0) {
+            fileChannel.truncate(HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Retrieve the chained records of a given day.
+     *
+     * @param epochDay The publish date (Epoch day)
+     * @return The records, can be empty
+     * @throws IOException If something goes wrong during the process
+     */
+    private List<ArchiveRecord> findByEpochDay(final int epochDay) throws IOException {
+
+        final List<ArchiveRecord> recordList = new ArrayList<>();
+        if (epochDay == INVALID_DAY || epochDay < firstEpochDay || epochDay >= firstEpochDay + firstRecordByDayList.length) {
+            return recordList;
+        }
+
+        for (int idx = firstRecordByDayList[epochDay - firstEpochDay]; idx != NO_RECORD; idx = nextRecordList[idx]) {
+            recordList.add(get(idx));
+        }
+
+        return recordList;
+    }
+
+    /**
+     * Map the whole index file, including the records appended since the previous mapping.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    private void remap() throws IOException {
+
+        final long size = fileChannel.size();
+        mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        mappedRecordCount = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    /**
+     * Write a buffer at a given position of the index file.
+     *
+     * @param buffer   The buffer to write
+     * @param position Position in the index file
+     * @throws IOException If something goes wrong during the process
+     */
+    private void writeFully(final ByteBuffer buffer, final long position) throws IOException {
+
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += fileChannel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * Register a record in the in-memory tables: the record is chained to the other
+     * records of its day.
+     *
+     * @param recordIndex Index of the record
+     * @param epochDay    Publish date of the record (Epoch day), {@code INVALID_DAY} if the record is invalid
+     */
+    private void register(final int recordIndex, final int epochDay) {
+
+        if (recordIndex >= epochDayList.length) {
+            epochDayList = Arrays.copyOf(epochDayList, epochDayList.length * 2);
+            nextRecordList = Arrays.copyOf(nextRecordList, nextRecordList.length * 2);
+        }
+        epochDayList[recordIndex] = epochDay;
+        nextRecordList[recordIndex] = NO_RECORD;
+        recordCount = recordIndex + 1;
+
+        if (epochDay == INVALID_DAY) {
+            return;
+        }
+
+        if (firstRecordByDayList.length == 0) {
+            firstEpochDay = epochDay;
+            firstRecordByDayList = new int[]{NO_RECORD};
+        } else if (epochDay < firstEpochDay || epochDay >= firstEpochDay + firstRecordByDayList.length) {
+            // Widen the table to the new day
+            final int newFirstEpochDay = Math.min(firstEpochDay, epochDay);
+            final int newLastEpochDay = Math.max(firstEpochDay + firstRecordByDayList.length - 1, epochDay);
+            final int[] newFirstRecordByDayList = new int[newLastEpochDay - newFirstEpochDay + 1];
+            Arrays.fill(newFirstRecordByDayList, NO_RECORD);
+            System.arraycopy(
+                firstRecordByDayList,
+                0,
+                newFirstRecordByDayList,
+                firstEpochDay - newFirstEpochDay,
+                firstRecordByDayList.length);
+            firstEpochDay = newFirstEpochDay;
+            firstRecordByDayList = newFirstRecordByDayList;
+        }
+
+        nextRecordList[recordIndex] = firstRecordByDayList[epochDay - firstEpochDay];
+        firstRecordByDayList[epochDay - firstEpochDay] = recordIndex;
+        validRecordCount += 1;
+    }
+
+    /**
+     * Compute the CRC32 of a record.
+     *
+     * @param data The record
+     * @return The CRC32 of the record, without its CRC
+     */
+    private static int computeCrc(final byte[] data) {
+
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, OFFSET_CRC);
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Convert a date to an epoch day.
+     *
+     * @param date The date (ie: 20231016)
+     * @return The epoch day, otherwise, {@code INVALID_DAY} if the date is invalid
+     */
+    private static int toEpochDay(final int date) {
+
+        try {
+            return (int) LocalDate.of(date / 10000, date / 100 % 100, date % 100).toEpochDay();
+        } catch (final DateTimeException ex) {
+            return INVALID_DAY;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.thibaultmeyer.bingwallpaper.archive;
+
+/**
+ * Image of the archive, as recorded by the archive index.
+ */
+public final class ArchiveRecord {
+
+    /**
+     * Extension of the archived images
+     */
+    public static final String FILE_EXTENSION = ".jpg";
+
+    /**
+     * Publish date (ie: 20231016)
+     */
+    public final int date;
+
+    /**
+     * Market (ie: en-US)
+     */
+    public final String market;
+
+    /**
+     * Key used to deduplicate images (ie: hash provided by Bing)
+     */
+    public final String key;
+
+    /**
+     * Build a new instance.
+     *
+     * @param date   Publish date (ie: 20231016)
+     * @param market Market (ie: en-US)
+     * @param key    Key used to deduplicate images
+     */
+    public ArchiveRecord(final int date, final String market, final String key) {
+
+        this.date = date;
+        this.market = market;
+        this.key = key;
+    }
+
+    /**
+     * Build the name of an archived image: {@code <startdate>_<market>_<key>.jpg}.
+     *
+     * @param date   Publish date (ie: 20231016)
+     * @param market Market (ie: en-US)
+     * @param key    Key used to deduplicate images
+     * @return The file name
+     */
+    public static String buildFileName(final String date, final String market, final String key) {
+
+        return date + "_" + market + "_" + key + FILE_EXTENSION;
+    }
+
+    /**
+     * Parse the name of an archived image.
+     *
+     * @param fileName The file name (ie: 20231016_en-US_0123456789abcdef.jpg)
+     * @return The record, otherwise, {@code null} if the name is not the one of an archived image
+     */
+    public static ArchiveRecord parseFileName(final String fileName) {
+
+        if (!fileName.matches("[0-9]{8}_[A-Za-z-]+_[0-9A-Za-z]+\\" + FILE_EXTENSION)) {
+            return null;
+        }
+
+        final String[] partList = fileName.substring(0, fileName.length() - FILE_EXTENSION.length()).split("_");
+        return new ArchiveRecord(Integer.parseInt(partList[0]), partList[1], partList[2]);
+    }
+
+    /**
+     * Retrieve the name of the archived image.
+     *
+     * @return The file name
+     */
+    public String getFileName() {
+
+        return buildFileName(String.valueOf(date), market, key);
+    }
+
+    @Override
+    public String toString() {
+
+        return getFileName();
+    }
+}
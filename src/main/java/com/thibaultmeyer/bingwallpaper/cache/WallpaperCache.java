@@ -0,0 +1,264 @@
+package com.thibaultmeyer.bingwallpaper.cache;
+
+import com.thibaultmeyer.bingwallpaper.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Persistent, content-addressed cache of downloaded wallpapers.
+ * Images are stored by their SHA-256 hash and an index keeps track
+ * of the URL to hash association. The last modification time of each
+ * image is used as "last access" time for the LRU eviction.
+ */
+public final class WallpaperCache {
+
+    private static final String INDEX_FILE_NAME = "index.properties";
+    private static final String IMAGE_FILE_EXTENSION = ".jpg";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path cacheDirectory;
+    private final long maxSize;
+    private final long maxAge;
+    private final Properties index;
+
+    /**
+     * Build a new instance.
+     *
+     * @param cacheDirectory Location of the cache on local disk
+     * @param maxSize        Maximum size of the cache (Bytes), {@code 0} to disable
+     * @param maxAge         Maximum age of a cached image (Milliseconds), {@code 0} to disable
+     * @throws IOException If something goes wrong during the process
+     */
+    public WallpaperCache(final Path cacheDirectory, final long maxSize, final long maxAge) throws IOException {
+
+        this.cacheDirectory = cacheDirectory;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.index = new Properties();
+
+        Files.createDirectories(cacheDirectory);
+        final Path indexFile = cacheDirectory.resolve(INDEX_FILE_NAME);
+        if (Files.exists(indexFile)) {
+            final BufferedReader bufferedReader = Files.newBufferedReader(indexFile);
+            this.index.load(bufferedReader);
+            bufferedReader.close();
+        }
+    }
+
+    /**
+     * Compute the SHA-256 hash of a file.
+     *
+     * @param file File to hash
+     * @return The hash as hexadecimal string
+     * @throws IOException If something goes wrong during the process
+     */
+    public static String computeHash(final Path file) throws IOException {
+
+        final MessageDigest messageDigest = createMessageDigest();
+        final byte[] buffer = new byte[8192];
+
+        final InputStream inputStream = Files.newInputStream(file);
+        int read;
+        while ((read = inputStream.read(buffer)) > 0) {
+            messageDigest.update(buffer, 0, read);
+        }
+        inputStream.close();
+
+        return toHexString(messageDigest.digest());
+    }
+
+    /**
+     * Compute the SHA-256 hash of a byte array.
+     *
+     * @param data Data to hash
+     * @return The hash as hexadecimal string
+     */
+    public static String computeHash(final byte[] data) {
+
+        return toHexString(createMessageDigest().digest(data));
+    }
+
+    /**
+     * Retrieve a cached image.
+     *
+     * @param url URL of the image
+     * @return The cached image location, otherwise, {@code null}
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized Path lookup(final String url) throws IOException {
+
+        final String hash = index.getProperty(url);
+        if (hash == null) {
+            return null;
+        }
+
+        final Path file = cacheDirectory.resolve(hash + IMAGE_FILE_EXTENSION);
+        if (!Files.exists(file)) {
+            index.remove(url);
+            saveIndex();
+            return null;
+        }
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        return file;
+    }
+
+    /**
+     * Retrieve the partial file to use while downloading an image. The location is
+     * stable for a given URL, this way, an interrupted download can be resumed. Once
+     * completed, the file can be moved into the cache with {@link #store(String, Path)}.
+     *
+     * @param url URL of the image
+     * @return The partial file location
+     */
+    public Path getPartialFile(final String url) {
+
+        return cacheDirectory.resolve(computeHash(url.getBytes(StandardCharsets.UTF_8)) + ".part");
+    }
+
+    /**
+     * Move a downloaded image into the cache.
+     *
+     * @param url  URL of the image
+     * @param file Downloaded image, will be moved or deleted
+     * @return The cached image location
+     * @throws IOException If something goes wrong during the process
+     */
+    public synchronized Path store(final String url, final Path file) throws IOException {
+
+        final String hash = computeHash(file);
+        final Path cachedFile = cacheDirectory.resolve(hash + IMAGE_FILE_EXTENSION);
+
+        if (Files.exists(cachedFile)) {
+            Files.delete(file);
+        } else {
+            FileUtils.moveAtomically(file, cachedFile);
+        }
+        Files.setLastModifiedTime(cachedFile, FileTime.fromMillis(System.currentTimeMillis()));
+
+        index.setProperty(url, hash);
+        evict(cachedFile);
+        saveIndex();
+
+        return cachedFile;
+    }
+
+    /**
+     * Evict images exceeding the maximum age, then the least recently
+     * used images until the cache fits the maximum size.
+     *
+     * @param fileToKeep Image which must never be evicted
+     * @throws IOException If something goes wrong during the process
+     */
+    private void evict(final Path fileToKeep) throws IOException {
+
+        final long now = System.currentTimeMillis();
+        final List<Path> cachedFileList = new ArrayList<>();
+        long totalSize = 0;
+
+        final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(cacheDirectory, "*" + IMAGE_FILE_EXTENSION);
+        for (final Path cachedFile : directoryStream) {
+            if (maxAge > 0
+                && !cachedFile.equals(fileToKeep)
+                && now - Files.getLastModifiedTime(cachedFile).toMillis() > maxAge) {
+                Files.delete(cachedFile);
+            } else {
+                cachedFileList.add(cachedFile);
+                totalSize += Files.size(cachedFile);
+            }
+        }
+        directoryStream.close();
+
+        if (maxSize > 0 && totalSize > maxSize) {
+            cachedFileList.sort(Comparator.comparingLong(WallpaperCache::getLastModifiedTime));
+            for (final Path cachedFile : cachedFileList) {
+                if (totalSize <= maxSize) {
+                    break;
+                }
+                if (!cachedFile.equals(fileToKeep)) {
+                    totalSize -= Files.size(cachedFile);
+                    Files.delete(cachedFile);
+                }
+            }
+        }
+
+        index.entrySet().removeIf(entry -> !Files.exists(cacheDirectory.resolve(entry.getValue() + IMAGE_FILE_EXTENSION)));
+    }
+
+    /**
+     * Save the index on local disk.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    private void saveIndex() throws IOException {
+
+        final Path indexFile = cacheDirectory.resolve(INDEX_FILE_NAME);
+        final Path temporaryIndexFile = cacheDirectory.resolve(INDEX_FILE_NAME + ".tmp");
+
+        final BufferedWriter bufferedWriter = Files.newBufferedWriter(temporaryIndexFile);
+        index.store(bufferedWriter, "BingWallpaper Cache Index");
+        bufferedWriter.close();
+
+        FileUtils.moveAtomically(temporaryIndexFile, indexFile);
+    }
+
+    /**
+     * Retrieve the last modification time of a file.
+     *
+     * @param file The file
+     * @return The last modification time (Milliseconds), {@code 0} if not available
+     */
+    private static long getLastModifiedTime(final Path file) {
+
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException ignore) {
+            return 0;
+        }
+    }
+
+    /**
+     * Create a new SHA-256 message digest.
+     *
+     * @return The message digest
+     */
+    private static MessageDigest createMessageDigest() {
+
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Convert bytes to hexadecimal string.
+     *
+     * @param data Bytes to convert
+     * @return The hexadecimal string
+     */
+    private static String toHexString(final byte[] data) {
+
+        final char[] hexChars = new char[data.length * 2];
+        for (int idx = 0; idx < data.length; idx += 1) {
+            hexChars[idx * 2] = HEX_DIGITS[(data[idx] >> 4) & 0x0F];
+            hexChars[idx * 2 + 1] = HEX_DIGITS[data[idx] & 0x0F];
+        }
+
+        return new String(hexChars);
+    }
+}
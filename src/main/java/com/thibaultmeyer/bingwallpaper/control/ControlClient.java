@@ -0,0 +1,92 @@
+package com.thibaultmeyer.bingwallpaper.control;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a command to the running instance through its control socket. The whole
+ * exchange is bounded by a deadline: a stalled instance (ie: suspended) does not
+ * block the invocation.
+ */
+public final class ControlClient {
+
+    /**
+     * Send a command and wait for the response.
+     *
+     * @param socketFile Location of the socket
+     * @param command    Command to send (ie: refresh)
+     * @param timeout    Maximum duration of the exchange (Milliseconds)
+     * @return The response
+     * @throws SocketTimeoutException If the running instance has not answered in time
+     * @throws IOException            If the running instance can't be reached
+     */
+    public static String send(final Path socketFile, final String command, final long timeout) throws IOException {
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final Selector selector = Selector.open();
+        final SocketChannel socketChannel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            socketChannel.configureBlocking(false);
+            if (!socketChannel.connect(UnixDomainSocketAddress.of(socketFile))) {
+                await(socketChannel, selector, SelectionKey.OP_CONNECT, deadline);
+                socketChannel.finishConnect();
+            }
+
+            final ByteBuffer request = ByteBuffer.wrap((command + "\n").getBytes(StandardCharsets.UTF_8));
+            while (request.hasRemaining()) {
+                if (socketChannel.write(request) == 0) {
+                    await(socketChannel, selector, SelectionKey.OP_WRITE, deadline);
+                }
+            }
+
+            final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            final ByteBuffer buffer = ByteBuffer.allocate(1024);
+            int readCount;
+            while ((readCount = socketChannel.read(buffer)) >= 0) {
+                if (readCount == 0) {
+                    await(socketChannel, selector, SelectionKey.OP_READ, deadline);
+                    continue;
+                }
+                byteArrayOutputStream.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+
+            return byteArrayOutputStream.toString(StandardCharsets.UTF_8).trim();
+        } finally {
+            socketChannel.close();
+            selector.close();
+        }
+    }
+
+    /**
+     * Wait until the channel is ready for the given operation.
+     *
+     * @param socketChannel Channel to wait for
+     * @param selector      Selector used to wait for the channel
+     * @param operation     The operation (ie: {@link SelectionKey#OP_READ})
+     * @param deadline      Time the channel must be ready before ({@link System#nanoTime()})
+     * @throws IOException If something goes wrong during the process or if the deadline is exceeded
+     */
+    private static void await(final SocketChannel socketChannel,
+                              final Selector selector,
+                              final int operation,
+                              final long deadline) throws IOException {
+
+        socketChannel.register(selector, operation);
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0 || selector.select(remaining) == 0) {
+            throw new SocketTimeoutException("Running instance has not answered in time");
+        }
+        selector.selectedKeys().clear();
+    }
+}
@@ -0,0 +1,197 @@
+package com.thibaultmeyer.bingwallpaper.control;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Control channel of the running instance. A Unix domain socket is bound next to
+ * the single instance lock, then each connection sends one command (ie: refresh)
+ * terminated by a new line, receives the response, and is closed. A client must
+ * send its command, then read the response, within a deadline: otherwise, it is
+ * dropped, this way, a silent client never blocks the others.
+ */
+public final class ControlServer {
+
+    private static final int MAX_COMMAND_LENGTH = 256;
+    private static final long CLIENT_TIMEOUT = TimeUnit.SECONDS.toMillis(2);
+
+    private final Path socketFile;
+    private final Function<String, String> commandHandler;
+
+    private ServerSocketChannel serverSocketChannel;
+
+    /**
+     * Build a new instance.
+     *
+     * @param socketFile     Location of the socket
+     * @param commandHandler Handler returning the response of a command
+     */
+    public ControlServer(final Path socketFile, final Function<String, String> commandHandler) {
+
+        this.socketFile = socketFile;
+        this.commandHandler = commandHandler;
+    }
+
+    /**
+     * Start the control server. Must only be called by the instance
+     * holding the single instance lock: a stale socket is replaced.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    public void start() throws IOException {
+
+        Files.deleteIfExists(socketFile);
+        serverSocketChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverSocketChannel.bind(UnixDomainSocketAddress.of(socketFile));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("rw-------"));
+        }
+
+        final Thread thread = new Thread(this::acceptLoop, "control-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the control server.
+     */
+    public void stop() {
+
+        try {
+            serverSocketChannel.close();
+            Files.deleteIfExists(socketFile);
+        } catch (final IOException ex) {
+            System.err.println("Unable to stop control server: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Accept connections until the server is stopped. Commands are short
+     * and handled one at a time.
+     */
+    private void acceptLoop() {
+
+        final Selector selector;
+        try {
+            selector = Selector.open();
+        } catch (final IOException ex) {
+            System.err.println("Unable to start control server: " + ex.getMessage());
+            return;
+        }
+
+        while (serverSocketChannel.isOpen()) {
+            try {
+                final SocketChannel socketChannel = serverSocketChannel.accept();
+                try {
+                    socketChannel.configureBlocking(false);
+                    final String command = readCommand(socketChannel, selector);
+                    final String response = command == null
+                        ? "Invalid command"
+                        : commandHandler.apply(command.trim().toLowerCase(Locale.ENGLISH));
+
+                    writeResponse(socketChannel, selector, response);
+                } finally {
+                    socketChannel.close();
+                }
+            } catch (final ClosedChannelException ignore) {
+                break;
+            } catch (final IOException | RuntimeException ex) {
+                System.err.println("Unable to handle control command: " + ex.getMessage());
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (final IOException ignore) {
+            // Nothing more to release
+        }
+    }
+
+    /**
+     * Read a command terminated by a new line.
+     *
+     * @param socketChannel Channel to read from (non-blocking)
+     * @param selector      Selector used to wait for the channel
+     * @return The command, otherwise, {@code null} if command is too long
+     * @throws IOException If something goes wrong during the process or if the client is too slow
+     */
+    private static String readCommand(final SocketChannel socketChannel, final Selector selector) throws IOException {
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLIENT_TIMEOUT);
+        final ByteBuffer buffer = ByteBuffer.allocate(MAX_COMMAND_LENGTH);
+        int readCount;
+        while (buffer.hasRemaining() && (readCount = socketChannel.read(buffer)) >= 0) {
+            if (readCount == 0) {
+                await(socketChannel, selector, SelectionKey.OP_READ, deadline);
+                continue;
+            }
+            for (int idx = 0; idx < buffer.position(); idx += 1) {
+                if (buffer.get(idx) == '\n') {
+                    return new String(buffer.array(), 0, idx, StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        // Peer has closed its output without new line
+        return buffer.hasRemaining() ? new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Write the response followed by a new line.
+     *
+     * @param socketChannel Channel to write to (non-blocking)
+     * @param selector      Selector used to wait for the channel
+     * @param response      The response
+     * @throws IOException If something goes wrong during the process or if the client is too slow
+     */
+    private static void writeResponse(final SocketChannel socketChannel,
+                                      final Selector selector,
+                                      final String response) throws IOException {
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLIENT_TIMEOUT);
+        final ByteBuffer buffer = ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            if (socketChannel.write(buffer) == 0) {
+                await(socketChannel, selector, SelectionKey.OP_WRITE, deadline);
+            }
+        }
+    }
+
+    /**
+     * Wait until the channel is ready for the given operation.
+     *
+     * @param socketChannel Channel to wait for
+     * @param selector      Selector used to wait for the channel
+     * @param operation     The operation (ie: {@link SelectionKey#OP_READ})
+     * @param deadline      Time the channel must be ready before ({@link System#nanoTime()})
+     * @throws IOException If something goes wrong during the process or if the deadline is exceeded
+     */
+    private static void await(final SocketChannel socketChannel,
+                              final Selector selector,
+                              final int operation,
+                              final long deadline) throws IOException {
+
+        socketChannel.register(selector, operation);
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0 || selector.select(remaining) == 0) {
+            throw new SocketTimeoutException("Client is too slow, connection closed");
+        }
+        selector.selectedKeys().clear();
+    }
+}
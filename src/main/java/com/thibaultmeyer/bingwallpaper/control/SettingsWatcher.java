@@ -0,0 +1,143 @@
+package com.thibaultmeyer.bingwallpaper.control;
+
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the settings file. Editors often write a file in several steps (truncate,
+ * write, rename), so events are debounced, then the callback is invoked only if the
+ * content has really changed.
+ */
+public final class SettingsWatcher {
+
+    private static final long DEBOUNCE_DELAY = 500;
+
+    private final Path settingsFile;
+    private final Runnable onChange;
+
+    private WatchService watchService;
+    private String latestContentHash;
+
+    /**
+     * Build a new instance.
+     *
+     * @param settingsFile Settings file to watch
+     * @param onChange     Callback invoked when the content of the settings file has changed
+     */
+    public SettingsWatcher(final Path settingsFile, final Runnable onChange) {
+
+        this.settingsFile = settingsFile.toAbsolutePath();
+        this.onChange = onChange;
+    }
+
+    /**
+     * Start watching the settings file.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    public void start() throws IOException {
+
+        latestContentHash = computeContentHash();
+        watchService = FileSystems.getDefault().newWatchService();
+
+        // The parent directory is watched, to be notified when the file is replaced
+        settingsFile.getParent().register(
+            watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+
+        final Thread thread = new Thread(this::watchLoop, "settings-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching the settings file.
+     */
+    public void stop() {
+
+        try {
+            watchService.close();
+        } catch (final IOException ex) {
+            System.err.println("Unable to stop settings watcher: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Wait for changes until the watcher is stopped.
+     */
+    private void watchLoop() {
+
+        try {
+            while (true) {
+                final WatchKey watchKey = watchService.take();
+                boolean isSettingsFileChanged = containsSettingsFile(watchKey);
+                watchKey.reset();
+
+                if (isSettingsFileChanged) {
+                    // Debounce: wait until the file is no longer written
+                    WatchKey nextWatchKey;
+                    while ((nextWatchKey = watchService.poll(DEBOUNCE_DELAY, TimeUnit.MILLISECONDS)) != null) {
+                        nextWatchKey.pollEvents();
+                        nextWatchKey.reset();
+                    }
+
+                    final String contentHash = computeContentHash();
+                    if (contentHash != null && !Objects.equals(contentHash, latestContentHash)) {
+                        latestContentHash = contentHash;
+                        System.out.println("Settings file has changed");
+                        onChange.run();
+                    }
+                }
+            }
+        } catch (final ClosedWatchServiceException ignore) {
+            // Watcher has been stopped
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Determine if events of the given key are related to the settings file.
+     *
+     * @param watchKey The key
+     * @return {@code true} if settings file is concerned, otherwise, {@code false}
+     */
+    private boolean containsSettingsFile(final WatchKey watchKey) {
+
+        boolean isConcerned = false;
+        for (final WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW
+                || settingsFile.getFileName().equals(watchEvent.context())) {
+                isConcerned = true;
+            }
+        }
+
+        return isConcerned;
+    }
+
+    /**
+     * Compute the hash of the settings file content.
+     *
+     * @return The hash, otherwise, {@code null} if file can't be read
+     */
+    private String computeContentHash() {
+
+        try {
+            return Files.exists(settingsFile) ? WallpaperCache.computeHash(settingsFile) : null;
+        } catch (final IOException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.thibaultmeyer.bingwallpaper.display;
+
+import com.thibaultmeyer.bingwallpaper.utils.ApplicationDirectoryUtils;
+import com.thibaultmeyer.bingwallpaper.utils.FileUtils;
+import com.thibaultmeyer.bingwallpaper.utils.OperatingSystemUtils;
+
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Detects the dimension of each display. Probing the displays is slow (AWT toolkit
+ * initialization, {@code system_profiler} on macOS), so the result is cached in the
+ * application directory along with a fingerprint of the display configuration.
+ * When the fingerprint can be computed cheaply (Linux DRM), the cache is invalidated
+ * as soon as the configuration changes. Otherwise, the cache is trusted on fast
+ * startup and revalidated in background for the next boot.
+ */
+public final class DisplayProbe {
+
+    private static final String CACHE_FILE_NAME = "displays.properties";
+    private static final Path DRM_DIRECTORY = Paths.get("/sys/class/drm");
+
+    /**
+     * Retrieve the dimension of each display, from the cache if still valid.
+     *
+     * @param isFastStartup {@code true} to trust the cache when display configuration can't be fingerprinted
+     * @return The display dimensions, main display first
+     * @throws IOException If something goes wrong during the process
+     */
+    public static List<Dimension> retrieveDimensionList(final boolean isFastStartup) throws IOException {
+
+        if (GraphicsEnvironment.isHeadless()) {
+            // Never cached, the same configuration may also be used with a screen
+            return probe();
+        }
+
+        final Path cacheFile = ApplicationDirectoryUtils.resolve(CACHE_FILE_NAME);
+        final String fingerprint = computeFingerprint();
+        final Properties properties = loadCache(cacheFile);
+
+        if (properties != null) {
+            final List<Dimension> cachedDimensionList = parseDimensionList(properties.getProperty("displays", ""));
+            final String cachedFingerprint = properties.getProperty("fingerprint");
+
+            if (!cachedDimensionList.isEmpty()) {
+                if (fingerprint != null && fingerprint.equals(cachedFingerprint)) {
+                    return cachedDimensionList;
+                } else if (fingerprint == null && isFastStartup) {
+                    revalidateInBackground(cacheFile, cachedDimensionList);
+                    return cachedDimensionList;
+                }
+            }
+        }
+
+        final List<Dimension> dimensionList = probe();
+        saveCache(cacheFile, fingerprint, dimensionList);
+
+        return dimensionList;
+    }
+
+    /**
+     * Probe the dimension of each display, without using the cache.
+     *
+     * @return The display dimensions, main display first
+     * @throws IOException If something goes wrong during the process
+     */
+    public static List<Dimension> probe() throws IOException {
+
+        if (GraphicsEnvironment.isHeadless()) {
+            // No screen (ie: relay server), use the most common dimension
+            return Collections.singletonList(new Dimension(1920, 1080));
+        }
+
+        if (OperatingSystemUtils.IS_MAC) {
+            final Runtime runtime = Runtime.getRuntime();
+            final Process process = runtime.exec("system_profiler SPDisplaysDataType");
+
+            final byte[] buffer = process.getInputStream().readAllBytes();
+            process.getInputStream().close();
+            if (buffer.length > 0) {
+                final String output = new String(buffer, StandardCharsets.UTF_8);
+                final String[] outputExploded = output.split("\\n");
+                final List<Dimension> dimensionList = new ArrayList<>();
+
+                for (final String line : outputExploded) {
+                    if (line.contains("Resolution")) {
+                        final String dimensionAsString = line.split(":")[1].trim();
+                        final String[] dimensionExploded = dimensionAsString.split(" ");
+
+                        dimensionList.add(new Dimension(
+                            Integer.parseInt(dimensionExploded[0]),
+                            Integer.parseInt(dimensionExploded[2])));
+                    }
+                }
+
+                if (!dimensionList.isEmpty()) {
+                    return dimensionList;
+                }
+            }
+        }
+
+        final GraphicsEnvironment graphicsEnvironment = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        final GraphicsDevice defaultScreenDevice = graphicsEnvironment.getDefaultScreenDevice();
+        final List<Dimension> dimensionList = new ArrayList<>();
+        for (final GraphicsDevice graphicsDevice : graphicsEnvironment.getScreenDevices()) {
+            final DisplayMode displayMode = graphicsDevice.getDisplayMode();
+            final Dimension dimension = new Dimension(displayMode.getWidth(), displayMode.getHeight());
+            if (graphicsDevice.equals(defaultScreenDevice)) {
+                dimensionList.add(0, dimension);
+            } else {
+                dimensionList.add(dimension);
+            }
+        }
+
+        return dimensionList.isEmpty()
+            ? Collections.singletonList(Toolkit.getDefaultToolkit().getScreenSize())
+            : dimensionList;
+    }
+
+    /**
+     * Retrieve the largest dimension.
+     *
+     * @param dimensionList The dimensions
+     * @return The largest dimension
+     */
+    public static Dimension retrieveLargestDimension(final List<Dimension> dimensionList) {
+
+        Dimension largestDimension = dimensionList.get(0);
+        for (final Dimension dimension : dimensionList) {
+            if ((long) dimension.width * dimension.height > (long) largestDimension.width * largestDimension.height) {
+                largestDimension = dimension;
+            }
+        }
+
+        return largestDimension;
+    }
+
+    /**
+     * Compute a fingerprint of the display configuration without loading AWT. On Linux,
+     * the status and the preferred mode of each DRM connector are used.
+     *
+     * @return The fingerprint, otherwise, {@code null} if it can't be computed cheaply
+     */
+    private static String computeFingerprint() {
+
+        if (!OperatingSystemUtils.IS_UNIX || !Files.isDirectory(DRM_DIRECTORY)) {
+            return null;
+        }
+
+        // Sorted by connector name to get a stable fingerprint
+        final TreeMap<String, String> connectorMap = new TreeMap<>();
+        try {
+            final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(DRM_DIRECTORY, "card*-*");
+            for (final Path connector : directoryStream) {
+                final Path statusFile = connector.resolve("status");
+                final Path modesFile = connector.resolve("modes");
+                if (Files.isReadable(statusFile)) {
+                    final String status = Files.readString(statusFile).trim();
+                    final String modes = Files.isReadable(modesFile) ? Files.readString(modesFile).trim() : "";
+                    final int endOfLine = modes.indexOf('\n');
+                    connectorMap.put(
+                        connector.getFileName().toString(),
+                        status + ":" + (endOfLine > 0 ? modes.substring(0, endOfLine) : modes));
+                }
+            }
+            directoryStream.close();
+        } catch (final IOException ignore) {
+            return null;
+        }
+
+        return connectorMap.isEmpty() ? null : connectorMap.toString();
+    }
+
+    /**
+     * Probe the displays in background, then update the cache if the configuration has changed.
+     * The thread is not a daemon: a short-lived process (ie: single run) waits for the cache
+     * to be updated before exiting, without delaying the wallpaper retrieval.
+     *
+     * @param cacheFile           Location of the cache
+     * @param cachedDimensionList The cached display dimensions
+     */
+    private static void revalidateInBackground(final Path cacheFile, final List<Dimension> cachedDimensionList) {
+
+        final Thread thread = new Thread(() -> {
+            try {
+                final List<Dimension> dimensionList = probe();
+                if (!Objects.equals(dimensionList, cachedDimensionList)) {
+                    System.out.println("Display configuration has changed, it will be used on next run");
+                    saveCache(cacheFile, null, dimensionList);
+                }
+            } catch (final IOException | RuntimeException ex) {
+                System.err.println("Unable to probe displays: " + ex.getMessage());
+            }
+        }, "display-probe");
+        thread.start();
+    }
+
+    /**
+     * Load the cache from local disk.
+     *
+     * @param cacheFile Location of the cache
+     * @return The cache content, otherwise, {@code null} if not available
+     */
+    private static Properties loadCache(final Path cacheFile) {
+
+        if (!Files.exists(cacheFile)) {
+            return null;
+        }
+
+        try {
+            final Properties properties = new Properties();
+            final BufferedReader bufferedReader = Files.newBufferedReader(cacheFile);
+            properties.load(bufferedReader);
+            bufferedReader.close();
+
+            return properties;
+        } catch (final IOException ex) {
+            System.err.println("Unable to load display cache: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Save the cache on local disk.
+     *
+     * @param cacheFile     Location of the cache
+     * @param fingerprint   Fingerprint of the display configuration, can be {@code null}
+     * @param dimensionList The display dimensions
+     */
+    private static void saveCache(final Path cacheFile, final String fingerprint, final List<Dimension> dimensionList) {
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (final Dimension dimension : dimensionList) {
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append(',');
+            }
+            stringBuilder.append(dimension.width).append('x').append(dimension.height);
+        }
+
+        final Properties properties = new Properties();
+        properties.setProperty("displays", stringBuilder.toString());
+        if (fingerprint != null) {
+            properties.setProperty("fingerprint", fingerprint);
+        }
+
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            final Path temporaryFile = cacheFile.resolveSibling(CACHE_FILE_NAME + ".tmp");
+            final BufferedWriter bufferedWriter = Files.newBufferedWriter(temporaryFile);
+            properties.store(bufferedWriter, "BingWallpaper Displays");
+            bufferedWriter.close();
+
+            FileUtils.moveAtomically(temporaryFile, cacheFile);
+        } catch (final IOException ex) {
+            System.err.println("Unable to save display cache: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Parse display dimensions (ie: 1920x1080,2560x1440).
+     *
+     * @param value The value to parse
+     * @return The display dimensions, empty if value is invalid
+     */
+    private static List<Dimension> parseDimensionList(final String value) {
+
+        final List<Dimension> dimensionList = new ArrayList<>();
+        try {
+            for (final String dimensionAsString : value.split(",")) {
+                final String[] dimensionExploded = dimensionAsString.trim().split("x");
+                if (dimensionExploded.length != 2) {
+                    return Collections.emptyList();
+                }
+                dimensionList.add(new Dimension(
+                    Integer.parseInt(dimensionExploded[0]),
+                    Integer.parseInt(dimensionExploded[1])));
+            }
+        } catch (final NumberFormatException ignore) {
+            return Collections.emptyList();
+        }
+
+        return dimensionList;
+    }
+}
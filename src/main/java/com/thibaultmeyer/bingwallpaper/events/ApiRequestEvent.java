@@ -0,0 +1,32 @@
+package com.thibaultmeyer.bingwallpaper.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Call to the Bing API retrieving the wallpaper of the day.
+ */
+@Name("com.thibaultmeyer.bingwallpaper.ApiRequest")
+@Label("API Request")
+@Category({"Bing Wallpaper", "Cycle"})
+@Description("Call to the Bing API retrieving the wallpaper of the day.")
+public final class ApiRequestEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("HTTP Status")
+    public int httpStatus;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    @Description("Result of the stage (ie: success, failure: reason)")
+    public String outcome;
+}
@@ -0,0 +1,35 @@
+package com.thibaultmeyer.bingwallpaper.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Fit of the wallpaper image to the dimension of a display.
+ */
+@Name("com.thibaultmeyer.bingwallpaper.ImageProcessing")
+@Label("Image Processing")
+@Category({"Bing Wallpaper", "Cycle"})
+@Description("Fit of the wallpaper image to the dimension of a display.")
+public final class ImageProcessingEvent extends Event {
+
+    @Label("Target File")
+    public String targetFile;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    @Description("Result of the stage (ie: success, failure: reason)")
+    public String outcome;
+}
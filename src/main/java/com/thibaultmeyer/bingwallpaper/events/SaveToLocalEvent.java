@@ -0,0 +1,32 @@
+package com.thibaultmeyer.bingwallpaper.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Retrieval of the wallpaper image (cache or download) and generation of the local files.
+ */
+@Name("com.thibaultmeyer.bingwallpaper.SaveToLocal")
+@Label("Save To Local")
+@Category({"Bing Wallpaper", "Cycle"})
+@Description("Retrieval of the wallpaper image (cache or download) and generation of the local files.")
+public final class SaveToLocalEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Display Count")
+    public int displayCount;
+
+    @Label("Outcome")
+    @Description("Result of the stage (ie: success, failure: reason)")
+    public String outcome;
+}
@@ -0,0 +1,24 @@
+package com.thibaultmeyer.bingwallpaper.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Load of the settings from local disk.
+ */
+@Name("com.thibaultmeyer.bingwallpaper.SettingsLoad")
+@Label("Settings Load")
+@Category({"Bing Wallpaper", "Cycle"})
+@Description("Load of the settings from local disk.")
+public final class SettingsLoadEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Outcome")
+    @Description("Result of the stage (ie: success, failure: reason)")
+    public String outcome;
+}
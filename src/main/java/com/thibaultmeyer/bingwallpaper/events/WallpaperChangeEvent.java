@@ -0,0 +1,30 @@
+package com.thibaultmeyer.bingwallpaper.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Call to the wallpaper changer of the current operating system.
+ */
+@Name("com.thibaultmeyer.bingwallpaper.WallpaperChange")
+@Label("Wallpaper Change")
+@Category({"Bing Wallpaper", "Cycle"})
+@Description("Call to the wallpaper changer of the current operating system.")
+public final class WallpaperChangeEvent extends Event {
+
+    @Label("Changer")
+    public String changer;
+
+    @Label("Display Index")
+    public int displayIndex;
+
+    @Label("File")
+    public String file;
+
+    @Label("Outcome")
+    @Description("Result of the stage (ie: success, failure: reason)")
+    public String outcome;
+}
@@ -0,0 +1,197 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Long-lived HTTP engine. Connections are pooled and reused between
+ * requests (HTTP/2 when available) and the proxy is resolved only once.
+ * The pool can be released while idle, see {@link #release()}. Requests
+ * through a SOCKS proxy, not supported by {@link HttpClient}, are sent
+ * with {@link SocksTransport}.
+ */
+public final class HttpEngine {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
+    private final HttpClient.Builder httpClientBuilder;
+    private final SocksTransport socksTransport;
+    private final String userAgent;
+
+    private HttpClient httpClient;
+
+    /**
+     * Build a new instance.
+     *
+     * @param proxyType Proxy Type (ie: HTTP, SOCKS), {@code null} to not use proxy
+     * @param proxyHost Proxy Host (ie: 127.0.0.1)
+     * @param proxyPort Proxy Port (ie: 8080)
+     * @param userAgent User agent sent with each request
+     */
+    public HttpEngine(final Proxy.Type proxyType, final String proxyHost, final int proxyPort, final String userAgent) {
+
+        final HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT);
+
+        if (proxyType == Proxy.Type.HTTP) {
+            httpClientBuilder.proxy(ProxySelector.of(new InetSocketAddress(proxyHost, proxyPort)));
+        } else {
+            httpClientBuilder.proxy(HttpClient.Builder.NO_PROXY);
+        }
+
+        this.httpClientBuilder = httpClientBuilder;
+        this.socksTransport = proxyType == Proxy.Type.SOCKS
+            ? new SocksTransport(proxyHost, proxyPort, CONNECT_TIMEOUT)
+            : null;
+        this.httpClient = null;
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Release the underlying client and its pooled connections. A new client
+     * will be created on next request. Useful to reduce the footprint of a
+     * process idling between requests.
+     */
+    public synchronized void release() {
+
+        httpClient = null;
+    }
+
+    /**
+     * Retrieve the underlying client, created on first use.
+     *
+     * @return The client
+     */
+    private synchronized HttpClient getHttpClient() {
+
+        if (httpClient == null) {
+            httpClient = httpClientBuilder.build();
+        }
+
+        return httpClient;
+    }
+
+    /**
+     * Create a new request builder with default headers and timeout.
+     *
+     * @param uri URI to use
+     * @return The request builder
+     */
+    public HttpRequest.Builder newRequest(final URI uri) {
+
+        return HttpRequest.newBuilder(uri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("User-Agent", userAgent);
+    }
+
+    /**
+     * Create a new request builder accepting a compressed (gzip) response.
+     * Use {@link #ofDecompressedByteArray()} to read the response body.
+     *
+     * @param uri URI to use
+     * @return The request builder
+     */
+    public HttpRequest.Builder newCompressedRequest(final URI uri) {
+
+        return newRequest(uri).header("Accept-Encoding", "gzip");
+    }
+
+    /**
+     * Send a request and wait for the response.
+     *
+     * @param request     Request to send
+     * @param bodyHandler Handler of the response body
+     * @param <T>         Type of the response body
+     * @return The response
+     * @throws IOException If something goes wrong during the process
+     */
+    public <T> HttpResponse<T> send(final HttpRequest request,
+                                    final HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+
+        if (socksTransport != null) {
+            return socksTransport.send(request, bodyHandler);
+        }
+        try {
+            return getHttpClient().send(request, bodyHandler);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Send a request asynchronously.
+     *
+     * @param request     Request to send
+     * @param bodyHandler Handler of the response body
+     * @param <T>         Type of the response body
+     * @return A future completed with the response
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request,
+                                                            final HttpResponse.BodyHandler<T> bodyHandler) {
+
+        if (socksTransport != null) {
+            return socksTransport.sendAsync(request, bodyHandler);
+        }
+        return getHttpClient().sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * Body handler returning the response body as byte array, decompressed
+     * if the server has used the "gzip" content encoding.
+     *
+     * @return The body handler
+     */
+    public static HttpResponse.BodyHandler<byte[]> ofDecompressedByteArray() {
+
+        return responseInfo -> {
+            final String contentEncoding = responseInfo.headers()
+                .firstValue("Content-Encoding")
+                .orElse("")
+                .toLowerCase(Locale.ENGLISH);
+
+            if (contentEncoding.equals("gzip")) {
+                return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.ofByteArray(),
+                    HttpEngine::decompress);
+            }
+
+            return HttpResponse.BodySubscribers.ofByteArray();
+        };
+    }
+
+    /**
+     * Decompress gzip data.
+     *
+     * @param data Compressed data
+     * @return Decompressed data
+     */
+    private static byte[] decompress(final byte[] data) {
+
+        try {
+            final GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(data));
+            final byte[] decompressedData = gzipInputStream.readAllBytes();
+            gzipInputStream.close();
+
+            return decompressedData;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
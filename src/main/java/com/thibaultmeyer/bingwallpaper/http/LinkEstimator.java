@@ -0,0 +1,208 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import com.thibaultmeyer.bingwallpaper.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Estimates the quality of the link from the recent downloads. The time to first
+ * byte, the throughput and the size of the images (per pixel) are smoothed with an
+ * exponentially weighted moving average, then persisted, this way, estimations
+ * survive restarts and the first download of the day is already sized to the link.
+ */
+public final class LinkEstimator {
+
+    private static final double SMOOTHING_FACTOR = 0.3;
+    private static final long MIN_THROUGHPUT_SAMPLE_SIZE = 64 * 1024;
+    private static final double DEFAULT_BYTES_PER_PIXEL = 0.3;
+
+    private final Path stateFile;
+
+    private double timeToFirstByte;
+    private double throughput;
+    private double bytesPerPixel;
+    private boolean isModified;
+
+    /**
+     * Build a new instance.
+     *
+     * @param stateFile       Location where the estimations are persisted, {@code null} if never persisted
+     * @param timeToFirstByte Estimated time to first byte (Milliseconds), {@code -1} if unknown
+     * @param throughput      Estimated throughput (Bytes per second), {@code -1} if unknown
+     * @param bytesPerPixel   Estimated size of the images (Bytes per pixel)
+     */
+    private LinkEstimator(final Path stateFile,
+                          final double timeToFirstByte,
+                          final double throughput,
+                          final double bytesPerPixel) {
+
+        this.stateFile = stateFile;
+        this.timeToFirstByte = timeToFirstByte;
+        this.throughput = throughput;
+        this.bytesPerPixel = bytesPerPixel;
+        this.isModified = false;
+    }
+
+    /**
+     * Load estimations from local disk.
+     *
+     * @param stateFile Location where the estimations are persisted
+     * @return Loaded estimations, unknown ones if file does not exist or can't be read
+     */
+    public static LinkEstimator load(final Path stateFile) {
+
+        if (Files.exists(stateFile)) {
+            try {
+                final Properties properties = new Properties();
+                final BufferedReader bufferedReader = Files.newBufferedReader(stateFile);
+                properties.load(bufferedReader);
+                bufferedReader.close();
+
+                return new LinkEstimator(
+                    stateFile,
+                    Double.parseDouble(properties.getProperty("timeToFirstByte", "-1")),
+                    Double.parseDouble(properties.getProperty("throughput", "-1")),
+                    Double.parseDouble(properties.getProperty("bytesPerPixel", String.valueOf(DEFAULT_BYTES_PER_PIXEL))));
+            } catch (final IOException | NumberFormatException ex) {
+                System.err.println("Unable to load link estimations: " + ex.getMessage());
+            }
+        }
+
+        return new LinkEstimator(stateFile, -1, -1, DEFAULT_BYTES_PER_PIXEL);
+    }
+
+    /**
+     * Create estimations which are never persisted (ie: link to a mirror, kept apart from the one to Bing).
+     *
+     * @return New unknown estimations
+     */
+    public static LinkEstimator createTransient() {
+
+        return new LinkEstimator(null, -1, -1, DEFAULT_BYTES_PER_PIXEL);
+    }
+
+    /**
+     * Save estimations on local disk, unless unchanged since loaded or last saved.
+     */
+    public synchronized void store() {
+
+        if (!isModified || stateFile == null) {
+            return;
+        }
+
+        try {
+            final Properties properties = new Properties();
+            properties.setProperty("timeToFirstByte", String.valueOf(timeToFirstByte));
+            properties.setProperty("throughput", String.valueOf(throughput));
+            properties.setProperty("bytesPerPixel", String.valueOf(bytesPerPixel));
+
+            // Written aside then moved, the file can be shared by the services of several profiles
+            Files.createDirectories(stateFile.getParent());
+            final Path temporaryFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            final BufferedWriter bufferedWriter = Files.newBufferedWriter(temporaryFile);
+            properties.store(bufferedWriter, "BingWallpaper Link Estimations");
+            bufferedWriter.close();
+            FileUtils.moveAtomically(temporaryFile, stateFile);
+
+            isModified = false;
+        } catch (final IOException ex) {
+            System.err.println("Unable to save link estimations: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Record a completed transfer. The throughput is only sampled from transfers
+     * large enough for the time to first byte not to prevail.
+     *
+     * @param timeToFirstByte Time to first byte (Nanoseconds)
+     * @param duration        Total duration of the transfer (Nanoseconds)
+     * @param size            Number of bytes transferred
+     */
+    public synchronized void recordTransfer(final long timeToFirstByte, final long duration, final long size) {
+
+        this.timeToFirstByte = smooth(this.timeToFirstByte, timeToFirstByte / 1_000_000.0);
+
+        final long transferDuration = duration - timeToFirstByte;
+        if (size >= MIN_THROUGHPUT_SAMPLE_SIZE && transferDuration > 0) {
+            this.throughput = smooth(this.throughput, size * 1_000_000_000.0 / transferDuration);
+        }
+
+        isModified = true;
+    }
+
+    /**
+     * Record the size of a retrieved image.
+     *
+     * @param pixelCount Number of pixels of the image (width x height)
+     * @param size       Size of the image (Bytes)
+     */
+    public synchronized void recordImageSize(final long pixelCount, final long size) {
+
+        if (pixelCount > 0 && size > 0) {
+            bytesPerPixel = smooth(bytesPerPixel, (double) size / pixelCount);
+            isModified = true;
+        }
+    }
+
+    /**
+     * Estimate the size of an image.
+     *
+     * @param pixelCount Number of pixels of the image (width x height)
+     * @return The estimated size (Bytes)
+     */
+    public synchronized long estimateSize(final long pixelCount) {
+
+        return (long) (pixelCount * bytesPerPixel);
+    }
+
+    /**
+     * Estimate the duration of a download.
+     *
+     * @param size Size of the content to download (Bytes)
+     * @return The estimated duration (Milliseconds), {@code -1} if the link has not been measured yet
+     */
+    public synchronized long estimateDuration(final long size) {
+
+        if (throughput <= 0) {
+            return -1;
+        }
+
+        return (long) (Math.max(0, timeToFirstByte) + size * 1000.0 / throughput);
+    }
+
+    /**
+     * Smooth a new sample into the current estimation.
+     *
+     * @param estimation The current estimation, negative if unknown
+     * @param sample     The new sample
+     * @return The new estimation
+     */
+    private static double smooth(final double estimation, final double sample) {
+
+        if (estimation < 0) {
+            return sample;
+        }
+
+        return estimation + SMOOTHING_FACTOR * (sample - estimation);
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        if (throughput <= 0) {
+            return "not measured yet";
+        }
+
+        return String.format(
+            Locale.ENGLISH,
+            "%.1f KB/s, %d ms to first byte",
+            throughput / 1024,
+            (long) timeToFirstByte);
+    }
+}
@@ -0,0 +1,141 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Validators of the last processed HTTP response. They are used
+ * to send conditional requests and to detect unchanged responses.
+ */
+public final class ResponseValidators {
+
+    /**
+     * Empty validators, nothing has been processed yet.
+     */
+    public static final ResponseValidators EMPTY = new ResponseValidators(null, null, null, null);
+
+    /**
+     * URL of the request.
+     */
+    public final String requestUrl;
+
+    /**
+     * Value of the "ETag" response header.
+     */
+    public final String entityTag;
+
+    /**
+     * Value of the "Last-Modified" response header.
+     */
+    public final String lastModified;
+
+    /**
+     * SHA-256 hash of the response body.
+     */
+    public final String bodyHash;
+
+    /**
+     * Build a new instance.
+     *
+     * @param requestUrl   URL of the request
+     * @param entityTag    Value of the "ETag" response header
+     * @param lastModified Value of the "Last-Modified" response header
+     * @param bodyHash     SHA-256 hash of the response body
+     */
+    public ResponseValidators(final String requestUrl,
+                              final String entityTag,
+                              final String lastModified,
+                              final String bodyHash) {
+
+        this.requestUrl = requestUrl;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+        this.bodyHash = bodyHash;
+    }
+
+    /**
+     * Load validators from local disk.
+     *
+     * @param path Location of the validators file
+     * @return Loaded validators, {@link #EMPTY} if file does not exist
+     * @throws IOException If something goes wrong during the process
+     */
+    public static ResponseValidators load(final Path path) throws IOException {
+
+        if (!Files.exists(path)) {
+            return EMPTY;
+        }
+
+        final Properties properties = new Properties();
+        final BufferedReader bufferedReader = Files.newBufferedReader(path);
+        properties.load(bufferedReader);
+        bufferedReader.close();
+
+        return new ResponseValidators(
+            properties.getProperty("requestUrl"),
+            properties.getProperty("entityTag"),
+            properties.getProperty("lastModified"),
+            properties.getProperty("bodyHash"));
+    }
+
+    /**
+     * Save validators on local disk.
+     *
+     * @param path Location of the validators file
+     * @throws IOException If something goes wrong during the process
+     */
+    public void store(final Path path) throws IOException {
+
+        final Properties properties = new Properties();
+        setPropertyIfNotNull(properties, "requestUrl", requestUrl);
+        setPropertyIfNotNull(properties, "entityTag", entityTag);
+        setPropertyIfNotNull(properties, "lastModified", lastModified);
+        setPropertyIfNotNull(properties, "bodyHash", bodyHash);
+
+        Files.createDirectories(path.getParent());
+        final BufferedWriter bufferedWriter = Files.newBufferedWriter(path);
+        properties.store(bufferedWriter, "BingWallpaper Response Validators");
+        bufferedWriter.close();
+    }
+
+    /**
+     * Check if these validators apply to the given request.
+     *
+     * @param requestUrl URL of the request
+     * @return {@code true} if validators can be used, otherwise, {@code false}
+     */
+    public boolean isApplicableTo(final String requestUrl) {
+
+        return this.requestUrl != null && this.requestUrl.equals(requestUrl);
+    }
+
+    /**
+     * Check if the given body hash matches the one of these validators.
+     *
+     * @param bodyHash SHA-256 hash of the response body
+     * @return {@code true} if body is unchanged, otherwise, {@code false}
+     */
+    public boolean hasSameBody(final String bodyHash) {
+
+        return this.bodyHash != null && Objects.equals(this.bodyHash, bodyHash);
+    }
+
+    /**
+     * Set property only if value is not null.
+     *
+     * @param properties The properties
+     * @param key        The key
+     * @param value      The value
+     */
+    private static void setPropertyIfNotNull(final Properties properties, final String key, final String value) {
+
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+import com.thibaultmeyer.bingwallpaper.resilience.CircuitBreaker;
+import com.thibaultmeyer.bingwallpaper.resilience.FailureKind;
+import com.thibaultmeyer.bingwallpaper.resilience.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Downloads an image into a partial file. The response body is written to the
+ * partial file through a {@code FileChannel} directly from the buffers received
+ * by the HTTP engine. If the transfer is interrupted, the next attempt resumes
+ * with an HTTP Range request, after a backoff delay. The result is checked
+ * (Content-Length and JPEG markers) before being reported as completed. Each attempt
+ * is sent to the fastest upstream, large transfers are never hedged. Completed
+ * transfers are fed to the link estimator.
+ */
+public final class ResumableDownloader {
+
+    private static final long DOWNLOAD_TIMEOUT_MINUTES = 10;
+    private static final String VALIDATOR_FILE_EXTENSION = ".validator";
+
+    private final UpstreamPool upstreamPool;
+    private final MetricsRegistry metricsRegistry;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final LinkEstimator linkEstimator;
+
+    /**
+     * Build a new instance.
+     *
+     * @param upstreamPool    Upstreams serving the images
+     * @param metricsRegistry Where download metrics are recorded
+     * @param retryPolicy     How failed attempts are retried
+     * @param circuitBreaker  Circuit breaker protecting the upstream
+     * @param linkEstimator   Where the quality of the link is estimated
+     */
+    public ResumableDownloader(final UpstreamPool upstreamPool,
+                               final MetricsRegistry metricsRegistry,
+                               final RetryPolicy retryPolicy,
+                               final CircuitBreaker circuitBreaker,
+                               final LinkEstimator linkEstimator) {
+
+        this.upstreamPool = upstreamPool;
+        this.metricsRegistry = metricsRegistry;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.linkEstimator = linkEstimator;
+    }
+
+    /**
+     * Download the given URI into the partial file. An existing partial file
+     * will be resumed. In case of failure, the partial file is kept to be
+     * resumed later unless its content is invalid.
+     *
+     * @param uri         Canonical URI of the image to download
+     * @param partialFile Partial file location
+     * @return {@code true} if the partial file now contains the full and valid image, otherwise, {@code false}
+     * @throws IOException If something goes wrong during the process
+     */
+    public boolean download(final URI uri, final Path partialFile) throws IOException {
+
+        final Path validatorFile = partialFile.resolveSibling(partialFile.getFileName() + VALIDATOR_FILE_EXTENSION);
+        IOException lastException = null;
+
+        for (int attempt = 1; attempt <= retryPolicy.getMaxAttempts(); attempt += 1) {
+            circuitBreaker.checkAllowed();
+            final long offset = Files.exists(partialFile) ? Files.size(partialFile) : 0;
+            final String validator = offset > 0 && Files.exists(validatorFile)
+                ? new String(Files.readAllBytes(validatorFile), StandardCharsets.UTF_8)
+                : null;
+
+            final Upstream upstream = upstreamPool.getFastest();
+            final HttpRequest.Builder requestBuilder = upstream.newRequest(uri);
+            if (offset > 0) {
+                requestBuilder.header("Range", "bytes=" + offset + "-");
+                if (validator != null) {
+                    requestBuilder.header("If-Range", validator);
+                }
+            }
+
+            final AtomicReference<String> transferValidator = new AtomicReference<>();
+            final long startTime = System.nanoTime();
+            final AtomicLong firstByteTime = new AtomicLong(startTime);
+            try {
+                final HttpResponse<Path> response = await(upstream.sendAsync(
+                    requestBuilder.GET().build(),
+                    responseInfo -> {
+                        firstByteTime.set(System.nanoTime());
+                        return createBodySubscriber(responseInfo, partialFile, offset, transferValidator);
+                    }));
+                if (response.statusCode() == 200 || response.statusCode() == 206) {
+                    final long downloadedSize = Files.size(partialFile) - (response.statusCode() == 206 ? offset : 0);
+                    final long duration = System.nanoTime() - startTime;
+                    metricsRegistry.recordDownload(firstByteTime.get() - startTime, duration, downloadedSize);
+                    linkEstimator.recordTransfer(firstByteTime.get() - startTime, duration, downloadedSize);
+                }
+
+                if (FailureKind.fromStatusCode(response.statusCode()) == FailureKind.TRANSIENT) {
+                    upstream.recordFailure();
+                    circuitBreaker.recordFailure();
+                    metricsRegistry.recordFailure(MetricsRegistry.CAUSE_HTTP_STATUS);
+                    final long delay = retryPolicy.computeDelay(
+                        attempt,
+                        RetryPolicy.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)));
+                    if (delay < 0 || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                        return false;
+                    }
+                    pauseBeforeRetry(attempt, delay, "HTTP " + response.statusCode());
+                    continue;
+                }
+
+                // Upstream has answered, its time to first byte ranks it
+                upstream.recordLatency(firstByteTime.get() - startTime);
+                circuitBreaker.recordSuccess();
+                if (response.statusCode() == 416) {
+                    // Range not satisfiable: partial file is either already complete or invalid
+                    if (isCompleteImage(partialFile, offset)) {
+                        Files.deleteIfExists(validatorFile);
+                        return true;
+                    }
+                    discard(partialFile, validatorFile);
+                    continue;
+                } else if (response.statusCode() != 200 && response.statusCode() != 206) {
+                    metricsRegistry.recordFailure(MetricsRegistry.CAUSE_HTTP_STATUS);
+                    return false;
+                }
+
+                final long expectedSize = retrieveExpectedSize(response);
+                if (isCompleteImage(partialFile, expectedSize)) {
+                    Files.deleteIfExists(validatorFile);
+                    return true;
+                }
+
+                System.err.println("Downloaded image is incomplete or corrupted, it will be discarded");
+                metricsRegistry.recordFailure(MetricsRegistry.CAUSE_CORRUPTED);
+                discard(partialFile, validatorFile);
+
+                final long delay = retryPolicy.computeDelay(attempt, -1);
+                if (delay < 0) {
+                    return false;
+                }
+                pauseBeforeRetry(attempt, delay, "corrupted image");
+            } catch (final IOException ex) {
+                lastException = ex;
+                metricsRegistry.recordFailure(ex.getCause() instanceof TimeoutException || ex instanceof HttpTimeoutException
+                    ? MetricsRegistry.CAUSE_TIMEOUT
+                    : MetricsRegistry.CAUSE_NETWORK);
+                saveValidator(partialFile, validatorFile, transferValidator.get());
+                if (FailureKind.fromException(ex) == FailureKind.PERMANENT) {
+                    throw ex;
+                }
+
+                upstream.recordFailure();
+                circuitBreaker.recordFailure();
+                final long delay = retryPolicy.computeDelay(attempt, -1);
+                if (delay < 0 || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                    break;
+                }
+                pauseBeforeRetry(attempt, delay, "download interrupted, " + ex.getMessage());
+            }
+        }
+
+        throw lastException != null ? lastException : new IOException("Unable to download " + uri);
+    }
+
+    /**
+     * Log and record a retry, then wait before the next attempt.
+     *
+     * @param attempt Number of the failed attempt (1 = first attempt)
+     * @param delay   Delay before the next attempt (Milliseconds)
+     * @param reason  Why the attempt has failed
+     * @throws IOException If interrupted while waiting
+     */
+    private void pauseBeforeRetry(final int attempt, final long delay, final String reason) throws IOException {
+
+        System.err.printf(
+            "Download failed (attempt %d/%d): %s, retrying in %d ms%n",
+            attempt,
+            retryPolicy.getMaxAttempts(),
+            reason,
+            delay);
+        metricsRegistry.recordRetry("download");
+        RetryPolicy.pause(delay);
+    }
+
+    /**
+     * Create the subscriber which will write the response body in the partial file.
+     *
+     * @param responseInfo Initial response information
+     * @param partialFile  Partial file location
+     * @param offset       Number of bytes already downloaded
+     * @param validator    Will receive the validator of the transfer
+     * @return The body subscriber
+     */
+    private static HttpResponse.BodySubscriber<Path> createBodySubscriber(final HttpResponse.ResponseInfo responseInfo,
+                                                                          final Path partialFile,
+                                                                          final long offset,
+                                                                          final AtomicReference<String> validator) {
+
+        if (responseInfo.statusCode() == 206 && retrieveRangeStart(responseInfo) == offset) {
+            validator.set(retrieveValidator(responseInfo));
+            return HttpResponse.BodySubscribers.ofFile(
+                partialFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        } else if (responseInfo.statusCode() == 200) {
+            validator.set(retrieveValidator(responseInfo));
+            return HttpResponse.BodySubscribers.ofFile(
+                partialFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        return HttpResponse.BodySubscribers.replacing(null);
+    }
+
+    /**
+     * Keep the validator of the interrupted transfer next to the partial file, this
+     * way, the next attempt can ensure that the resource has not changed.
+     *
+     * @param partialFile   Partial file location
+     * @param validatorFile Validator file location
+     * @param validator     Validator of the interrupted transfer, {@code null} if no response was received
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void saveValidator(final Path partialFile,
+                                      final Path validatorFile,
+                                      final String validator) throws IOException {
+
+        if (!Files.exists(partialFile)) {
+            Files.deleteIfExists(validatorFile);
+        } else if (validator != null) {
+            Files.write(validatorFile, validator.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Wait for the download to complete.
+     *
+     * @param future The download future
+     * @param <T>    Type of the response body
+     * @return The response
+     * @throws IOException If something goes wrong during the process
+     */
+    private static <T> HttpResponse<T> await(final Future<HttpResponse<T>> future) throws IOException {
+
+        try {
+            return future.get(DOWNLOAD_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (final InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (final TimeoutException ex) {
+            future.cancel(true);
+            throw new IOException("Download timed out", ex);
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Check if the file contains a complete JPEG image.
+     *
+     * @param file         File to check
+     * @param expectedSize Expected size (Bytes), {@code -1} if unknown
+     * @return {@code true} if file is complete, otherwise, {@code false}
+     * @throws IOException If something goes wrong during the process
+     */
+    private static boolean isCompleteImage(final Path file, final long expectedSize) throws IOException {
+
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final long size = fileChannel.size();
+            if (size < 4 || (expectedSize >= 0 && size != expectedSize)) {
+                return false;
+            }
+
+            // JPEG Start Of Image (0xFFD8) and End Of Image (0xFFD9) markers
+            final ByteBuffer marker = ByteBuffer.allocate(2);
+            fileChannel.read(marker, 0);
+            if ((marker.get(0) & 0xFF) != 0xFF || (marker.get(1) & 0xFF) != 0xD8) {
+                return false;
+            }
+
+            marker.clear();
+            fileChannel.read(marker, size - 2);
+            return (marker.get(0) & 0xFF) == 0xFF && (marker.get(1) & 0xFF) == 0xD9;
+        } finally {
+            fileChannel.close();
+        }
+    }
+
+    /**
+     * Retrieve the expected full size of the resource.
+     *
+     * @param response The response
+     * @return The expected size (Bytes), {@code -1} if unknown
+     */
+    private static long retrieveExpectedSize(final HttpResponse<?> response) {
+
+        if (response.statusCode() == 206) {
+            // Content-Range: bytes 21010-47021/47022
+            final String contentRange = response.headers().firstValue("Content-Range").orElse("");
+            final int slashIndex = contentRange.lastIndexOf('/');
+            if (slashIndex > 0 && !contentRange.endsWith("*")) {
+                return Long.parseLong(contentRange.substring(slashIndex + 1).trim());
+            }
+
+            return -1;
+        }
+
+        return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    /**
+     * Retrieve the first byte position of a partial response.
+     *
+     * @param responseInfo Initial response information
+     * @return The first byte position, {@code -1} if not available
+     */
+    private static long retrieveRangeStart(final HttpResponse.ResponseInfo responseInfo) {
+
+        final String contentRange = responseInfo.headers().firstValue("Content-Range").orElse("");
+        if (contentRange.startsWith("bytes ")) {
+            final int dashIndex = contentRange.indexOf('-');
+            if (dashIndex > 6) {
+                return Long.parseLong(contentRange.substring(6, dashIndex).trim());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Retrieve the validator to use with "If-Range".
+     *
+     * @param responseInfo Initial response information
+     * @return The validator, otherwise, {@code null}
+     */
+    private static String retrieveValidator(final HttpResponse.ResponseInfo responseInfo) {
+
+        return responseInfo.headers()
+            .firstValue("ETag")
+            .filter(entityTag -> !entityTag.startsWith("W/"))
+            .orElse(responseInfo.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+    /**
+     * Discard the partial file and its validator.
+     *
+     * @param partialFile   Partial file location
+     * @param validatorFile Validator file location
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void discard(final Path partialFile, final Path validatorFile) throws IOException {
+
+        Files.deleteIfExists(partialFile);
+        Files.deleteIfExists(validatorFile);
+    }
+}
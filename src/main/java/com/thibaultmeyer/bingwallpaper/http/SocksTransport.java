@@ -0,0 +1,442 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Transport sending requests through a SOCKS proxy, which {@link HttpClient} does not
+ * support. Each request is sent with {@link HttpURLConnection} (HTTP/1.1), then its
+ * response body is fed to the body handler the same way {@link HttpClient} would do it.
+ * The connection is closed once the response has been handled, or as soon as an
+ * asynchronous request is cancelled. Only requests without body (ie: GET, HEAD) are
+ * supported.
+ */
+final class SocksTransport {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        // Idle threads are discarded after 60 seconds
+        final Thread thread = new Thread(runnable, "socks-transport");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Proxy proxy;
+    private final Duration connectTimeout;
+
+    /**
+     * Build a new instance.
+     *
+     * @param proxyHost      SOCKS proxy host (ie: 127.0.0.1)
+     * @param proxyPort      SOCKS proxy port (ie: 1080)
+     * @param connectTimeout Maximum duration to establish a connection
+     */
+    SocksTransport(final String proxyHost, final int proxyPort, final Duration connectTimeout) {
+
+        this.proxy = new Proxy(Proxy.Type.SOCKS, new InetSocketAddress(proxyHost, proxyPort));
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Send a request and wait for the response.
+     *
+     * @param request     Request to send
+     * @param bodyHandler Handler of the response body
+     * @param <T>         Type of the response body
+     * @return The response
+     * @throws IOException If something goes wrong during the process
+     */
+    <T> HttpResponse<T> send(final HttpRequest request, final HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+
+        return exchange(openConnection(request), request, bodyHandler, () -> false);
+    }
+
+    /**
+     * Send a request asynchronously. Cancelling the returned future closes the connection,
+     * this way, the response body is no longer fed to the body handler.
+     *
+     * @param request     Request to send
+     * @param bodyHandler Handler of the response body
+     * @param <T>         Type of the response body
+     * @return A future completed with the response
+     */
+    <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request,
+                                                     final HttpResponse.BodyHandler<T> bodyHandler) {
+
+        final HttpURLConnection connection;
+        try {
+            connection = openConnection(request);
+        } catch (final IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        final CompletableFuture<HttpResponse<T>> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                future.complete(exchange(connection, request, bodyHandler, future::isCancelled));
+            } catch (final IOException | RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+
+        // Cancelling does not stop a blocking read, closing the socket does
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled()) {
+                connection.disconnect();
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Create the connection of a request, nothing is sent yet.
+     *
+     * @param request Request to send
+     * @return The connection
+     * @throws IOException If the request can't be sent through a SOCKS proxy
+     */
+    private HttpURLConnection openConnection(final HttpRequest request) throws IOException {
+
+        if (request.bodyPublisher().isPresent() && request.bodyPublisher().get().contentLength() > 0) {
+            throw new IOException("Request body is not supported through a SOCKS proxy");
+        }
+
+        return (HttpURLConnection) request.uri().toURL().openConnection(proxy);
+    }
+
+    /**
+     * Send a request on its connection and wait for the response, then close the connection.
+     *
+     * @param connection  Connection of the request
+     * @param request     Request to send
+     * @param bodyHandler Handler of the response body
+     * @param isCancelled Determine if the request has been cancelled meanwhile
+     * @param <T>         Type of the response body
+     * @return The response
+     * @throws IOException If something goes wrong during the process
+     */
+    private <T> HttpResponse<T> exchange(final HttpURLConnection connection,
+                                         final HttpRequest request,
+                                         final HttpResponse.BodyHandler<T> bodyHandler,
+                                         final BooleanSupplier isCancelled) throws IOException {
+
+        try {
+            connection.setRequestMethod(request.method());
+            connection.setInstanceFollowRedirects(true);
+            connection.setConnectTimeout((int) connectTimeout.toMillis());
+            connection.setReadTimeout((int) request.timeout().orElse(Duration.ZERO).toMillis());
+            for (final Map.Entry<String, List<String>> header : request.headers().map().entrySet()) {
+                for (final String value : header.getValue()) {
+                    connection.addRequestProperty(header.getKey(), value);
+                }
+            }
+
+            // Timeouts are reported as HttpClient does it, this way, failures are classified the same
+            try {
+                connection.connect();
+            } catch (final SocketTimeoutException ex) {
+                throw new HttpConnectTimeoutException(ex.getMessage());
+            }
+            if (isCancelled.getAsBoolean()) {
+                // Cancelled before the connection was established, closing it had no effect
+                throw new IOException("Request has been cancelled");
+            }
+            final int statusCode;
+            try {
+                statusCode = connection.getResponseCode();
+            } catch (final SocketTimeoutException ex) {
+                throw new HttpTimeoutException(ex.getMessage());
+            }
+
+            // The status line is the header without name
+            final Map<String, List<String>> headerMap = new HashMap<>(connection.getHeaderFields());
+            headerMap.remove(null);
+            final HttpHeaders headers = HttpHeaders.of(headerMap, (name, value) -> true);
+
+            final HttpResponse.BodySubscriber<T> bodySubscriber = bodyHandler.apply(new HttpResponse.ResponseInfo() {
+
+                @Override
+                public int statusCode() {
+
+                    return statusCode;
+                }
+
+                @Override
+                public HttpHeaders headers() {
+
+                    return headers;
+                }
+
+                @Override
+                public HttpClient.Version version() {
+
+                    return HttpClient.Version.HTTP_1_1;
+                }
+            });
+
+            final InputStream inputStream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            publish(inputStream, bodySubscriber, isCancelled);
+
+            return new SocksResponse<>(request, statusCode, headers, toURI(connection), awaitBody(bodySubscriber));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Feed the response body to the subscriber, as requested by it.
+     *
+     * @param inputStream    The response body, {@code null} if none
+     * @param bodySubscriber The subscriber
+     * @param isCancelled    Determine if the request has been cancelled meanwhile
+     * @param <T>            Type of the response body
+     * @throws IOException If something goes wrong during the process
+     */
+    private static <T> void publish(final InputStream inputStream,
+                                    final HttpResponse.BodySubscriber<T> bodySubscriber,
+                                    final BooleanSupplier isCancelled) throws IOException {
+
+        final Demand demand = new Demand();
+        bodySubscriber.onSubscribe(demand);
+
+        try {
+            if (inputStream != null) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int readCount;
+                while (demand.await() && (readCount = inputStream.read(buffer)) >= 0) {
+                    if (isCancelled.getAsBoolean()) {
+                        // A chunk read before the connection was closed is dropped
+                        throw new IOException("Request has been cancelled");
+                    }
+                    if (readCount > 0) {
+                        final ByteBuffer byteBuffer = ByteBuffer.allocate(readCount);
+                        byteBuffer.put(buffer, 0, readCount).flip();
+                        demand.consume();
+                        bodySubscriber.onNext(List.of(byteBuffer));
+                    }
+                }
+                inputStream.close();
+            }
+        } catch (final IOException ex) {
+            bodySubscriber.onError(ex);
+            throw ex;
+        }
+
+        if (!demand.isCancelled()) {
+            bodySubscriber.onComplete();
+        }
+    }
+
+    /**
+     * Wait for the subscriber to provide the response body.
+     *
+     * @param bodySubscriber The subscriber
+     * @param <T>            Type of the response body
+     * @return The response body
+     * @throws IOException If the body can't be provided
+     */
+    private static <T> T awaitBody(final HttpResponse.BodySubscriber<T> bodySubscriber) throws IOException {
+
+        try {
+            return bodySubscriber.getBody().toCompletableFuture().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Retrieve the URI of the response, which differs from the requested one after a redirection.
+     *
+     * @param connection The connection
+     * @return The URI
+     * @throws IOException If the URI is malformed
+     */
+    private static URI toURI(final HttpURLConnection connection) throws IOException {
+
+        try {
+            return connection.getURL().toURI();
+        } catch (final URISyntaxException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Demand of the body subscriber, chunks are only sent while it is positive.
+     */
+    private static final class Demand implements Flow.Subscription {
+
+        private long count;
+        private boolean isCancelled;
+
+        @Override
+        public synchronized void request(final long n) {
+
+            count = n <= 0 || count + n < 0 ? Long.MAX_VALUE : count + n;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+
+            isCancelled = true;
+            notifyAll();
+        }
+
+        /**
+         * Wait until the subscriber requests a chunk.
+         *
+         * @return {@code true} if a chunk is requested, otherwise, {@code false} if cancelled
+         * @throws InterruptedIOException If interrupted while waiting
+         */
+        private synchronized boolean await() throws InterruptedIOException {
+
+            try {
+                while (count == 0 && !isCancelled) {
+                    wait();
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(ex.getMessage());
+            }
+
+            return !isCancelled;
+        }
+
+        /**
+         * Account for a chunk sent to the subscriber.
+         */
+        private synchronized void consume() {
+
+            if (count != Long.MAX_VALUE) {
+                count -= 1;
+            }
+        }
+
+        /**
+         * Determine if the subscriber has cancelled the subscription.
+         *
+         * @return {@code true} if cancelled, otherwise, {@code false}
+         */
+        private synchronized boolean isCancelled() {
+
+            return isCancelled;
+        }
+    }
+
+    /**
+     * Response received through the SOCKS proxy.
+     *
+     * @param <T> Type of the response body
+     */
+    private static final class SocksResponse<T> implements HttpResponse<T> {
+
+        private final HttpRequest request;
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final URI uri;
+        private final T body;
+
+        /**
+         * Build a new instance.
+         *
+         * @param request    The request
+         * @param statusCode The status code
+         * @param headers    The response headers
+         * @param uri        The URI of the response
+         * @param body       The response body
+         */
+        private SocksResponse(final HttpRequest request,
+                              final int statusCode,
+                              final HttpHeaders headers,
+                              final URI uri,
+                              final T body) {
+
+            this.request = request;
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.uri = uri;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+
+            return statusCode;
+        }
+
+        @Override
+        public HttpRequest request() {
+
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+
+            return headers;
+        }
+
+        @Override
+        public T body() {
+
+            return body;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+
+            return uri;
+        }
+
+        @Override
+        public HttpClient.Version version() {
+
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
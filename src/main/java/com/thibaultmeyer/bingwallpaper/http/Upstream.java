@@ -0,0 +1,199 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A way to reach the Bing content: a base URL, reached directly or through a proxy.
+ * The latency of the latest requests is kept: its moving average ranks the upstreams,
+ * its percentiles decide when a slow request is hedged.
+ */
+public final class Upstream {
+
+    private static final int LATENCY_SAMPLE_COUNT = 32;
+    private static final double LATENCY_SMOOTHING = 0.3;
+    private static final long FAILURE_LATENCY = TimeUnit.SECONDS.toMillis(15);
+
+    /**
+     * Base URL (ie: https://cn.bing.com)
+     */
+    public final String baseUrl;
+
+    /**
+     * Proxy used to reach the base URL (ie: 10.0.0.2:3128), {@code null} if reached directly
+     */
+    public final String proxy;
+
+    private final String canonicalBaseUrl;
+    private final HttpEngine httpEngine;
+    private final long[] latencySampleList;
+
+    private int latencySampleCount;
+    private double averageLatency;
+
+    /**
+     * Build a new instance.
+     *
+     * @param baseUrl          Base URL (ie: https://cn.bing.com)
+     * @param proxy            Proxy used to reach the base URL, {@code null} if reached directly
+     * @param canonicalBaseUrl Base URL used to build the canonical URIs (ie: https://www.bing.com)
+     * @param httpEngine       HTTP engine sending requests through the proxy
+     */
+    Upstream(final String baseUrl, final String proxy, final String canonicalBaseUrl, final HttpEngine httpEngine) {
+
+        this.baseUrl = baseUrl;
+        this.proxy = proxy;
+        this.canonicalBaseUrl = canonicalBaseUrl;
+        this.httpEngine = httpEngine;
+        this.latencySampleList = new long[LATENCY_SAMPLE_COUNT];
+        this.latencySampleCount = 0;
+        this.averageLatency = 0;
+    }
+
+    /**
+     * Resolve a canonical URI against this upstream. A URI which does not start
+     * with the canonical base URL is returned as is.
+     *
+     * @param canonicalUri The canonical URI (ie: https://www.bing.com/th?id=OHR.Example_UHD.jpg)
+     * @return The URI on this upstream (ie: https://cn.bing.com/th?id=OHR.Example_UHD.jpg)
+     */
+    public URI resolve(final URI canonicalUri) {
+
+        final String canonicalUrl = canonicalUri.toString();
+        if (baseUrl.equals(canonicalBaseUrl) || !canonicalUrl.startsWith(canonicalBaseUrl)) {
+            return canonicalUri;
+        }
+
+        return URI.create(baseUrl + canonicalUrl.substring(canonicalBaseUrl.length()));
+    }
+
+    /**
+     * Create a new request builder for a canonical URI, with default headers and timeout.
+     *
+     * @param canonicalUri The canonical URI
+     * @return The request builder
+     */
+    public HttpRequest.Builder newRequest(final URI canonicalUri) {
+
+        return httpEngine.newRequest(resolve(canonicalUri));
+    }
+
+    /**
+     * Create a new request builder for a canonical URI, accepting a compressed (gzip) response.
+     *
+     * @param canonicalUri The canonical URI
+     * @return The request builder
+     */
+    public HttpRequest.Builder newCompressedRequest(final URI canonicalUri) {
+
+        return httpEngine.newCompressedRequest(resolve(canonicalUri));
+    }
+
+    /**
+     * Send a request asynchronously.
+     *
+     * @param request     Request to send
+     * @param bodyHandler Handler of the response body
+     * @param <T>         Type of the response body
+     * @return A future completed with the response
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request,
+                                                            final HttpResponse.BodyHandler<T> bodyHandler) {
+
+        return httpEngine.sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * Record the latency of a successful request.
+     *
+     * @param latencyNanos The latency (Nanoseconds)
+     */
+    public synchronized void recordLatency(final long latencyNanos) {
+
+        final long latency = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        latencySampleList[latencySampleCount % LATENCY_SAMPLE_COUNT] = latency;
+        latencySampleCount += 1;
+        updateAverageLatency(latency);
+    }
+
+    /**
+     * Record a failed request. The upstream is ranked as if the request
+     * had timed out, the latency percentiles are left untouched.
+     */
+    public synchronized void recordFailure() {
+
+        updateAverageLatency(FAILURE_LATENCY);
+    }
+
+    /**
+     * Record a request cancelled before its completion (ie: a hedged request has
+     * answered first). The upstream is ranked as if the request had completed
+     * at the time of its cancellation, the latency percentiles are left untouched.
+     *
+     * @param elapsedNanos Time elapsed until the cancellation (Nanoseconds)
+     */
+    public synchronized void recordCancellation(final long elapsedNanos) {
+
+        updateAverageLatency(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * Retrieve the moving average of the latency.
+     *
+     * @return The average latency (Milliseconds), {@code 0} if nothing has been measured yet
+     */
+    public synchronized long getAverageLatency() {
+
+        return Math.round(averageLatency);
+    }
+
+    /**
+     * Retrieve a percentile of the latest measured latencies.
+     *
+     * @param percentile  The percentile (ie: 95)
+     * @param sampleCount Minimum number of measured latencies
+     * @return The latency (Milliseconds), {@code -1} if not enough latencies have been measured
+     */
+    public synchronized long getLatencyPercentile(final int percentile, final int sampleCount) {
+
+        final int count = Math.min(latencySampleCount, LATENCY_SAMPLE_COUNT);
+        if (count < sampleCount || count == 0) {
+            return -1;
+        }
+
+        final long[] sortedSampleList = Arrays.copyOf(latencySampleList, count);
+        Arrays.sort(sortedSampleList);
+
+        return sortedSampleList[Math.min(count - 1, (int) Math.ceil(percentile / 100.0 * count) - 1)];
+    }
+
+    /**
+     * Update the moving average of the latency.
+     *
+     * @param latency The latest latency (Milliseconds)
+     */
+    private void updateAverageLatency(final long latency) {
+
+        averageLatency = averageLatency == 0
+            ? latency
+            : averageLatency + LATENCY_SMOOTHING * (latency - averageLatency);
+    }
+
+    /**
+     * Release the pooled connections.
+     */
+    void release() {
+
+        httpEngine.release();
+    }
+
+    @Override
+    public String toString() {
+
+        return proxy == null ? baseUrl : baseUrl + " via " + proxy;
+    }
+}
@@ -0,0 +1,288 @@
+package com.thibaultmeyer.bingwallpaper.http;
+
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+import com.thibaultmeyer.bingwallpaper.resilience.FailureKind;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Proxy;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Upstreams serving the Bing content: each base URL through each proxy (or directly).
+ * Upstreams are ranked by measured latency. A request is sent to the fastest one and,
+ * if it has not answered once a latency percentile has elapsed, it is also sent to the
+ * next fastest one (hedged request): the first answer wins, the other one is cancelled.
+ */
+public final class UpstreamPool {
+
+    private static final int HEDGE_MIN_SAMPLE_COUNT = 5;
+    private static final long HEDGE_DEFAULT_DELAY = TimeUnit.SECONDS.toMillis(2);
+    private static final long HEDGE_MIN_DELAY = 50;
+
+    private final List<Upstream> upstreamList;
+    private final int hedgePercentile;
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * Build a new instance.
+     *
+     * @param baseUrlList     Base URLs, the first one is used to build the canonical URIs
+     * @param proxyType       Proxy Type (ie: HTTP), {@code null} to not use proxy
+     * @param proxyList       Proxies (ie: 127.0.0.1:8080), ignored if proxy type is {@code null}
+     * @param userAgent       User agent sent with each request
+     * @param hedgePercentile Latency percentile after which a request is hedged, 0 to disable
+     * @param metricsRegistry Where hedged requests are recorded
+     */
+    public UpstreamPool(final List<String> baseUrlList,
+                        final Proxy.Type proxyType,
+                        final List<String> proxyList,
+                        final String userAgent,
+                        final int hedgePercentile,
+                        final MetricsRegistry metricsRegistry) {
+
+        final List<Upstream> upstreamList = new ArrayList<>();
+        final List<String> effectiveProxyList = proxyType == null ? Collections.singletonList(null) : proxyList;
+        for (final String proxy : effectiveProxyList) {
+            // Connections are pooled per proxy, whatever the base URL
+            final HttpEngine httpEngine = proxy == null
+                ? new HttpEngine(null, null, -1, userAgent)
+                : new HttpEngine(
+                    proxyType,
+                    proxy.substring(0, proxy.lastIndexOf(':')),
+                    Integer.parseInt(proxy.substring(proxy.lastIndexOf(':') + 1)),
+                    userAgent);
+            for (final String baseUrl : baseUrlList) {
+                upstreamList.add(new Upstream(baseUrl, proxy, baseUrlList.get(0), httpEngine));
+            }
+        }
+
+        this.upstreamList = Collections.unmodifiableList(upstreamList);
+        this.hedgePercentile = hedgePercentile;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Retrieve the upstreams, fastest first. Upstreams not measured yet come first,
+     * in the configured order.
+     *
+     * @return The ranked upstreams
+     */
+    public List<Upstream> rank() {
+
+        final List<Upstream> rankedList = new ArrayList<>(upstreamList);
+        rankedList.sort(Comparator.comparingLong(Upstream::getAverageLatency));
+
+        return rankedList;
+    }
+
+    /**
+     * Retrieve the fastest upstream.
+     *
+     * @return The fastest upstream
+     */
+    public Upstream getFastest() {
+
+        return rank().get(0);
+    }
+
+    /**
+     * Release the pooled connections of all upstreams.
+     */
+    public void release() {
+
+        for (final Upstream upstream : upstreamList) {
+            upstream.release();
+        }
+    }
+
+    /**
+     * Send a request to the fastest upstream, hedged to the next fastest one if slow to answer.
+     * Latency of each upstream is recorded. A transient failure (ie: 503) only wins if no
+     * other request is pending.
+     *
+     * @param requestFactory Creates the request to send to a given upstream
+     * @param bodyHandler    Handler of the response body
+     * @param <T>            Type of the response body
+     * @return The response
+     * @throws IOException If something goes wrong during the process
+     */
+    public <T> HttpResponse<T> send(final Function<Upstream, HttpRequest> requestFactory,
+                                    final HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+
+        final List<Upstream> rankedList = rank();
+        final HedgedExchange<T> hedgedExchange = new HedgedExchange<>(requestFactory, bodyHandler);
+        hedgedExchange.sendTo(rankedList.get(0));
+
+        try {
+            if (hedgePercentile > 0 && rankedList.size() > 1) {
+                try {
+                    return hedgedExchange.winner.get(computeHedgeDelay(rankedList.get(0)), TimeUnit.MILLISECONDS);
+                } catch (final TimeoutException ex) {
+                    if (hedgedExchange.sendTo(rankedList.get(1))) {
+                        final HttpResponse<T> response = hedgedExchange.winner.get();
+                        metricsRegistry.recordHedge(hedgedExchange.winnerIndex.get() == 1);
+                        return response;
+                    }
+                }
+            }
+
+            return hedgedExchange.winner.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (final ExecutionException ex) {
+            throw unwrap(ex);
+        } finally {
+            // Cancel the loser, its connection is aborted
+            hedgedExchange.cancel();
+        }
+    }
+
+    /**
+     * Compute the delay after which a request sent to the given upstream is hedged.
+     *
+     * @param upstream The upstream
+     * @return The delay (Milliseconds)
+     */
+    private long computeHedgeDelay(final Upstream upstream) {
+
+        final long latency = upstream.getLatencyPercentile(hedgePercentile, HEDGE_MIN_SAMPLE_COUNT);
+        return latency < 0 ? HEDGE_DEFAULT_DELAY : Math.max(HEDGE_MIN_DELAY, latency);
+    }
+
+    /**
+     * Retrieve the exception to throw from a failed request.
+     *
+     * @param ex The exception wrapping the failure
+     * @return The exception to throw
+     */
+    private static IOException unwrap(final ExecutionException ex) {
+
+        if (ex.getCause() instanceof IOException) {
+            return (IOException) ex.getCause();
+        }
+
+        return new IOException(ex.getCause());
+    }
+
+    /**
+     * Requests sent to one or more upstreams, of which only the first answer is used.
+     *
+     * @param <T> Type of the response body
+     */
+    private static final class HedgedExchange<T> {
+
+        private final Function<Upstream, HttpRequest> requestFactory;
+        private final HttpResponse.BodyHandler<T> bodyHandler;
+        private final CompletableFuture<HttpResponse<T>> winner;
+        private final AtomicInteger winnerIndex;
+        private final AtomicInteger pendingCount;
+        private final AtomicReference<HttpResponse<T>> fallbackResponse;
+        private final List<CompletableFuture<HttpResponse<T>>> futureList;
+
+        private volatile boolean isCancelled;
+
+        /**
+         * Build a new instance.
+         *
+         * @param requestFactory Creates the request to send to a given upstream
+         * @param bodyHandler    Handler of the response body
+         */
+        private HedgedExchange(final Function<Upstream, HttpRequest> requestFactory,
+                               final HttpResponse.BodyHandler<T> bodyHandler) {
+
+            this.requestFactory = requestFactory;
+            this.bodyHandler = bodyHandler;
+            this.winner = new CompletableFuture<>();
+            this.winnerIndex = new AtomicInteger(-1);
+            this.pendingCount = new AtomicInteger(0);
+            this.fallbackResponse = new AtomicReference<>();
+            this.futureList = new ArrayList<>();
+            this.isCancelled = false;
+        }
+
+        /**
+         * Send the request to an upstream.
+         *
+         * @param upstream The upstream
+         * @return {@code true} if the request has been sent, {@code false} if the exchange is already over
+         */
+        private synchronized boolean sendTo(final Upstream upstream) {
+
+            // Counted first, this way, a failure of a previous request can't end the exchange meanwhile
+            pendingCount.incrementAndGet();
+            if (winner.isDone()) {
+                return false;
+            }
+
+            final int index = futureList.size();
+            final long startTime = System.nanoTime();
+            final CompletableFuture<HttpResponse<T>> future = upstream.sendAsync(requestFactory.apply(upstream), bodyHandler);
+            futureList.add(future);
+            future.whenComplete((response, ex) -> {
+                if (ex != null && isCancelled) {
+                    // The loser was at least this slow
+                    upstream.recordCancellation(System.nanoTime() - startTime);
+                } else if (ex != null) {
+                    upstream.recordFailure();
+                    complete(index, null, ex);
+                } else if (FailureKind.fromStatusCode(response.statusCode()) == FailureKind.TRANSIENT) {
+                    upstream.recordFailure();
+                    complete(index, response, null);
+                } else {
+                    upstream.recordLatency(System.nanoTime() - startTime);
+                    winnerIndex.compareAndSet(-1, index);
+                    winner.complete(response);
+                }
+            });
+
+            return true;
+        }
+
+        /**
+         * Complete the exchange with a failed request, unless another request is still pending.
+         *
+         * @param index    Index of the request
+         * @param response The transient failure response, {@code null} in case of exception
+         * @param ex       The exception, {@code null} in case of transient failure response
+         */
+        private void complete(final int index, final HttpResponse<T> response, final Throwable ex) {
+
+            if (response != null) {
+                fallbackResponse.compareAndSet(null, response);
+            }
+            if (pendingCount.decrementAndGet() == 0) {
+                winnerIndex.compareAndSet(-1, index);
+                if (fallbackResponse.get() != null) {
+                    winner.complete(fallbackResponse.get());
+                } else {
+                    winner.completeExceptionally(ex);
+                }
+            }
+        }
+
+        /**
+         * Cancel the pending requests.
+         */
+        private synchronized void cancel() {
+
+            isCancelled = true;
+            for (final CompletableFuture<HttpResponse<T>> future : futureList) {
+                future.cancel(true);
+            }
+        }
+    }
+}
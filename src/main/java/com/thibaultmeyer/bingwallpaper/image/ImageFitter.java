@@ -0,0 +1,263 @@
+package com.thibaultmeyer.bingwallpaper.image;
+
+import com.thibaultmeyer.bingwallpaper.utils.FileUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Fits an image to an exact dimension. The image is decoded with subsampling and a
+ * region of interest, in horizontal bands scaled one after the other into the target,
+ * this way, the full resolution bitmap is never loaded in memory.
+ */
+public final class ImageFitter {
+
+    private static final float JPEG_QUALITY = 0.9f;
+    private static final int MAX_BAND_PIXELS = 4 * 1024 * 1024;
+
+    static {
+        // Avoid temporary files, images are small enough to be handled in memory
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Fit mode.
+     */
+    public enum FitMode {
+
+        /**
+         * Image is not processed.
+         */
+        NONE,
+
+        /**
+         * Image is cropped (centered) to the target aspect ratio, then scaled.
+         */
+        CROP,
+
+        /**
+         * Image is scaled to the target dimension, aspect ratio is not preserved.
+         */
+        SCALE;
+
+        /**
+         * Retrieve the fit mode from its name.
+         *
+         * @param name Name of the fit mode (ie: crop)
+         * @return The fit mode
+         */
+        public static FitMode fromName(final String name) {
+
+            return FitMode.valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * Fit an image to the given dimension.
+     *
+     * @param sourceFile   Image to fit (JPEG)
+     * @param targetFile   Location where the fitted image will be written
+     * @param targetWidth  Target width (Pixel)
+     * @param targetHeight Target height (Pixel)
+     * @param fitMode      Fit mode
+     * @return {@code true} if a fitted image has been written, {@code false} if source already fits
+     * @throws IOException If something goes wrong during the process
+     */
+    public static boolean fit(final Path sourceFile,
+                              final Path targetFile,
+                              final int targetWidth,
+                              final int targetHeight,
+                              final FitMode fitMode) throws IOException {
+
+        if (fitMode == FitMode.NONE || targetWidth <= 0 || targetHeight <= 0) {
+            return false;
+        }
+
+        final BufferedImage fittedImage;
+        final ImageInputStream imageInputStream = ImageIO.createImageInputStream(sourceFile.toFile());
+        try {
+            final Iterator<ImageReader> imageReaderIterator = ImageIO.getImageReaders(imageInputStream);
+            if (!imageReaderIterator.hasNext()) {
+                throw new IOException("Unsupported image format: " + sourceFile);
+            }
+
+            final ImageReader imageReader = imageReaderIterator.next();
+            try {
+                imageReader.setInput(imageInputStream, true, true);
+                final int sourceWidth = imageReader.getWidth(0);
+                final int sourceHeight = imageReader.getHeight(0);
+                if (sourceWidth == targetWidth && sourceHeight == targetHeight) {
+                    return false;
+                }
+
+                // Region of interest
+                final Rectangle region = fitMode == FitMode.CROP
+                    ? computeCropRegion(sourceWidth, sourceHeight, targetWidth, targetHeight)
+                    : new Rectangle(0, 0, sourceWidth, sourceHeight);
+
+                // Largest subsampling keeping at least the target dimension
+                final int subsampling = Math.max(1, Math.min(region.width / targetWidth, region.height / targetHeight));
+
+                fittedImage = decodeScaled(imageReader, region, subsampling, targetWidth, targetHeight);
+            } finally {
+                imageReader.dispose();
+            }
+        } finally {
+            imageInputStream.close();
+        }
+
+        writeJpeg(fittedImage, targetFile);
+        fittedImage.flush();
+
+        return true;
+    }
+
+    /**
+     * Compute the centered region having the target aspect ratio.
+     *
+     * @param sourceWidth  Source width (Pixel)
+     * @param sourceHeight Source height (Pixel)
+     * @param targetWidth  Target width (Pixel)
+     * @param targetHeight Target height (Pixel)
+     * @return The region
+     */
+    private static Rectangle computeCropRegion(final int sourceWidth,
+                                               final int sourceHeight,
+                                               final int targetWidth,
+                                               final int targetHeight) {
+
+        int regionWidth = sourceWidth;
+        int regionHeight = (int) ((long) sourceWidth * targetHeight / targetWidth);
+        if (regionHeight > sourceHeight) {
+            regionHeight = sourceHeight;
+            regionWidth = (int) ((long) sourceHeight * targetWidth / targetHeight);
+        }
+
+        return new Rectangle(
+            (sourceWidth - regionWidth) / 2,
+            (sourceHeight - regionHeight) / 2,
+            Math.max(1, regionWidth),
+            Math.max(1, regionHeight));
+    }
+
+    /**
+     * Decode a region of the image in horizontal bands, each one is scaled into its rows
+     * of the target before the next one is decoded. A band overlaps its neighbours by a
+     * row, this way, the interpolation does not show any seam. The JPEG decoder restarts
+     * from the top of the image for each band: the bands are as large as allowed.
+     *
+     * @param imageReader  Reader of the image
+     * @param region       Region of interest (Pixel, full resolution)
+     * @param subsampling  Subsampling applied to the region
+     * @param targetWidth  Target width (Pixel)
+     * @param targetHeight Target height (Pixel)
+     * @return The scaled image
+     * @throws IOException If something goes wrong during the process
+     */
+    private static BufferedImage decodeScaled(final ImageReader imageReader,
+                                              final Rectangle region,
+                                              final int subsampling,
+                                              final int targetWidth,
+                                              final int targetHeight) throws IOException {
+
+        // Dimension of the region once decoded
+        final int decodedWidth = (region.width + subsampling - 1) / subsampling;
+        final int decodedHeight = (region.height + subsampling - 1) / subsampling;
+        final double scaleX = (double) targetWidth / decodedWidth;
+        final double scaleY = (double) targetHeight / decodedHeight;
+
+        // Target rows per band, each band is decoded with a row of margin on both sides
+        final int maxBandHeight = Math.max(4, MAX_BAND_PIXELS / decodedWidth);
+        final int targetRowsPerBand = Math.max(1, (int) ((maxBandHeight - 3) * scaleY));
+
+        final BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaledImage.createGraphics();
+        BufferedImage bandImage = null;
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+            final ImageReadParam imageReadParam = imageReader.getDefaultReadParam();
+            imageReadParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            for (int targetStart = 0; targetStart < targetHeight; targetStart += targetRowsPerBand) {
+                final int targetEnd = Math.min(targetHeight, targetStart + targetRowsPerBand);
+
+                // Decoded rows sampled by the target rows of the band
+                final int bandStart = Math.max(0, (int) Math.floor((targetStart + 0.5) / scaleY - 0.5) - 1);
+                final int bandEnd = Math.min(decodedHeight, (int) Math.floor((targetEnd - 0.5) / scaleY - 0.5) + 3);
+                final int bandHeight = bandEnd - bandStart;
+
+                // The band buffer is reused, the last band can be shorter
+                if (bandImage == null || bandImage.getHeight() < bandHeight) {
+                    bandImage = imageReader.getImageTypes(0).next().createBufferedImage(decodedWidth, bandHeight);
+                }
+                imageReadParam.setDestination(bandImage);
+                imageReadParam.setSourceRegion(new Rectangle(
+                    region.x,
+                    region.y + bandStart * subsampling,
+                    region.width,
+                    Math.min(bandHeight * subsampling, region.height - bandStart * subsampling)));
+                imageReader.read(0, imageReadParam);
+
+                final AffineTransform transform = AffineTransform.getScaleInstance(scaleX, scaleY);
+                transform.translate(0, bandStart);
+                graphics.setClip(0, targetStart, targetWidth, targetEnd - targetStart);
+                graphics.drawImage(bandImage.getSubimage(0, 0, decodedWidth, bandHeight), transform, null);
+            }
+        } finally {
+            graphics.dispose();
+            if (bandImage != null) {
+                bandImage.flush();
+            }
+        }
+
+        return scaledImage;
+    }
+
+    /**
+     * Write an image as JPEG. The image is first written next to the target,
+     * then moved into place.
+     *
+     * @param image      Image to write
+     * @param targetFile Target location
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void writeJpeg(final BufferedImage image, final Path targetFile) throws IOException {
+
+        final Path absoluteTarget = targetFile.toAbsolutePath();
+        final Path temporaryFile = absoluteTarget.resolveSibling(absoluteTarget.getFileName() + ".tmp");
+
+        final ImageWriter imageWriter = ImageIO.getImageWritersByFormatName("jpeg").next();
+        final ImageWriteParam imageWriteParam = imageWriter.getDefaultWriteParam();
+        imageWriteParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        imageWriteParam.setCompressionQuality(JPEG_QUALITY);
+
+        Files.deleteIfExists(temporaryFile);
+        final ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(temporaryFile.toFile());
+        try {
+            imageWriter.setOutput(imageOutputStream);
+            imageWriter.write(null, new IIOImage(image, null, null), imageWriteParam);
+        } finally {
+            imageOutputStream.close();
+            imageWriter.dispose();
+        }
+
+        FileUtils.moveAtomically(temporaryFile, absoluteTarget);
+    }
+}
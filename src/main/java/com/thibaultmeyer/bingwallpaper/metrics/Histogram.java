@@ -0,0 +1,99 @@
+package com.thibaultmeyer.bingwallpaper.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram with fixed buckets, as exposed by Prometheus.
+ */
+public final class Histogram {
+
+    private final double[] upperBoundList;
+    private final AtomicLongArray bucketCountList;
+    private final LongAdder count;
+    private final DoubleAdder sum;
+
+    /**
+     * Build a new instance.
+     *
+     * @param upperBoundList Upper bound of each bucket, sorted in ascending order
+     */
+    public Histogram(final double[] upperBoundList) {
+
+        this.upperBoundList = upperBoundList.clone();
+        this.bucketCountList = new AtomicLongArray(upperBoundList.length + 1);
+        this.count = new LongAdder();
+        this.sum = new DoubleAdder();
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value The value
+     */
+    public void observe(final double value) {
+
+        int idx = 0;
+        while (idx < upperBoundList.length && value > upperBoundList[idx]) {
+            idx += 1;
+        }
+
+        bucketCountList.incrementAndGet(idx);
+        count.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Record a duration as seconds.
+     *
+     * @param durationNanos The duration (Nanoseconds)
+     */
+    public void observeNanos(final long durationNanos) {
+
+        observe(durationNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Retrieve the number of recorded values.
+     *
+     * @return The number of recorded values
+     */
+    public long getCount() {
+
+        return count.sum();
+    }
+
+    /**
+     * Retrieve the sum of recorded values.
+     *
+     * @return The sum of recorded values
+     */
+    public double getSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * Append the histogram in Prometheus text format. Bucket counts are cumulative.
+     *
+     * @param stringBuilder Where to append
+     * @param name          Name of the metric
+     * @param labels        Labels of the metric (ie: {@code changer="MacOsWallpaperChanger"}), can be empty
+     */
+    void appendPrometheusText(final StringBuilder stringBuilder, final String name, final String labels) {
+
+        final String labelPrefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulativeCount = 0;
+        for (int idx = 0; idx <= upperBoundList.length; idx += 1) {
+            cumulativeCount += bucketCountList.get(idx);
+            final String upperBound = idx < upperBoundList.length ? String.valueOf(upperBoundList[idx]) : "+Inf";
+            stringBuilder.append(name).append("_bucket{").append(labelPrefix)
+                .append("le=\"").append(upperBound).append("\"} ").append(cumulativeCount).append('\n');
+        }
+
+        final String labelBlock = labels.isEmpty() ? "" : "{" + labels + "}";
+        stringBuilder.append(name).append("_sum").append(labelBlock).append(' ').append(getSum()).append('\n');
+        stringBuilder.append(name).append("_count").append(labelBlock).append(' ').append(getCount()).append('\n');
+    }
+}
@@ -0,0 +1,82 @@
+package com.thibaultmeyer.bingwallpaper.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics in Prometheus text format on {@code http://127.0.0.1:<port>/metrics}.
+ * Only the loopback interface is used: metrics are scraped by a local agent.
+ */
+public final class MetricsEndpoint {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry metricsRegistry;
+    private final int port;
+
+    private HttpServer httpServer;
+
+    /**
+     * Build a new instance.
+     *
+     * @param metricsRegistry Metrics to serve
+     * @param port            Listen port
+     */
+    public MetricsEndpoint(final MetricsRegistry metricsRegistry, final int port) {
+
+        this.metricsRegistry = metricsRegistry;
+        this.port = port;
+    }
+
+    /**
+     * Start the endpoint.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    public void start() throws IOException {
+
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/metrics", this::handle);
+        httpServer.start();
+    }
+
+    /**
+     * Stop the endpoint.
+     */
+    public void stop() {
+
+        httpServer.stop(0);
+    }
+
+    /**
+     * Handle a scrape request.
+     *
+     * @param httpExchange The exchange
+     * @throws IOException If something goes wrong during the process
+     */
+    private void handle(final HttpExchange httpExchange) throws IOException {
+
+        try {
+            if (!httpExchange.getRequestMethod().equals("GET")) {
+                httpExchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            final byte[] body = metricsRegistry.getPrometheusText().getBytes(StandardCharsets.UTF_8);
+            httpExchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            httpExchange.sendResponseHeaders(200, body.length);
+
+            final OutputStream outputStream = httpExchange.getResponseBody();
+            outputStream.write(body);
+            outputStream.close();
+        } finally {
+            httpExchange.close();
+        }
+    }
+}
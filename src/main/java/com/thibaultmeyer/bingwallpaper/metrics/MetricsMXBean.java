@@ -0,0 +1,24 @@
+package com.thibaultmeyer.bingwallpaper.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Retrieve the current value of each metric. Histograms are
+     * reported by their count and their sum.
+     *
+     * @return The values, indexed by metric name and labels
+     */
+    Map<String, Double> getValues();
+
+    /**
+     * Retrieve the metrics in Prometheus text format.
+     *
+     * @return The metrics
+     */
+    String getPrometheusText();
+}
@@ -0,0 +1,291 @@
+package com.thibaultmeyer.bingwallpaper.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the wallpaper service: API and download latencies, bytes transferred,
+ * cache efficiency, wallpaper changers latency and failures by cause. Metrics can be
+ * read through JMX ({@link MetricsMXBean}) or in Prometheus text format.
+ */
+public final class MetricsRegistry implements MetricsMXBean {
+
+    public static final String CAUSE_NETWORK = "network";
+    public static final String CAUSE_TIMEOUT = "timeout";
+    public static final String CAUSE_HTTP_STATUS = "http_status";
+    public static final String CAUSE_PARSE = "parse";
+    public static final String CAUSE_CORRUPTED = "corrupted";
+    public static final String CAUSE_IMAGE = "image";
+    public static final String CAUSE_APPLY = "apply";
+    public static final String CAUSE_CIRCUIT_OPEN = "circuit_open";
+    public static final String CAUSE_RUN = "run";
+
+    private static final String OBJECT_NAME = "com.thibaultmeyer.bingwallpaper:type=Metrics";
+    private static final double[] LATENCY_BUCKETS = {0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+    private final ConcurrentMap<String, Family> familyMap;
+
+    /**
+     * Build a new instance.
+     */
+    public MetricsRegistry() {
+
+        this.familyMap = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Register this registry on the platform MBean server.
+     */
+    public void registerMBean() {
+
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            mBeanServer.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (final InstanceAlreadyExistsException ignore) {
+            // Already registered (ie: another service of the same process)
+        } catch (final JMException ex) {
+            System.err.println("Unable to register metrics MBean: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Record a call to the Bing API.
+     *
+     * @param durationNanos Duration of the call (Nanoseconds)
+     * @param bytes         Size of the response body (Bytes)
+     */
+    public void recordApiRequest(final long durationNanos, final long bytes) {
+
+        histogram("bingwallpaper_api_request_duration_seconds", "Duration of the Bing API calls", "")
+            .observeNanos(durationNanos);
+        counter("bingwallpaper_transferred_bytes_total", "Bytes received", "kind=\"api\"").add(bytes);
+    }
+
+    /**
+     * Record a download.
+     *
+     * @param timeToFirstByteNanos Time until response headers are received (Nanoseconds)
+     * @param durationNanos        Duration of the whole download (Nanoseconds)
+     * @param bytes                Number of bytes received (Bytes)
+     */
+    public void recordDownload(final long timeToFirstByteNanos, final long durationNanos, final long bytes) {
+
+        histogram("bingwallpaper_download_ttfb_seconds", "Time to first byte of the image downloads", "")
+            .observeNanos(timeToFirstByteNanos);
+        histogram("bingwallpaper_download_duration_seconds", "Duration of the image downloads", "")
+            .observeNanos(durationNanos);
+        counter("bingwallpaper_transferred_bytes_total", "Bytes received", "kind=\"image\"").add(bytes);
+
+        final long transferNanos = durationNanos - timeToFirstByteNanos;
+        if (transferNanos > 0 && bytes > 0) {
+            gauge("bingwallpaper_download_throughput_bytes_per_second", "Throughput of the latest image download", "")
+                .set((long) (bytes * 1_000_000_000.0 / transferNanos));
+        }
+    }
+
+    /**
+     * Record a wallpaper cache lookup.
+     *
+     * @param isHit {@code true} if the image was cached, otherwise, {@code false}
+     */
+    public void recordCacheLookup(final boolean isHit) {
+
+        if (isHit) {
+            counter("bingwallpaper_cache_hits_total", "Images retrieved from the cache", "").increment();
+        } else {
+            counter("bingwallpaper_cache_misses_total", "Images not found in the cache", "").increment();
+        }
+    }
+
+    /**
+     * Record a call to a wallpaper changer.
+     *
+     * @param changerName   Name of the wallpaper changer implementation
+     * @param durationNanos Duration of the call (Nanoseconds)
+     */
+    public void recordChangerApply(final String changerName, final long durationNanos) {
+
+        histogram(
+            "bingwallpaper_changer_apply_duration_seconds",
+            "Duration of the wallpaper changes",
+            "changer=\"" + changerName + "\"").observeNanos(durationNanos);
+    }
+
+    /**
+     * Record a retry.
+     *
+     * @param stage Stage of the cycle being retried (ie: download)
+     */
+    public void recordRetry(final String stage) {
+
+        counter("bingwallpaper_retries_total", "Retries by stage", "stage=\"" + stage + "\"").increment();
+    }
+
+    /**
+     * Record a hedged request: a request also sent to the next fastest upstream
+     * because the first one was slow to answer.
+     *
+     * @param isHedgeWinner {@code true} if the hedged request has answered first, otherwise, {@code false}
+     */
+    public void recordHedge(final boolean isHedgeWinner) {
+
+        counter(
+            "bingwallpaper_hedged_requests_total",
+            "Requests also sent to the next fastest upstream, by winner",
+            "winner=\"" + (isHedgeWinner ? "hedge" : "primary") + "\"").increment();
+    }
+
+    /**
+     * Record the state of the upstream circuit breaker.
+     *
+     * @param isOpen {@code true} if the circuit is open, otherwise, {@code false}
+     */
+    public void recordCircuitState(final boolean isOpen) {
+
+        gauge("bingwallpaper_circuit_open", "Whether upstream requests are rejected by the circuit breaker", "")
+            .set(isOpen ? 1 : 0);
+    }
+
+    /**
+     * Record a failure.
+     *
+     * @param cause Cause of the failure (ie: {@link #CAUSE_TIMEOUT})
+     */
+    public void recordFailure(final String cause) {
+
+        counter("bingwallpaper_failures_total", "Failures by cause", "cause=\"" + cause + "\"").increment();
+    }
+
+    @Override
+    public Map<String, Double> getValues() {
+
+        final Map<String, Double> valueMap = new TreeMap<>();
+        for (final Family family : familyMap.values()) {
+            for (final Map.Entry<String, Object> entry : family.metricMap.entrySet()) {
+                final String labelBlock = entry.getKey().isEmpty() ? "" : "{" + entry.getKey() + "}";
+                final Object metric = entry.getValue();
+                if (metric instanceof Histogram) {
+                    valueMap.put(family.name + "_count" + labelBlock, (double) ((Histogram) metric).getCount());
+                    valueMap.put(family.name + "_sum" + labelBlock, ((Histogram) metric).getSum());
+                } else if (metric instanceof LongAdder) {
+                    valueMap.put(family.name + labelBlock, ((LongAdder) metric).doubleValue());
+                } else {
+                    valueMap.put(family.name + labelBlock, ((AtomicLong) metric).doubleValue());
+                }
+            }
+        }
+
+        return valueMap;
+    }
+
+    @Override
+    public String getPrometheusText() {
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (final Family family : familyMap.values()) {
+            stringBuilder.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            stringBuilder.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+
+            for (final Map.Entry<String, Object> entry : family.metricMap.entrySet()) {
+                final Object metric = entry.getValue();
+                if (metric instanceof Histogram) {
+                    ((Histogram) metric).appendPrometheusText(stringBuilder, family.name, entry.getKey());
+                } else {
+                    final String labelBlock = entry.getKey().isEmpty() ? "" : "{" + entry.getKey() + "}";
+                    stringBuilder.append(family.name).append(labelBlock).append(' ').append(metric).append('\n');
+                }
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Retrieve (or create) a counter.
+     *
+     * @param name   Name of the metric
+     * @param help   Description of the metric
+     * @param labels Labels of the metric, can be empty
+     * @return The counter
+     */
+    private LongAdder counter(final String name, final String help, final String labels) {
+
+        return (LongAdder) retrieveFamily(name, help, "counter").metricMap.computeIfAbsent(labels, key -> new LongAdder());
+    }
+
+    /**
+     * Retrieve (or create) a gauge.
+     *
+     * @param name   Name of the metric
+     * @param help   Description of the metric
+     * @param labels Labels of the metric, can be empty
+     * @return The gauge
+     */
+    private AtomicLong gauge(final String name, final String help, final String labels) {
+
+        return (AtomicLong) retrieveFamily(name, help, "gauge").metricMap.computeIfAbsent(labels, key -> new AtomicLong());
+    }
+
+    /**
+     * Retrieve (or create) a latency histogram.
+     *
+     * @param name   Name of the metric
+     * @param help   Description of the metric
+     * @param labels Labels of the metric, can be empty
+     * @return The histogram
+     */
+    private Histogram histogram(final String name, final String help, final String labels) {
+
+        return (Histogram) retrieveFamily(name, help, "histogram").metricMap.computeIfAbsent(
+            labels,
+            key -> new Histogram(LATENCY_BUCKETS));
+    }
+
+    /**
+     * Retrieve (or create) a family of metrics.
+     *
+     * @param name Name of the metrics
+     * @param help Description of the metrics
+     * @param type Prometheus type of the metrics
+     * @return The family
+     */
+    private Family retrieveFamily(final String name, final String help, final String type) {
+
+        return familyMap.computeIfAbsent(name, key -> new Family(name, help, type));
+    }
+
+    /**
+     * Metrics sharing the same name, indexed by their labels.
+     */
+    private static final class Family {
+
+        private final String name;
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, Object> metricMap;
+
+        /**
+         * Build a new instance.
+         *
+         * @param name Name of the metrics
+         * @param help Description of the metrics
+         * @param type Prometheus type of the metrics
+         */
+        private Family(final String name, final String help, final String type) {
+
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.metricMap = new ConcurrentSkipListMap<>();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.thibaultmeyer.bingwallpaper.profile;
+
+import com.thibaultmeyer.bingwallpaper.Settings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Profile of a user session served by the multi-profile daemon.
+ */
+public final class Profile {
+
+    /**
+     * Name of the profile (ie: alice)
+     */
+    public final String name;
+
+    /**
+     * Settings of the profile
+     */
+    public final Settings settings;
+
+    /**
+     * User owning the session, {@code null} for the user running the daemon
+     */
+    public final String sessionUser;
+
+    /**
+     * Build a new instance.
+     *
+     * @param name        Name of the profile (ie: alice)
+     * @param settings    Settings of the profile
+     * @param sessionUser User owning the session, {@code null} for the user running the daemon
+     */
+    public Profile(final String name, final Settings settings, final String sessionUser) {
+
+        this.name = name;
+        this.settings = settings;
+        this.sessionUser = sessionUser;
+    }
+
+    /**
+     * Retrieve the key of the group of this profile. Profiles of a same group
+     * share the same wallpaper of the day: same market, same dimension and
+     * same upstreams (proxies and base URLs) and same sources.
+     *
+     * @return The group key
+     */
+    public String getGroupKey() {
+
+        final List<String> proxyList = new ArrayList<>();
+        if (settings.proxyType != null) {
+            proxyList.add(settings.proxyHost + ":" + settings.proxyPort);
+            proxyList.addAll(settings.proxyAlternateList);
+        }
+
+        final List<String> baseUrlList = new ArrayList<>();
+        baseUrlList.add(settings.bingBaseUrl);
+        baseUrlList.addAll(settings.bingAlternateUrlList);
+
+        return String.join(
+            "|",
+            settings.market == null ? "auto" : settings.market,
+            settings.dimensionWidth + "x" + settings.dimensionHeight,
+            proxyList.isEmpty() ? "direct" : settings.proxyType + " " + String.join(",", proxyList),
+            String.join(",", baseUrlList),
+            String.join(",", settings.sourceList),
+            settings.sourceDirectory,
+            settings.mirrorUrl == null ? "none" : settings.mirrorUrl);
+    }
+}
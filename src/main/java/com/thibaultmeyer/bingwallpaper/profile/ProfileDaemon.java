@@ -0,0 +1,390 @@
+package com.thibaultmeyer.bingwallpaper.profile;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaper;
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.control.ControlServer;
+import com.thibaultmeyer.bingwallpaper.scheduler.PublishAwareScheduler;
+import com.thibaultmeyer.bingwallpaper.utils.ApplicationDirectoryUtils;
+import com.thibaultmeyer.bingwallpaper.utils.MemoryUtils;
+import com.thibaultmeyer.bingwallpaper.utils.OperatingSystemUtils;
+import com.thibaultmeyer.bingwallpaper.utils.ProcessUtils;
+import com.thibaultmeyer.bingwallpaper.utils.SingleInstanceUtils;
+import com.thibaultmeyer.bingwallpaper.wallpaperchanger.LinuxGnomeWallpaperChanger;
+import com.thibaultmeyer.bingwallpaper.wallpaperchanger.WallpaperChanger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-profile daemon: a single process serving the wallpaper of several user sessions
+ * (ie: terminal servers). Each profile is a settings file located in the "profiles"
+ * directory of the application directory. Profiles are grouped by market, dimension
+ * and upstreams: the wallpaper of each group is retrieved once, by a single service,
+ * then fitted to the displays of each profile and applied to its session.
+ */
+public final class ProfileDaemon {
+
+    /**
+     * Name of the lock file of the multi-profile daemon. The daemon never collides
+     * with an instance started by a user session.
+     */
+    public static final String LOCK_FILE_NAME = "profiles.lock";
+
+    /**
+     * Name of the control socket of the multi-profile daemon.
+     */
+    public static final String CONTROL_SOCKET_FILE_NAME = "profiles.sock";
+
+    private static final String PROFILE_DIRECTORY_NAME = "profiles";
+    private static final String STATE_DIRECTORY_NAME = "state";
+    private static final String PROFILE_FILE_EXTENSION = ".properties";
+    private static final int GROUP_ID_LENGTH = 12;
+    private static final String CONTROL_COMMAND_REFRESH = "refresh";
+    private static final String CONTROL_COMMAND_STATUS = "status";
+    private static final long SUDO_CHECK_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Path profileDirectory;
+    private final Path stateDirectory;
+    private final List<ProfileGroup> profileGroupList;
+
+    /**
+     * Build a new instance.
+     *
+     * @param scheduledExecutorService Executor used to run the services
+     */
+    public ProfileDaemon(final ScheduledExecutorService scheduledExecutorService) {
+
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.profileDirectory = ApplicationDirectoryUtils.resolve(PROFILE_DIRECTORY_NAME);
+        this.stateDirectory = this.profileDirectory.resolve(STATE_DIRECTORY_NAME);
+        this.profileGroupList = new ArrayList<>();
+    }
+
+    /**
+     * Load profiles, then start a service per group of profiles and the control server.
+     *
+     * @return Number of loaded profiles
+     * @throws IOException If something goes wrong during the process
+     */
+    public int start() throws IOException {
+
+        Files.createDirectories(stateDirectory);
+
+        // Group profiles sharing the same wallpaper of the day
+        final Map<String, List<Profile>> profileListByGroupMap = new LinkedHashMap<>();
+        for (final Profile profile : loadProfiles()) {
+            profileListByGroupMap.computeIfAbsent(profile.getGroupKey(), key -> new ArrayList<>()).add(profile);
+        }
+
+        // Passwordless sudo is checked once per session user, not on each wallpaper change
+        final Map<String, Boolean> sudoAllowedByUserMap = new HashMap<>();
+
+        int profileCount = 0;
+        for (final Map.Entry<String, List<Profile>> entry : profileListByGroupMap.entrySet()) {
+            final String groupId = computeGroupId(entry.getKey());
+            final List<Profile> profileList = new ArrayList<>();
+            BingWallpaperService service = null;
+
+            for (final Profile profile : entry.getValue()) {
+                final WallpaperChanger wallpaperChanger;
+                try {
+                    wallpaperChanger = resolveWallpaperChanger(profile, sudoAllowedByUserMap);
+                } catch (final IllegalArgumentException ex) {
+                    System.err.printf("Profile %s is ignored: %s%n", profile.name, ex.getMessage());
+                    continue;
+                }
+
+                if (service == null) {
+                    // The first profile of the group drives the service
+                    service = new BingWallpaperService(
+                        profile.settings,
+                        wallpaperChanger,
+                        stateDirectory.resolve(groupId + ".api-validators.properties"));
+                } else {
+                    service.attachProfile(profile.name, profile.settings, wallpaperChanger);
+                }
+                profileList.add(profile);
+            }
+
+            if (service != null) {
+                final PublishAwareScheduler scheduler = new PublishAwareScheduler(
+                    scheduledExecutorService,
+                    service,
+                    TimeUnit.MINUTES.toMillis(profileList.get(0).settings.scheduleJitter),
+                    stateDirectory.resolve(groupId + ".schedule.properties"));
+                profileGroupList.add(new ProfileGroup(groupId, entry.getKey(), profileList, service, scheduler));
+                profileCount += profileList.size();
+                System.out.printf("Group %s (%s): %d profile(s)%n", groupId, entry.getKey(), profileList.size());
+            }
+        }
+
+        for (final ProfileGroup profileGroup : profileGroupList) {
+            profileGroup.scheduler.start();
+        }
+
+        final ControlServer controlServer = new ControlServer(
+            SingleInstanceUtils.getControlSocketFile(CONTROL_SOCKET_FILE_NAME),
+            this::handleControlCommand);
+        controlServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(controlServer::stop));
+
+        return profileCount;
+    }
+
+    /**
+     * Load all profiles. An invalid profile is reported, then ignored.
+     *
+     * @return The profiles, sorted by name
+     * @throws IOException If profile directory can't be read
+     */
+    private List<Profile> loadProfiles() throws IOException {
+
+        final Map<String, Path> profileFileMap = new TreeMap<>();
+        if (Files.isDirectory(profileDirectory)) {
+            final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(
+                profileDirectory,
+                "*" + PROFILE_FILE_EXTENSION);
+            for (final Path file : directoryStream) {
+                final String fileName = file.getFileName().toString();
+                profileFileMap.put(fileName.substring(0, fileName.length() - PROFILE_FILE_EXTENSION.length()), file);
+            }
+            directoryStream.close();
+        }
+
+        final List<Profile> profileList = new ArrayList<>();
+        for (final Map.Entry<String, Path> entry : profileFileMap.entrySet()) {
+            try {
+                profileList.add(loadProfile(entry.getKey(), entry.getValue()));
+            } catch (final IOException | RuntimeException ex) {
+                System.err.printf("Profile %s is ignored: %s%n", entry.getKey(), ex.getMessage());
+            }
+        }
+
+        return profileList;
+    }
+
+    /**
+     * Load a profile. The wallpaper of a profile is saved into the temporary folder and
+     * the images are cached per group, unless the profile says otherwise.
+     *
+     * @param name        Name of the profile
+     * @param profileFile Settings file of the profile
+     * @return The profile
+     * @throws IOException              If something goes wrong during the process
+     * @throws IllegalArgumentException If a setting is invalid
+     */
+    private static Profile loadProfile(final String name, final Path profileFile) throws IOException {
+
+        final Properties properties = new Properties();
+        final BufferedReader bufferedReader = Files.newBufferedReader(profileFile);
+        properties.load(bufferedReader);
+        bufferedReader.close();
+
+        final String sessionUser = properties.getProperty("sessionUser", "none").trim();
+        if (isOtherUser(sessionUser) && (isAuto(properties, "dimensionWidth") || isAuto(properties, "dimensionHeight"))) {
+            // Probing would return the displays of the daemon, not the ones of the session
+            throw new IllegalArgumentException("dimension can't be 'auto' for the session of another user");
+        }
+        if (isAuto(properties, "targetFileName")) {
+            final String temporaryFolder = System.getProperty("java.io.tmpdir");
+            properties.setProperty("targetFileName", temporaryFolder.endsWith(File.separator)
+                ? temporaryFolder + "bingwallpaper-" + name + ".jpg"
+                : temporaryFolder + File.separatorChar + "bingwallpaper-" + name + ".jpg");
+        }
+
+        Settings settings = BingWallpaper.loadSettings(properties, true);
+        if (isAuto(properties, "cacheDirectory")) {
+            // Caches can't be shared between groups
+            final String groupId = computeGroupId(new Profile(name, settings, null).getGroupKey());
+            properties.setProperty("cacheDirectory", ApplicationDirectoryUtils.resolve("cache").resolve(groupId).toString());
+            settings = BingWallpaper.loadSettings(properties, true);
+        }
+
+        return new Profile(
+            name,
+            settings,
+            sessionUser.isEmpty() || sessionUser.equalsIgnoreCase("none") ? null : sessionUser);
+    }
+
+    /**
+     * Check if the session of a profile belongs to another user than the one running the daemon.
+     *
+     * @param sessionUser Value of the "sessionUser" setting
+     * @return {@code true} if the session belongs to another user, otherwise, {@code false}
+     */
+    private static boolean isOtherUser(final String sessionUser) {
+
+        return !sessionUser.isEmpty()
+            && !sessionUser.equalsIgnoreCase("none")
+            && !sessionUser.equals(System.getProperty("user.name"));
+    }
+
+    /**
+     * Check if a setting is missing or set to "auto".
+     *
+     * @param properties The properties
+     * @param name       Name of the setting
+     * @return {@code true} if the setting is automatic, otherwise, {@code false}
+     */
+    private static boolean isAuto(final Properties properties, final String name) {
+
+        return properties.getProperty(name, "auto").trim().toUpperCase(Locale.ENGLISH).equals("AUTO");
+    }
+
+    /**
+     * Compute the identifier of a group, used to name its state files.
+     *
+     * @param groupKey The group key
+     * @return The group identifier
+     */
+    private static String computeGroupId(final String groupKey) {
+
+        return WallpaperCache.computeHash(groupKey.getBytes(StandardCharsets.UTF_8)).substring(0, GROUP_ID_LENGTH);
+    }
+
+    /**
+     * Resolve the Wallpaper Changer able to apply a wallpaper to the session of a profile.
+     *
+     * @param profile              The profile
+     * @param sudoAllowedByUserMap Result of the passwordless sudo check, by session user
+     * @return The Wallpaper Changer
+     * @throws IllegalArgumentException If no Wallpaper Changer can apply a wallpaper to this session
+     */
+    private static WallpaperChanger resolveWallpaperChanger(final Profile profile,
+                                                            final Map<String, Boolean> sudoAllowedByUserMap) {
+
+        if (profile.sessionUser == null || profile.sessionUser.equals(System.getProperty("user.name"))) {
+            final WallpaperChanger wallpaperChanger = BingWallpaperService.getDefaultWallpaperChanger();
+            if (wallpaperChanger == null) {
+                throw new IllegalArgumentException("can't apply a wallpaper on this operating system");
+            }
+
+            return wallpaperChanger;
+        } else if (OperatingSystemUtils.IS_UNIX) {
+            if (!sudoAllowedByUserMap.computeIfAbsent(profile.sessionUser, ProfileDaemon::isPasswordlessSudoAllowed)) {
+                throw new IllegalArgumentException(
+                    "passwordless sudo to user " + profile.sessionUser + " is not allowed ('sudo -n -u "
+                        + profile.sessionUser + " true' has failed), please check sudoers");
+            }
+
+            return new LinuxGnomeWallpaperChanger(profile.sessionUser);
+        }
+
+        throw new IllegalArgumentException("applying a wallpaper to the session of another user requires Linux (GNOME)");
+    }
+
+    /**
+     * Check if commands can be run as the given user with sudo, without password.
+     *
+     * @param sessionUser Name of the user
+     * @return {@code true} if allowed, otherwise, {@code false}
+     */
+    private static boolean isPasswordlessSudoAllowed(final String sessionUser) {
+
+        try {
+            return ProcessUtils.execute(List.of("sudo", "-n", "-u", sessionUser, "true"), null, SUDO_CHECK_TIMEOUT)
+                .get()
+                .exitCode == 0;
+        } catch (final IOException | ExecutionException ex) {
+            return false;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Handle a command received on the control socket.
+     *
+     * @param command The command (ie: refresh)
+     * @return The response
+     */
+    private String handleControlCommand(final String command) {
+
+        switch (command) {
+            case CONTROL_COMMAND_REFRESH:
+                for (final ProfileGroup profileGroup : profileGroupList) {
+                    profileGroup.scheduler.triggerNow();
+                }
+                return "Refresh scheduled";
+            case CONTROL_COMMAND_STATUS:
+                final StringBuilder stringBuilder = new StringBuilder();
+                for (final ProfileGroup profileGroup : profileGroupList) {
+                    final List<String> profileNameList = new ArrayList<>();
+                    for (final Profile profile : profileGroup.profileList) {
+                        profileNameList.add(profile.sessionUser == null ? profile.name : profile.name + " (" + profile.sessionUser + ")");
+                    }
+
+                    stringBuilder.append(String.format(
+                        "Group %s: %s%n  Profiles        : %s%n  Latest wallpaper: %s%n  Next check      : %s%n  Upstream        : %s%n",
+                        profileGroup.id,
+                        profileGroup.key,
+                        String.join(", ", profileNameList),
+                        profileGroup.service.getLatestWallpaperUrl() == null ? "none" : profileGroup.service.getLatestWallpaperUrl(),
+                        new Date(profileGroup.scheduler.getNextCheckTime()),
+                        profileGroup.service.getCircuitBreaker().getState()));
+                }
+
+                return stringBuilder.append(String.format(
+                    "Heap / RSS      : %s / %s",
+                    MemoryUtils.format(MemoryUtils.getUsedHeap()),
+                    MemoryUtils.format(MemoryUtils.getResidentMemory()))).toString();
+            default:
+                return "Unsupported command in multi-profile mode: " + command;
+        }
+    }
+
+    /**
+     * Profiles sharing the same wallpaper of the day.
+     */
+    private static final class ProfileGroup {
+
+        private final String id;
+        private final String key;
+        private final List<Profile> profileList;
+        private final BingWallpaperService service;
+        private final PublishAwareScheduler scheduler;
+
+        /**
+         * Build a new instance.
+         *
+         * @param id          Identifier of the group
+         * @param key         Key of the group (market, dimension and upstreams)
+         * @param profileList Profiles of the group
+         * @param service     Service retrieving and applying the wallpaper of the group
+         * @param scheduler   Scheduler running the service
+         */
+        private ProfileGroup(final String id,
+                             final String key,
+                             final List<Profile> profileList,
+                             final BingWallpaperService service,
+                             final PublishAwareScheduler scheduler) {
+
+            this.id = id;
+            this.key = key;
+            this.profileList = profileList;
+            this.service = service;
+            this.scheduler = scheduler;
+        }
+    }
+}
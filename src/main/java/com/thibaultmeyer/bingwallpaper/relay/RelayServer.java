@@ -0,0 +1,666 @@
+package com.thibaultmeyer.bingwallpaper.relay;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.utils.FileUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Caching relay server. Each distinct API query (market, resolution, ...) and each
+ * image is fetched only once from Bing through {@code BingWallpaperService}, then
+ * served from memory or from local disk to all clients. Clients only have to use
+ * the relay URL as "bingBaseUrl". Only the parameters sent by Bing clients are
+ * accepted, and the number of entries kept is bounded: a client can't make the
+ * relay fetch and keep arbitrary content. Images are streamed from local disk in
+ * small chunks. Each exchange holds a worker thread until its response has been
+ * written (no virtual threads on Java 17): a client too slow to send its request or
+ * to read the response is disconnected, this way, its worker is released.
+ */
+public final class RelayServer {
+
+    private static final long ARCHIVE_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+    private static final long CLIENT_TIMEOUT = TimeUnit.MINUTES.toSeconds(1);
+    private static final int WRITE_CHUNK_SIZE = 16 * 1024;
+    private static final int ARCHIVE_MAX_ENTRIES = 256;
+    private static final int IMAGE_MAX_ENTRIES = 1024;
+    private static final Set<String> ARCHIVE_PARAMETER_SET = Set.of("format", "idx", "n", "mkt", "uhd", "uhdwidth", "uhdheight");
+    private static final Set<String> IMAGE_PARAMETER_SET = Set.of("id", "rf", "pid", "w", "h", "rs", "c", "qlt", "dpr", "p");
+    private static final Pattern ARCHIVE_VALUE_PATTERN = Pattern.compile("[0-9]{1,5}|js|xml|[A-Za-z]{2}-[A-Za-z]{2}");
+    private static final Pattern IMAGE_VALUE_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+    private static final Pattern IMAGE_PATH_PATTERN = Pattern.compile("/th|/az/hprichbg/rb/[A-Za-z0-9._-]{1,128}\\.jpg");
+    private static final int SOCKET_BACKLOG = 1024;
+
+    private final Settings settings;
+    private final BingWallpaperService service;
+    private final Path archiveDirectory;
+    private final Map<String, CompletableFuture<RelayEntry>> archiveEntryMap;
+    private final Map<String, CompletableFuture<RelayEntry>> imageEntryMap;
+
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+
+    static {
+        // Read once by the JDK when the first HTTP server is created, a user defined value is kept. The
+        // time spent waiting for a worker counts for the request: both deadlines are the same
+        if (System.getProperty("sun.net.httpserver.maxReqTime") == null) {
+            System.setProperty("sun.net.httpserver.maxReqTime", String.valueOf(CLIENT_TIMEOUT));
+        }
+        if (System.getProperty("sun.net.httpserver.maxRspTime") == null) {
+            System.setProperty("sun.net.httpserver.maxRspTime", String.valueOf(CLIENT_TIMEOUT));
+        }
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param settings Current settings
+     * @param service  Service used to fetch content from Bing
+     */
+    public RelayServer(final Settings settings, final BingWallpaperService service) {
+
+        this.settings = settings;
+        this.service = service;
+        this.archiveDirectory = Paths.get(settings.cacheDirectory, "relay");
+        this.archiveEntryMap = createEntryMap(ARCHIVE_MAX_ENTRIES);
+        this.imageEntryMap = createEntryMap(IMAGE_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a map of entries, the least recently used entry is discarded once full.
+     * Clients waiting for a discarded entry still get it.
+     *
+     * @param maxEntries Maximum number of entries
+     * @return The map of entries
+     */
+    private static Map<String, CompletableFuture<RelayEntry>> createEntryMap(final int maxEntries) {
+
+        return Collections.synchronizedMap(new LinkedHashMap<String, CompletableFuture<RelayEntry>>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CompletableFuture<RelayEntry>> eldest) {
+
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Start the relay server.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    public void start() throws IOException {
+
+        Files.createDirectories(archiveDirectory);
+
+        executorService = Executors.newFixedThreadPool(settings.relayThreads);
+        httpServer = HttpServer.create(new InetSocketAddress(settings.relayAddress, settings.relayPort), SOCKET_BACKLOG);
+        httpServer.createContext("/HPImageArchive.aspx", this::handleArchive);
+        httpServer.createContext("/th", this::handleImage);
+        httpServer.createContext("/az/", this::handleImage);
+        httpServer.setExecutor(executorService);
+        httpServer.start();
+    }
+
+    /**
+     * Stop the relay server.
+     */
+    public void stop() {
+
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Handle a request to the Bing API.
+     *
+     * @param httpExchange The HTTP exchange
+     * @throws IOException If something goes wrong during the process
+     */
+    private void handleArchive(final HttpExchange httpExchange) throws IOException {
+
+        try {
+            final String query = normalizeQuery(
+                httpExchange.getRequestURI().getRawQuery(),
+                ARCHIVE_PARAMETER_SET,
+                ARCHIVE_VALUE_PATTERN);
+            if (query == null) {
+                sendEmptyResponse(httpExchange, 400);
+                return;
+            }
+            final RelayEntry relayEntry = resolve(archiveEntryMap, query, () -> fetchArchive(query));
+
+            if (relayEntry == null) {
+                sendEmptyResponse(httpExchange, 502);
+            } else {
+                sendEntry(
+                    httpExchange,
+                    relayEntry,
+                    relayEntry.content.length,
+                    "application/json; charset=utf-8",
+                    (outputStream, position, length) -> writeChunked(outputStream, relayEntry.content, (int) position, (int) length));
+            }
+        } catch (final Exception ex) {
+            System.err.println("Relay can't serve the archive: " + ex.getMessage());
+            sendEmptyResponse(httpExchange, 502);
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    /**
+     * Handle a request to an image.
+     *
+     * @param httpExchange The HTTP exchange
+     * @throws IOException If something goes wrong during the process
+     */
+    private void handleImage(final HttpExchange httpExchange) throws IOException {
+
+        try {
+            final String path = httpExchange.getRequestURI().getRawPath();
+            final String query = normalizeQuery(
+                httpExchange.getRequestURI().getRawQuery(),
+                IMAGE_PARAMETER_SET,
+                IMAGE_VALUE_PATTERN);
+            if (!IMAGE_PATH_PATTERN.matcher(path).matches() || query == null || query.isEmpty() != path.startsWith("/az/")) {
+                sendEmptyResponse(httpExchange, 400);
+                return;
+            }
+            final String pathAndQuery = query.isEmpty() ? path : path + "?" + query;
+            final RelayEntry relayEntry = resolve(imageEntryMap, pathAndQuery, () -> fetchImage(pathAndQuery));
+
+            if (relayEntry == null) {
+                sendEmptyResponse(httpExchange, 502);
+            } else {
+                final FileChannel fileChannel = FileChannel.open(relayEntry.file, StandardOpenOption.READ);
+                try {
+                    sendEntry(
+                        httpExchange,
+                        relayEntry,
+                        fileChannel.size(),
+                        "image/jpeg",
+                        (outputStream, position, length) -> writeChunked(outputStream, fileChannel, position, length));
+                } finally {
+                    fileChannel.close();
+                }
+            }
+        } catch (final Exception ex) {
+            System.err.println("Relay can't serve the image: " + ex.getMessage());
+            sendEmptyResponse(httpExchange, 502);
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    /**
+     * Resolve an entry. Concurrent requests for the same key share the same fetch.
+     * If an expired entry can't be refreshed, it will still be served.
+     *
+     * @param entryMap Entries by key
+     * @param key      Key of the entry
+     * @param loader   Loader used to fetch the entry
+     * @return The entry, otherwise, {@code null}
+     */
+    private RelayEntry resolve(final Map<String, CompletableFuture<RelayEntry>> entryMap,
+                               final String key,
+                               final RelayEntryLoader loader) {
+
+        while (true) {
+            final CompletableFuture<RelayEntry> current = entryMap.get(key);
+            if (current != null && !isExpired(current)) {
+                return current.join();
+            }
+
+            final CompletableFuture<RelayEntry> next = new CompletableFuture<>();
+            final boolean isOwner = current == null
+                ? entryMap.putIfAbsent(key, next) == null
+                : entryMap.replace(key, current, next);
+            if (!isOwner) {
+                continue;
+            }
+
+            try {
+                final RelayEntry relayEntry = loader.load();
+                if (relayEntry != null) {
+                    next.complete(relayEntry);
+                    return relayEntry;
+                }
+            } catch (final Exception ex) {
+                System.err.println("Relay can't fetch " + key + ": " + ex.getMessage());
+            }
+
+            // Fetch failed: keep serving the previous entry if any
+            final RelayEntry previous = current != null && !current.isCompletedExceptionally() ? current.join() : null;
+            next.complete(previous);
+            if (previous == null) {
+                entryMap.remove(key, next);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Check if the given entry must be refreshed.
+     *
+     * @param entryFuture The entry future
+     * @return {@code true} if entry is expired, otherwise, {@code false}
+     */
+    private static boolean isExpired(final CompletableFuture<RelayEntry> entryFuture) {
+
+        if (!entryFuture.isDone()) {
+            return false;
+        }
+
+        final RelayEntry relayEntry = entryFuture.getNow(null);
+        return relayEntry == null || relayEntry.expiresAt < System.currentTimeMillis();
+    }
+
+    /**
+     * Fetch the response of the Bing API, from local disk if still fresh, otherwise, from Bing.
+     *
+     * @param query Normalized query
+     * @return The entry, otherwise, {@code null}
+     * @throws IOException If something goes wrong during the process
+     */
+    private RelayEntry fetchArchive(final String query) throws IOException {
+
+        final Path archiveFile = archiveDirectory.resolve(
+            WallpaperCache.computeHash(query.getBytes(StandardCharsets.UTF_8)) + ".json");
+
+        if (Files.exists(archiveFile)) {
+            final long lastModified = Files.getLastModifiedTime(archiveFile).toMillis();
+            if (lastModified + ARCHIVE_TIME_TO_LIVE > System.currentTimeMillis()) {
+                final byte[] content = Files.readAllBytes(archiveFile);
+                return new RelayEntry(
+                    content,
+                    null,
+                    WallpaperCache.computeHash(content),
+                    lastModified,
+                    lastModified + ARCHIVE_TIME_TO_LIVE);
+            }
+        }
+
+        final byte[] content = service.retrieveArchive(query);
+        if (content == null) {
+            return null;
+        }
+        deleteExpiredArchives();
+
+        final Path temporaryFile = archiveFile.resolveSibling(archiveFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, content);
+        FileUtils.moveAtomically(temporaryFile, archiveFile);
+
+        final long now = System.currentTimeMillis();
+        return new RelayEntry(content, null, WallpaperCache.computeHash(content), now, now + ARCHIVE_TIME_TO_LIVE);
+    }
+
+    /**
+     * Delete the responses of the Bing API stored on local disk which are no longer fresh.
+     *
+     * @throws IOException If something goes wrong during the process
+     */
+    private void deleteExpiredArchives() throws IOException {
+
+        final long expiredBefore = System.currentTimeMillis() - ARCHIVE_TIME_TO_LIVE;
+        final Stream<Path> fileStream = Files.list(archiveDirectory);
+        try {
+            for (final Path file : (Iterable<Path>) fileStream::iterator) {
+                if (Files.getLastModifiedTime(file).toMillis() < expiredBefore) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } finally {
+            fileStream.close();
+        }
+    }
+
+    /**
+     * Fetch an image into the cache.
+     *
+     * @param pathAndQuery Path and query of the image
+     * @return The entry, otherwise, {@code null}
+     * @throws IOException If something goes wrong during the process
+     */
+    private RelayEntry fetchImage(final String pathAndQuery) throws IOException {
+
+        final Path cachedFile = service.retrieveImage(pathAndQuery);
+        if (cachedFile == null) {
+            return null;
+        }
+
+        // Cached images are content-addressed: file name is the hash. The entry
+        // expires to check again that the file has not been evicted from the cache
+        final String fileName = cachedFile.getFileName().toString();
+        final String hash = fileName.substring(0, fileName.lastIndexOf('.'));
+        final long now = System.currentTimeMillis();
+
+        return new RelayEntry(null, cachedFile, hash, now, now + ARCHIVE_TIME_TO_LIVE);
+    }
+
+    /**
+     * Send an entry, handling conditional and range requests.
+     *
+     * @param httpExchange  The HTTP exchange
+     * @param relayEntry    The entry
+     * @param contentLength Length of the content
+     * @param contentType   Content type
+     * @param contentWriter Writer of the content
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void sendEntry(final HttpExchange httpExchange,
+                                  final RelayEntry relayEntry,
+                                  final long contentLength,
+                                  final String contentType,
+                                  final ContentWriter contentWriter) throws IOException {
+
+        final Headers requestHeaders = httpExchange.getRequestHeaders();
+        final Headers responseHeaders = httpExchange.getResponseHeaders();
+        final String entityTag = "\"" + relayEntry.hash + "\"";
+        final String lastModified = formatHttpDate(relayEntry.lastModified);
+
+        responseHeaders.set("ETag", entityTag);
+        responseHeaders.set("Last-Modified", lastModified);
+        responseHeaders.set("Accept-Ranges", "bytes");
+        responseHeaders.set("Content-Type", contentType);
+
+        // Conditional request
+        final String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (ifNoneMatch.equals("*") || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(entityTag)) {
+                sendEmptyResponse(httpExchange, 304);
+                return;
+            }
+        } else if (isNotModifiedSince(requestHeaders.getFirst("If-Modified-Since"), relayEntry.lastModified)) {
+            sendEmptyResponse(httpExchange, 304);
+            return;
+        }
+
+        // Range request
+        final String range = requestHeaders.getFirst("Range");
+        final String ifRange = requestHeaders.getFirst("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(entityTag) || ifRange.equals(lastModified))) {
+            final long[] byteRange = parseRange(range, contentLength);
+            if (byteRange == null) {
+                responseHeaders.set("Content-Range", "bytes */" + contentLength);
+                sendEmptyResponse(httpExchange, 416);
+                return;
+            }
+
+            final long length = byteRange[1] - byteRange[0] + 1;
+            responseHeaders.set(
+                "Content-Range",
+                "bytes " + byteRange[0] + "-" + byteRange[1] + "/" + contentLength);
+            httpExchange.sendResponseHeaders(206, length);
+            final OutputStream outputStream = httpExchange.getResponseBody();
+            contentWriter.write(outputStream, byteRange[0], length);
+            outputStream.close();
+            return;
+        }
+
+        httpExchange.sendResponseHeaders(200, contentLength);
+        final OutputStream outputStream = httpExchange.getResponseBody();
+        contentWriter.write(outputStream, 0, contentLength);
+        outputStream.close();
+    }
+
+    /**
+     * Write content kept in memory in small chunks: the JDK keeps, for each connection,
+     * a buffer as large as the largest chunk written.
+     *
+     * @param outputStream Where to write the content
+     * @param content      The content
+     * @param position     Position of the first byte to write
+     * @param length       Number of bytes to write
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void writeChunked(final OutputStream outputStream,
+                                     final byte[] content,
+                                     final int position,
+                                     final int length) throws IOException {
+
+        for (int offset = position; offset < position + length; offset += WRITE_CHUNK_SIZE) {
+            outputStream.write(content, offset, Math.min(WRITE_CHUNK_SIZE, position + length - offset));
+        }
+    }
+
+    /**
+     * Write content stored on local disk in small chunks, the content is never fully loaded in memory.
+     *
+     * @param outputStream Where to write the content
+     * @param fileChannel  The content
+     * @param position     Position of the first byte to write
+     * @param length       Number of bytes to write
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void writeChunked(final OutputStream outputStream,
+                                     final FileChannel fileChannel,
+                                     final long position,
+                                     final long length) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocate(WRITE_CHUNK_SIZE);
+        long offset = position;
+        while (offset < position + length) {
+            buffer.clear().limit((int) Math.min(WRITE_CHUNK_SIZE, position + length - offset));
+            final int readCount = fileChannel.read(buffer, offset);
+            if (readCount < 0) {
+                throw new EOFException("Cached image has been truncated");
+            }
+            outputStream.write(buffer.array(), 0, readCount);
+            offset += readCount;
+        }
+    }
+
+    /**
+     * Send a response without body.
+     *
+     * @param httpExchange The HTTP exchange
+     * @param statusCode   Status code
+     * @throws IOException If something goes wrong during the process
+     */
+    private static void sendEmptyResponse(final HttpExchange httpExchange, final int statusCode) throws IOException {
+
+        httpExchange.sendResponseHeaders(statusCode, -1);
+    }
+
+    /**
+     * Parse a single byte range (ie: bytes=500-999, bytes=500-, bytes=-500).
+     *
+     * @param range         Value of the "Range" request header
+     * @param contentLength Length of the content
+     * @return First and last byte positions, otherwise, {@code null} if range is not satisfiable
+     */
+    private static long[] parseRange(final String range, final long contentLength) {
+
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+
+        try {
+            final String[] rangeExploded = range.substring(6).trim().split("-", -1);
+            final long first;
+            final long last;
+            if (rangeExploded[0].isEmpty()) {
+                first = Math.max(0, contentLength - Long.parseLong(rangeExploded[1]));
+                last = contentLength - 1;
+            } else {
+                first = Long.parseLong(rangeExploded[0]);
+                last = rangeExploded[1].isEmpty()
+                    ? contentLength - 1
+                    : Math.min(contentLength - 1, Long.parseLong(rangeExploded[1]));
+            }
+
+            return first <= last && first < contentLength ? new long[]{first, last} : null;
+        } catch (final NumberFormatException | ArrayIndexOutOfBoundsException ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * Check the "If-Modified-Since" request header.
+     *
+     * @param ifModifiedSince Value of the "If-Modified-Since" request header
+     * @param lastModified    Last modification time of the content (Milliseconds)
+     * @return {@code true} if content has not been modified, otherwise, {@code false}
+     */
+    private static boolean isNotModifiedSince(final String ifModifiedSince, final long lastModified) {
+
+        if (ifModifiedSince == null) {
+            return false;
+        }
+
+        try {
+            final long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                .toInstant()
+                .toEpochMilli();
+            return lastModified / 1000 <= since / 1000;
+        } catch (final DateTimeParseException ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * Format a date to be used in HTTP headers.
+     *
+     * @param epochMilli Date (Milliseconds)
+     * @return The formatted date
+     */
+    private static String formatHttpDate(final long epochMilli) {
+
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(epochMilli).atZone(ZoneOffset.UTC));
+    }
+
+    /**
+     * Normalize the query to use it as key: parameters are sorted and the cache-buster is removed.
+     * The query is rejected if a parameter is unknown, duplicated or has an unexpected value.
+     *
+     * @param rawQuery          Raw query
+     * @param allowedNameSet    Names of the accepted parameters
+     * @param allowedValueRegex Accepted values
+     * @return The normalized query, otherwise, {@code null} if rejected
+     */
+    private static String normalizeQuery(final String rawQuery,
+                                         final Set<String> allowedNameSet,
+                                         final Pattern allowedValueRegex) {
+
+        if (rawQuery == null) {
+            return "";
+        }
+
+        final Map<String, String> parameterMap = new TreeMap<>();
+        for (final String parameter : rawQuery.split("&")) {
+            final String[] parameterExploded = parameter.split("=", 2);
+            if (parameter.isEmpty() || parameterExploded[0].equals("nc")) {
+                continue;
+            }
+            if (parameterExploded.length != 2
+                || !allowedNameSet.contains(parameterExploded[0])
+                || !allowedValueRegex.matcher(parameterExploded[1]).matches()
+                || parameterMap.put(parameterExploded[0], parameterExploded[1]) != null) {
+                return null;
+            }
+        }
+
+        return parameterMap.entrySet()
+            .stream()
+            .map(entry -> entry.getKey() + "=" + entry.getValue())
+            .collect(Collectors.joining("&"));
+    }
+
+    /**
+     * Loader of an entry.
+     */
+    private interface RelayEntryLoader {
+
+        /**
+         * Load the entry.
+         *
+         * @return The entry, otherwise, {@code null}
+         * @throws IOException If something goes wrong during the process
+         */
+        RelayEntry load() throws IOException;
+    }
+
+    /**
+     * Writer of the content of an entry.
+     */
+    private interface ContentWriter {
+
+        /**
+         * Write a range of the content.
+         *
+         * @param outputStream Where to write the content
+         * @param position     Position of the first byte to write
+         * @param length       Number of bytes to write
+         * @throws IOException If something goes wrong during the process
+         */
+        void write(final OutputStream outputStream, final long position, final long length) throws IOException;
+    }
+
+    /**
+     * Content served by the relay.
+     */
+    private static final class RelayEntry {
+
+        private final byte[] content;
+        private final Path file;
+        private final String hash;
+        private final long lastModified;
+        private final long expiresAt;
+
+        /**
+         * Build a new instance.
+         *
+         * @param content      Content kept in memory, {@code null} if content is on local disk
+         * @param file         Content location on local disk, {@code null} if content is in memory
+         * @param hash         SHA-256 hash of the content
+         * @param lastModified Last modification time (Milliseconds)
+         * @param expiresAt    Expiration time (Milliseconds)
+         */
+        private RelayEntry(final byte[] content,
+                           final Path file,
+                           final String hash,
+                           final long lastModified,
+                           final long expiresAt) {
+
+            this.content = content;
+            this.file = file;
+            this.hash = hash;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
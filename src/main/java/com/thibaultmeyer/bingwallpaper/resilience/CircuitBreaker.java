@@ -0,0 +1,142 @@
+package com.thibaultmeyer.bingwallpaper.resilience;
+
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Circuit breaker protecting the upstream (Bing, relay or proxy). After a number of
+ * consecutive failures, the circuit opens: requests are rejected without being sent
+ * until a delay has elapsed. Then, requests are allowed again (half-open): the first
+ * success closes the circuit, the first failure opens it again for a longer delay.
+ * Delays are randomly extended by up to 20%, this way, clients of a fleet affected
+ * by the same outage do not come back at the same time.
+ */
+public final class CircuitBreaker {
+
+    private static final int MAX_DELAY_SHIFT = 3;
+    private static final int DELAY_JITTER_DIVISOR = 5;
+
+    private final int threshold;
+    private final long delay;
+    private final MetricsRegistry metricsRegistry;
+
+    private State state;
+    private int failureCount;
+    private int openCount;
+    private long retryTime;
+
+    /**
+     * Build a new instance.
+     *
+     * @param threshold       Number of consecutive failures opening the circuit
+     * @param delay           Delay before requests are allowed again (Milliseconds), doubled on each reopening, up to 8 times
+     * @param metricsRegistry Where the state of the circuit is recorded
+     */
+    public CircuitBreaker(final int threshold, final long delay, final MetricsRegistry metricsRegistry) {
+
+        this.threshold = threshold;
+        this.delay = delay;
+        this.metricsRegistry = metricsRegistry;
+        this.state = State.CLOSED;
+        this.failureCount = 0;
+        this.openCount = 0;
+        this.retryTime = 0;
+    }
+
+    /**
+     * Check if a request can be sent to the upstream.
+     *
+     * @throws CircuitOpenException If the circuit is open
+     */
+    public synchronized void checkAllowed() throws CircuitOpenException {
+
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < retryTime) {
+                metricsRegistry.recordFailure(MetricsRegistry.CAUSE_CIRCUIT_OPEN);
+                throw new CircuitOpenException(retryTime);
+            }
+            state = State.HALF_OPEN;
+        }
+    }
+
+    /**
+     * Record a request answered by the upstream.
+     */
+    public synchronized void recordSuccess() {
+
+        if (state != State.CLOSED) {
+            System.out.println("Upstream is available again, circuit closed");
+        }
+
+        state = State.CLOSED;
+        failureCount = 0;
+        openCount = 0;
+        retryTime = 0;
+        metricsRegistry.recordCircuitState(false);
+    }
+
+    /**
+     * Record a request which has failed because of the upstream (ie: network error, 503).
+     */
+    public synchronized void recordFailure() {
+
+        failureCount += 1;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failureCount >= threshold)) {
+            final long openDelay = delay << Math.min(openCount, MAX_DELAY_SHIFT);
+            openCount += 1;
+            retryTime = System.currentTimeMillis()
+                + openDelay
+                + ThreadLocalRandom.current().nextLong(openDelay / DELAY_JITTER_DIVISOR + 1);
+            state = State.OPEN;
+            metricsRegistry.recordCircuitState(true);
+
+            System.err.printf(
+                "Upstream is unavailable (%d consecutive failures), circuit open until %s%n",
+                failureCount,
+                new Date(retryTime));
+        }
+    }
+
+    /**
+     * Retrieve the state of the circuit.
+     *
+     * @return The state
+     */
+    public synchronized State getState() {
+
+        return state;
+    }
+
+    /**
+     * Retrieve the time from which requests will be allowed again.
+     *
+     * @return The time (Milliseconds), {@code 0} if requests are allowed
+     */
+    public synchronized long getRetryTime() {
+
+        return state == State.OPEN ? retryTime : 0;
+    }
+
+    /**
+     * State of the circuit.
+     */
+    public enum State {
+
+        /**
+         * Requests are allowed.
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected.
+         */
+        OPEN,
+
+        /**
+         * Requests are allowed, the next failure opens the circuit again.
+         */
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,22 @@
+package com.thibaultmeyer.bingwallpaper.resilience;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Thrown when a request is rejected because the circuit breaker is open.
+ */
+public final class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Build a new instance.
+     *
+     * @param retryTime Time from which a new request will be allowed (Milliseconds)
+     */
+    public CircuitOpenException(final long retryTime) {
+
+        super("Upstream is unavailable, next attempt allowed at " + new Date(retryTime));
+    }
+}
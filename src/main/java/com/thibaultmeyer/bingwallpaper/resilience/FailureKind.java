@@ -0,0 +1,51 @@
+package com.thibaultmeyer.bingwallpaper.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+
+/**
+ * Kind of failure: determines whether an operation is worth retrying.
+ */
+public enum FailureKind {
+
+    /**
+     * Failure expected to disappear by itself (ie: network error, timeout, 503), worth retrying.
+     */
+    TRANSIENT,
+
+    /**
+     * Failure which will happen again (ie: 404, interrupted thread), not worth retrying.
+     */
+    PERMANENT;
+
+    /**
+     * Classify an unsuccessful HTTP status code.
+     *
+     * @param statusCode The HTTP status code (ie: 503)
+     * @return The kind of failure
+     */
+    public static FailureKind fromStatusCode(final int statusCode) {
+
+        return statusCode == 408 || statusCode == 425 || statusCode == 429 || statusCode >= 500
+            ? TRANSIENT
+            : PERMANENT;
+    }
+
+    /**
+     * Classify an I/O failure.
+     *
+     * @param exception The I/O exception
+     * @return The kind of failure
+     */
+    public static FailureKind fromException(final IOException exception) {
+
+        if (exception instanceof CircuitOpenException) {
+            return PERMANENT;
+        } else if (exception instanceof InterruptedIOException && !(exception instanceof SocketTimeoutException)) {
+            return PERMANENT;
+        }
+
+        return Thread.currentThread().isInterrupted() ? PERMANENT : TRANSIENT;
+    }
+}
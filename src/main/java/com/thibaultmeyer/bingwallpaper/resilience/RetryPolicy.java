@@ -0,0 +1,119 @@
+package com.thibaultmeyer.bingwallpaper.resilience;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy: exponential backoff with full jitter (the delay is drawn between
+ * zero and the exponential ceiling), this way, clients failing at the same time
+ * do not retry at the same time. A delay requested by the server with the
+ * "Retry-After" header is honored, unless it exceeds the maximum backoff:
+ * in this case, the operation is given up and left to the next cycle.
+ */
+public final class RetryPolicy {
+
+    private static final long DEFAULT_INITIAL_BACKOFF = TimeUnit.SECONDS.toMillis(1);
+    private static final long DEFAULT_MAX_BACKOFF = TimeUnit.MINUTES.toMillis(1);
+
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+
+    /**
+     * Build a new instance with the default backoff (1 second, up to 1 minute).
+     *
+     * @param maxAttempts Maximum number of attempts, including the first one
+     */
+    public RetryPolicy(final int maxAttempts) {
+
+        this(maxAttempts, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param maxAttempts    Maximum number of attempts, including the first one
+     * @param initialBackoff Ceiling of the delay after the first attempt (Milliseconds)
+     * @param maxBackoff     Maximum delay between two attempts (Milliseconds)
+     */
+    public RetryPolicy(final int maxAttempts, final long initialBackoff, final long maxBackoff) {
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Retrieve the maximum number of attempts.
+     *
+     * @return The maximum number of attempts, including the first one
+     */
+    public int getMaxAttempts() {
+
+        return maxAttempts;
+    }
+
+    /**
+     * Compute the delay before the next attempt.
+     *
+     * @param attempt    Number of the failed attempt (1 = first attempt)
+     * @param retryAfter Delay requested by the server (Milliseconds), {@code -1} if none
+     * @return The delay (Milliseconds), {@code -1} if the operation must not be retried
+     */
+    public long computeDelay(final int attempt, final long retryAfter) {
+
+        if (attempt >= maxAttempts || retryAfter > maxBackoff) {
+            return -1;
+        }
+
+        final long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 30));
+        return Math.max(retryAfter, ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    /**
+     * Wait before the next attempt.
+     *
+     * @param delay The delay (Milliseconds)
+     * @throws InterruptedIOException If interrupted while waiting
+     */
+    public static void pause(final long delay) throws InterruptedIOException {
+
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Parse the value of a "Retry-After" header: a number of seconds or an HTTP date.
+     *
+     * @param value Value of the header, can be {@code null}
+     * @return The requested delay (Milliseconds), {@code -1} if none or invalid
+     */
+    public static long parseRetryAfter(final String value) {
+
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value.trim())));
+        } catch (final NumberFormatException ignore) {
+            // Not a number of seconds, maybe an HTTP date
+        }
+
+        try {
+            final ZonedDateTime retryDateTime = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(), retryDateTime).toMillis());
+        } catch (final DateTimeParseException ignore) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.thibaultmeyer.bingwallpaper.scheduler;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler aware of the Bing publish time. Rather than polling at fixed rate, it sleeps
+ * until the next expected publish time (previous publish time + 1 day) plus a random
+ * jitter, polls briefly around that time, then backs off exponentially. Sleeps are split
+ * into short slices to detect wall-clock jumps (ie: suspend / resume), in which case
+ * a new run is triggered immediately. A failed run is retried with an exponential
+ * backoff, never before the upstream circuit breaker allows it. Whatever happens
+ * during a run, the next slice is always scheduled. A wallpaper downloaded in a smaller
+ * resolution (ie: slow link) is upgraded shortly after the run, while the link is idle.
+ */
+public final class PublishAwareScheduler {
+
+    private static final long PUBLISH_PERIOD = TimeUnit.DAYS.toMillis(1);
+    private static final long POLL_WINDOW = TimeUnit.MINUTES.toMillis(30);
+    private static final long POLL_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    private static final long MAX_BACKOFF = TimeUnit.HOURS.toMillis(4);
+    private static final long UNKNOWN_PUBLISH_TIME_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final long MAX_SLEEP_SLICE = TimeUnit.MINUTES.toMillis(15);
+    private static final long CLOCK_JUMP_THRESHOLD = TimeUnit.MINUTES.toMillis(2);
+    private static final long UPGRADE_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final BingWallpaperService service;
+    private final Path stateFile;
+
+    private long jitter;
+    private long knownPublishTime;
+    private volatile long targetTime;
+    private int missCount;
+    private int failureCount;
+    private long sliceWallTime;
+    private long sliceMonotonicTime;
+
+    /**
+     * Build a new instance.
+     *
+     * @param scheduledExecutorService Executor used to run the service
+     * @param service                  The service to run
+     * @param jitter                   Maximum random delay added after the expected publish time (Milliseconds)
+     * @param stateFile                Location where the latest known publish time is persisted
+     */
+    public PublishAwareScheduler(final ScheduledExecutorService scheduledExecutorService,
+                                 final BingWallpaperService service,
+                                 final long jitter,
+                                 final Path stateFile) {
+
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.service = service;
+        this.jitter = jitter;
+        this.stateFile = stateFile;
+        this.knownPublishTime = -1;
+        this.missCount = 0;
+        this.failureCount = 0;
+    }
+
+    /**
+     * Start the scheduler. The service is run immediately.
+     */
+    public void start() {
+
+        knownPublishTime = loadKnownPublishTime();
+        targetTime = System.currentTimeMillis();
+        scheduleSlice();
+    }
+
+    /**
+     * Run the service as soon as possible, regardless of the expected publish time.
+     */
+    public void triggerNow() {
+
+        scheduledExecutorService.execute(this::runService);
+    }
+
+    /**
+     * Change the maximum random delay added after the expected publish time.
+     * Used from the next computed target time.
+     *
+     * @param jitter Maximum random delay (Milliseconds)
+     */
+    public void setJitter(final long jitter) {
+
+        scheduledExecutorService.execute(() -> this.jitter = jitter);
+    }
+
+    /**
+     * Retrieve the time of the next check.
+     *
+     * @return The time of the next check (Milliseconds)
+     */
+    public long getNextCheckTime() {
+
+        return targetTime;
+    }
+
+    /**
+     * Wake up at the end of a sleep slice.
+     */
+    private void tick() {
+
+        try {
+            final long wallElapsed = System.currentTimeMillis() - sliceWallTime;
+            final long monotonicElapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sliceMonotonicTime);
+
+            if (Math.abs(wallElapsed - monotonicElapsed) > CLOCK_JUMP_THRESHOLD) {
+                System.out.println("Wall-clock jump detected, checking wallpaper of the day");
+                runService();
+            } else if (System.currentTimeMillis() >= targetTime) {
+                runService();
+            }
+        } finally {
+            // An exception thrown by a scheduled task would silently end the chain of slices
+            scheduleSlice();
+        }
+    }
+
+    /**
+     * Run the service, then compute the next target time.
+     */
+    private void runService() {
+
+        service.run();
+        final boolean isSuccess = service.isLatestRunSuccessful();
+
+        final long now = System.currentTimeMillis();
+        final long publishTime = service.getLatestPublishTime();
+
+        if (publishTime > knownPublishTime) {
+            // New wallpaper: sleep until the next one
+            knownPublishTime = publishTime;
+            missCount = 0;
+            saveKnownPublishTime(publishTime);
+        }
+
+        if (knownPublishTime <= 0) {
+            targetTime = now + UNKNOWN_PUBLISH_TIME_INTERVAL;
+        } else {
+            final long nextPublishTime = knownPublishTime + PUBLISH_PERIOD;
+            if (now < nextPublishTime) {
+                missCount = 0;
+                targetTime = nextPublishTime + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+            } else if (now - nextPublishTime < POLL_WINDOW + jitter) {
+                // Around publish time: poll briefly
+                targetTime = now + POLL_INTERVAL;
+            } else {
+                // Wallpaper is late: back off
+                missCount += 1;
+                targetTime = now + Math.min(MAX_BACKOFF, POLL_INTERVAL << Math.min(missCount, 16));
+            }
+        }
+
+        if (isSuccess) {
+            failureCount = 0;
+        } else {
+            // Retry sooner than planned, with a random part spreading the retries of a fleet
+            failureCount += 1;
+            final long retryTime = now
+                + Math.min(MAX_BACKOFF, POLL_INTERVAL << Math.min(failureCount - 1, 16))
+                + ThreadLocalRandom.current().nextLong(POLL_INTERVAL);
+            targetTime = Math.max(Math.min(targetTime, retryTime), service.getCircuitBreaker().getRetryTime());
+        }
+
+        System.out.printf("Next check scheduled at %s%n", new Date(targetTime));
+        service.releaseIdleResources();
+
+        if (service.hasPendingUpgrade()) {
+            // Runs on the same executor, never concurrently with a check
+            scheduledExecutorService.schedule(this::upgradeWallpaper, UPGRADE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Upgrade the wallpaper downloaded in a smaller resolution to the UHD one.
+     */
+    private void upgradeWallpaper() {
+
+        try {
+            service.upgradeWallpaper();
+        } catch (final IOException | RuntimeException ex) {
+            System.err.println("Unable to upgrade wallpaper: " + ex.getMessage());
+        }
+
+        service.releaseIdleResources();
+    }
+
+    /**
+     * Schedule the next sleep slice.
+     */
+    private void scheduleSlice() {
+
+        sliceWallTime = System.currentTimeMillis();
+        sliceMonotonicTime = System.nanoTime();
+
+        final long delay = Math.max(0, Math.min(MAX_SLEEP_SLICE, targetTime - sliceWallTime));
+        scheduledExecutorService.schedule(this::tick, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Load the latest known publish time from local disk.
+     *
+     * @return The latest known publish time (Milliseconds), {@code -1} if unknown
+     */
+    private long loadKnownPublishTime() {
+
+        if (Files.exists(stateFile)) {
+            try {
+                final Properties properties = new Properties();
+                final BufferedReader bufferedReader = Files.newBufferedReader(stateFile);
+                properties.load(bufferedReader);
+                bufferedReader.close();
+
+                return Long.parseLong(properties.getProperty("latestPublishTime", "-1"));
+            } catch (final IOException | NumberFormatException ex) {
+                System.err.println("Unable to load scheduler state: " + ex.getMessage());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Save the latest known publish time on local disk.
+     *
+     * @param publishTime The latest known publish time (Milliseconds)
+     */
+    private void saveKnownPublishTime(final long publishTime) {
+
+        try {
+            final Properties properties = new Properties();
+            properties.setProperty("latestPublishTime", String.valueOf(publishTime));
+
+            final BufferedWriter bufferedWriter = Files.newBufferedWriter(stateFile);
+            properties.store(bufferedWriter, "BingWallpaper Scheduler");
+            bufferedWriter.close();
+        } catch (final IOException ex) {
+            System.err.println("Unable to save scheduler state: " + ex.getMessage());
+        }
+    }
+}
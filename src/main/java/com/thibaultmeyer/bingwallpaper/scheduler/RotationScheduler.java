@@ -0,0 +1,196 @@
+package com.thibaultmeyer.bingwallpaper.scheduler;
+
+import com.thibaultmeyer.bingwallpaper.BingWallpaperService;
+import com.thibaultmeyer.bingwallpaper.archive.ArchiveIndex;
+import com.thibaultmeyer.bingwallpaper.archive.ArchiveRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler rotating the wallpaper through the archive, without any request to Bing:
+ * at each interval, the next archived image published within the date range is applied.
+ * Images are applied newest first, or shuffled. Once all of them have been applied, the
+ * selection is done again, including the images indexed meanwhile.
+ */
+public final class RotationScheduler {
+
+    private static final int MAX_MISSING_IMAGES = 16;
+
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final BingWallpaperService service;
+    private final ArchiveIndex archiveIndex;
+    private final long interval;
+    private final boolean isShuffle;
+    private final int startDate;
+    private final int endDate;
+
+    private int[] recordIndexList;
+    private int position;
+    private volatile ArchiveRecord currentRecord;
+    private volatile long nextRotationTime;
+
+    /**
+     * Build a new instance.
+     *
+     * @param scheduledExecutorService Executor used to run the rotation
+     * @param service                  The service applying the images
+     * @param archiveIndex             Index of the archive
+     * @param interval                 Interval between two images (Milliseconds)
+     * @param isShuffle                Images are applied in random order rather than newest first
+     * @param startDate                First publish date (ie: 20230101), 0 for no lower bound
+     * @param endDate                  Last publish date (ie: 20231231), 0 for no upper bound
+     */
+    public RotationScheduler(final ScheduledExecutorService scheduledExecutorService,
+                             final BingWallpaperService service,
+                             final ArchiveIndex archiveIndex,
+                             final long interval,
+                             final boolean isShuffle,
+                             final int startDate,
+                             final int endDate) {
+
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.service = service;
+        this.archiveIndex = archiveIndex;
+        this.interval = interval;
+        this.isShuffle = isShuffle;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.recordIndexList = new int[0];
+        this.position = 0;
+    }
+
+    /**
+     * Start the scheduler. The first image is applied immediately.
+     */
+    public void start() {
+
+        nextRotationTime = System.currentTimeMillis();
+        scheduledExecutorService.scheduleWithFixedDelay(this::rotate, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Apply the next image as soon as possible.
+     */
+    public void triggerNow() {
+
+        scheduledExecutorService.execute(this::rotate);
+    }
+
+    /**
+     * Retrieve the image currently applied.
+     *
+     * @return The image, {@code null} if none has been applied yet
+     */
+    public ArchiveRecord getCurrentRecord() {
+
+        return currentRecord;
+    }
+
+    /**
+     * Retrieve the time of the next rotation.
+     *
+     * @return The time of the next rotation (Milliseconds)
+     */
+    public long getNextRotationTime() {
+
+        return nextRotationTime;
+    }
+
+    /**
+     * Apply the next image. Images removed from the archive are skipped.
+     */
+    private void rotate() {
+
+        // An exception thrown by a scheduled task would silently end the rotation
+        try {
+            for (int attempt = 0; attempt < MAX_MISSING_IMAGES; attempt += 1) {
+                final ArchiveRecord record = nextRecord();
+                if (record == null) {
+                    System.err.println("Rotation: no archived image within the date range");
+                    return;
+                }
+
+                final Path imageFile = archiveIndex.resolve(record);
+                if (!Files.exists(imageFile)) {
+                    continue;
+                }
+
+                if (service.applyLocalImage(imageFile)) {
+                    currentRecord = record;
+                    System.out.printf("Rotation: %s applied%n", record);
+                } else {
+                    System.err.printf("Rotation: can't apply %s%n", record);
+                }
+                return;
+            }
+
+            System.err.println("Rotation: archived images are missing, please fetch the archive again");
+        } catch (final IOException | RuntimeException ex) {
+            System.err.println("Rotation: unable to apply wallpaper: " + ex.getMessage());
+        } finally {
+            nextRotationTime = System.currentTimeMillis() + interval;
+        }
+    }
+
+    /**
+     * Retrieve the next image to apply. Images are selected again once all of them have been applied.
+     *
+     * @return The next image, otherwise, {@code null} if no image is within the date range
+     * @throws IOException If something goes wrong during the process
+     */
+    private ArchiveRecord nextRecord() throws IOException {
+
+        for (int attempt = 0; attempt < 2; attempt += 1) {
+            if (position >= recordIndexList.length) {
+                recordIndexList = archiveIndex.select(startDate, endDate);
+                position = 0;
+                if (isShuffle) {
+                    shuffle(recordIndexList);
+                }
+            }
+
+            while (position < recordIndexList.length) {
+                final ArchiveRecord record = archiveIndex.get(recordIndexList[position]);
+                position += 1;
+                // The current image is not applied twice in a row (ie: new shuffled selection)
+                if (record != null && (recordIndexList.length == 1 || !isCurrentRecord(record))) {
+                    return record;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Determine if an image is the one currently applied.
+     *
+     * @param record The image
+     * @return {@code true} if the image is currently applied, otherwise, {@code false}
+     */
+    private boolean isCurrentRecord(final ArchiveRecord record) {
+
+        return currentRecord != null && currentRecord.getFileName().equals(record.getFileName());
+    }
+
+    /**
+     * Shuffle record indexes (Fisher-Yates).
+     *
+     * @param indexList The record indexes
+     */
+    private static void shuffle(final int[] indexList) {
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int idx = indexList.length - 1; idx > 0; idx -= 1) {
+            final int swapIdx = random.nextInt(idx + 1);
+            final int value = indexList[idx];
+            indexList[idx] = indexList[swapIdx];
+            indexList[swapIdx] = value;
+        }
+    }
+}
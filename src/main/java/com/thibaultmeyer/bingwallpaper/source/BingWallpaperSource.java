@@ -0,0 +1,304 @@
+package com.thibaultmeyer.bingwallpaper.source;
+
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.api.BingArchiveParser;
+import com.thibaultmeyer.bingwallpaper.api.BingImage;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.events.ApiRequestEvent;
+import com.thibaultmeyer.bingwallpaper.http.LinkEstimator;
+import com.thibaultmeyer.bingwallpaper.http.ResponseValidators;
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source requesting the wallpaper of the day from the Bing API, through the upstreams
+ * of the service. A conditional request is sent using the validators of the last
+ * applied response: if the response has not changed, nothing will be downloaded.
+ */
+public final class BingWallpaperSource implements WallpaperSource {
+
+    /**
+     * Name of this source
+     */
+    public static final String NAME = "bing";
+
+    /**
+     * Path of the Bing API
+     */
+    public static final String BING_API_PATH = "/HPImageArchive.aspx";
+
+    private static final String BING_API_QUERY = "format=js&idx=0&n=1&uhd=1&uhdwidth=%d&uhdheight=%d";
+    private static final List<Dimension> STANDARD_RESOLUTION_LIST = List.of(new Dimension(1920, 1080), new Dimension(1366, 768));
+
+    @Override
+    public String getName() {
+
+        return NAME;
+    }
+
+    @Override
+    public SourceImage resolve(final SourceContext context) throws IOException {
+
+        final ApiRequestEvent event = new ApiRequestEvent();
+        event.begin();
+        try {
+            return resolve(context, event);
+        } catch (final IOException | RuntimeException ex) {
+            // Once the API response is handled, the event is committed with an outcome
+            if (event.outcome == null) {
+                event.outcome = "failure: " + ex.getMessage();
+                event.commit();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Build the URL requesting the wallpaper of the day from a Bing API.
+     *
+     * @param baseUrl  Base URL of the Bing API (ie: https://www.bing.com)
+     * @param settings Current settings
+     * @return The URL
+     */
+    static URI buildApiUrl(final String baseUrl, final Settings settings) {
+
+        return URI.create(baseUrl + BING_API_PATH + "?" + String.format(
+            BING_API_QUERY,
+            settings.dimensionWidth,
+            settings.dimensionHeight) + (settings.market == null ? "" : "&mkt=" + settings.market));
+    }
+
+    /**
+     * Parse the wallpaper of the day from a Bing API response.
+     *
+     * @param body            The response body
+     * @param metricsRegistry Where parse failures are recorded
+     * @return The wallpaper image
+     * @throws IOException If the response can't be parsed or does not contain any image
+     */
+    static BingImage parseApiResponse(final byte[] body, final MetricsRegistry metricsRegistry) throws IOException {
+
+        final List<BingImage> imageList;
+        try {
+            imageList = BingArchiveParser.parse(body);
+        } catch (final IOException | RuntimeException ex) {
+            metricsRegistry.recordFailure(MetricsRegistry.CAUSE_PARSE);
+            throw ex;
+        }
+        if (imageList.isEmpty()) {
+            throw new IOException("Bing API response does not contain any image");
+        }
+
+        return imageList.get(0);
+    }
+
+    /**
+     * Resolve the wallpaper of the day from the Bing API.
+     *
+     * @param context Context of the service querying this source
+     * @param event   Flight Recorder event describing the request, committed once the API response is handled
+     * @return The image, otherwise, {@code null} if it can't be retrieved
+     * @throws IOException If something goes wrong during the process
+     */
+    private SourceImage resolve(final SourceContext context, final ApiRequestEvent event) throws IOException {
+
+        final Settings settings = context.getSettings();
+        final URI bingApiUrl = buildApiUrl(settings.bingBaseUrl, settings);
+        event.url = bingApiUrl.toString();
+        final ResponseValidators currentValidators = context.getResponseValidators().isApplicableTo(bingApiUrl.toString())
+            && Files.exists(Paths.get(settings.targetFileName))
+            ? context.getResponseValidators()
+            : ResponseValidators.EMPTY;
+
+        final HttpResponse<byte[]> response = context.sendApiRequest(upstream -> {
+            final HttpRequest.Builder requestBuilder = upstream.newCompressedRequest(bingApiUrl);
+            if (currentValidators.entityTag != null) {
+                requestBuilder.header("If-None-Match", currentValidators.entityTag);
+            }
+            if (currentValidators.lastModified != null) {
+                requestBuilder.header("If-Modified-Since", currentValidators.lastModified);
+            }
+
+            return requestBuilder.GET().build();
+        });
+        event.httpStatus = response.statusCode();
+        event.bytes = response.body() == null ? 0 : response.body().length;
+
+        if (response.statusCode() == 304) {
+            System.out.println("Wallpaper of the day has not changed");
+            event.outcome = "not modified";
+            event.commit();
+            return SourceImage.unchanged(NAME);
+        } else if (response.statusCode() != 200) {
+            throw new IOException("Bing API has answered with HTTP " + response.statusCode());
+        }
+
+        final byte[] body = response.body();
+        final String bodyHash = WallpaperCache.computeHash(body);
+        if (currentValidators.hasSameBody(bodyHash)) {
+            System.out.println("Wallpaper of the day has not changed");
+            event.outcome = "not modified (same body)";
+            event.commit();
+            return SourceImage.unchanged(NAME);
+        }
+
+        final BingImage bingImage = parseApiResponse(body, context.getMetricsRegistry());
+        event.outcome = "success";
+        event.commit();
+
+        final ImageVariant uhdVariant = new ImageVariant(
+            URI.create(settings.bingBaseUrl + bingImage.url),
+            settings.dimensionWidth,
+            settings.dimensionHeight);
+        final ImageVariant imageVariant = selectImageVariant(context, bingImage, uhdVariant);
+        final boolean isCached = context.getWallpaperCache().lookup(imageVariant.url.toString()) != null;
+        final Path cachedFile = context.retrieveImage(imageVariant.url);
+        if (cachedFile == null) {
+            return null;
+        }
+        if (!isCached) {
+            context.getLinkEstimator().recordImageSize(imageVariant.getPixelCount(), Files.size(cachedFile));
+        }
+
+        return new SourceImage(
+            NAME,
+            uhdVariant.url,
+            imageVariant.url,
+            cachedFile,
+            bingImage.getPublishTime(),
+            new ResponseValidators(
+                bingApiUrl.toString(),
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                bodyHash),
+            imageVariant != uhdVariant && settings.uhdUpgrade ? uhdVariant.url : null);
+    }
+
+    /**
+     * Select the resolution of the image to download. The UHD image, at the wallpaper
+     * dimension, is selected unless its estimated download exceeds the time or size
+     * budget (ie: slow link), in which case the largest standard resolution within the
+     * budget is selected, or the smallest one if none is. A cached image has nothing
+     * left to download and is selected first.
+     *
+     * @param context    Context of the service querying this source
+     * @param bingImage  The wallpaper image
+     * @param uhdVariant The UHD image, at the wallpaper dimension
+     * @return The image to download
+     * @throws IOException If something goes wrong during the process
+     */
+    private static ImageVariant selectImageVariant(final SourceContext context,
+                                                   final BingImage bingImage,
+                                                   final ImageVariant uhdVariant) throws IOException {
+
+        final Settings settings = context.getSettings();
+        if (bingImage.urlBase == null || (settings.downloadTimeBudget == 0 && settings.downloadSizeBudget == 0)) {
+            return uhdVariant;
+        }
+
+        // Largest first, only resolutions smaller than the UHD image are worth it
+        final List<ImageVariant> imageVariantList = new ArrayList<>();
+        imageVariantList.add(uhdVariant);
+        for (final Dimension resolution : STANDARD_RESOLUTION_LIST) {
+            if ((long) resolution.width * resolution.height < uhdVariant.getPixelCount()) {
+                imageVariantList.add(new ImageVariant(
+                    URI.create(settings.bingBaseUrl + bingImage.urlBase + "_" + resolution.width + "x" + resolution.height + ".jpg"),
+                    resolution.width,
+                    resolution.height));
+            }
+        }
+
+        for (final ImageVariant imageVariant : imageVariantList) {
+            if (context.getWallpaperCache().lookup(imageVariant.url.toString()) != null) {
+                return imageVariant;
+            }
+        }
+
+        ImageVariant selectedImageVariant = imageVariantList.get(imageVariantList.size() - 1);
+        for (final ImageVariant imageVariant : imageVariantList) {
+            if (isWithinDownloadBudget(settings, context.getLinkEstimator(), imageVariant)) {
+                selectedImageVariant = imageVariant;
+                break;
+            }
+        }
+
+        if (selectedImageVariant != uhdVariant) {
+            System.out.printf(
+                "Link is too slow for the UHD wallpaper (%s), downloading it in %dx%d%n",
+                context.getLinkEstimator(),
+                selectedImageVariant.width,
+                selectedImageVariant.height);
+        }
+
+        return selectedImageVariant;
+    }
+
+    /**
+     * Determine if the estimated download of an image is within the time and size budget.
+     * Until the link has been measured, any image is considered within the time budget.
+     *
+     * @param settings      Current settings
+     * @param linkEstimator Estimated quality of the link
+     * @param imageVariant  The image
+     * @return {@code true} if the image is within the budget, otherwise, {@code false}
+     */
+    private static boolean isWithinDownloadBudget(final Settings settings,
+                                                  final LinkEstimator linkEstimator,
+                                                  final ImageVariant imageVariant) {
+
+        final long estimatedSize = linkEstimator.estimateSize(imageVariant.getPixelCount());
+        if (settings.downloadSizeBudget > 0 && estimatedSize > settings.downloadSizeBudget * 1024L) {
+            return false;
+        }
+
+        final long estimatedDuration = linkEstimator.estimateDuration(estimatedSize);
+        return settings.downloadTimeBudget == 0
+            || estimatedDuration < 0
+            || estimatedDuration <= TimeUnit.SECONDS.toMillis(settings.downloadTimeBudget);
+    }
+
+    /**
+     * Image of the day in a given resolution.
+     */
+    private static final class ImageVariant {
+
+        private final URI url;
+        private final int width;
+        private final int height;
+
+        /**
+         * Build a new instance.
+         *
+         * @param url    URL of the image
+         * @param width  Width of the image (Pixel)
+         * @param height Height of the image (Pixel)
+         */
+        private ImageVariant(final URI url, final int width, final int height) {
+
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Retrieve the number of pixels of the image.
+         *
+         * @return The number of pixels (width x height)
+         */
+        private long getPixelCount() {
+
+            return (long) width * height;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.thibaultmeyer.bingwallpaper.source;
+
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.archive.ArchiveRecord;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Source providing the wallpaper of the day from a local directory containing archived
+ * images (ie: the archive of this host, or one synchronized from another host running
+ * {@code --archive}). The newest image of the market published today at the latest is
+ * provided, unless it is not newer than the applied wallpaper. Nothing is requested
+ * from the network.
+ */
+public final class DirectoryWallpaperSource implements WallpaperSource {
+
+    /**
+     * Name of this source
+     */
+    public static final String NAME = "directory";
+
+    @Override
+    public String getName() {
+
+        return NAME;
+    }
+
+    @Override
+    public SourceImage resolve(final SourceContext context) throws IOException {
+
+        final Settings settings = context.getSettings();
+        final Path directory = Paths.get(settings.sourceDirectory);
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+
+        final int today = toDate(LocalDate.now());
+        final int appliedDate = context.getLatestPublishTime() > 0
+            ? toDate(LocalDate.ofInstant(Instant.ofEpochMilli(context.getLatestPublishTime()), ZoneOffset.UTC))
+            : 0;
+
+        ArchiveRecord newestRecord = null;
+        final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, "*" + ArchiveRecord.FILE_EXTENSION);
+        try {
+            for (final Path file : directoryStream) {
+                final ArchiveRecord record = ArchiveRecord.parseFileName(file.getFileName().toString());
+                if (record != null
+                    && record.date <= today
+                    && record.date > appliedDate
+                    && (settings.market == null || settings.market.equalsIgnoreCase(record.market))
+                    && (newestRecord == null || record.date > newestRecord.date)) {
+                    newestRecord = record;
+                }
+            }
+        } finally {
+            directoryStream.close();
+        }
+
+        if (newestRecord == null) {
+            return null;
+        }
+
+        // Not a publish time: the time of the day Bing has published the image is unknown
+        final Path file = directory.resolve(newestRecord.getFileName()).toAbsolutePath();
+        return new SourceImage(NAME, file.toUri(), file.toUri(), file, -1, null, null);
+    }
+
+    /**
+     * Convert a date to its integer form.
+     *
+     * @param date The date
+     * @return The date (ie: 20231016)
+     */
+    private static int toDate(final LocalDate date) {
+
+        return Integer.parseInt(date.format(DateTimeFormatter.BASIC_ISO_DATE));
+    }
+}
@@ -0,0 +1,140 @@
+package com.thibaultmeyer.bingwallpaper.source;
+
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.api.BingImage;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.http.HttpEngine;
+import com.thibaultmeyer.bingwallpaper.http.LinkEstimator;
+import com.thibaultmeyer.bingwallpaper.http.ResumableDownloader;
+import com.thibaultmeyer.bingwallpaper.http.UpstreamPool;
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+import com.thibaultmeyer.bingwallpaper.resilience.CircuitBreaker;
+import com.thibaultmeyer.bingwallpaper.resilience.RetryPolicy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source requesting the wallpaper of the day from a relay (ie: {@code --serve}) or any
+ * mirror of the Bing API, reached directly. The image is cached under its Bing URL: once
+ * retrieved from the mirror, it will not be downloaded again from Bing. Each query is a
+ * single attempt, the deadline of the source bounds it, the next run will try again.
+ * Requests are kept apart from the ones to Bing: they are not recorded in the metrics of
+ * the service, nor do they count for the Bing circuit breaker or link estimation.
+ */
+public final class MirrorWallpaperSource implements WallpaperSource {
+
+    /**
+     * Name of this source
+     */
+    public static final String NAME = "mirror";
+
+    private static final String USER_AGENT = "BingWallpaper";
+
+    private Mirror mirror;
+
+    @Override
+    public String getName() {
+
+        return NAME;
+    }
+
+    @Override
+    public SourceImage resolve(final SourceContext context) throws IOException {
+
+        final Settings settings = context.getSettings();
+        if (settings.mirrorUrl == null) {
+            throw new IOException("mirrorUrl is not configured");
+        }
+        final Mirror currentMirror = prepare(settings);
+
+        final URI mirrorApiUrl = BingWallpaperSource.buildApiUrl(currentMirror.url, settings);
+        final HttpResponse<byte[]> response = currentMirror.upstreamPool.send(
+            upstream -> upstream.newCompressedRequest(mirrorApiUrl).GET().build(),
+            HttpEngine.ofDecompressedByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Mirror has answered with HTTP " + response.statusCode());
+        }
+        final BingImage bingImage = BingWallpaperSource.parseApiResponse(response.body(), currentMirror.metricsRegistry);
+
+        final URI url = URI.create(settings.bingBaseUrl + bingImage.url);
+        final URI imageUrl = URI.create(currentMirror.url + bingImage.url);
+        final WallpaperCache wallpaperCache = context.getWallpaperCache();
+        Path cachedFile = wallpaperCache.lookup(url.toString());
+        if (cachedFile == null) {
+            // Bing may be downloading the same image meanwhile, each one has its own partial file
+            final Path partialFile = wallpaperCache.getPartialFile(imageUrl.toString());
+            if (!currentMirror.resumableDownloader.download(imageUrl, partialFile)) {
+                return null;
+            }
+            cachedFile = wallpaperCache.store(url.toString(), partialFile);
+        }
+
+        return new SourceImage(NAME, url, imageUrl, cachedFile, bingImage.getPublishTime(), null, null);
+    }
+
+    @Override
+    public synchronized void release() {
+
+        if (mirror != null) {
+            mirror.upstreamPool.release();
+        }
+    }
+
+    /**
+     * Retrieve the components reaching the mirror, created again if the mirror has changed.
+     *
+     * @param settings Current settings
+     * @return The components reaching the mirror
+     */
+    private synchronized Mirror prepare(final Settings settings) {
+
+        if (mirror == null || !mirror.url.equals(settings.mirrorUrl)) {
+            mirror = new Mirror(settings);
+        }
+
+        return mirror;
+    }
+
+    /**
+     * Components reaching a mirror.
+     */
+    private static final class Mirror {
+
+        private final String url;
+        private final MetricsRegistry metricsRegistry;
+        private final UpstreamPool upstreamPool;
+        private final ResumableDownloader resumableDownloader;
+
+        /**
+         * Build a new instance.
+         *
+         * @param settings Current settings
+         */
+        private Mirror(final Settings settings) {
+
+            this.url = settings.mirrorUrl;
+            this.metricsRegistry = new MetricsRegistry();
+            this.upstreamPool = new UpstreamPool(
+                Collections.singletonList(settings.mirrorUrl),
+                null,
+                Collections.emptyList(),
+                USER_AGENT,
+                0,
+                this.metricsRegistry);
+            this.resumableDownloader = new ResumableDownloader(
+                this.upstreamPool,
+                this.metricsRegistry,
+                new RetryPolicy(1),
+                new CircuitBreaker(
+                    settings.circuitBreakerThreshold,
+                    TimeUnit.MINUTES.toMillis(settings.circuitBreakerDelay),
+                    this.metricsRegistry),
+                LinkEstimator.createTransient());
+        }
+    }
+}
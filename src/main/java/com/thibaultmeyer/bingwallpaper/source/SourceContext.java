@@ -0,0 +1,82 @@
+package com.thibaultmeyer.bingwallpaper.source;
+
+import com.thibaultmeyer.bingwallpaper.Settings;
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.http.LinkEstimator;
+import com.thibaultmeyer.bingwallpaper.http.ResponseValidators;
+import com.thibaultmeyer.bingwallpaper.http.Upstream;
+import com.thibaultmeyer.bingwallpaper.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * What the service querying a source shares with it.
+ */
+public interface SourceContext {
+
+    /**
+     * Retrieve the current settings.
+     *
+     * @return The settings
+     */
+    Settings getSettings();
+
+    /**
+     * Retrieve the metrics of the service.
+     *
+     * @return The metrics
+     */
+    MetricsRegistry getMetricsRegistry();
+
+    /**
+     * Retrieve the estimated quality of the link to the Bing upstreams.
+     *
+     * @return The link estimator
+     */
+    LinkEstimator getLinkEstimator();
+
+    /**
+     * Retrieve the wallpaper cache.
+     *
+     * @return The wallpaper cache
+     */
+    WallpaperCache getWallpaperCache();
+
+    /**
+     * Retrieve the validators of the latest applied Bing API response.
+     *
+     * @return The validators, {@link ResponseValidators#EMPTY} if the next request must not be conditional
+     */
+    ResponseValidators getResponseValidators();
+
+    /**
+     * Retrieve the publish time of the latest applied wallpaper.
+     *
+     * @return The publish time (Milliseconds), {@code -1} if unknown
+     */
+    long getLatestPublishTime();
+
+    /**
+     * Send a request to the Bing API through the upstreams, with retries and circuit breaker.
+     *
+     * @param requestFactory Creates the request to send to a given upstream
+     * @return The response, which can still be unsuccessful once all attempts are exhausted
+     * @throws IOException If something goes wrong during the process
+     */
+    HttpResponse<byte[]> sendApiRequest(final Function<Upstream, HttpRequest> requestFactory) throws IOException;
+
+    /**
+     * Retrieve an image into the cache through the upstreams. If the image is
+     * already cached, no request will be sent.
+     *
+     * @param url URL of the image
+     * @return The cached image location, otherwise, {@code null} if image can't be retrieved
+     * @throws IOException If something goes wrong during the process
+     */
+    Path retrieveImage(final URI url) throws IOException;
+}
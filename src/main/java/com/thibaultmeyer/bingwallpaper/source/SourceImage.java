@@ -0,0 +1,98 @@
+package com.thibaultmeyer.bingwallpaper.source;
+
+import com.thibaultmeyer.bingwallpaper.http.ResponseValidators;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Wallpaper of the day, as resolved by a source.
+ */
+public final class SourceImage {
+
+    /**
+     * Name of the source (ie: bing)
+     */
+    public final String sourceName;
+
+    /**
+     * URL identifying the wallpaper, the same one whatever the source serving the same image
+     * (ie: https://www.bing.com/th?id=OHR.Example_UHD.jpg), {@code null} if unchanged
+     */
+    public final URI url;
+
+    /**
+     * URL the image has been retrieved from (ie: https://www.bing.com/th?id=OHR.Example_1920x1080.jpg)
+     */
+    public final URI imageUrl;
+
+    /**
+     * Local image, {@code null} if the wallpaper of the day is unchanged since the latest applied one
+     */
+    public final Path file;
+
+    /**
+     * Publish time (Milliseconds), {@code -1} if unknown
+     */
+    public final long publishTime;
+
+    /**
+     * Validators of the Bing API response to keep once applied, {@code null} if none
+     */
+    public final ResponseValidators responseValidators;
+
+    /**
+     * URL of the UHD image to download once the link is idle, {@code null} if none
+     */
+    public final URI upgradeUrl;
+
+    /**
+     * Build a new instance.
+     *
+     * @param sourceName         Name of the source
+     * @param url                URL identifying the wallpaper
+     * @param imageUrl           URL the image has been retrieved from
+     * @param file               Local image
+     * @param publishTime        Publish time (Milliseconds), {@code -1} if unknown
+     * @param responseValidators Validators of the Bing API response to keep once applied, {@code null} if none
+     * @param upgradeUrl         URL of the UHD image to download once the link is idle, {@code null} if none
+     */
+    public SourceImage(final String sourceName,
+                       final URI url,
+                       final URI imageUrl,
+                       final Path file,
+                       final long publishTime,
+                       final ResponseValidators responseValidators,
+                       final URI upgradeUrl) {
+
+        this.sourceName = sourceName;
+        this.url = url;
+        this.imageUrl = imageUrl;
+        this.file = file;
+        this.publishTime = publishTime;
+        this.responseValidators = responseValidators;
+        this.upgradeUrl = upgradeUrl;
+    }
+
+    /**
+     * Build the result of a source knowing that the wallpaper of the day is
+     * unchanged since the latest applied one (ie: HTTP 304).
+     *
+     * @param sourceName Name of the source
+     * @return The result
+     */
+    public static SourceImage unchanged(final String sourceName) {
+
+        return new SourceImage(sourceName, null, null, null, -1, null, null);
+    }
+
+    /**
+     * Determine if the wallpaper of the day is unchanged since the latest applied one.
+     *
+     * @return {@code true} if unchanged, otherwise, {@code false}
+     */
+    public boolean isUnchanged() {
+
+        return file == null;
+    }
+}
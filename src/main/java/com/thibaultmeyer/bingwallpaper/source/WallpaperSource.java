@@ -0,0 +1,35 @@
+package com.thibaultmeyer.bingwallpaper.source;
+
+import java.io.IOException;
+
+/**
+ * Source of the wallpaper of the day. Implementations are discovered with
+ * {@code ServiceLoader}: each service gets its own instances, the sources to
+ * query are selected by name with the "sources" setting.
+ */
+public interface WallpaperSource {
+
+    /**
+     * Retrieve the name of this source, as used in the settings.
+     *
+     * @return The name (ie: bing)
+     */
+    String getName();
+
+    /**
+     * Resolve the wallpaper of the day into a local image. Called from a worker thread,
+     * concurrently with the other sources. A source not answering before its deadline
+     * is not interrupted: it is not queried again until it has answered.
+     *
+     * @param context Context of the service querying this source
+     * @return The image, otherwise, {@code null} if this source has no image to provide
+     * @throws IOException If something goes wrong during the process
+     */
+    SourceImage resolve(final SourceContext context) throws IOException;
+
+    /**
+     * Release the resources kept between two runs (ie: pooled connections).
+     */
+    default void release() {
+    }
+}
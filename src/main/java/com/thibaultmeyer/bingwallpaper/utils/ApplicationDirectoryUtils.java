@@ -0,0 +1,33 @@
+package com.thibaultmeyer.bingwallpaper.utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Utility to locate files stored in the application directory ({@code ~/.bingwallpaper}).
+ */
+public final class ApplicationDirectoryUtils {
+
+    private static final String APPLICATION_DIRECTORY_NAME = ".bingwallpaper";
+
+    /**
+     * Retrieve the application directory.
+     *
+     * @return The application directory
+     */
+    public static Path getApplicationDirectory() {
+
+        return Paths.get(System.getProperty("user.home"), APPLICATION_DIRECTORY_NAME);
+    }
+
+    /**
+     * Resolve a file located in the application directory.
+     *
+     * @param fileName Name of the file
+     * @return The file location
+     */
+    public static Path resolve(final String fileName) {
+
+        return getApplicationDirectory().resolve(fileName);
+    }
+}
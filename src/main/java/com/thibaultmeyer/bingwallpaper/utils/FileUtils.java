@@ -0,0 +1,50 @@
+package com.thibaultmeyer.bingwallpaper.utils;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility to write files atomically.
+ */
+public final class FileUtils {
+
+    /**
+     * Move a file, atomically if the file store allows it.
+     *
+     * @param source File to move
+     * @param target Target location, will be replaced if exists
+     * @throws IOException If something goes wrong during the process
+     */
+    public static void moveAtomically(final Path source, final Path target) throws IOException {
+
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException ignore) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Copy a file. The copy is first written next to the target, then moved
+     * into place: the target never contains a partially written file.
+     *
+     * @param source File to copy
+     * @param target Target location, will be replaced if exists
+     * @throws IOException If something goes wrong during the process
+     */
+    public static void copyAtomically(final Path source, final Path target) throws IOException {
+
+        final Path absoluteTarget = target.toAbsolutePath();
+        final Path temporaryFile = absoluteTarget.resolveSibling(absoluteTarget.getFileName() + ".tmp");
+
+        try {
+            Files.copy(source, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+            moveAtomically(temporaryFile, absoluteTarget);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
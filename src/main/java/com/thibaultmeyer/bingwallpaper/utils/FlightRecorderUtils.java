@@ -0,0 +1,86 @@
+package com.thibaultmeyer.bingwallpaper.utils;
+
+import com.thibaultmeyer.bingwallpaper.events.ApiRequestEvent;
+import com.thibaultmeyer.bingwallpaper.events.ImageProcessingEvent;
+import com.thibaultmeyer.bingwallpaper.events.SaveToLocalEvent;
+import com.thibaultmeyer.bingwallpaper.events.SettingsLoadEvent;
+import com.thibaultmeyer.bingwallpaper.events.WallpaperChangeEvent;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Utility to run a continuous Java Flight Recorder recording. Events are kept
+ * in a bounded ring buffer on disk, then dumped on demand or when the process exits.
+ */
+public final class FlightRecorderUtils {
+
+    private static final long MAX_SIZE = 64L * 1024L * 1024L;
+    private static final Duration MAX_AGE = Duration.ofHours(24);
+    private static final String RECORDING_NAME = "BingWallpaper";
+    private static final List<Class<? extends Event>> EVENT_CLASS_LIST = List.of(
+        SettingsLoadEvent.class,
+        ApiRequestEvent.class,
+        SaveToLocalEvent.class,
+        ImageProcessingEvent.class,
+        WallpaperChangeEvent.class);
+
+    private static Recording recording;
+
+    /**
+     * Start the continuous recording, using the "default" JDK configuration
+     * (low overhead) and all the Bing Wallpaper events.
+     *
+     * @param destination Location where the recording is dumped when the process exits
+     * @throws IOException If something goes wrong during the process
+     */
+    public static synchronized void startContinuousRecording(final Path destination) throws IOException {
+
+        if (recording != null) {
+            return;
+        }
+
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (final ParseException ex) {
+            throw new IOException("Unable to load Flight Recorder configuration", ex);
+        }
+
+        Files.createDirectories(destination.getParent());
+        recording.setName(RECORDING_NAME);
+        // Event names are matched exactly: each event is enabled on its own
+        for (final Class<? extends Event> eventClass : EVENT_CLASS_LIST) {
+            recording.enable(eventClass);
+        }
+        recording.setToDisk(true);
+        recording.setMaxSize(MAX_SIZE);
+        recording.setMaxAge(MAX_AGE);
+        recording.setDumpOnExit(true);
+        recording.setDestination(destination);
+        recording.start();
+    }
+
+    /**
+     * Dump the content of the continuous recording.
+     *
+     * @param destination Location where the recording is dumped
+     * @return {@code true} if the recording has been dumped, {@code false} if no recording is running
+     * @throws IOException If something goes wrong during the process
+     */
+    public static synchronized boolean dump(final Path destination) throws IOException {
+
+        if (recording == null) {
+            return false;
+        }
+
+        recording.dump(destination);
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package com.thibaultmeyer.bingwallpaper.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Utility to measure the memory footprint of the current process.
+ */
+public final class MemoryUtils {
+
+    private static final Path PROC_SELF_STATUS = Paths.get("/proc/self/status");
+
+    /**
+     * Retrieve the heap currently used.
+     *
+     * @return The used heap (Bytes)
+     */
+    public static long getUsedHeap() {
+
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Retrieve the heap currently reserved from the operating system.
+     *
+     * @return The committed heap (Bytes)
+     */
+    public static long getCommittedHeap() {
+
+        return Runtime.getRuntime().totalMemory();
+    }
+
+    /**
+     * Retrieve the resident memory (RSS) of the current process. Only available
+     * on systems exposing {@code /proc/self/status} (ie: Linux).
+     *
+     * @return The resident memory (Bytes), otherwise, {@code -1} if not available
+     */
+    public static long getResidentMemory() {
+
+        if (!Files.isReadable(PROC_SELF_STATUS)) {
+            return -1;
+        }
+
+        try {
+            final BufferedReader bufferedReader = Files.newBufferedReader(PROC_SELF_STATUS);
+            try {
+                String line;
+                while ((line = bufferedReader.readLine()) != null) {
+                    if (line.startsWith("VmRSS:")) {
+                        // ie: "VmRSS:     123456 kB"
+                        final String[] lineExploded = line.substring(6).trim().split("\\s+");
+                        return Long.parseLong(lineExploded[0]) * 1024L;
+                    }
+                }
+            } finally {
+                bufferedReader.close();
+            }
+        } catch (final IOException | NumberFormatException ignore) {
+            return -1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Format a memory size as mega bytes (ie: 12.3 MB).
+     *
+     * @param size The size (Bytes), {@code -1} if not available
+     * @return The formatted size
+     */
+    public static String format(final long size) {
+
+        return size < 0 ? "n/a" : String.format("%.1f MB", size / (1024.0 * 1024.0));
+    }
+}
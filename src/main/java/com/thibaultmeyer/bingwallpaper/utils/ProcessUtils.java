@@ -0,0 +1,120 @@
+package com.thibaultmeyer.bingwallpaper.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility to run external commands without blocking: the output is drained
+ * while the command runs (a full pipe would stall it), and a command still
+ * running once its timeout has elapsed is killed.
+ */
+public final class ProcessUtils {
+
+    private static final ExecutorService OUTPUT_READER_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        // Idle threads are discarded after 60 seconds
+        final Thread thread = new Thread(runnable, "process-output-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Run a command.
+     *
+     * @param commandList The command and its arguments (ie: dconf, dump, /org/gnome/desktop/background/)
+     * @param input       Written to the standard input of the command, can be {@code null}
+     * @param timeout     Maximum duration of the command (Milliseconds)
+     * @return A future completed with the result of the command, or completed exceptionally
+     * with a {@code TimeoutException} if the command has been killed
+     * @throws IOException If the command can't be started (ie: not installed)
+     */
+    public static CompletableFuture<ProcessResult> execute(final List<String> commandList,
+                                                           final String input,
+                                                           final long timeout) throws IOException {
+
+        final Process process = new ProcessBuilder(commandList)
+            .redirectErrorStream(true)
+            .start();
+
+        final OutputStream outputStream = process.getOutputStream();
+        try {
+            if (input != null) {
+                outputStream.write(input.getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            outputStream.close();
+        }
+
+        final CompletableFuture<String> outputFuture = CompletableFuture.supplyAsync(() -> {
+            try {
+                final InputStream inputStream = process.getInputStream();
+                try {
+                    return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                } finally {
+                    inputStream.close();
+                }
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, OUTPUT_READER_EXECUTOR);
+
+        final CompletableFuture<ProcessResult> resultFuture = process.onExit()
+            .thenCombine(outputFuture, (exitedProcess, output) -> new ProcessResult(exitedProcess.exitValue(), output))
+            .orTimeout(timeout, TimeUnit.MILLISECONDS);
+        resultFuture.whenComplete((result, ex) -> {
+            if (ex != null) {
+                // Timed out or cancelled: the output reader ends with the process. Children are
+                // killed first, a killed parent (ie: sudo) can't forward the signal to them
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * Result of a command.
+     */
+    public static final class ProcessResult {
+
+        /**
+         * Exit code of the command (0 = success)
+         */
+        public final int exitCode;
+
+        /**
+         * Standard and error outputs of the command
+         */
+        public final String output;
+
+        /**
+         * Build a new instance.
+         *
+         * @param exitCode Exit code of the command (0 = success)
+         * @param output   Standard and error outputs of the command
+         */
+        public ProcessResult(final int exitCode, final String output) {
+
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+
+        /**
+         * Determine if the command has succeeded.
+         *
+         * @return {@code true} if the exit code is 0, otherwise, {@code false}
+         */
+        public boolean isSuccess() {
+
+            return exitCode == 0;
+        }
+    }
+}
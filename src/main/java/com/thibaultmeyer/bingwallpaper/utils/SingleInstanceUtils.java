@@ -1,69 +1,89 @@
 package com.thibaultmeyer.bingwallpaper.utils;
 
-import com.sun.jna.platform.win32.Kernel32;
-import com.sun.jna.platform.win32.WinBase;
-import com.sun.jna.platform.win32.WinNT.HANDLE;
-
 import java.io.File;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
- * Utility to force single instance.
+ * Utility to force single instance. The running instance holds a lock on a file
+ * located in the application directory and exposes a control socket next to it,
+ * this way, other invocations can forward their command instead of running.
+ * Both are located in the home directory of the user, this way, instances of
+ * different users never collide.
  */
 public final class SingleInstanceUtils {
 
-    private static final String LOCK_FILE_WINDOWS = "\\\\.\\pipe\\bing-wallpaper-java";
-    private static final String LOCK_FILE_UNIX_LIKE = "/tmp/bing-wallpaper-java.lock";
+    private static final String LOCK_FILE_NAME = "instance.lock";
+    private static final String CONTROL_SOCKET_FILE_NAME = "control.sock";
 
     /**
-     * Check existing instance.
+     * Check existing instance. If no other instance exists, the lock is
+     * acquired and kept until the current process exits.
      *
      * @return {@code true} if other instance exists, otherwise, {@code false}
      */
     public static boolean hasExistingInstance() {
 
-        if (OperatingSystemUtils.IS_WINDOWS) {
-            final HANDLE hNamedPipe = Kernel32.INSTANCE.CreateNamedPipe(
-                LOCK_FILE_WINDOWS,
-                WinBase.PIPE_ACCESS_DUPLEX,                                                 // dwOpenMode
-                WinBase.PIPE_TYPE_BYTE | WinBase.PIPE_READMODE_BYTE | WinBase.PIPE_WAIT,    // dwPipeMode
-                1,                 // nMaxInstances,
-                Byte.MAX_VALUE,    // nOutBufferSize,
-                Byte.MAX_VALUE,    // nInBufferSize,
-                1000,              // nDefaultTimeOut,
-                null);             // lpSecurityAttributes
+        return hasExistingInstance(LOCK_FILE_NAME);
+    }
+
+    /**
+     * Check existing instance of a given kind (ie: multi-profile daemon). If no other
+     * instance exists, the lock is acquired and kept until the current process exits.
+     *
+     * @param lockFileName Name of the lock file in the application directory (ie: instance.lock)
+     * @return {@code true} if other instance exists, otherwise, {@code false}
+     */
+    public static boolean hasExistingInstance(final String lockFileName) {
 
-            // Handle will be invalid if named pipe already exists
-            return WinBase.INVALID_HANDLE_VALUE.equals(hNamedPipe);
-        } else {
-            try {
-                final File file = new File(LOCK_FILE_UNIX_LIKE);
-                final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
-                final FileLock fileLock = randomAccessFile.getChannel().tryLock();
+        final File file = ApplicationDirectoryUtils.resolve(lockFileName).toFile();
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            final FileLock fileLock = randomAccessFile.getChannel().tryLock();
 
-                if (fileLock != null) {
-                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                        try {
-                            fileLock.release();
-                            randomAccessFile.close();
-                            if (!file.delete()) {
-                                System.err.println("Unable to remove lock file: " + LOCK_FILE_UNIX_LIKE);
-                            }
-                        } catch (final Exception ex) {
-                            System.err.println("Unable to remove lock file: " + LOCK_FILE_UNIX_LIKE);
-                            ex.printStackTrace();
-                        }
-                    }));
-                    return true;
-                }
-            } catch (final Exception ex) {
-                System.err.println("Unable to create and/or lock file: " + LOCK_FILE_UNIX_LIKE);
-                ex.printStackTrace();
+            if (fileLock == null) {
+                randomAccessFile.close();
+                return true;
             }
 
-            return false;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    fileLock.release();
+                    randomAccessFile.close();
+                } catch (final Exception ex) {
+                    System.err.println("Unable to release lock file: " + file);
+                    ex.printStackTrace();
+                }
+            }));
+        } catch (final Exception ex) {
+            System.err.println("Unable to create and/or lock file: " + file);
+            ex.printStackTrace();
         }
+
+        return false;
     }
-}
 
+    /**
+     * Retrieve the location of the control socket of the running instance.
+     *
+     * @return The control socket location
+     */
+    public static Path getControlSocketFile() {
+
+        return getControlSocketFile(CONTROL_SOCKET_FILE_NAME);
+    }
+
+    /**
+     * Retrieve the location of the control socket of the running instance of a given kind.
+     *
+     * @param controlSocketFileName Name of the control socket in the application directory (ie: control.sock)
+     * @return The control socket location
+     */
+    public static Path getControlSocketFile(final String controlSocketFileName) {
+
+        return ApplicationDirectoryUtils.resolve(controlSocketFileName);
+    }
+}
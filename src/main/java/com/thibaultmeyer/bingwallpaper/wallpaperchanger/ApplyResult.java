@@ -0,0 +1,37 @@
+package com.thibaultmeyer.bingwallpaper.wallpaperchanger;
+
+/**
+ * Result of a wallpaper change.
+ */
+public enum ApplyResult {
+
+    /**
+     * The wallpaper has been changed.
+     */
+    APPLIED,
+
+    /**
+     * The wallpaper already was the given file, with the same content: nothing has been done.
+     */
+    UNCHANGED,
+
+    /**
+     * The wallpaper can't be changed.
+     */
+    FAILED,
+
+    /**
+     * The wallpaper has not been changed before the timeout: the change has been cancelled.
+     */
+    TIMED_OUT;
+
+    /**
+     * Determine if the wallpaper is the given file.
+     *
+     * @return {@code true} if applied or unchanged, otherwise, {@code false}
+     */
+    public boolean isSuccess() {
+
+        return this == APPLIED || this == UNCHANGED;
+    }
+}
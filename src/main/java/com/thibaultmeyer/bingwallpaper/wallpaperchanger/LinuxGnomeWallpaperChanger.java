@@ -3,17 +3,58 @@ package com.thibaultmeyer.bingwallpaper.wallpaperchanger;
 import com.thibaultmeyer.bingwallpaper.utils.OperatingSystemUtils;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 /**
- * Linux (GNOME) implementation of {@code WallpaperChanger}.
+ * Linux (GNOME) implementation of {@code WallpaperChanger}. Both the light and
+ * the dark wallpaper keys are read with a single {@code dconf dump} and written
+ * with a single {@code dconf load}.
  */
-public final class LinuxGnomeWallpaperChanger implements WallpaperChanger {
+public final class LinuxGnomeWallpaperChanger extends ProcessWallpaperChanger {
+
+    private static final Path RUNTIME_DIRECTORY = Paths.get("/run/user");
+    private static final String BACKGROUND_DIRECTORY = "/org/gnome/desktop/background/";
+    private static final String KEY_PICTURE_URI = "picture-uri";
+    private static final String KEY_PICTURE_URI_DARK = "picture-uri-dark";
+
+    private final String sessionUser;
+
+    /**
+     * Build a new instance changing the wallpaper of the current user session.
+     */
+    public LinuxGnomeWallpaperChanger() {
+
+        this(null);
+    }
+
+    /**
+     * Build a new instance changing the wallpaper of the session of another user.
+     * The command is run as this user (sudo, without password), on the bus of
+     * the user session.
+     *
+     * @param sessionUser Name of the session user, {@code null} for the current user
+     */
+    public LinuxGnomeWallpaperChanger(final String sessionUser) {
+
+        this.sessionUser = sessionUser;
+    }
 
     @Override
     public boolean canRunOnThisSystem() {
 
         if (OperatingSystemUtils.IS_UNIX || OperatingSystemUtils.IS_SOLARIS) {
+            if (sessionUser != null) {
+                // Desktop of another session can't be detected from here
+                return true;
+            }
+
             String desktop = System.getenv("XDG_CURRENT_DESKTOP");
             if (desktop == null || desktop.isEmpty()) {
                 desktop = System.getenv("DESKTOP_SESSION");
@@ -29,26 +70,114 @@ public final class LinuxGnomeWallpaperChanger implements WallpaperChanger {
     }
 
     @Override
-    public boolean changeWallpaper(final String fileName) {
-
-        if (fileName != null && !fileName.isEmpty()) {
-            try {
-                final String[] args = {
-                    "gsettings",
-                    "set",
-                    "org.gnome.desktop.background",
-                    "picture-uri",
-                    fileName};
-
-                final Runtime runtime = Runtime.getRuntime();
-                final Process process = runtime.exec(args);
-
-                return process.isAlive() || process.exitValue() == 0;
-            } catch (final IOException ex) {
-                ex.printStackTrace();
+    List<String> createQueryCommand(final int displayIndex) throws IOException {
+
+        return createDconfCommand("dump");
+    }
+
+    @Override
+    boolean isCurrentWallpaper(final String queryOutput, final String fileName) {
+
+        final String value = toGVariantString(toFileUri(fileName));
+        final List<String> lineList = Arrays.asList(queryOutput.split("\\R"));
+
+        return lineList.contains(KEY_PICTURE_URI + "=" + value) && lineList.contains(KEY_PICTURE_URI_DARK + "=" + value);
+    }
+
+    @Override
+    List<String> createApplyCommand(final int displayIndex, final String fileName) throws IOException {
+
+        return createDconfCommand("load");
+    }
+
+    @Override
+    String createApplyInput(final int displayIndex, final String fileName) {
+
+        final String value = toGVariantString(toFileUri(fileName));
+
+        return "[/]\n"
+            + KEY_PICTURE_URI + "=" + value + "\n"
+            + KEY_PICTURE_URI_DARK + "=" + value + "\n";
+    }
+
+    /**
+     * Create a dconf command on the background settings. For the session of another
+     * user, the command is run as this user on the bus of its session.
+     *
+     * @param action The dconf action (ie: dump)
+     * @return The command and its arguments
+     * @throws IOException If the session of the user can't be found
+     */
+    private List<String> createDconfCommand(final String action) throws IOException {
+
+        final List<String> commandList = new ArrayList<>();
+        if (sessionUser != null) {
+            final Path sessionBusFile = retrieveSessionBusFile(sessionUser);
+            if (sessionBusFile == null) {
+                throw new IOException("No session found for user " + sessionUser);
             }
+
+            commandList.addAll(Arrays.asList(
+                "sudo",
+                "-n",
+                "-u",
+                sessionUser,
+                "env",
+                "DBUS_SESSION_BUS_ADDRESS=unix:path=" + sessionBusFile));
         }
+        commandList.addAll(Arrays.asList("dconf", action, BACKGROUND_DIRECTORY));
 
-        return false;
+        return commandList;
+    }
+
+    /**
+     * Convert a file name to a file URI (ie: file:///tmp/wallpaper.jpg).
+     *
+     * @param fileName The file name
+     * @return The file URI
+     */
+    private static String toFileUri(final String fileName) {
+
+        return Paths.get(fileName).toAbsolutePath().toUri().toString();
+    }
+
+    /**
+     * Convert a string to its GVariant text format (ie: 'file:///tmp/wallpaper.jpg').
+     *
+     * @param value The string
+     * @return The quoted string
+     */
+    private static String toGVariantString(final String value) {
+
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    /**
+     * Retrieve the bus of the session of a given user: the runtime directory
+     * of each logged-in user is owned by this user (ie: /run/user/1000).
+     *
+     * @param user Name of the user
+     * @return The session bus location, otherwise, {@code null} if user is not logged in
+     * @throws IOException If something goes wrong during the process
+     */
+    private static Path retrieveSessionBusFile(final String user) throws IOException {
+
+        if (!Files.isDirectory(RUNTIME_DIRECTORY)) {
+            return null;
+        }
+
+        final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(RUNTIME_DIRECTORY);
+        try {
+            for (final Path runtimeDirectory : directoryStream) {
+                final Path sessionBusFile = runtimeDirectory.resolve("bus");
+                if (Files.getOwner(runtimeDirectory).getName().equals(user) && Files.exists(sessionBusFile)) {
+                    return sessionBusFile;
+                }
+            }
+        } finally {
+            directoryStream.close();
+        }
+
+        return null;
     }
 }
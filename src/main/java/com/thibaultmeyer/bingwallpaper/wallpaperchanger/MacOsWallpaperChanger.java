@@ -2,12 +2,14 @@ package com.thibaultmeyer.bingwallpaper.wallpaperchanger;
 
 import com.thibaultmeyer.bingwallpaper.utils.OperatingSystemUtils;
 
-import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * MacOS (Apple) implementation of {@code WallpaperChanger}.
  */
-public final class MacOsWallpaperChanger implements WallpaperChanger {
+public final class MacOsWallpaperChanger extends ProcessWallpaperChanger {
 
     @Override
     public boolean canRunOnThisSystem() {
@@ -16,24 +18,46 @@ public final class MacOsWallpaperChanger implements WallpaperChanger {
     }
 
     @Override
-    public boolean changeWallpaper(final String fileName) {
+    public boolean supportsMultipleDisplays() {
 
-        if (fileName != null && !fileName.isEmpty()) {
-            try {
-                final String[] args = {
-                    "osascript",
-                    "-e",
-                    "tell application \"Finder\" to set desktop picture to POSIX file \"" + fileName + "\""};
+        return true;
+    }
+
+    @Override
+    List<String> createQueryCommand(final int displayIndex) {
 
-                final Runtime runtime = Runtime.getRuntime();
-                final Process process = runtime.exec(args);
+        // AppleScript desktops are indexed from 1
+        return Arrays.asList(
+            "osascript",
+            "-e",
+            "tell application \"System Events\" to get picture of desktop " + (displayIndex + 1));
+    }
+
+    @Override
+    boolean isCurrentWallpaper(final String queryOutput, final String fileName) {
+
+        return queryOutput.trim().equals(Paths.get(fileName).toAbsolutePath().toString());
+    }
+
+    @Override
+    List<String> createApplyCommand(final int displayIndex, final String fileName) {
+
+        // AppleScript desktops are indexed from 1
+        return Arrays.asList(
+            "osascript",
+            "-e",
+            "tell application \"System Events\" to set picture of desktop "
+                + (displayIndex + 1) + " to POSIX file \"" + toAppleScriptString(fileName) + "\"");
+    }
 
-                return process.isAlive() || process.exitValue() == 0;
-            } catch (final IOException ex) {
-                ex.printStackTrace();
-            }
-        }
+    /**
+     * Escape a string to be used in an AppleScript string literal.
+     *
+     * @param value The string
+     * @return The escaped string
+     */
+    private static String toAppleScriptString(final String value) {
 
-        return false;
+        return Paths.get(value).toAbsolutePath().toString().replace("\\", "\\\\").replace("\"", "\\\"");
     }
 }
@@ -0,0 +1,206 @@
+package com.thibaultmeyer.bingwallpaper.wallpaperchanger;
+
+import com.thibaultmeyer.bingwallpaper.cache.WallpaperCache;
+import com.thibaultmeyer.bingwallpaper.utils.ProcessUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Wallpaper changer relying on external commands. If the content of the given
+ * file has already been applied by this instance, the current wallpaper is
+ * queried first: if it still is the given file, nothing is done. Otherwise, the
+ * wallpaper is changed, without any query: a single command is run. Both
+ * commands share the timeout, cancelling the change kills the running command.
+ */
+abstract class ProcessWallpaperChanger implements WallpaperChanger {
+
+    private static final long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+    private static final CompletableFuture<ProcessUtils.ProcessResult> CANCELLED = new CompletableFuture<>();
+
+    private final Map<String, String> appliedContentHashMap;
+
+    /**
+     * Build a new instance.
+     */
+    ProcessWallpaperChanger() {
+
+        this.appliedContentHashMap = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public boolean changeWallpaper(final String fileName) {
+
+        return changeWallpaper(0, fileName);
+    }
+
+    @Override
+    public boolean changeWallpaper(final int displayIndex, final String fileName) {
+
+        return changeWallpaperAsync(displayIndex, fileName, DEFAULT_TIMEOUT).join().isSuccess();
+    }
+
+    @Override
+    public CompletableFuture<ApplyResult> changeWallpaperAsync(final int displayIndex,
+                                                               final String fileName,
+                                                               final long timeout) {
+
+        if (fileName == null || fileName.isEmpty() || (displayIndex != 0 && !supportsMultipleDisplays())) {
+            return CompletableFuture.completedFuture(ApplyResult.FAILED);
+        }
+
+        final String appliedContentKey = displayIndex + ":" + fileName;
+        final String contentHash;
+        final boolean isAlreadyApplied;
+        final List<String> queryCommandList;
+        final List<String> applyCommandList;
+        try {
+            contentHash = WallpaperCache.computeHash(Paths.get(fileName));
+            isAlreadyApplied = contentHash.equals(appliedContentHashMap.get(appliedContentKey));
+            queryCommandList = isAlreadyApplied ? createQueryCommand(displayIndex) : null;
+            applyCommandList = createApplyCommand(displayIndex, fileName);
+        } catch (final IOException ex) {
+            System.err.printf("Unable to change wallpaper: %s%n", ex.getMessage());
+            return CompletableFuture.completedFuture(ApplyResult.FAILED);
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final AtomicReference<CompletableFuture<ProcessUtils.ProcessResult>> runningCommand = new AtomicReference<>();
+
+        // Content never applied: whatever the current wallpaper is, it has to be changed
+        final CompletableFuture<Boolean> isUnchangedFuture = !isAlreadyApplied
+            ? CompletableFuture.completedFuture(false)
+            : execute(runningCommand, queryCommandList, null, deadline).handle((queryResult, ex) -> {
+                // The current wallpaper is unknown if the query has failed
+                return ex == null && queryResult.isSuccess() && isCurrentWallpaper(queryResult.output, fileName);
+            });
+
+        final CompletableFuture<ApplyResult> resultFuture = isUnchangedFuture
+            .thenCompose(isUnchanged -> {
+                if (isUnchanged) {
+                    return CompletableFuture.completedFuture(ApplyResult.UNCHANGED);
+                }
+
+                return execute(runningCommand, applyCommandList, createApplyInput(displayIndex, fileName), deadline)
+                    .thenApply(applyResult -> {
+                        if (!applyResult.isSuccess()) {
+                            System.err.printf(
+                                "Unable to change wallpaper (exit code %d): %s%n",
+                                applyResult.exitCode,
+                                applyResult.output.trim());
+                            return ApplyResult.FAILED;
+                        }
+
+                        appliedContentHashMap.put(appliedContentKey, contentHash);
+                        return ApplyResult.APPLIED;
+                    });
+            })
+            .exceptionally(ex -> {
+                final Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                if (cause instanceof TimeoutException) {
+                    return ApplyResult.TIMED_OUT;
+                }
+
+                System.err.printf("Unable to change wallpaper: %s%n", cause.getMessage());
+                return ApplyResult.FAILED;
+            });
+
+        resultFuture.whenComplete((result, ex) -> {
+            if (ex != null) {
+                // Cancelled by the caller: the running command is killed, no other one is started
+                final CompletableFuture<ProcessUtils.ProcessResult> command = runningCommand.getAndSet(CANCELLED);
+                if (command != null) {
+                    command.cancel(true);
+                }
+            }
+        });
+
+        return resultFuture;
+    }
+
+    /**
+     * Create the command retrieving the current wallpaper.
+     *
+     * @param displayIndex Index of the display (0 = main display)
+     * @return The command and its arguments
+     * @throws IOException If the command can't be created
+     */
+    abstract List<String> createQueryCommand(final int displayIndex) throws IOException;
+
+    /**
+     * Determine if the current wallpaper is the given file.
+     *
+     * @param queryOutput Output of the query command
+     * @param fileName    The file
+     * @return {@code true} if the current wallpaper is this file, otherwise, {@code false}
+     */
+    abstract boolean isCurrentWallpaper(final String queryOutput, final String fileName);
+
+    /**
+     * Create the command changing the wallpaper.
+     *
+     * @param displayIndex Index of the display (0 = main display)
+     * @param fileName     New file to use as wallpaper
+     * @return The command and its arguments
+     * @throws IOException If the command can't be created
+     */
+    abstract List<String> createApplyCommand(final int displayIndex, final String fileName) throws IOException;
+
+    /**
+     * Create the standard input of the command changing the wallpaper.
+     *
+     * @param displayIndex Index of the display (0 = main display)
+     * @param fileName     New file to use as wallpaper
+     * @return The standard input, {@code null} if the command does not read it
+     */
+    String createApplyInput(final int displayIndex, final String fileName) {
+
+        return null;
+    }
+
+    /**
+     * Run a command with the time remaining until the deadline.
+     *
+     * @param runningCommand Where the running command is kept, to be cancelled
+     * @param commandList    The command and its arguments
+     * @param input          Written to the standard input of the command, can be {@code null}
+     * @param deadline       The deadline ({@code System.nanoTime()})
+     * @return A future completed with the result of the command
+     */
+    private static CompletableFuture<ProcessUtils.ProcessResult> execute(
+        final AtomicReference<CompletableFuture<ProcessUtils.ProcessResult>> runningCommand,
+        final List<String> commandList,
+        final String input,
+        final long deadline) {
+
+        final CompletableFuture<ProcessUtils.ProcessResult> previousCommand = runningCommand.get();
+        if (previousCommand == CANCELLED) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            return CompletableFuture.failedFuture(new TimeoutException());
+        }
+
+        try {
+            final CompletableFuture<ProcessUtils.ProcessResult> command = ProcessUtils.execute(commandList, input, remaining);
+            if (!runningCommand.compareAndSet(previousCommand, command)) {
+                // Cancelled meanwhile
+                command.cancel(true);
+            }
+            return command;
+        } catch (final IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+}
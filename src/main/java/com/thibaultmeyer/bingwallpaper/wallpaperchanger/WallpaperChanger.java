@@ -1,5 +1,8 @@
 package com.thibaultmeyer.bingwallpaper.wallpaperchanger;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Wallpaper changer.
  */
@@ -19,4 +22,46 @@ public interface WallpaperChanger {
      * @return {@code true} in case of success, otherwise, {@code false}
      */
     boolean changeWallpaper(final String fileName);
+
+    /**
+     * Determine if this wallpaper changer can set a different wallpaper on each display.
+     *
+     * @return {@code true} if it can set a wallpaper per display, otherwise, {@code false}
+     */
+    default boolean supportsMultipleDisplays() {
+
+        return false;
+    }
+
+    /**
+     * Change the Wallpaper of a given display. By default, only the
+     * main display (index 0) is supported.
+     *
+     * @param displayIndex Index of the display (0 = main display)
+     * @param fileName     New file to use as wallpaper
+     * @return {@code true} in case of success, otherwise, {@code false}
+     */
+    default boolean changeWallpaper(final int displayIndex, final String fileName) {
+
+        return displayIndex == 0 && changeWallpaper(fileName);
+    }
+
+    /**
+     * Change the Wallpaper of a given display asynchronously. The returned future can be
+     * cancelled. By default, the change runs on the common pool and is given up once the
+     * timeout has elapsed: unlike external commands, it can't be interrupted.
+     *
+     * @param displayIndex Index of the display (0 = main display)
+     * @param fileName     New file to use as wallpaper
+     * @param timeout      Maximum duration of the change (Milliseconds)
+     * @return A future completed with the result of the change
+     */
+    default CompletableFuture<ApplyResult> changeWallpaperAsync(final int displayIndex,
+                                                                final String fileName,
+                                                                final long timeout) {
+
+        return CompletableFuture
+            .supplyAsync(() -> changeWallpaper(displayIndex, fileName) ? ApplyResult.APPLIED : ApplyResult.FAILED)
+            .completeOnTimeout(ApplyResult.TIMED_OUT, timeout, TimeUnit.MILLISECONDS);
+    }
 }
@@ -4,8 +4,33 @@ module bing.wallpaper {
     requires com.sun.jna;
     requires com.sun.jna.platform;
     requires java.desktop;
+    requires java.management;
+    requires java.net.http;
+    requires jdk.jfr;
+    requires jdk.httpserver;
 
     exports com.thibaultmeyer.bingwallpaper;
+    exports com.thibaultmeyer.bingwallpaper.api;
+    exports com.thibaultmeyer.bingwallpaper.archive;
+    exports com.thibaultmeyer.bingwallpaper.cache;
+    exports com.thibaultmeyer.bingwallpaper.control;
+    exports com.thibaultmeyer.bingwallpaper.display;
+    exports com.thibaultmeyer.bingwallpaper.events;
+    exports com.thibaultmeyer.bingwallpaper.http;
+    exports com.thibaultmeyer.bingwallpaper.image;
+    exports com.thibaultmeyer.bingwallpaper.metrics;
+    exports com.thibaultmeyer.bingwallpaper.profile;
+    exports com.thibaultmeyer.bingwallpaper.relay;
+    exports com.thibaultmeyer.bingwallpaper.resilience;
+    exports com.thibaultmeyer.bingwallpaper.scheduler;
+    exports com.thibaultmeyer.bingwallpaper.source;
     exports com.thibaultmeyer.bingwallpaper.utils;
     exports com.thibaultmeyer.bingwallpaper.wallpaperchanger;
+
+    uses com.thibaultmeyer.bingwallpaper.source.WallpaperSource;
+
+    provides com.thibaultmeyer.bingwallpaper.source.WallpaperSource with
+        com.thibaultmeyer.bingwallpaper.source.BingWallpaperSource,
+        com.thibaultmeyer.bingwallpaper.source.DirectoryWallpaperSource,
+        com.thibaultmeyer.bingwallpaper.source.MirrorWallpaperSource;
 }